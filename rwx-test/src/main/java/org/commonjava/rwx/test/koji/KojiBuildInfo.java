@@ -16,6 +16,7 @@
 package org.commonjava.rwx.test.koji;
 
 import org.commonjava.rwx.anno.DataKey;
+import org.commonjava.rwx.anno.Intern;
 import org.commonjava.rwx.anno.StructPart;
 
 import java.util.Map;
@@ -69,6 +70,7 @@ public class KojiBuildInfo
     private int ownerId;
 
     @DataKey("owner_name")
+    @Intern
     private String ownerName;
 
     @DataKey("nvr")
@@ -93,6 +95,7 @@ public class KojiBuildInfo
     private int taskId;
 
     @DataKey("volume_name")
+    @Intern
     private String volumeName;
 
     @DataKey("extra")
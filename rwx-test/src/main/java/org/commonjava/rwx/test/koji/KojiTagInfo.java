@@ -16,6 +16,7 @@
 package org.commonjava.rwx.test.koji;
 
 import org.commonjava.rwx.anno.DataKey;
+import org.commonjava.rwx.anno.Intern;
 import org.commonjava.rwx.anno.StructPart;
 
 import java.util.List;
@@ -39,6 +40,7 @@ public class KojiTagInfo
     private Integer permissionId;
 
     @DataKey( "arches" )
+    @Intern
     private List<String> arches;
 
     @DataKey( "locked" )
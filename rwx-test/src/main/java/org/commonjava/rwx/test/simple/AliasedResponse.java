@@ -0,0 +1,54 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.test.simple;
+
+import org.commonjava.rwx.anno.DataIndex;
+import org.commonjava.rwx.anno.Response;
+
+import java.util.List;
+
+/**
+ * Stream parsed response with fields of a type that has no stream parser.
+ */
+@Response
+public class AliasedResponse
+{
+    @DataIndex( 0 )
+    private AliasedStruct struct;
+
+    @DataIndex( 1 )
+    private List<AliasedStruct> structs;
+
+    public AliasedStruct getStruct()
+    {
+        return struct;
+    }
+
+    public void setStruct( AliasedStruct struct )
+    {
+        this.struct = struct;
+    }
+
+    public List<AliasedStruct> getStructs()
+    {
+        return structs;
+    }
+
+    public void setStructs( List<AliasedStruct> structs )
+    {
+        this.structs = structs;
+    }
+}
@@ -0,0 +1,68 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.test.simple;
+
+import org.commonjava.rwx.anno.DataIndex;
+import org.commonjava.rwx.anno.Response;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+
+/**
+ * The same base64 value bound to each supported field type.
+ */
+@Response
+public class BinaryResponse
+{
+    @DataIndex( 0 )
+    private byte[] bytes;
+
+    @DataIndex( 1 )
+    private InputStream stream;
+
+    @DataIndex( 2 )
+    private Path path;
+
+    public byte[] getBytes()
+    {
+        return bytes;
+    }
+
+    public void setBytes( byte[] bytes )
+    {
+        this.bytes = bytes;
+    }
+
+    public InputStream getStream()
+    {
+        return stream;
+    }
+
+    public void setStream( InputStream stream )
+    {
+        this.stream = stream;
+    }
+
+    public Path getPath()
+    {
+        return path;
+    }
+
+    public void setPath( Path path )
+    {
+        this.path = path;
+    }
+}
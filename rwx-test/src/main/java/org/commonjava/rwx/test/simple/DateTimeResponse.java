@@ -0,0 +1,82 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.test.simple;
+
+import org.commonjava.rwx.anno.DataIndex;
+import org.commonjava.rwx.anno.Response;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Date;
+
+/**
+ * The same dateTime.iso8601 value bound to each supported field type.
+ */
+@Response
+public class DateTimeResponse
+{
+    @DataIndex( 0 )
+    private Date date;
+
+    @DataIndex( 1 )
+    private Instant instant;
+
+    @DataIndex( 2 )
+    private LocalDateTime localDateTime;
+
+    @DataIndex( 3 )
+    private long epochMillis;
+
+    public Date getDate()
+    {
+        return date;
+    }
+
+    public void setDate( Date date )
+    {
+        this.date = date;
+    }
+
+    public Instant getInstant()
+    {
+        return instant;
+    }
+
+    public void setInstant( Instant instant )
+    {
+        this.instant = instant;
+    }
+
+    public LocalDateTime getLocalDateTime()
+    {
+        return localDateTime;
+    }
+
+    public void setLocalDateTime( LocalDateTime localDateTime )
+    {
+        this.localDateTime = localDateTime;
+    }
+
+    public long getEpochMillis()
+    {
+        return epochMillis;
+    }
+
+    public void setEpochMillis( long epochMillis )
+    {
+        this.epochMillis = epochMillis;
+    }
+}
@@ -0,0 +1,79 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.test.simple;
+
+import org.commonjava.rwx.anno.DataIndex;
+import org.commonjava.rwx.anno.Response;
+import org.commonjava.rwx.model.IntList;
+
+/**
+ * Numeric arrays bound to primitive arrays and lists.
+ */
+@Response
+public class PrimitiveArrayResponse
+{
+    @DataIndex( 0 )
+    private int[] ids;
+
+    @DataIndex( 1 )
+    private long[] timestamps;
+
+    @DataIndex( 2 )
+    private double[] scores;
+
+    @DataIndex( 3 )
+    private IntList idList;
+
+    public int[] getIds()
+    {
+        return ids;
+    }
+
+    public void setIds( int[] ids )
+    {
+        this.ids = ids;
+    }
+
+    public long[] getTimestamps()
+    {
+        return timestamps;
+    }
+
+    public void setTimestamps( long[] timestamps )
+    {
+        this.timestamps = timestamps;
+    }
+
+    public double[] getScores()
+    {
+        return scores;
+    }
+
+    public void setScores( double[] scores )
+    {
+        this.scores = scores;
+    }
+
+    public IntList getIdList()
+    {
+        return idList;
+    }
+
+    public void setIdList( IntList idList )
+    {
+        this.idList = idList;
+    }
+}
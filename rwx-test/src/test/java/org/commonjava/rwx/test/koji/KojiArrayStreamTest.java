@@ -0,0 +1,136 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.test.koji;
+
+import org.commonjava.rwx.api.RWXMapper;
+import org.commonjava.rwx.core.StaxFactory;
+import org.commonjava.rwx.core.XmlRpcParser;
+import org.commonjava.rwx.core.XmlRpcParserPool;
+import org.commonjava.rwx.error.UncheckedXmlRpcException;
+import org.commonjava.rwx.error.XmlRpcFaultException;
+import org.commonjava.rwx.test.AbstractTest;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertSame;
+import static junit.framework.TestCase.fail;
+
+/**
+ * Verify array elements are streamed one at a time.
+ */
+public class KojiArrayStreamTest
+                extends AbstractTest
+{
+    @Test
+    public void streamListTags() throws Exception
+    {
+        RWXMapper mapper = new RWXMapper();
+        try (Stream<KojiTagInfo> tags = mapper.stream( getXMLStream( "kojiListTagsResponse" ), KojiTagInfo.class ))
+        {
+            List<String> names = tags.map( KojiTagInfo::getName ).collect( Collectors.toList() );
+            assertEquals( 4, names.size() );
+            assertEquals( "jb-bxms-6.3-candidate", names.get( 0 ) );
+            assertEquals( "jb-mm-7.0-maven-candidate", names.get( 3 ) );
+        }
+    }
+
+    @Test
+    public void streamWithParserPool() throws Exception
+    {
+        RWXMapper mapper = new RWXMapper();
+        mapper.setParserPool( new XmlRpcParserPool( 1, StaxFactory.getInstance() ) );
+        for ( int i = 0; i < 3; i++ )
+        {
+            try (Stream<KojiTagInfo> tags = mapper.stream( getXMLStream( "kojiListTagsResponse" ),
+                                                           KojiTagInfo.class ))
+            {
+                assertEquals( 4, tags.count() );
+            }
+        }
+    }
+
+    @Test
+    public void parserReleasedWhenExhausted() throws Exception
+    {
+        RWXMapper mapper = new RWXMapper();
+        XmlRpcParserPool pool = new XmlRpcParserPool( 1, StaxFactory.getInstance() );
+        mapper.setParserPool( pool );
+        for ( String doc : new String[] { "kojiListTagsResponse", "kojiListBuildsResponseNIL" } )
+        {
+            XmlRpcParser parser = pool.acquire();
+            pool.release( parser );
+
+            Iterator<KojiTagInfo> tags = mapper.stream( getXMLStream( doc ), KojiTagInfo.class ).iterator();
+            while ( tags.hasNext() )
+            {
+                tags.next();
+            }
+            assertSame( doc, parser, pool.acquire() ); // back in the pool without closing the stream
+        }
+    }
+
+    @Test
+    public void streamUnboundElements() throws Exception
+    {
+        try (Stream<String> values = new RWXMapper().stream( getXMLStream( "requestWithOneArrayParam" ),
+                                                              String.class ))
+        {
+            assertEquals( "test1,test2", values.collect( Collectors.joining( "," ) ) );
+        }
+    }
+
+    @Test
+    public void streamNilArray() throws Exception
+    {
+        try (Stream<KojiBuildInfo> builds = new RWXMapper().stream( getXMLStream( "kojiListBuildsResponseNIL" ),
+                                                                     KojiBuildInfo.class ))
+        {
+            assertEquals( 0, builds.count() );
+        }
+    }
+
+    @Test
+    public void elementsAreBoundAsTheyArrive() throws Exception
+    {
+        String source = getXMLString( "kojiListTagsResponse" );
+        String truncated = source.substring( 0, source.indexOf( "</struct>" ) ) + "</struct></value>";
+
+        Iterator<KojiTagInfo> tags = new RWXMapper().stream( new ByteArrayInputStream( truncated.getBytes() ),
+                                                             KojiTagInfo.class ).iterator();
+        assertEquals( 8829, tags.next().getId() );
+        try
+        {
+            tags.hasNext();
+            fail( "Truncated document accepted" );
+        }
+        catch ( UncheckedXmlRpcException e )
+        {
+            // expected, the rest of the document is missing
+        }
+    }
+
+    @Test( expected = XmlRpcFaultException.class )
+    public void streamFault() throws Exception
+    {
+        new RWXMapper().stream( getXMLStream( "simpleFault" ), KojiTagInfo.class );
+    }
+}
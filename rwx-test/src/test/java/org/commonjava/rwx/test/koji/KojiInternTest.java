@@ -0,0 +1,128 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.test.koji;
+
+import org.commonjava.rwx.api.RWXMapper;
+import org.commonjava.rwx.core.ParseEngine;
+import org.commonjava.rwx.core.StringCache;
+import org.commonjava.rwx.test.AbstractTest;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertNotSame;
+import static junit.framework.TestCase.assertSame;
+
+/**
+ * Verify repeated string values share one instance, for @Intern fields and with a mapper StringCache.
+ */
+public class KojiInternTest
+                extends AbstractTest
+{
+    private static final int BUILDS = 20;
+
+    @Test
+    public void internAnnotatedFields() throws Exception
+    {
+        byte[] response = listBuilds();
+        for ( ParseEngine engine : ParseEngine.values() )
+        {
+            RWXMapper mapper = new RWXMapper();
+            mapper.setParseEngine( engine );
+            List<KojiBuildInfo> builds = mapper.parse( new ByteArrayInputStream( response ), ListBuildResponse.class )
+                                               .getBuilds();
+
+            assertEquals( engine.name(), BUILDS, builds.size() );
+            for ( KojiBuildInfo build : builds )
+            {
+                assertEquals( "jdoe", build.getOwnerName() );
+                assertSame( engine.name(), builds.get( 0 ).getOwnerName(), build.getOwnerName() );
+                assertSame( engine.name(), builds.get( 0 ).getVolumeName(), build.getVolumeName() );
+            }
+        }
+    }
+
+    @Test
+    public void internWithMapperCache() throws Exception
+    {
+        byte[] response = listBuilds();
+        for ( ParseEngine engine : ParseEngine.values() )
+        {
+            RWXMapper mapper = new RWXMapper();
+            mapper.setParseEngine( engine );
+            StringCache cache = new StringCache();
+            mapper.setStringCache( cache );
+            KojiBuildInfo first = mapper.parse( new ByteArrayInputStream( response ), ListBuildResponse.class )
+                                        .getBuilds()
+                                        .get( 0 );
+            KojiBuildInfo second = mapper.parse( new ByteArrayInputStream( response ), ListBuildResponse.class )
+                                         .getBuilds()
+                                         .get( 0 );
+
+            assertSame( engine.name(), cache.intern( new String( "jdoe" ) ), first.getOwnerName() );
+            assertSame( engine.name(), first.getOwnerName(), second.getOwnerName() );
+
+            RWXMapper other = new RWXMapper();
+            other.setParseEngine( engine );
+            KojiBuildInfo unshared = other.parse( new ByteArrayInputStream( response ), ListBuildResponse.class )
+                                          .getBuilds()
+                                          .get( 0 );
+            assertNotSame( engine.name(), first.getOwnerName(), unshared.getOwnerName() );
+        }
+    }
+
+    @Test
+    public void internAllValues() throws Exception
+    {
+        byte[] response = listBuilds();
+        for ( ParseEngine engine : ParseEngine.values() )
+        {
+            RWXMapper mapper = new RWXMapper();
+            mapper.setParseEngine( engine );
+            mapper.setStringCache( new StringCache() );
+            List<KojiBuildInfo> builds = mapper.parse( new ByteArrayInputStream( response ), ListBuildResponse.class )
+                                               .getBuilds();
+
+            for ( KojiBuildInfo build : builds )
+            {
+                assertEquals( "1.0", build.getVersion() );
+                assertSame( engine.name(), builds.get( 0 ).getVersion(), build.getVersion() );
+                assertSame( engine.name(), builds.get( 0 ).getRelease(), build.getRelease() );
+            }
+        }
+    }
+
+    private static byte[] listBuilds() throws Exception
+    {
+        List<KojiBuildInfo> builds = new ArrayList<>();
+        for ( int i = 0; i < BUILDS; i++ )
+        {
+            KojiBuildInfo build = new KojiBuildInfo();
+            build.setBuildId( i );
+            build.setName( "build-" + i );
+            build.setNvr( "build-" + i + "-1.0-1" );
+            build.setVersion( "1.0" );
+            build.setRelease( "1" );
+            build.setOwnerName( "jdoe" );
+            build.setVolumeName( "DEFAULT" );
+            builds.add( build );
+        }
+        return new RWXMapper().render( new ListBuildResponse( builds ) ).getBytes();
+    }
+}
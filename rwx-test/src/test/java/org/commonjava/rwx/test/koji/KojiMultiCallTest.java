@@ -16,6 +16,7 @@
 package org.commonjava.rwx.test.koji;
 
 import org.commonjava.rwx.api.RWXMapper;
+import org.commonjava.rwx.core.ParseEngine;
 import org.commonjava.rwx.core.Registry;
 import org.commonjava.rwx.error.XmlRpcException;
 import org.commonjava.rwx.test.AbstractTest;
@@ -25,6 +26,7 @@ import java.io.ByteArrayInputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 import static junit.framework.TestCase.assertEquals;
 import static junit.framework.TestCase.assertTrue;
@@ -191,4 +193,42 @@ public class KojiMultiCallTest
         assertEquals( 8829, data2_1Map.get( "id" ) );
     }
 
+    @Test
+    public void parseMultiCallResponseInParallel() throws Exception
+    {
+        String source = getXMLString( "kojiMulticallResponse" );
+        int start = source.indexOf( "<data>" ) + "<data>".length();
+        int end = source.lastIndexOf( "</data>" );
+        StringBuilder sb = new StringBuilder( source.substring( 0, start ) );
+        for ( int i = 0; i < 200; i++ )
+        {
+            sb.append( source, start, end );
+        }
+        byte[] xml = sb.append( source.substring( end ) ).toString().getBytes();
+
+        MultiCallResponse expected = new RWXMapper().parse( new ByteArrayInputStream( xml ), MultiCallResponse.class );
+
+        RWXMapper mapper = new RWXMapper();
+        mapper.setParseEngine( ParseEngine.PARALLEL );
+        ForkJoinPool pool = new ForkJoinPool( 4 );
+        mapper.setForkJoinPool( pool );
+        try
+        {
+            MultiCallResponse parsed = mapper.parse( new ByteArrayInputStream( xml ), MultiCallResponse.class );
+
+            List<MultiCallValueObj> valueObjs = parsed.getValueObjs();
+            assertEquals( 400, valueObjs.size() );
+            for ( int i = 0; i < valueObjs.size(); i++ )
+            {
+                assertEquals( expected.getValueObjs().get( i ).getData(), valueObjs.get( i ).getData() );
+            }
+
+            parsed.getValueObjs().subList( 2, 400 ).clear();
+            assertMultiCallResponse( parsed );
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
 }
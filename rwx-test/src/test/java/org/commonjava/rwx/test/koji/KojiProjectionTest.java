@@ -0,0 +1,129 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.test.koji;
+
+import org.commonjava.rwx.api.RWXMapper;
+import org.commonjava.rwx.core.ParseEngine;
+import org.commonjava.rwx.core.Projection;
+import org.commonjava.rwx.core.Registry;
+import org.commonjava.rwx.core.XmlRpcByteParser;
+import org.commonjava.rwx.core.XmlRpcFeedParser;
+import org.commonjava.rwx.model.RpcObject;
+import org.commonjava.rwx.test.AbstractTest;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.Map;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertNull;
+import static junit.framework.TestCase.assertTrue;
+
+/**
+ * Verify struct members that are not bound are skipped by the byte engines.
+ */
+public class KojiProjectionTest
+                extends AbstractTest
+{
+    private static final String UNBOUND_MEMBER = "<member><name>unbound</name><value><struct><member><name>big</name>"
+                    + "<value><array><data><value><int>1</int></value><value><int>2</int></value></data></array>"
+                    + "</value></member></struct></value></member>";
+
+    @Test
+    public void projectionFromRegistry()
+    {
+        Projection projection = Registry.getInstance().getProjection( GetBuildResponse.class );
+
+        Projection buildInfo = projection.element( 0 );
+        assertTrue( buildInfo.includes( "build_id" ) );
+        assertTrue( buildInfo.includes( "extra" ) );
+        assertFalse( buildInfo.includes( "unbound" ) );
+        assertNull( buildInfo.member( "extra" ) ); // Map field, kept whole
+        assertNull( projection.element( 1 ) );
+
+        Projection tags = Registry.getInstance().getProjection( ListTagsResponse.class ).element( 0 );
+        assertTrue( tags.element( 3 ).includes( "maven_support" ) ); // List<KojiTagInfo>, every element
+    }
+
+    @Test
+    public void unboundMembersSkipped() throws Exception
+    {
+        byte[] source = getSourceWithUnboundMember();
+
+        for ( boolean lazy : new boolean[] { false, true } )
+        {
+            XmlRpcByteParser parser = new XmlRpcByteParser();
+            parser.setLazy( lazy );
+            parser.setProjection( Registry.getInstance().getProjection( GetBuildResponse.class ) );
+
+            RpcObject rpcObject = parser.parse( source );
+            Map<String, Object> struct = (Map<String, Object>) rpcObject.getParams().get( 0 );
+            assertFalse( struct.containsKey( "unbound" ) );
+            assertEquals( 513598, struct.get( "build_id" ) );
+        }
+
+        RpcObject all = new XmlRpcByteParser().parse( source );
+        assertTrue( ( (Map<String, Object>) all.getParams().get( 0 ) ).containsKey( "unbound" ) );
+    }
+
+    @Test
+    public void unboundMembersSkippedAcrossChunks() throws Exception
+    {
+        byte[] source = getSourceWithUnboundMember();
+        RpcObject expected = new XmlRpcByteParser().parse( source );
+        ( (Map<String, Object>) expected.getParams().get( 0 ) ).remove( "unbound" );
+
+        XmlRpcFeedParser parser = new XmlRpcFeedParser();
+        parser.setProjection( Registry.getInstance().getProjection( GetBuildResponse.class ) );
+        for ( int size = 1; size < 64; size++ )
+        {
+            parser.reset();
+            boolean done = false;
+            for ( int i = 0; i < source.length && !done; i += size )
+            {
+                done = parser.feed( source, i, Math.min( size, source.length - i ) );
+            }
+            assertTrue( "chunk size " + size, done );
+            assertEquals( "chunk size " + size, expected.getParams(), parser.getResult().getParams() );
+        }
+    }
+
+    @Test
+    public void sameBindingWithAndWithoutProjection() throws Exception
+    {
+        byte[] source = getSourceWithUnboundMember();
+
+        RWXMapper mapper = new RWXMapper();
+        mapper.setParseEngine( ParseEngine.BYTES );
+        KojiBuildInfo projected =
+                        mapper.parse( new ByteArrayInputStream( source ), GetBuildResponse.class ).getBuildInfo();
+
+        mapper.setSkipUnbound( false );
+        KojiBuildInfo full = mapper.parse( new ByteArrayInputStream( source ), GetBuildResponse.class ).getBuildInfo();
+
+        assertEquals( full.getBuildId(), projected.getBuildId() );
+        assertEquals( full.getNvr(), projected.getNvr() );
+        assertEquals( full.getName(), projected.getName() );
+        assertEquals( full.getExtra(), projected.getExtra() );
+    }
+
+    private byte[] getSourceWithUnboundMember() throws Exception
+    {
+        return getXMLString( "kojiGetBuildResponse" ).replaceFirst( "<struct>", "<struct>" + UNBOUND_MEMBER )
+                                                      .getBytes();
+    }
+}
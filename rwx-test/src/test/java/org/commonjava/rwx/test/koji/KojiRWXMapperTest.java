@@ -16,14 +16,27 @@
 package org.commonjava.rwx.test.koji;
 
 import org.commonjava.rwx.api.RWXMapper;
+import org.commonjava.rwx.core.ParseEngine;
+import org.commonjava.rwx.core.SizeHints;
+import org.commonjava.rwx.core.StaxFactory;
+import org.commonjava.rwx.core.XmlRpcFeedParser;
+import org.commonjava.rwx.core.XmlRpcParserPool;
 import org.commonjava.rwx.test.AbstractTest;
 import org.commonjava.rwx.test.simple.RequestWithOneParam;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 
 import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertNull;
 
 /**
  * Created by ruhan on 8/2/17.
@@ -31,6 +44,8 @@ import static junit.framework.TestCase.assertEquals;
 public class KojiRWXMapperTest
                 extends AbstractTest
 {
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
 
     @Test
     public void roundTrip_KrbLoginRequest() throws Exception
@@ -104,6 +119,118 @@ public class KojiRWXMapperTest
         assertGetBuildResponse( rounded );
     }
 
+    @Test
+    public void parseWithParserPool() throws Exception
+    {
+        RWXMapper mapper = new RWXMapper();
+        mapper.setParserPool( new XmlRpcParserPool() );
+
+        for ( int i = 0; i < 3; i++ )
+        {
+            assertGetBuildResponse( mapper.parse( getXMLStream( "kojiGetBuildResponse" ), GetBuildResponse.class ) );
+        }
+    }
+
+    @Test
+    public void parseWithByteEngine() throws Exception
+    {
+        RWXMapper mapper = new RWXMapper();
+        mapper.setParseEngine( ParseEngine.BYTES );
+
+        assertGetBuildResponse( mapper.parse( getXMLStream( "kojiGetBuildResponse" ), GetBuildResponse.class ) );
+        assertListTagsResponse( mapper.parse( getXMLStream( "kojiListTagsResponse" ), ListTagsResponse.class ) );
+    }
+
+    @Test
+    public void parseWithLazyEngine() throws Exception
+    {
+        RWXMapper mapper = new RWXMapper();
+        mapper.setParseEngine( ParseEngine.LAZY );
+
+        assertGetBuildResponse( mapper.parse( getXMLStream( "kojiGetBuildResponse" ), GetBuildResponse.class ) );
+        assertListTagsResponse( mapper.parse( getXMLStream( "kojiListTagsResponse" ), ListTagsResponse.class ) );
+    }
+
+    @Test
+    public void parseFromFile() throws Exception
+    {
+        Path getBuild = temp.getRoot().toPath().resolve( "getBuild.xml" );
+        Path listTags = temp.getRoot().toPath().resolve( "listTags.xml" );
+        Files.copy( getXMLStream( "kojiGetBuildResponse" ), getBuild );
+        Files.copy( getXMLStream( "kojiListTagsResponse" ), listTags );
+
+        RWXMapper mapper = new RWXMapper();
+        for ( ParseEngine engine : ParseEngine.values() )
+        {
+            mapper.setParseEngine( engine );
+            assertGetBuildResponse( mapper.parse( getBuild, GetBuildResponse.class ) );
+            assertListTagsResponse( mapper.parse( listTags, ListTagsResponse.class ) );
+        }
+
+        mapper.setParseEngine( ParseEngine.STAX );
+        mapper.setParserPool( new XmlRpcParserPool( 1, StaxFactory.getInstance() ) );
+        assertGetBuildResponse( mapper.parse( getBuild, GetBuildResponse.class ) );
+        assertGetBuildResponse( mapper.parse( getBuild, GetBuildResponse.class ) );
+    }
+
+    @Test
+    public void parseFromMemory() throws Exception
+    {
+        String source = getXMLString( "kojiGetBuildResponse" );
+        String padded = "####" + source + "####";
+        byte[] bytes = padded.getBytes( StandardCharsets.UTF_8 );
+        int length = bytes.length - 8;
+
+        RWXMapper mapper = new RWXMapper();
+        for ( ParseEngine engine : ParseEngine.values() )
+        {
+            mapper.setParseEngine( engine );
+            assertGetBuildResponse( mapper.parse( source, GetBuildResponse.class ) );
+            assertGetBuildResponse( mapper.parse( new StringBuilder( source ), GetBuildResponse.class ) );
+            assertGetBuildResponse( mapper.parse( padded.toCharArray(), 4, source.length(), GetBuildResponse.class ) );
+            assertGetBuildResponse( mapper.parse( new StringReader( source ), GetBuildResponse.class ) );
+            assertGetBuildResponse( mapper.parse( source.getBytes( StandardCharsets.UTF_8 ), GetBuildResponse.class ) );
+            assertGetBuildResponse( mapper.parse( bytes, 4, length, GetBuildResponse.class ) );
+
+            ByteBuffer buffer = ByteBuffer.wrap( bytes, 4, length );
+            assertGetBuildResponse( mapper.parse( buffer, GetBuildResponse.class ) );
+            assertEquals( 4, buffer.position() );
+        }
+    }
+
+    @Test
+    public void adaptiveSizing() throws Exception
+    {
+        String source = getXMLString( "kojiListTagsResponse" );
+        RWXMapper mapper = new RWXMapper();
+        int tags = mapper.parse( source, ListTagsResponse.class ).getTags().size();
+
+        // the tags are the first param, sized by its path like any other array
+        SizeHints hints = mapper.getSizeHints( ListTagsResponse.class );
+        assertEquals( tags, hints.get( 1 ) );
+        assertListTagsResponse( mapper.parse( source, ListTagsResponse.class ) );
+        assertEquals( tags, hints.get( 1 ) );
+
+        mapper.setAdaptiveSizing( false );
+        assertNull( mapper.getSizeHints( ListTagsResponse.class ) );
+        assertListTagsResponse( mapper.parse( source, ListTagsResponse.class ) );
+    }
+
+    @Test
+    public void parseWithFeedParser() throws Exception
+    {
+        byte[] source = getXMLString( "kojiGetBuildResponse" ).getBytes();
+
+        XmlRpcFeedParser parser = new XmlRpcFeedParser();
+        for ( int i = 0; i < source.length; i += 100 )
+        {
+            parser.feed( source, i, Math.min( 100, source.length - i ) );
+        }
+
+        assertEquals( true, parser.isDone() );
+        assertGetBuildResponse( parser.getResult( GetBuildResponse.class ) );
+    }
+
     private void assertGetBuildResponse( GetBuildResponse response )
     {
         KojiBuildInfo buildInfo = response.getBuildInfo();
@@ -0,0 +1,99 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.test.koji;
+
+import org.commonjava.rwx.api.RWXMapper;
+import org.commonjava.rwx.core.Registry;
+import org.commonjava.rwx.core.XmlRpcParser;
+import org.commonjava.rwx.error.XmlRpcFaultException;
+import org.commonjava.rwx.test.AbstractTest;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertNull;
+import static junit.framework.TestCase.assertTrue;
+
+/**
+ * Verify generated stream parsers bind the same values as the Map/List based parsers.
+ */
+public class KojiStreamParserTest
+                extends AbstractTest
+{
+
+    @Test
+    public void streamParsersRegistered()
+    {
+        Registry registry = Registry.getInstance();
+        assertTrue( registry.hasStreamParser( GetBuildResponse.class ) );
+        assertTrue( registry.hasStreamParser( KojiBuildInfo.class ) );
+        assertTrue( registry.hasStreamParser( MultiCallValueObj.class ) );
+    }
+
+    @Test
+    public void getBuildResponse_sameAsTree() throws Exception
+    {
+        GetBuildResponse streamed =
+                        Registry.getInstance().parseAs( new XmlRpcParser( getXMLStream( "kojiGetBuildResponse" ) ),
+                                                        GetBuildResponse.class );
+        GetBuildResponse tree = Registry.getInstance()
+                                        .parseAs( new XmlRpcParser( getXMLStream( "kojiGetBuildResponse" ) ).parse(),
+                                                  GetBuildResponse.class );
+
+        KojiBuildInfo s = streamed.getBuildInfo();
+        KojiBuildInfo t = tree.getBuildInfo();
+        assertEquals( t.getBuildId(), s.getBuildId() );
+        assertEquals( t.getPackageId(), s.getPackageId() );
+        assertEquals( t.getPackageName(), s.getPackageName() );
+        assertEquals( t.getNvr(), s.getNvr() );
+        assertEquals( t.getOwnerName(), s.getOwnerName() );
+        assertEquals( t.getCompletionTs(), s.getCompletionTs() );
+        assertEquals( t.getExtra(), s.getExtra() );
+        assertNull( s.getExtra() );
+    }
+
+    @Test
+    public void listBuildResponseNIL() throws Exception
+    {
+        ListBuildResponse parsed = new RWXMapper().parse( getXMLStream( "kojiListBuildsResponseNIL" ),
+                                                          ListBuildResponse.class );
+        assertNull( parsed.getBuilds() );
+    }
+
+    @Test
+    public void multiCallResponse_untypedData() throws Exception
+    {
+        MultiCallResponse parsed =
+                        new RWXMapper().parse( getXMLStream( "kojiMulticallResponse" ), MultiCallResponse.class );
+
+        List<MultiCallValueObj> valueObjs = parsed.getValueObjs();
+        assertEquals( 2, valueObjs.size() );
+
+        Map<String, Object> build = (Map) valueObjs.get( 0 ).getData();
+        assertEquals( 513598, build.get( "build_id" ) );
+
+        List<Object> tags = (List) valueObjs.get( 1 ).getData();
+        assertEquals( 4, tags.size() );
+    }
+
+    @Test( expected = XmlRpcFaultException.class )
+    public void faultResponse() throws Exception
+    {
+        new RWXMapper().parse( getXMLStream( "simpleFault" ), GetBuildResponse.class );
+    }
+}
@@ -0,0 +1,59 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.test.simple;
+
+import org.commonjava.rwx.api.RWXMapper;
+import org.commonjava.rwx.core.ParseEngine;
+import org.commonjava.rwx.core.Registry;
+import org.commonjava.rwx.test.AbstractTest;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertTrue;
+
+public class AliasedMapperTest
+                extends AbstractTest
+{
+    private static final String STRUCT = "<value><struct><member><name>name</name><value>jdoe</value></member>"
+                    + "</struct></value>";
+
+    private static final String RESPONSE = "<methodResponse><params><param>" + STRUCT + "</param>"
+                    + "<param><value><array><data>" + STRUCT + STRUCT + "</data></array></value></param>"
+                    + "</params></methodResponse>";
+
+    @Test
+    public void bindFieldsOfUnstreamableType() throws Exception
+    {
+        assertFalse( Registry.getInstance().hasStreamParser( AliasedStruct.class ) );
+        assertTrue( Registry.getInstance().hasStreamParser( AliasedResponse.class ) );
+
+        for ( ParseEngine engine : ParseEngine.values() )
+        {
+            RWXMapper mapper = new RWXMapper();
+            mapper.setParseEngine( engine );
+            AliasedResponse parsed =
+                            mapper.parse( new ByteArrayInputStream( RESPONSE.getBytes() ), AliasedResponse.class );
+
+            assertEquals( engine.name(), "jdoe", parsed.getStruct().getName() );
+            assertEquals( engine.name(), "jdoe", parsed.getStruct().getLabel() );
+            assertEquals( engine.name(), 2, parsed.getStructs().size() );
+            assertEquals( engine.name(), "jdoe", parsed.getStructs().get( 1 ).getLabel() );
+        }
+    }
+}
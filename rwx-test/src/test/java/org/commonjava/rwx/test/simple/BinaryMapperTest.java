@@ -0,0 +1,102 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.test.simple;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.io.IOUtils;
+import org.commonjava.rwx.api.RWXMapper;
+import org.commonjava.rwx.core.ParseEngine;
+import org.commonjava.rwx.core.SpillingBinaryHandler;
+import org.commonjava.rwx.test.AbstractTest;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertTrue;
+
+public class BinaryMapperTest
+                extends AbstractTest
+{
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void bindBinaryFields() throws Exception
+    {
+        byte[] content = new byte[50000];
+        new Random( 11 ).nextBytes( content );
+        String value = "<value><base64>" + Base64.encodeBase64String( content ) + "</base64></value>";
+        String response = "<methodResponse><params><param>" + value + "</param><param>" + value + "</param><param>"
+                        + value + "</param></params></methodResponse>";
+
+        for ( ParseEngine engine : ParseEngine.values() )
+        {
+            for ( boolean spill : new boolean[] { false, true } )
+            {
+                RWXMapper mapper = new RWXMapper();
+                mapper.setParseEngine( engine );
+                if ( spill )
+                {
+                    mapper.setBinaryHandler( new SpillingBinaryHandler( 1024, temp.getRoot().toPath() ) );
+                }
+
+                String label = engine.name() + ( spill ? " spilled" : "" );
+                BinaryResponse parsed = mapper.parse( new ByteArrayInputStream( response.getBytes() ),
+                                                      BinaryResponse.class );
+
+                assertTrue( label, Arrays.equals( content, parsed.getBytes() ) );
+                try (InputStream stream = parsed.getStream())
+                {
+                    assertTrue( label, Arrays.equals( content, IOUtils.toByteArray( stream ) ) );
+                }
+
+                Path path = parsed.getPath();
+                assertTrue( label, Arrays.equals( content, Files.readAllBytes( path ) ) );
+                Files.delete( path );
+
+                // the spilled value bound to the byte[] field is closed, the stream deleted its own file
+                assertEquals( label, 0, temp.getRoot().list().length );
+            }
+        }
+    }
+
+    @Test
+    public void renderBinaryFields() throws Exception
+    {
+        byte[] content = "binary content".getBytes();
+        Path file = temp.newFile().toPath();
+        Files.write( file, content );
+
+        BinaryResponse response = new BinaryResponse();
+        response.setBytes( content );
+        response.setStream( new ByteArrayInputStream( content ) );
+        response.setPath( file );
+
+        String rendered = new RWXMapper().render( response );
+        String value = "<param><value><base64>" + new String( Base64.encodeBase64( content ) )
+                        + "</base64></value></param>";
+        assertTrue( rendered, rendered.contains( value + value + value ) );
+        assertEquals( 3, rendered.split( "<base64>" ).length - 1 );
+    }
+}
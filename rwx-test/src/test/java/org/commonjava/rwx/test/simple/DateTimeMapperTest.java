@@ -0,0 +1,88 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.test.simple;
+
+import org.commonjava.rwx.api.RWXMapper;
+import org.commonjava.rwx.core.ParseEngine;
+import org.commonjava.rwx.test.AbstractTest;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.TimeZone;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertTrue;
+
+public class DateTimeMapperTest
+                extends AbstractTest
+{
+    private static final String VALUE = "<value><dateTime.iso8601>20170713T10:15:30</dateTime.iso8601></value>";
+
+    private static final String RESPONSE =
+                    "<methodResponse><params><param>" + VALUE + "</param><param>" + VALUE + "</param><param>" + VALUE
+                                    + "</param><param>" + VALUE + "</param></params></methodResponse>";
+
+    private final TimeZone defaultZone = TimeZone.getDefault();
+
+    @After
+    public void restoreZone()
+    {
+        TimeZone.setDefault( defaultZone );
+    }
+
+    @Test
+    public void bindJavaTimeFields() throws Exception
+    {
+        TimeZone.setDefault( TimeZone.getTimeZone( "America/New_York" ) );
+        Instant expected = Instant.parse( "2017-07-13T14:15:30Z" );
+
+        for ( ParseEngine engine : ParseEngine.values() )
+        {
+            RWXMapper mapper = new RWXMapper();
+            mapper.setParseEngine( engine );
+            DateTimeResponse parsed =
+                            mapper.parse( new ByteArrayInputStream( RESPONSE.getBytes() ), DateTimeResponse.class );
+
+            assertEquals( engine.name(), expected.toEpochMilli(), parsed.getDate().getTime() );
+            assertEquals( engine.name(), expected, parsed.getInstant() );
+            assertEquals( engine.name(), LocalDateTime.of( 2017, 7, 13, 10, 15, 30 ), parsed.getLocalDateTime() );
+            assertEquals( engine.name(), expected.toEpochMilli(), parsed.getEpochMillis() );
+        }
+    }
+
+    @Test
+    public void renderJavaTimeFields() throws Exception
+    {
+        TimeZone.setDefault( TimeZone.getTimeZone( "UTC" ) );
+        DateTimeResponse response = new DateTimeResponse();
+        response.setInstant( Instant.parse( "2017-07-13T10:15:30Z" ) );
+        response.setLocalDateTime( LocalDateTime.of( 2017, 7, 13, 10, 15, 30 ) );
+
+        String rendered = new RWXMapper().render( response );
+        assertTrue( rendered, rendered.contains(
+                        "<param><value><dateTime.iso8601>20170713T101530</dateTime.iso8601></value></param>"
+                                        + "<param><value><dateTime.iso8601>20170713T101530</dateTime.iso8601></value>"
+                                        + "</param>" ) );
+
+        DateTimeResponse parsed =
+                        new RWXMapper().parse( new ByteArrayInputStream( rendered.getBytes() ), DateTimeResponse.class );
+        assertEquals( response.getInstant(), parsed.getInstant() );
+        assertEquals( response.getLocalDateTime(), parsed.getLocalDateTime() );
+    }
+}
@@ -0,0 +1,122 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.test.simple;
+
+import org.commonjava.rwx.api.RWXMapper;
+import org.commonjava.rwx.core.ParseEngine;
+import org.commonjava.rwx.error.XmlRpcException;
+import org.commonjava.rwx.model.IntList;
+import org.commonjava.rwx.test.AbstractTest;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertNull;
+import static junit.framework.TestCase.assertTrue;
+import static junit.framework.TestCase.fail;
+
+public class PrimitiveArrayMapperTest
+                extends AbstractTest
+{
+    private static final String IDS =
+                    "<value><array><data><value><int>1</int></value><value><i4>-2</i4></value><value><int>300000</int>"
+                                    + "</value></data></array></value>";
+
+    private static final String RESPONSE = "<methodResponse><params><param>" + IDS + "</param><param><value><array><data>"
+                    + "<value><i8>1500000000000</i8></value><value><int>7</int></value></data></array></value></param>"
+                    + "<param><value><array><data><value><double>0.5</double></value><value><double>-1.25</double>"
+                    + "</value></data></array></value></param><param>" + IDS + "</param></params></methodResponse>";
+
+    @Test
+    public void bindPrimitiveArrays() throws Exception
+    {
+        for ( ParseEngine engine : ParseEngine.values() )
+        {
+            PrimitiveArrayResponse parsed = parse( engine, RESPONSE );
+
+            assertTrue( engine.name(), Arrays.equals( new int[] { 1, -2, 300000 }, parsed.getIds() ) );
+            assertTrue( engine.name(), Arrays.equals( new long[] { 1500000000000L, 7 }, parsed.getTimestamps() ) );
+            assertTrue( engine.name(), Arrays.equals( new double[] { 0.5, -1.25 }, parsed.getScores() ) );
+            assertEquals( engine.name(), Arrays.asList( 1, -2, 300000 ), parsed.getIdList() );
+            assertEquals( engine.name(), 300000, parsed.getIdList().getInt( 2 ) );
+        }
+    }
+
+    @Test
+    public void nilAndEmptyArrays() throws Exception
+    {
+        String response = "<methodResponse><params><param><value><nil/></value></param><param><value><array><data>"
+                        + "</data></array></value></param><param><value><nil/></value></param><param><value><nil/>"
+                        + "</value></param></params></methodResponse>";
+        for ( ParseEngine engine : ParseEngine.values() )
+        {
+            PrimitiveArrayResponse parsed = parse( engine, response );
+            assertNull( engine.name(), parsed.getIds() );
+            assertEquals( engine.name(), 0, parsed.getTimestamps().length );
+            assertNull( engine.name(), parsed.getIdList() );
+        }
+    }
+
+    @Test
+    public void missingElement() throws Exception
+    {
+        String response = "<methodResponse><params><param><value><array><data><value><int>1</int></value>"
+                        + "<value><nil/></value></data></array></value></param></params></methodResponse>";
+        try
+        {
+            parse( ParseEngine.STAX, response );
+            fail( "Expected a nil element of an int array to fail" );
+        }
+        catch ( XmlRpcException e )
+        {
+            // expected
+        }
+    }
+
+    @Test
+    public void renderPrimitiveArrays() throws Exception
+    {
+        PrimitiveArrayResponse response = new PrimitiveArrayResponse();
+        response.setIds( new int[] { 1, 2 } );
+        response.setTimestamps( new long[] { 1500000000000L } );
+        response.setScores( new double[] { 2135000000.5 } );
+        IntList idList = new IntList();
+        idList.add( 3 );
+        response.setIdList( idList );
+
+        String rendered = new RWXMapper().render( response );
+        assertTrue( rendered, rendered.contains(
+                        "<value><array><data><value><int>1</int></value><value><int>2</int></value></data></array>"
+                                        + "</value>" ) );
+        assertTrue( rendered, rendered.contains( "<value><i8>1500000000000</i8></value>" ) );
+        assertTrue( rendered, rendered.contains( "<value><double>2135000000.5</double></value>" ) );
+
+        PrimitiveArrayResponse parsed = parse( ParseEngine.STAX, rendered );
+        assertTrue( Arrays.equals( response.getIds(), parsed.getIds() ) );
+        assertTrue( Arrays.equals( response.getTimestamps(), parsed.getTimestamps() ) );
+        assertTrue( Arrays.equals( response.getScores(), parsed.getScores() ) );
+        assertEquals( idList, parsed.getIdList() );
+    }
+
+    private PrimitiveArrayResponse parse( ParseEngine engine, String response ) throws Exception
+    {
+        RWXMapper mapper = new RWXMapper();
+        mapper.setParseEngine( engine );
+        return mapper.parse( new ByteArrayInputStream( response.getBytes() ), PrimitiveArrayResponse.class );
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.test.stax;
+
+import org.apache.commons.io.IOUtils;
+import org.commonjava.rwx.api.RWXMapper;
+import org.commonjava.rwx.core.StaxFactory;
+import org.commonjava.rwx.core.StaxProvider;
+import org.commonjava.rwx.test.AbstractTest;
+import org.commonjava.rwx.test.koji.GetBuildResponse;
+import org.commonjava.rwx.test.koji.ListTagsResponse;
+import org.commonjava.rwx.test.koji.MultiCallResponse;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Compare parse throughput of the StAX providers on the Koji fixtures. This is skipped unless run with
+ * -Drwx.benchmark=true, e.g., mvn test -Dtest=StaxProviderBenchmark -Drwx.benchmark=true
+ */
+public class StaxProviderBenchmark
+                extends AbstractTest
+{
+    private static final int WARMUP = 10000;
+
+    private static final int ITERATIONS = 50000;
+
+    @Test
+    public void benchmark() throws Exception
+    {
+        assumeTrue( Boolean.getBoolean( "rwx.benchmark" ) );
+
+        byte[] getBuild = IOUtils.toByteArray( getXMLStream( "kojiGetBuildResponse" ) );
+        byte[] listTags = IOUtils.toByteArray( getXMLStream( "kojiListTagsResponse" ) );
+        byte[] multiCall = IOUtils.toByteArray( getXMLStream( "kojiMulticallResponse" ) );
+
+        for ( StaxProvider provider : StaxProvider.values() )
+        {
+            if ( !provider.isAvailable() )
+            {
+                System.out.println( provider + ": not available" );
+                continue;
+            }
+
+            RWXMapper mapper = new RWXMapper();
+            mapper.setStaxFactory( new StaxFactory( provider ) );
+
+            run( mapper, getBuild, listTags, multiCall, WARMUP );
+
+            long start = System.nanoTime();
+            run( mapper, getBuild, listTags, multiCall, ITERATIONS );
+            long elapsed = System.nanoTime() - start;
+
+            System.out.println( String.format( "%-8s %8d ns/op (getBuild + listTags + multicall)", provider,
+                                               elapsed / ITERATIONS ) );
+        }
+    }
+
+    private void run( RWXMapper mapper, byte[] getBuild, byte[] listTags, byte[] multiCall, int iterations )
+                    throws Exception
+    {
+        for ( int i = 0; i < iterations; i++ )
+        {
+            mapper.parse( new ByteArrayInputStream( getBuild ), GetBuildResponse.class );
+            mapper.parse( new ByteArrayInputStream( listTags ), ListTagsResponse.class );
+            mapper.parse( new ByteArrayInputStream( multiCall ), MultiCallResponse.class );
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.test.stax;
+
+import org.commonjava.rwx.api.RWXMapper;
+import org.commonjava.rwx.core.StaxFactory;
+import org.commonjava.rwx.core.StaxProvider;
+import org.commonjava.rwx.core.XmlRpcParser;
+import org.commonjava.rwx.model.MethodResponse;
+import org.commonjava.rwx.test.AbstractTest;
+import org.commonjava.rwx.test.koji.GetBuildResponse;
+import org.commonjava.rwx.test.koji.MultiCallResponse;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.Map;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertNull;
+import static junit.framework.TestCase.assertTrue;
+import static org.commonjava.rwx.util.ParseUtils.nullifyNil;
+
+/**
+ * Parse the Koji fixtures with each StAX provider.
+ */
+public class StaxProviderTest
+                extends AbstractTest
+{
+    @Test
+    public void allProvidersAvailable()
+    {
+        for ( StaxProvider provider : StaxProvider.values() )
+        {
+            assertTrue( provider + " not available", provider.isAvailable() );
+        }
+    }
+
+    @Test
+    public void defaultPropertiesDisableDtd()
+    {
+        Map<String, Object> properties = StaxFactory.getInstance().getProperties();
+        assertFalse( (Boolean) properties.get( "javax.xml.stream.supportDTD" ) );
+        assertTrue( (Boolean) properties.get( "javax.xml.stream.isCoalescing" ) );
+        assertTrue( (Boolean) properties.get( "javax.xml.stream.isNamespaceAware" ) );
+    }
+
+    @Test
+    public void prefixedNilWithEachProvider() throws Exception
+    {
+        String xml = "<methodResponse xmlns:ex=\"http://ws.apache.org/xmlrpc/namespaces/extensions\"><params>"
+                        + "<param><value><ex:nil/></value></param></params></methodResponse>";
+        for ( StaxProvider provider : StaxProvider.values() )
+        {
+            XmlRpcParser parser =
+                            new XmlRpcParser( new ByteArrayInputStream( xml.getBytes() ), new StaxFactory( provider ) );
+
+            MethodResponse response = (MethodResponse) parser.parse();
+            assertNull( provider.name(), nullifyNil( response.getParams().get( 0 ) ) );
+        }
+    }
+
+    @Test
+    public void parseWithEachProvider() throws Exception
+    {
+        for ( StaxProvider provider : StaxProvider.values() )
+        {
+            RWXMapper mapper = new RWXMapper();
+            mapper.setStaxFactory( new StaxFactory( provider ) );
+
+            GetBuildResponse build = mapper.parse( getXMLStream( "kojiGetBuildResponse" ), GetBuildResponse.class );
+            assertEquals( provider.name(), 513598, build.getBuildInfo().getBuildId() );
+            assertEquals( provider.name(), "org.dashbuilder-dashbuilder-parent-metadata",
+                          build.getBuildInfo().getPackageName() );
+
+            MultiCallResponse multiCall =
+                            mapper.parse( getXMLStream( "kojiMulticallResponse" ), MultiCallResponse.class );
+            assertEquals( provider.name(), 4, ( (List) multiCall.getValueObjs().get( 1 ).getData() ).size() );
+        }
+    }
+}
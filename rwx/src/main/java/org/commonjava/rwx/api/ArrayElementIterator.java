@@ -0,0 +1,130 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.api;
+
+import org.commonjava.rwx.core.Registry;
+import org.commonjava.rwx.core.XmlRpcParser;
+import org.commonjava.rwx.error.UncheckedXmlRpcException;
+import org.commonjava.rwx.error.XmlRpcException;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import static org.commonjava.rwx.util.ParseUtils.nullifyNil;
+
+/**
+ * Binds the elements of an array param one at a time, as they are read from the stream. Used by
+ * {@link RWXMapper#stream(java.io.InputStream, Class)}.
+ */
+final class ArrayElementIterator<T>
+                implements Iterator<T>, Closeable
+{
+    private final XmlRpcParser parser;
+
+    private final Class<T> elementType;
+
+    private final Runnable onClose;
+
+    private boolean done;
+
+    private boolean pending;
+
+    private boolean closed;
+
+    /**
+     * @param parser positioned inside the &lt;data&gt; of the array, or null for an empty array
+     * @param onClose releases the parser
+     */
+    ArrayElementIterator( final XmlRpcParser parser, final Class<T> elementType, final Runnable onClose )
+    {
+        this.parser = parser;
+        this.elementType = elementType;
+        this.onClose = onClose;
+        this.done = parser == null;
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+        if ( pending )
+        {
+            return true;
+        }
+
+        if ( !done )
+        {
+            try
+            {
+                pending = parser.nextValue();
+            }
+            catch ( XmlRpcException e )
+            {
+                throw new UncheckedXmlRpcException( e );
+            }
+            if ( pending )
+            {
+                return true;
+            }
+        }
+
+        close(); // exhausted, release the parser even if the stream is never closed
+        return false;
+    }
+
+    @Override
+    public T next()
+    {
+        if ( !hasNext() )
+        {
+            throw new NoSuchElementException();
+        }
+        pending = false;
+
+        Registry registry = Registry.getInstance();
+        try
+        {
+            if ( registry.hasStreamParser( elementType ) )
+            {
+                return registry.parseAs( parser, elementType );
+            }
+
+            Object value = nullifyNil( parser.readValue() );
+            if ( value == null )
+            {
+                return null;
+            }
+            return registry.hasParser( elementType ) ? registry.parseAs( value, elementType, parser.getInternCache() )
+                            : elementType.cast( value );
+        }
+        catch ( XmlRpcException e )
+        {
+            throw new UncheckedXmlRpcException( e );
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        done = true;
+        pending = false;
+        if ( !closed )
+        {
+            closed = true;
+            onClose.run();
+        }
+    }
+}
@@ -17,15 +17,44 @@ package org.commonjava.rwx.api;
 
 import org.commonjava.rwx.error.XmlRpcException;
 import org.commonjava.rwx.error.XmlRpcFaultException;
-import org.commonjava.rwx.core.Parser;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.commonjava.rwx.core.BinaryHandler;
+import org.commonjava.rwx.core.ContainerFactory;
+import org.commonjava.rwx.core.ParseEngine;
+import org.commonjava.rwx.core.ParseEventListener;
+import org.commonjava.rwx.core.ParseLimits;
+import org.commonjava.rwx.core.Projection;
 import org.commonjava.rwx.core.Registry;
-import org.commonjava.rwx.core.Renderer;
+import org.commonjava.rwx.core.RpcPath;
+import org.commonjava.rwx.core.RpcVisitor;
+import org.commonjava.rwx.core.SizeHints;
+import org.commonjava.rwx.core.StaxFactory;
+import org.commonjava.rwx.core.StringCache;
+import org.commonjava.rwx.core.XmlRpcByteParser;
+import org.commonjava.rwx.core.XmlRpcParallelParser;
 import org.commonjava.rwx.core.XmlRpcParser;
+import org.commonjava.rwx.core.XmlRpcParserPool;
 import org.commonjava.rwx.model.Fault;
 import org.commonjava.rwx.model.RpcObject;
+import org.commonjava.rwx.util.ParseUtils;
 
 import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static org.commonjava.rwx.util.RenderUtils.toXMLString;
 
@@ -34,6 +63,30 @@ import static org.commonjava.rwx.util.RenderUtils.toXMLString;
  */
 public final class RWXMapper
 {
+    private StaxFactory staxFactory;
+
+    private XmlRpcParserPool parserPool;
+
+    private ParseEngine parseEngine = ParseEngine.STAX;
+
+    private boolean skipUnbound = true;
+
+    private ParseEventListener parseEventListener;
+
+    private ContainerFactory containerFactory = ContainerFactory.DEFAULT;
+
+    private ParseLimits parseLimits = ParseLimits.NONE;
+
+    private BinaryHandler binaryHandler;
+
+    private StringCache stringCache;
+
+    private ForkJoinPool forkJoinPool;
+
+    private boolean adaptiveSizing = true;
+
+    private final Map<Class<?>, SizeHints> sizeHints = new ConcurrentHashMap<>();
+
     /**
      * Render an object to XML-RPC request or response string.
      *
@@ -48,7 +101,13 @@ public final class RWXMapper
     }
 
     /**
-     * Parse a XML-RPC request or response stream (XML string) to an object.
+     * Parse a XML-RPC request or response stream (XML string) to an object. If a stream parser is registered for the
+     * type, the object is bound in a single pass over the stream. Otherwise, the stream is parsed to a Map/List based
+     * RpcObject first and then bound by the registered parser. With {@link ParseEngine#BYTES}, the stream is read
+     * fully and parsed by {@link XmlRpcByteParser} to the RpcObject. With {@link ParseEngine#LAZY}, struct and array
+     * values are only decoded when the registered parser reads them. With {@link ParseEngine#PARALLEL}, the elements of
+     * array params are decoded and bound on the fork join pool. These skip the struct members that the type does not
+     * bind, unless {@link #setSkipUnbound(boolean)} is turned off.
      *
      * @param stream
      * @param type
@@ -58,7 +117,229 @@ public final class RWXMapper
      */
     public <T> T parse( InputStream stream, Class<T> type ) throws XmlRpcException
     {
-        final XmlRpcParser xmlRpcParser = new XmlRpcParser( stream );
+        if ( parseEngine != ParseEngine.STAX )
+        {
+            return parseBytes( stream, type );
+        }
+
+        return parseWithStax( parser -> parser.reset( stream ), type );
+    }
+
+    /**
+     * Parse a XML-RPC request or response held in a String, StringBuilder or other character sequence, see
+     * {@link #parse(InputStream, Class)}. The characters are read as they are, without encoding them to bytes first,
+     * so the document is parsed with StAX regardless of the parse engine.
+     */
+    public <T> T parse( CharSequence xml, Class<T> type ) throws XmlRpcException
+    {
+        return parseWithStax( parser -> parser.reset( xml ), type );
+    }
+
+    /**
+     * Parse a XML-RPC request or response from a char array slice, without copying it, see
+     * {@link #parse(CharSequence, Class)}.
+     */
+    public <T> T parse( char[] xml, int offset, int length, Class<T> type ) throws XmlRpcException
+    {
+        return parseWithStax( parser -> parser.reset( xml, offset, length ), type );
+    }
+
+    /**
+     * Parse a XML-RPC request or response from a reader, see {@link #parse(CharSequence, Class)}. The reader is not
+     * closed.
+     */
+    public <T> T parse( Reader reader, Class<T> type ) throws XmlRpcException
+    {
+        return parseWithStax( parser -> parser.reset( reader ), type );
+    }
+
+    public <T> T parse( byte[] xml, Class<T> type ) throws XmlRpcException
+    {
+        return parse( xml, 0, xml.length, type );
+    }
+
+    /**
+     * Parse a XML-RPC request or response from a byte array slice, see {@link #parse(InputStream, Class)}. Every
+     * parse engine reads the slice in place, without copying it. With {@link ParseEngine#LAZY} the result may still
+     * read from the array, which must not be changed while the result is in use.
+     */
+    public <T> T parse( byte[] xml, int offset, int length, Class<T> type ) throws XmlRpcException
+    {
+        if ( parseEngine != ParseEngine.STAX )
+        {
+            return parseBuffer( ByteBuffer.wrap( xml, offset, length ), type );
+        }
+        return parseWithStax( parser -> parser.reset( xml, offset, length ), type );
+    }
+
+    /**
+     * Parse a XML-RPC request or response from the bytes between the buffer's position and limit, see
+     * {@link #parse(InputStream, Class)}. Every parse engine reads the buffer in place; its position is not changed.
+     * With {@link ParseEngine#LAZY} the result may still read from the buffer, which must not be changed while the
+     * result is in use.
+     */
+    public <T> T parse( ByteBuffer xml, Class<T> type ) throws XmlRpcException
+    {
+        if ( parseEngine != ParseEngine.STAX )
+        {
+            return parseBuffer( xml, type );
+        }
+        return parseWithStax( parser -> parser.reset( xml ), type );
+    }
+
+    /**
+     * Parse a XML-RPC request or response file to an object, see {@link #parse(InputStream, Class)}. The file is mapped
+     * into memory and parsed from the mapping, so even large files are not copied to the heap. The byte engines
+     * tokenize the mapped bytes directly and StAX reads them through a stream over the mapping.
+     *
+     * @throws XmlRpcException if the file can't be read, or is larger than 2 GB
+     */
+    public <T> T parse( Path path, Class<T> type ) throws XmlRpcException
+    {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open( path, StandardOpenOption.READ ))
+        {
+            buffer = ParseUtils.map( channel );
+        }
+        catch ( IOException e )
+        {
+            throw new XmlRpcException( "Failed to read " + path + ": " + e.getMessage(), e );
+        }
+
+        if ( parseEngine != ParseEngine.STAX )
+        {
+            return parseBuffer( buffer, type );
+        }
+
+        return parseWithStax( parser -> parser.reset( buffer ), type );
+    }
+
+    /**
+     * Stream the elements of the array in the first param of a XML-RPC request or response, e.g. the builds of a
+     * Koji listBuilds response. Each element is parsed and bound when the stream reaches it, so only one element is
+     * held in memory at a time. The stream is parsed with StAX, regardless of the parse engine.
+     *
+     * The parser is released once the last element is read; close the returned stream to release it when not all
+     * elements are consumed. The input stream is not closed. Errors while reading elements
+     * are thrown as {@link org.commonjava.rwx.error.UncheckedXmlRpcException}.
+     *
+     * @param elementType type of the array elements, e.g. a class annotated with @StructPart
+     * @return elements of the array, empty if the param is missing, nil or an empty array
+     * @throws XmlRpcFaultException if the document is a fault response
+     */
+    public <T> Stream<T> stream( InputStream stream, Class<T> elementType ) throws XmlRpcException
+    {
+        final XmlRpcParserPool pool = parserPool;
+        final XmlRpcParser xmlRpcParser = acquireParser( pool );
+        Runnable release = () -> releaseParser( pool, xmlRpcParser );
+
+        ArrayElementIterator<T> iterator;
+        try
+        {
+            xmlRpcParser.reset( stream );
+            xmlRpcParser.setSizeHints( getSizeHints( elementType ) );
+            boolean inArray = xmlRpcParser.beginParams() && xmlRpcParser.nextValue() && xmlRpcParser.beginArray();
+            iterator = new ArrayElementIterator<>( inArray ? xmlRpcParser : null, elementType, release );
+        }
+        catch ( XmlRpcException | RuntimeException e )
+        {
+            release.run();
+            throw e;
+        }
+
+        return StreamSupport.stream( Spliterators.spliteratorUnknownSize( iterator, Spliterator.ORDERED ), false )
+                            .onClose( iterator::close );
+    }
+
+    /**
+     * Walk a XML-RPC request or response with a visitor, without building a tree or binding a type. The document is
+     * read with StAX, regardless of the parse engine, with the limits, string cache and binary handler of this mapper.
+     */
+    public void visit( InputStream stream, RpcVisitor visitor ) throws XmlRpcException
+    {
+        final XmlRpcParserPool pool = parserPool;
+        final XmlRpcParser xmlRpcParser = acquireParser( pool );
+        try
+        {
+            xmlRpcParser.reset( stream ).visit( visitor );
+        }
+        finally
+        {
+            releaseParser( pool, xmlRpcParser );
+        }
+    }
+
+    /**
+     * Select values from a XML-RPC request or response with a compiled path, e.g. the build ids of a Koji listBuilds
+     * response, without parsing the rest of the document. Read with StAX, regardless of the parse engine.
+     *
+     * @return the matching values, see {@link RpcPath#select(XmlRpcParser)}
+     */
+    public List<Object> select( InputStream stream, RpcPath path ) throws XmlRpcException
+    {
+        final XmlRpcParserPool pool = parserPool;
+        final XmlRpcParser xmlRpcParser = acquireParser( pool );
+        try
+        {
+            return path.select( xmlRpcParser.reset( stream ) );
+        }
+        finally
+        {
+            releaseParser( pool, xmlRpcParser );
+        }
+    }
+
+    /**
+     * @return a parser from the pool, or a new one without a pool, with the listener and containers of this mapper
+     */
+    private XmlRpcParser acquireParser( XmlRpcParserPool pool )
+    {
+        XmlRpcParser xmlRpcParser = pool == null ? new XmlRpcParser( getStaxFactory() ) : pool.acquire();
+        xmlRpcParser.setParseEventListener( parseEventListener );
+        xmlRpcParser.setContainerFactory( containerFactory );
+        xmlRpcParser.setParseLimits( parseLimits );
+        xmlRpcParser.setBinaryHandler( binaryHandler );
+        xmlRpcParser.setStringCache( stringCache );
+        xmlRpcParser.setSizeHints( null );
+        return xmlRpcParser;
+    }
+
+    private void releaseParser( XmlRpcParserPool pool, XmlRpcParser xmlRpcParser )
+    {
+        if ( pool == null )
+        {
+            xmlRpcParser.close();
+        }
+        else
+        {
+            pool.release( xmlRpcParser );
+        }
+    }
+
+    private <T> T parseWithStax( Input input, Class<T> type ) throws XmlRpcException
+    {
+        final XmlRpcParserPool pool = parserPool;
+        final XmlRpcParser xmlRpcParser = acquireParser( pool );
+        try
+        {
+            return parse( input.reset( xmlRpcParser ), type );
+        }
+        finally
+        {
+            releaseParser( pool, xmlRpcParser );
+        }
+    }
+
+    private <T> T parse( XmlRpcParser xmlRpcParser, Class<T> type ) throws XmlRpcException
+    {
+        xmlRpcParser.setSizeHints( getSizeHints( type ) );
+
+        Registry registry = Registry.getInstance();
+        if ( registry.hasStreamParser( type ) )
+        {
+            return registry.parseAs( xmlRpcParser, type );
+        }
+
         RpcObject rpcObject = null;
         try
         {
@@ -74,6 +355,221 @@ public final class RWXMapper
             throw new XmlRpcFaultException( (Fault) rpcObject );
         }
 
-        return Registry.getInstance().parseAs( rpcObject, type );
+        return registry.parseAs( rpcObject, type, xmlRpcParser.getInternCache() );
+    }
+
+    private <T> T parseBytes( InputStream stream, Class<T> type ) throws XmlRpcException
+    {
+        byte[] bytes;
+        try
+        {
+            // one byte over the limit is enough to reject the document
+            long max = parseLimits.getMaxBytes();
+            bytes = IOUtils.toByteArray( max < Long.MAX_VALUE ? new BoundedInputStream( stream, max + 1 ) : stream );
+        }
+        catch ( IOException e )
+        {
+            throw new XmlRpcException( "Failed to read stream", e );
+        }
+        return parseBuffer( ByteBuffer.wrap( bytes ), type );
+    }
+
+    private <T> T parseBuffer( ByteBuffer buffer, Class<T> type ) throws XmlRpcException
+    {
+        Projection projection = skipUnbound ? Registry.getInstance().getProjection( type ) : null;
+        RpcObject rpcObject;
+        if ( parseEngine == ParseEngine.PARALLEL )
+        {
+            XmlRpcParallelParser parser = new XmlRpcParallelParser( getForkJoinPool(), getStaxFactory() );
+            parser.setContainerFactory( containerFactory );
+            parser.setParseLimits( parseLimits );
+            parser.setBinaryHandler( binaryHandler );
+            parser.setStringCache( stringCache );
+            parser.setProjection( projection );
+            rpcObject = parser.parse( buffer, type );
+        }
+        else
+        {
+            XmlRpcByteParser parser = new XmlRpcByteParser( getStaxFactory() );
+            parser.setLazy( parseEngine == ParseEngine.LAZY );
+            parser.setContainerFactory( containerFactory );
+            parser.setParseLimits( parseLimits );
+            parser.setBinaryHandler( binaryHandler );
+            parser.setStringCache( stringCache );
+            parser.setProjection( projection );
+            rpcObject = parser.parse( buffer );
+        }
+        if ( rpcObject instanceof Fault )
+        {
+            throw new XmlRpcFaultException( (Fault) rpcObject );
+        }
+
+        return Registry.getInstance().parseAs( rpcObject, type, stringCache );
+    }
+
+    /**
+     * @return the StAX factory used by this mapper, the shared {@link StaxFactory#getInstance()} if none is set
+     */
+    public StaxFactory getStaxFactory()
+    {
+        return staxFactory == null ? StaxFactory.getInstance() : staxFactory;
+    }
+
+    public void setStaxFactory( StaxFactory staxFactory )
+    {
+        this.staxFactory = staxFactory;
+    }
+
+    public ParseEngine getParseEngine()
+    {
+        return parseEngine;
+    }
+
+    public void setParseEngine( ParseEngine parseEngine )
+    {
+        this.parseEngine = parseEngine;
+    }
+
+    public boolean isSkipUnbound()
+    {
+        return skipUnbound;
+    }
+
+    /**
+     * Skip struct members that are not bound to the parsed type, see {@link Registry#getProjection(Class)}. On by
+     * default, used by the byte engines. Stream parsers of the STAX engine always skip unbound members.
+     */
+    public void setSkipUnbound( boolean skipUnbound )
+    {
+        this.skipUnbound = skipUnbound;
+    }
+
+    public XmlRpcParserPool getParserPool()
+    {
+        return parserPool;
+    }
+
+    /**
+     * Reuse parsers from the pool instead of creating one per parse. The pool's StAX factory is used for parsing then.
+     */
+    public void setParserPool( XmlRpcParserPool parserPool )
+    {
+        this.parserPool = parserPool;
+    }
+
+    public ParseEventListener getParseEventListener()
+    {
+        return parseEventListener;
+    }
+
+    /**
+     * Report the elements and values of parsed documents to the listener. Only the STAX engine reports events.
+     */
+    public void setParseEventListener( ParseEventListener parseEventListener )
+    {
+        this.parseEventListener = parseEventListener;
+    }
+
+    public ContainerFactory getContainerFactory()
+    {
+        return containerFactory;
+    }
+
+    /**
+     * Create the Maps and Lists of parsed structs and arrays with the factory, e.g.
+     * {@link org.commonjava.rwx.core.CompactContainerFactory} to keep large responses small in memory.
+     */
+    public void setContainerFactory( ContainerFactory containerFactory )
+    {
+        this.containerFactory = containerFactory;
+    }
+
+    public ParseLimits getParseLimits()
+    {
+        return parseLimits;
+    }
+
+    /**
+     * Reject documents exceeding the limits with a {@link org.commonjava.rwx.error.ParseLimitException}, with any parse
+     * engine. {@link ParseLimits#NONE} by default.
+     */
+    public void setParseLimits( ParseLimits parseLimits )
+    {
+        this.parseLimits = parseLimits;
+    }
+
+    public BinaryHandler getBinaryHandler()
+    {
+        return binaryHandler;
+    }
+
+    /**
+     * Decode base64 values into the handler as they are parsed, e.g.
+     * {@link org.commonjava.rwx.core.SpillingBinaryHandler} to keep large values out of the heap. Fields of type
+     * InputStream or Path can bind the resulting {@link org.commonjava.rwx.model.BinaryValue}s. null by default, for
+     * byte[] values.
+     */
+    public void setBinaryHandler( BinaryHandler binaryHandler )
+    {
+        this.binaryHandler = binaryHandler;
+    }
+
+    public StringCache getStringCache()
+    {
+        return stringCache;
+    }
+
+    /**
+     * Deduplicate all string values of the parsed documents through the cache, which is shared by the parses of this
+     * mapper, e.g. for large list responses that are kept in memory. null by default; fields annotated with
+     * {@link org.commonjava.rwx.anno.Intern} are deduplicated either way.
+     */
+    public void setStringCache( StringCache stringCache )
+    {
+        this.stringCache = stringCache;
+    }
+
+    /**
+     * @return the pool of {@link ParseEngine#PARALLEL}, the common pool if none is set
+     */
+    public ForkJoinPool getForkJoinPool()
+    {
+        return forkJoinPool == null ? ForkJoinPool.commonPool() : forkJoinPool;
+    }
+
+    public void setForkJoinPool( ForkJoinPool forkJoinPool )
+    {
+        this.forkJoinPool = forkJoinPool;
+    }
+
+    public boolean isAdaptiveSizing()
+    {
+        return adaptiveSizing;
+    }
+
+    /**
+     * Presize the structs and arrays the StAX engine builds, and the lists of the generated stream parsers, from the
+     * sizes earlier parses of the same type found at the same path, see {@link SizeHints}. On by default.
+     */
+    public void setAdaptiveSizing( boolean adaptiveSizing )
+    {
+        this.adaptiveSizing = adaptiveSizing;
+        sizeHints.clear();
+    }
+
+    /**
+     * @return the size hints kept for parses of the type, null if adaptive sizing is off
+     */
+    public SizeHints getSizeHints( Class<?> type )
+    {
+        return adaptiveSizing ? sizeHints.computeIfAbsent( type, t -> new SizeHints() ) : null;
+    }
+
+    /**
+     * Document to parse, set on a parser with one of its reset methods.
+     */
+    private interface Input
+    {
+        XmlRpcParser reset( XmlRpcParser parser ) throws XmlRpcException;
     }
 }
@@ -19,6 +19,8 @@ import groovy.lang.Writable;
 import groovy.text.GStringTemplateEngine;
 import groovy.text.Template;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringEscapeUtils;
+import org.apache.commons.lang.StringUtils;
 import org.commonjava.rwx.anno.*;
 import org.commonjava.rwx.anno.Converter;
 import org.commonjava.rwx.util.ProcessorUtils;
@@ -76,6 +78,8 @@ public class AnnoProcessor
 
     private static final String PARSER_TEMPLATE = "Parser.groovy";
 
+    private static final String STREAM_PARSER_TEMPLATE = "StreamParser.groovy";
+
     private static final String REGISTRY_TEMPLATE = "Registry.groovy";
 
     final GStringTemplateEngine engine = new GStringTemplateEngine();
@@ -87,6 +91,7 @@ public class AnnoProcessor
 
         Template rendererTemplate = getTemplate( RENDERER_TEMPLATE );
         Template parserTemplate = getTemplate( PARSER_TEMPLATE );
+        Template streamParserTemplate = getTemplate( STREAM_PARSER_TEMPLATE );
         Template registryTemplate = getTemplate( REGISTRY_TEMPLATE );
 
         try
@@ -97,14 +102,30 @@ public class AnnoProcessor
             Set<? extends Element> arrayClasses = roundEnv.getElementsAnnotatedWith( ArrayPart.class );
 
             Set<? extends Element> classes = union( requestClasses, responseClasses, structClasses, arrayClasses );
+            Set<String> unstreamable = new HashSet<>();
             for ( Element elem : classes )
             {
+                if ( hasDuplicateKeys( (TypeElement) elem ) )
+                {
+                    unstreamable.add( ( (TypeElement) elem ).getQualifiedName().toString() );
+                }
+            }
+
+            Set<Element> streamableClasses = new HashSet<>();
+            List<Map<String, Object>> bindings = new ArrayList<>();
+            for ( Element elem : classes )
+            {
+                bindings.add( getBinding( (TypeElement) elem ) );
                 writeRendererFile( (TypeElement) elem, roundEnv, rendererTemplate );
                 writeParserFile( (TypeElement) elem, roundEnv, parserTemplate );
+                if ( writeStreamParserFile( (TypeElement) elem, roundEnv, streamParserTemplate, unstreamable ) )
+                {
+                    streamableClasses.add( elem );
+                }
             }
             if ( !classes.isEmpty() )
             {
-                writeRegistryFile( classes, roundEnv, registryTemplate );
+                writeRegistryFile( classes, streamableClasses, bindings, roundEnv, registryTemplate );
             }
         }
         catch ( IOException e )
@@ -115,11 +136,13 @@ public class AnnoProcessor
         return true;
     }
 
-    private void writeRegistryFile( Set<? extends Element> classes, RoundEnvironment roundEnvironment,
+    private void writeRegistryFile( Set<? extends Element> classes, Set<Element> streamableClasses,
+                                    List<Map<String, Object>> bindings, RoundEnvironment roundEnvironment,
                                     Template registryTemplate )
     {
         List<String> imports = new ArrayList<>();
         List<String> simpleClassNames = new ArrayList<>();
+        List<String> streamableSimpleClassNames = new ArrayList<>();
 
         Set<String> packageNames = new HashSet<>();
         for ( Element elem : classes )
@@ -133,6 +156,11 @@ public class AnnoProcessor
             imports.add( packageName + "." + GENERATED + "." + simpleClassName + "_Parser" );
             simpleClassNames.add( simpleClassName );
             packageNames.add( packageName );
+            if ( streamableClasses.contains( elem ) )
+            {
+                imports.add( packageName + "." + GENERATED + "." + simpleClassName + "_StreamParser" );
+                streamableSimpleClassNames.add( simpleClassName );
+            }
         }
 
         String registryClassName = getRegistryClassName( packageNames );
@@ -147,10 +175,67 @@ public class AnnoProcessor
         templateParams.put( "registrySimpleClassName", registrySimpleClassName );
         templateParams.put( "imports", imports );
         templateParams.put( "classes", simpleClassNames );
+        templateParams.put( "streamableClasses", streamableSimpleClassNames );
+        templateParams.put( "bindings", bindings );
 
         generateOutput( registryTemplate, templateParams, registryClassName );
     }
 
+    /**
+     * Get the binding metadata of a class for the registry, i.e., the keys or indexes it binds and the classes bound to
+     * them. Parsers use it to skip struct members that are not bound.
+     */
+    private Map<String, Object> getBinding( TypeElement typeElement )
+    {
+        Map<String, Object> templateParams = new HashMap<>();
+        templateParams.put( "structPart", false );
+
+        if ( typeElement.getAnnotation( StructPart.class ) != null )
+        {
+            handleStructPart( templateParams, typeElement, "set", ProcessorUtils::getParserClassName );
+        }
+        else
+        {
+            handleArrayPart( templateParams, typeElement, "set", ProcessorUtils::getParserClassName );
+        }
+
+        List<String> keys = new ArrayList<>();
+        List<String> types = new ArrayList<>();
+        List<String> lists = new ArrayList<>();
+        for ( Object param : (List<Object>) templateParams.get( "params" ) )
+        {
+            Item item = (Item) param;
+            if ( item != null && item.getKey() != null )
+            {
+                keys.add( "\"" + StringEscapeUtils.escapeJava( item.getKey() ) + "\"" );
+            }
+            types.add( getBoundClass( item ) );
+            lists.add( String.valueOf( item != null && item.getContains() && !"null".equals( getBoundClass( item ) ) ) );
+        }
+
+        Map<String, Object> binding = new HashMap<>();
+        binding.put( "className", typeElement.getQualifiedName().toString() );
+        binding.put( "structPart", templateParams.get( "structPart" ) );
+        binding.put( "keys", StringUtils.join( keys, ", " ) );
+        binding.put( "types", StringUtils.join( types, ", " ) );
+        binding.put( "lists", lists.contains( "true" ) ? StringUtils.join( lists, ", " ) : null );
+        return binding;
+    }
+
+    /**
+     * @return class literal of the annotated class bound to a field, "null" if the value is bound as it is or by a
+     * converter
+     */
+    private String getBoundClass( Item item )
+    {
+        if ( item == null || item.getConverter() != null || item.getActionClass() == null
+                        || item.isActionConverter() )
+        {
+            return "null";
+        }
+        return ( item.getContains() ? item.getElementClass() : item.getType() ) + ".class";
+    }
+
     private void writeParserFile( TypeElement typeElement, RoundEnvironment roundEnvironment, Template template )
                     throws IOException
     {
@@ -191,6 +276,94 @@ public class AnnoProcessor
         generateOutput( template, templateParams, parserClassName );
     }
 
+    /**
+     * Generate a single-pass parser that binds fields directly from the XML-RPC stream. Fields of an unstreamable
+     * type are read with readValue() and bound by the tree parser of that type.
+     * @param unstreamable types that can not be bound in a single pass, see {@link #hasDuplicateKeys(TypeElement)}
+     * @return false if the type is unstreamable
+     */
+    private boolean writeStreamParserFile( TypeElement typeElement, RoundEnvironment roundEnvironment,
+                                           Template template, Set<String> unstreamable ) throws IOException
+    {
+        String qName = typeElement.getQualifiedName().toString();
+        if ( unstreamable.contains( qName ) )
+        {
+            debug( "Skip stream parser for " + qName + ", duplicate keys" );
+            return false;
+        }
+        String[] split = getPackageAndClassName( qName );
+
+        String packageName = split[0];
+        String simpleClassName = split[1];
+
+        String parserSimpleClassName = simpleClassName + "_StreamParser";
+        String parserPackageName = ( packageName == null ) ? GENERATED : packageName + "." + GENERATED;
+        String parserClassName = parserPackageName + "." + parserSimpleClassName;
+
+        Map<String, Object> templateParams = new HashMap<>();
+        templateParams.put( "parserPackageName", parserPackageName );
+        templateParams.put( "qName", qName );
+        templateParams.put( "simpleClassName", simpleClassName );
+        templateParams.put( "structPart", false );
+        templateParams.put( "arrayPart", false );
+
+        String method = "set";
+
+        StructPart structPart = typeElement.getAnnotation( StructPart.class );
+        if ( structPart != null )
+        {
+            handleStructPart( templateParams, typeElement, method, ProcessorUtils::getStreamParserClassName );
+        }
+        else
+        {
+            ArrayPart arrayPart = typeElement.getAnnotation( ArrayPart.class );
+            if ( arrayPart != null )
+            {
+                templateParams.put( "arrayPart", true );
+            }
+            handleArrayPart( templateParams, typeElement, method, ProcessorUtils::getStreamParserClassName );
+        }
+
+        for ( Object param : (List<Object>) templateParams.get( "params" ) )
+        {
+            Item item = (Item) param;
+            String type = item.getContains() ? item.getElementClass() : item.getType();
+            if ( item.getActionClass() != null && !item.isActionConverter() && unstreamable.contains( type ) )
+            {
+                item.setActionClass( ProcessorUtils.getParserClassName( type ) );
+                item.setActionConverter( true );
+            }
+        }
+
+        generateOutput( template, templateParams, parserClassName );
+        return true;
+    }
+
+    /**
+     * @return true if two fields of a @StructPart are bound to the same struct key, so that the type can not be bound
+     * in a single pass
+     */
+    private boolean hasDuplicateKeys( TypeElement typeElement )
+    {
+        if ( typeElement.getAnnotation( StructPart.class ) == null )
+        {
+            return false;
+        }
+
+        Map<String, Object> templateParams = new HashMap<>();
+        handleStructPart( templateParams, typeElement, "set", ProcessorUtils::getStreamParserClassName );
+        Set<String> keys = new HashSet<>();
+        for ( Object param : (List<Object>) templateParams.get( "params" ) )
+        {
+            if ( !keys.add( ( (Item) param ).getKey() ) )
+            {
+                debug( typeElement.getQualifiedName() + " has duplicate key: " + ( (Item) param ).getKey() );
+                return true;
+            }
+        }
+        return false;
+    }
+
     private void writeRendererFile( TypeElement typeElement, RoundEnvironment roundEnvironment, Template template )
                     throws IOException
     {
@@ -337,6 +510,7 @@ public class AnnoProcessor
 
         item.setMethodName( getMethodName( method, e ) );
         item.setType( type );
+        item.setIntern( e.getAnnotation( Intern.class ) != null );
 
         Converter converter = getConverter( e );
 
@@ -355,6 +529,11 @@ public class AnnoProcessor
                 item.setContains( true );
                 item.setLocalListVariableName( e.getSimpleName().toString() );
                 actionClass = getActionClass( elementClass, function );
+                item.setActionConverter( isConverterType( elementClass ) );
+            }
+            else
+            {
+                item.setActionConverter( isConverterType( type ) );
             }
             item.setActionClass( actionClass );
         }
@@ -428,6 +607,12 @@ public class AnnoProcessor
         return actionClass;
     }
 
+    private boolean isConverterType( String type )
+    {
+        TypeElement typeElement = processingEnv.getElementUtils().getTypeElement( type );
+        return typeElement != null && getConverter( typeElement ) != null;
+    }
+
     private Template getTemplate( String templateName )
     {
         Template template;
@@ -489,6 +674,10 @@ public class AnnoProcessor
 
         private String converter;
 
+        private boolean actionConverter;
+
+        private boolean intern;
+
         public Item()
         {
         }
@@ -536,6 +725,15 @@ public class AnnoProcessor
         }
 
         // upgrade cast, e.g., cast Int value to Long because Koji may return int,i4, or i8 for a long field
+        // or a dateTime.iso8601 Date to Instant or LocalDateTime, or a base64 BinaryValue to byte[], InputStream or Path,
+        // or an array of numbers to a primitive array or list
+        private static final Set<String> upgradeCastTypes = new HashSet<>(
+                        Arrays.asList( "long", "java.lang.Long", "java.time.Instant", "java.time.LocalDateTime",
+                                       "byte[]", "java.io.InputStream", "java.nio.file.Path", "int[]", "long[]",
+                                       "double[]", "org.commonjava.rwx.model.IntList",
+                                       "org.commonjava.rwx.model.LongList",
+                                       "org.commonjava.rwx.model.DoubleList" ) );
+
         private boolean isUpgradeCast;
 
         public boolean isUpgradeCast()
@@ -543,11 +741,66 @@ public class AnnoProcessor
             return isUpgradeCast;
         }
 
+        /**
+         * @return the XmlRpcParser getter that feeds a primitive setter without boxing, or null
+         */
+        public String getPrimitiveGetter()
+        {
+            if ( type == null )
+            {
+                return null;
+            }
+            switch ( type )
+            {
+                case "int":
+                    return "getIntValue";
+                case "long":
+                    return "getLongValue";
+                case "double":
+                    return "getDoubleValue";
+                case "boolean":
+                    return "getBooleanValue";
+                default:
+                    return null;
+            }
+        }
+
+        /**
+         * @return Int, Long or Double for int[], long[], double[] and IntList, LongList, DoubleList fields, which stream
+         * parsers fill with XmlRpcParser.readIntList() etc. without boxing, or null
+         */
+        public String getPrimitiveElement()
+        {
+            if ( type == null )
+            {
+                return null;
+            }
+            switch ( type )
+            {
+                case "int[]":
+                case "org.commonjava.rwx.model.IntList":
+                    return "Int";
+                case "long[]":
+                case "org.commonjava.rwx.model.LongList":
+                    return "Long";
+                case "double[]":
+                case "org.commonjava.rwx.model.DoubleList":
+                    return "Double";
+                default:
+                    return null;
+            }
+        }
+
+        public boolean isPrimitiveArray()
+        {
+            return type != null && type.endsWith( "[]" );
+        }
+
         public void setType( String type )
         {
             this.type = type;
             this.isPrimitive = primitives.contains( type );
-            if ( "long".equals( type ) || "java.lang.Long".equals( type ) )
+            if ( upgradeCastTypes.contains( type ) )
             {
                 isUpgradeCast = true;
             }
@@ -602,5 +855,32 @@ public class AnnoProcessor
         {
             this.converter = converter;
         }
+
+        /**
+         * Whether actionClass works on the parsed Map/List rather than the stream: a user Converter, or in a stream
+         * parser, the tree parser of a type without a stream parser.
+         */
+        public boolean isActionConverter()
+        {
+            return actionConverter;
+        }
+
+        public void setActionConverter( boolean actionConverter )
+        {
+            this.actionConverter = actionConverter;
+        }
+
+        /**
+         * Whether the field is annotated with @Intern, so that its values are taken from the shared StringCache.
+         */
+        public boolean isIntern()
+        {
+            return intern;
+        }
+
+        public void setIntern( boolean intern )
+        {
+            this.intern = intern;
+        }
     }
 }
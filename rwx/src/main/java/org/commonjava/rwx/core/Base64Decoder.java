@@ -0,0 +1,164 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.core;
+
+import org.commonjava.rwx.error.CoercionException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Incremental base64 decoder, writing the bytes of a value to a stream as its text arrives in chunks. Like the
+ * commons-codec decoder used for whole values, it accepts the standard and URL safe alphabets, skips other characters
+ * such as line breaks and stops at the first padding character.
+ */
+final class Base64Decoder
+{
+    private static final byte[] DECODE = new byte[128];
+
+    static
+    {
+        Arrays.fill( DECODE, (byte) -1 );
+        for ( int i = 0; i < 26; i++ )
+        {
+            DECODE['A' + i] = (byte) i;
+            DECODE['a' + i] = (byte) ( 26 + i );
+        }
+        for ( int i = 0; i < 10; i++ )
+        {
+            DECODE['0' + i] = (byte) ( 52 + i );
+        }
+        DECODE['+'] = DECODE['-'] = 62;
+        DECODE['/'] = DECODE['_'] = 63;
+    }
+
+    private final byte[] buffer = new byte[8192];
+
+    private int count;
+
+    private OutputStream out;
+
+    // sextets of the current quantum
+    private int bits;
+
+    private int sextets;
+
+    private boolean padded;
+
+    // characters other than padding seen, bytes written
+    private boolean text;
+
+    private long size;
+
+    void reset( final OutputStream out )
+    {
+        this.out = out;
+        count = 0;
+        bits = 0;
+        sextets = 0;
+        padded = false;
+        text = false;
+        size = 0;
+    }
+
+    void decode( final char[] chars, final int offset, final int length ) throws IOException
+    {
+        for ( int i = offset; i < offset + length; i++ )
+        {
+            accept( chars[i] );
+        }
+    }
+
+    void decode( final ByteBuffer buf, final int start, final int end ) throws IOException
+    {
+        for ( int i = start; i < end; i++ )
+        {
+            accept( buf.get( i ) & 0xff );
+        }
+    }
+
+    /**
+     * Write the bytes of a final partial quantum and flush.
+     *
+     * @return number of bytes decoded
+     * @throws CoercionException if the text had no base64 content, as ValueType.BASE64 reports
+     */
+    long finish() throws IOException, CoercionException
+    {
+        if ( sextets == 2 )
+        {
+            put( bits >> 4 );
+        }
+        else if ( sextets == 3 )
+        {
+            put( bits >> 10 );
+            put( bits >> 2 );
+        }
+        sextets = 0;
+        out.write( buffer, 0, count );
+        count = 0;
+        out = null;
+
+        if ( size == 0 && text )
+        {
+            throw new CoercionException( "Invalid Base64 input" );
+        }
+        return size;
+    }
+
+    private void accept( final int c ) throws IOException
+    {
+        if ( padded )
+        {
+            return;
+        }
+        if ( c == '=' )
+        {
+            padded = true;
+            return;
+        }
+
+        text = true;
+        int sextet = c < 128 ? DECODE[c] : -1;
+        if ( sextet < 0 )
+        {
+            return;
+        }
+
+        bits = ( bits << 6 ) | sextet;
+        if ( ++sextets == 4 )
+        {
+            put( bits >> 16 );
+            put( bits >> 8 );
+            put( bits );
+            bits = 0;
+            sextets = 0;
+        }
+    }
+
+    private void put( final int b ) throws IOException
+    {
+        if ( count == buffer.length )
+        {
+            out.write( buffer, 0, count );
+            count = 0;
+        }
+        buffer[count++] = (byte) b;
+        size++;
+    }
+}
@@ -0,0 +1,60 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.core;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Receives base64 values as they are decoded, instead of building a byte[] from the whole text. Set it on
+ * {@link XmlRpcParser}, {@link XmlRpcByteParser} or {@link org.commonjava.rwx.api.RWXMapper}, e.g.
+ * {@link SpillingBinaryHandler} to keep large values in temporary files, or an implementation that writes to where
+ * the content is going anyway.
+ *
+ * Implementations must be thread safe when shared between parsers.
+ */
+public interface BinaryHandler
+{
+    /**
+     * Called at the first text of a base64 element.
+     *
+     * @return the stream decoded bytes are written to
+     */
+    OutputStream begin() throws IOException;
+
+    /**
+     * Called at the end of the element, after all bytes were written.
+     *
+     * @param out the stream returned by {@link #begin()}
+     * @return the value of the element in the parsed document
+     */
+    Object end( OutputStream out ) throws IOException;
+
+    /**
+     * Called instead of {@link #end(OutputStream)} if the document fails to parse. Closes the stream by default.
+     */
+    default void abort( OutputStream out )
+    {
+        try
+        {
+            out.close();
+        }
+        catch ( IOException e )
+        {
+            // already failing
+        }
+    }
+}
@@ -0,0 +1,756 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.core;
+
+import org.commonjava.rwx.error.XmlRpcException;
+import org.commonjava.rwx.vocab.ValueType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.commonjava.rwx.vocab.XmlRpcConstants.*;
+
+/**
+ * Minimal XML tokenizer for XML-RPC documents in UTF-8 (or ISO-8859-1) bytes. Element names are recognized by byte
+ * comparison against the fixed XML-RPC vocabulary, and text is only decoded into a String when asked for.
+ *
+ * It supports what XML-RPC payloads use: elements (attributes are skipped), text with the predefined and numeric
+ * character references, CDATA sections, comments and processing instructions. DTDs are rejected.
+ */
+final class ByteTokenizer
+{
+    static final int START_TAG = 1;
+
+    static final int END_TAG = 2;
+
+    static final int EMPTY_TAG = 3;
+
+    static final int TEXT = 4;
+
+    static final int END_DOCUMENT = 5;
+
+    // partial input ends before the next complete token
+    static final int NEED_INPUT = 6;
+
+    // tag ids, the XML-RPC structural elements followed by the primitive value types
+    static final int UNKNOWN = 0;
+
+    static final int T_REQUEST = 1;
+
+    static final int T_RESPONSE = 2;
+
+    static final int T_FAULT = 3;
+
+    static final int T_METHOD_NAME = 4;
+
+    static final int T_PARAMS = 5;
+
+    static final int T_PARAM = 6;
+
+    static final int T_VALUE = 7;
+
+    static final int T_STRUCT = 8;
+
+    static final int T_MEMBER = 9;
+
+    static final int T_NAME = 10;
+
+    static final int T_ARRAY = 11;
+
+    static final int T_DATA = 12;
+
+    static final int T_NIL = 13;
+
+    private static final byte[][] TAG_NAMES;
+
+    private static final ValueType[] TAG_TYPES;
+
+    static
+    {
+        List<String> names = new ArrayList<>();
+        List<ValueType> types = new ArrayList<>();
+        String[] structural = { null, REQUEST, RESPONSE, FAULT, METHOD_NAME, PARAMS, PARAM, VALUE, STRUCT, MEMBER, NAME,
+                        ARRAY, DATA, NIL };
+        for ( String name : structural )
+        {
+            names.add( name );
+            types.add( null );
+        }
+        for ( ValueType type : ValueType.values() )
+        {
+            if ( type == ValueType.STRUCT || type == ValueType.ARRAY || type == ValueType.NIL )
+            {
+                continue;
+            }
+            for ( String tag : type.getTags() )
+            {
+                names.add( tag );
+                types.add( type );
+            }
+        }
+
+        TAG_NAMES = new byte[names.size()][];
+        for ( int i = 1; i < TAG_NAMES.length; i++ )
+        {
+            TAG_NAMES[i] = names.get( i ).getBytes( StandardCharsets.US_ASCII );
+        }
+        TAG_TYPES = types.toArray( new ValueType[types.size()] );
+    }
+
+    private ByteBuffer buf;
+
+    private int pos;
+
+    private int limit;
+
+    private boolean latin1;
+
+    private boolean partial;
+
+    private boolean truncated;
+
+    private int tag;
+
+    private int nameStart;
+
+    private int nameEnd;
+
+    private int textStart;
+
+    private int textEnd;
+
+    private boolean cdata;
+
+    private char[] chars = new char[64];
+
+    void reset( final ByteBuffer buf, final int pos, final int limit, final boolean latin1 )
+    {
+        this.buf = buf;
+        this.pos = pos;
+        this.limit = limit;
+        this.latin1 = latin1;
+    }
+
+    /**
+     * Continue with the next part of the input. Bytes not consumed yet must be at the start of the new range.
+     */
+    void resume( final ByteBuffer buf, final int pos, final int limit )
+    {
+        this.buf = buf;
+        this.pos = pos;
+        this.limit = limit;
+    }
+
+    /**
+     * In partial mode, the input may end anywhere. {@link #next()} returns NEED_INPUT instead of failing on an
+     * incomplete token, or END_DOCUMENT at the end of the input.
+     */
+    void setPartial( final boolean partial )
+    {
+        this.partial = partial;
+    }
+
+    boolean isPartial()
+    {
+        return partial;
+    }
+
+    /**
+     * Release the buffer.
+     */
+    void clear()
+    {
+        this.buf = null;
+    }
+
+    /**
+     * @return value type of a primitive tag id, null for structural or unknown tags
+     */
+    static ValueType valueType( final int tag )
+    {
+        return TAG_TYPES[tag];
+    }
+
+    int getPosition()
+    {
+        return pos;
+    }
+
+    /**
+     * @return id of the current START_TAG, END_TAG or EMPTY_TAG, UNKNOWN if not in the XML-RPC vocabulary
+     */
+    int getTag()
+    {
+        return tag;
+    }
+
+    int next() throws XmlRpcException
+    {
+        if ( !partial )
+        {
+            return nextToken();
+        }
+
+        int start = pos;
+        try
+        {
+            int event = nextToken();
+            if ( event == END_DOCUMENT || ( event == TEXT && textEnd == limit && !cdata ) )
+            {
+                pos = start; // text may continue in the next part
+                return NEED_INPUT;
+            }
+            return event;
+        }
+        catch ( XmlRpcException e )
+        {
+            if ( truncated )
+            {
+                truncated = false;
+                pos = start;
+                return NEED_INPUT;
+            }
+            throw e;
+        }
+    }
+
+    private int nextToken() throws XmlRpcException
+    {
+        while ( pos < limit )
+        {
+            if ( buf.get( pos ) != '<' )
+            {
+                textStart = pos;
+                textEnd = indexOf( (byte) '<', pos );
+                if ( textEnd < 0 )
+                {
+                    textEnd = limit;
+                }
+                pos = textEnd;
+                cdata = false;
+                return TEXT;
+            }
+
+            byte c = byteAt( pos + 1 );
+            if ( c == '/' )
+            {
+                readName( pos + 2 );
+                pos = indexOf( (byte) '>', nameEnd );
+                if ( pos < 0 )
+                {
+                    throw unexpectedEnd();
+                }
+                pos++;
+                return END_TAG;
+            }
+            else if ( c == '?' )
+            {
+                pos = skipPast( "?>", pos + 2 );
+            }
+            else if ( c == '!' )
+            {
+                if ( startsWith( "<!--", pos ) )
+                {
+                    pos = skipPast( "-->", pos + 4 );
+                }
+                else if ( startsWith( "<![CDATA[", pos ) )
+                {
+                    textStart = pos + 9;
+                    pos = skipPast( "]]>", textStart );
+                    textEnd = pos - 3;
+                    cdata = true;
+                    return TEXT;
+                }
+                else if ( startsWith( "<!DOCTYPE", pos ) )
+                {
+                    throw new XmlRpcException( "DTD is not supported in XML-RPC documents" );
+                }
+                else if ( endsWithin( "<!--", pos ) || endsWithin( "<![CDATA[", pos ) || endsWithin( "<!DOCTYPE", pos ) )
+                {
+                    throw unexpectedEnd();
+                }
+                else
+                {
+                    throw new XmlRpcException( "Invalid markup at byte " + pos );
+                }
+            }
+            else
+            {
+                readName( pos + 1 );
+                int gt = skipAttributes( nameEnd );
+                pos = gt + 1;
+                return buf.get( gt - 1 ) == '/' ? EMPTY_TAG : START_TAG;
+            }
+        }
+        return END_DOCUMENT;
+    }
+
+    /**
+     * Skip the content of the current start tag, through its end tag. Text is not decoded. The whole element must be
+     * in the input, a partial document can not resume in the middle of it.
+     *
+     * @return position of the end tag
+     */
+    int skipElement() throws XmlRpcException
+    {
+        int level = 0;
+        while ( true )
+        {
+            int start = pos;
+            switch ( nextToken() )
+            {
+                case START_TAG:
+                    level++;
+                    break;
+                case END_TAG:
+                    if ( level == 0 )
+                    {
+                        return start;
+                    }
+                    level--;
+                    break;
+                case END_DOCUMENT:
+                    throw unexpectedEnd();
+                default:
+            }
+        }
+    }
+
+    /**
+     * @return local name of the current tag
+     */
+    String getName() throws XmlRpcException
+    {
+        if ( tag != UNKNOWN )
+        {
+            return new String( TAG_NAMES[tag], StandardCharsets.US_ASCII );
+        }
+        return decode( nameStart, nameEnd, false );
+    }
+
+    /**
+     * @return decoded current TEXT
+     */
+    String getText() throws XmlRpcException
+    {
+        return decode( textStart, textEnd, !cdata );
+    }
+
+    /**
+     * @return the current TEXT trimmed, as the canonical String from the symbol table, or null if it is not plain
+     * ASCII text
+     */
+    String getSymbol( final SymbolTable symbols )
+    {
+        if ( cdata )
+        {
+            return null;
+        }
+        for ( int i = textStart; i < textEnd; i++ )
+        {
+            if ( buf.get( i ) == '&' )
+            {
+                return null;
+            }
+        }
+        return symbols.lookup( buf, textStart, textEnd - textStart );
+    }
+
+    /**
+     * Append the current TEXT to the decoder if it is plain ASCII without references.
+     *
+     * @return false, appending nothing, if the text has to be decoded first
+     */
+    boolean appendText( final PrimitiveDecoder decoder )
+    {
+        for ( int i = textStart; i < textEnd; i++ )
+        {
+            byte b = buf.get( i );
+            if ( b < 0 || ( b == '&' && !cdata ) )
+            {
+                return false;
+            }
+        }
+        for ( int i = textStart; i < textEnd; i++ )
+        {
+            decoder.append( (char) buf.get( i ) );
+        }
+        return true;
+    }
+
+    /**
+     * Decode the current TEXT as base64 if it has no references.
+     *
+     * @return false, decoding nothing, if the text has to be decoded first
+     */
+    boolean writeText( final Base64Decoder decoder ) throws IOException
+    {
+        for ( int i = textStart; i < textEnd && !cdata; i++ )
+        {
+            if ( buf.get( i ) == '&' )
+            {
+                return false;
+            }
+        }
+        decoder.decode( buf, textStart, textEnd );
+        return true;
+    }
+
+    /**
+     * @return length of the current TEXT in bytes
+     */
+    int getTextLength()
+    {
+        return textEnd - textStart;
+    }
+
+    boolean isWhiteSpace()
+    {
+        for ( int i = textStart; i < textEnd; i++ )
+        {
+            byte b = buf.get( i );
+            if ( b != ' ' && b != '\n' && b != '\t' && b != '\r' )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void readName( final int start ) throws XmlRpcException
+    {
+        int i = start;
+        int local = start;
+        while ( i < limit )
+        {
+            byte b = buf.get( i );
+            if ( b == ' ' || b == '>' || b == '/' || b == '\n' || b == '\t' || b == '\r' )
+            {
+                break;
+            }
+            else if ( b == ':' )
+            {
+                local = i + 1; // drop namespace prefix
+            }
+            i++;
+        }
+        if ( i >= limit )
+        {
+            throw unexpectedEnd();
+        }
+        nameStart = local;
+        nameEnd = i;
+        tag = lookup( nameStart, nameEnd );
+    }
+
+    private int lookup( final int start, final int end )
+    {
+        int length = end - start;
+        next:
+        for ( int id = 1; id < TAG_NAMES.length; id++ )
+        {
+            byte[] name = TAG_NAMES[id];
+            if ( name.length != length )
+            {
+                continue;
+            }
+            for ( int i = 0; i < length; i++ )
+            {
+                if ( buf.get( start + i ) != name[i] )
+                {
+                    continue next;
+                }
+            }
+            return id;
+        }
+        return UNKNOWN;
+    }
+
+    /**
+     * @return position of the closing '&gt;' of a start tag, skipping quoted attribute values
+     */
+    private int skipAttributes( final int start ) throws XmlRpcException
+    {
+        byte quote = 0;
+        for ( int i = start; i < limit; i++ )
+        {
+            byte b = buf.get( i );
+            if ( quote != 0 )
+            {
+                if ( b == quote )
+                {
+                    quote = 0;
+                }
+            }
+            else if ( b == '"' || b == '\'' )
+            {
+                quote = b;
+            }
+            else if ( b == '>' )
+            {
+                return i;
+            }
+        }
+        throw unexpectedEnd();
+    }
+
+    private String decode( final int start, final int end, final boolean references ) throws XmlRpcException
+    {
+        if ( chars.length < end - start )
+        {
+            chars = new char[Math.max( end - start, chars.length * 2 )];
+        }
+
+        int n = 0;
+        int i = start;
+        while ( i < end )
+        {
+            int b = buf.get( i ) & 0xff;
+            if ( b < 0x80 )
+            {
+                if ( b == '&' && references )
+                {
+                    i = decodeReference( i, end, n );
+                    n += chars[n] >= Character.MIN_HIGH_SURROGATE && chars[n] <= Character.MAX_HIGH_SURROGATE ? 2 : 1;
+                }
+                else if ( b == '\r' ) // line ending normalization
+                {
+                    chars[n++] = '\n';
+                    i++;
+                    if ( i < end && buf.get( i ) == '\n' )
+                    {
+                        i++;
+                    }
+                }
+                else
+                {
+                    chars[n++] = (char) b;
+                    i++;
+                }
+            }
+            else if ( latin1 )
+            {
+                chars[n++] = (char) b;
+                i++;
+            }
+            else if ( ( b & 0xE0 ) == 0xC0 )
+            {
+                chars[n++] = (char) ( ( ( b & 0x1F ) << 6 ) | continuation( i + 1, end ) );
+                i += 2;
+            }
+            else if ( ( b & 0xF0 ) == 0xE0 )
+            {
+                chars[n++] = (char) ( ( ( b & 0x0F ) << 12 ) | ( continuation( i + 1, end ) << 6 ) | continuation(
+                                i + 2, end ) );
+                i += 3;
+            }
+            else if ( ( b & 0xF8 ) == 0xF0 )
+            {
+                int cp = ( ( b & 0x07 ) << 18 ) | ( continuation( i + 1, end ) << 12 ) | ( continuation( i + 2, end )
+                                << 6 ) | continuation( i + 3, end );
+                chars[n++] = Character.highSurrogate( cp );
+                chars[n++] = Character.lowSurrogate( cp );
+                i += 4;
+            }
+            else
+            {
+                throw new XmlRpcException( "Invalid UTF-8 byte at " + i );
+            }
+        }
+        return new String( chars, 0, n );
+    }
+
+    private int continuation( final int i, final int end ) throws XmlRpcException
+    {
+        if ( i >= end )
+        {
+            throw new XmlRpcException( "Truncated UTF-8 sequence at " + i );
+        }
+        int b = buf.get( i ) & 0xff;
+        if ( ( b & 0xC0 ) != 0x80 )
+        {
+            throw new XmlRpcException( "Invalid UTF-8 byte at " + i );
+        }
+        return b & 0x3F;
+    }
+
+    /**
+     * Decode the character reference starting at '&amp;' into chars[n] (and chars[n+1] for a surrogate pair).
+     * @return position after the ';'
+     */
+    private int decodeReference( final int start, final int end, final int n ) throws XmlRpcException
+    {
+        int semi = -1;
+        for ( int i = start + 1; i < end && i < start + 12; i++ )
+        {
+            if ( buf.get( i ) == ';' )
+            {
+                semi = i;
+                break;
+            }
+        }
+        if ( semi < 0 )
+        {
+            throw new XmlRpcException( "Invalid character reference at byte " + start );
+        }
+
+        int cp;
+        if ( buf.get( start + 1 ) == '#' )
+        {
+            cp = 0;
+            boolean hex = buf.get( start + 2 ) == 'x';
+            int first = start + ( hex ? 3 : 2 );
+            for ( int i = first; i < semi; i++ )
+            {
+                int digit = Character.digit( buf.get( i ), hex ? 16 : 10 );
+                if ( digit < 0 )
+                {
+                    throw new XmlRpcException( "Invalid character reference at byte " + start );
+                }
+                cp = cp * ( hex ? 16 : 10 ) + digit;
+                if ( cp > Character.MAX_CODE_POINT )
+                {
+                    // stop before the int can overflow
+                    throw new XmlRpcException( "Character reference out of range at byte " + start );
+                }
+            }
+            if ( first == semi || !isXmlChar( cp ) )
+            {
+                throw new XmlRpcException( "Invalid character reference at byte " + start );
+            }
+        }
+        else if ( matches( "lt", start + 1, semi ) )
+        {
+            cp = '<';
+        }
+        else if ( matches( "gt", start + 1, semi ) )
+        {
+            cp = '>';
+        }
+        else if ( matches( "amp", start + 1, semi ) )
+        {
+            cp = '&';
+        }
+        else if ( matches( "quot", start + 1, semi ) )
+        {
+            cp = '"';
+        }
+        else if ( matches( "apos", start + 1, semi ) )
+        {
+            cp = '\'';
+        }
+        else
+        {
+            throw new XmlRpcException( "Undeclared entity at byte " + start );
+        }
+
+        if ( Character.isSupplementaryCodePoint( cp ) )
+        {
+            chars[n] = Character.highSurrogate( cp );
+            chars[n + 1] = Character.lowSurrogate( cp );
+        }
+        else
+        {
+            chars[n] = (char) cp;
+        }
+        return semi + 1;
+    }
+
+    /**
+     * The XML Char production: references to surrogates, most control characters and U+FFFE/U+FFFF are not allowed.
+     */
+    private static boolean isXmlChar( final int cp )
+    {
+        return cp == 0x9 || cp == 0xA || cp == 0xD || ( cp >= 0x20 && cp <= 0xD7FF ) || ( cp >= 0xE000
+                        && cp <= 0xFFFD ) || ( cp >= 0x10000 && cp <= Character.MAX_CODE_POINT );
+    }
+
+    private boolean matches( final String s, final int start, final int end )
+    {
+        if ( end - start != s.length() )
+        {
+            return false;
+        }
+        for ( int i = 0; i < s.length(); i++ )
+        {
+            if ( buf.get( start + i ) != s.charAt( i ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean startsWith( final String s, final int start )
+    {
+        return start + s.length() <= limit && matches( s, start, start + s.length() );
+    }
+
+    /**
+     * @return true if the input ends after a proper prefix of s, so a later part may complete it
+     */
+    private boolean endsWithin( final String s, final int start )
+    {
+        int available = limit - start;
+        return available < s.length() && matches( s.substring( 0, available ), start, limit );
+    }
+
+    private int indexOf( final byte b, final int start )
+    {
+        for ( int i = start; i < limit; i++ )
+        {
+            if ( buf.get( i ) == b )
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return position after the first occurrence of s
+     */
+    private int skipPast( final String s, final int start ) throws XmlRpcException
+    {
+        byte first = (byte) s.charAt( 0 );
+        for ( int i = start; i + s.length() <= limit; i++ )
+        {
+            if ( buf.get( i ) == first && matches( s, i, i + s.length() ) )
+            {
+                return i + s.length();
+            }
+        }
+        throw unexpectedEnd();
+    }
+
+    private byte byteAt( final int i ) throws XmlRpcException
+    {
+        if ( i >= limit )
+        {
+            throw unexpectedEnd();
+        }
+        return buf.get( i );
+    }
+
+    private XmlRpcException unexpectedEnd()
+    {
+        truncated = partial;
+        return new XmlRpcException( "Unexpected end of document at byte " + limit );
+    }
+}
@@ -0,0 +1,78 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fills structs into {@link CompactMap}, or {@link CompactLinkedMap} to keep the member order of the document, and
+ * arrays into presized ArrayLists.
+ */
+public final class CompactContainerFactory
+                implements ContainerFactory
+{
+    private final boolean ordered;
+
+    private final int structSize;
+
+    private final int arraySize;
+
+    /**
+     * Unordered structs sized for 16 members, arrays for 16 elements.
+     */
+    public CompactContainerFactory()
+    {
+        this( false, 16, 16 );
+    }
+
+    /**
+     * @param ordered keep the member order of structs
+     * @param structSize expected number of struct members
+     * @param arraySize initial capacity of arrays
+     */
+    public CompactContainerFactory( final boolean ordered, final int structSize, final int arraySize )
+    {
+        this.ordered = ordered;
+        this.structSize = structSize;
+        this.arraySize = arraySize;
+    }
+
+    @Override
+    public Map<String, Object> newStruct()
+    {
+        return ordered ? new CompactLinkedMap<>( structSize ) : new CompactMap<>( structSize );
+    }
+
+    @Override
+    public List<Object> newArray()
+    {
+        return new ArrayList<>( arraySize );
+    }
+
+    @Override
+    public Map<String, Object> newStruct( final int expectedSize )
+    {
+        return ordered ? new CompactLinkedMap<>( expectedSize ) : new CompactMap<>( expectedSize );
+    }
+
+    @Override
+    public List<Object> newArray( final int expectedSize )
+    {
+        return new ArrayList<>( expectedSize );
+    }
+}
@@ -0,0 +1,354 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.core;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Map that keeps keys and values in insertion order in two arrays, without an entry object per mapping. Up to 8
+ * mappings are found by a linear scan, larger maps add an open addressing index of positions. Removing a mapping
+ * shifts the later ones, so it costs O(n). Null keys and values are permitted. Not thread safe.
+ */
+public final class CompactLinkedMap<K, V>
+                extends AbstractMap<K, V>
+{
+    private static final int SCAN_LIMIT = 8;
+
+    private Object[] keys;
+
+    private Object[] values;
+
+    private int size;
+
+    // position + 1 of the key hashed to each slot, 0 for a free slot; null while the map is scanned
+    private int[] index;
+
+    private int modCount;
+
+    private Set<Entry<K, V>> entrySet;
+
+    public CompactLinkedMap()
+    {
+        this( 8 );
+    }
+
+    /**
+     * @param expectedSize number of mappings the map holds without resizing
+     */
+    public CompactLinkedMap( final int expectedSize )
+    {
+        keys = new Object[Math.max( expectedSize, 2 )];
+        values = new Object[keys.length];
+    }
+
+    private static int hash( final Object key, final int mask )
+    {
+        int h = Objects.hashCode( key );
+        return ( h ^ ( h >>> 16 ) ) & mask;
+    }
+
+    /**
+     * @return the position of the key, or -1
+     */
+    private int find( final Object key )
+    {
+        if ( index == null )
+        {
+            for ( int p = 0; p < size; p++ )
+            {
+                if ( Objects.equals( key, keys[p] ) )
+                {
+                    return p;
+                }
+            }
+            return -1;
+        }
+
+        int mask = index.length - 1;
+        for ( int i = hash( key, mask ); index[i] != 0; i = ( i + 1 ) & mask )
+        {
+            int p = index[i] - 1;
+            if ( Objects.equals( key, keys[p] ) )
+            {
+                return p;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey( final Object key )
+    {
+        return find( key ) >= 0;
+    }
+
+    @Override
+    public V get( final Object key )
+    {
+        int p = find( key );
+        return p < 0 ? null : (V) values[p];
+    }
+
+    @Override
+    public V put( final K key, final V value )
+    {
+        int p = find( key );
+        if ( p >= 0 )
+        {
+            V old = (V) values[p];
+            values[p] = value;
+            return old;
+        }
+
+        if ( size == keys.length )
+        {
+            keys = Arrays.copyOf( keys, size * 2 );
+            values = Arrays.copyOf( values, size * 2 );
+        }
+        keys[size] = key;
+        values[size] = value;
+        size++;
+        modCount++;
+
+        if ( index != null && size * 2 <= index.length )
+        {
+            addToIndex( size - 1 );
+        }
+        else if ( size > SCAN_LIMIT )
+        {
+            buildIndex();
+        }
+        return null;
+    }
+
+    @Override
+    public V remove( final Object key )
+    {
+        int p = find( key );
+        if ( p < 0 )
+        {
+            return null;
+        }
+        V old = (V) values[p];
+        removeAt( p );
+        return old;
+    }
+
+    private void removeAt( final int p )
+    {
+        System.arraycopy( keys, p + 1, keys, p, size - p - 1 );
+        System.arraycopy( values, p + 1, values, p, size - p - 1 );
+        size--;
+        keys[size] = null;
+        values[size] = null;
+        modCount++;
+        if ( index != null )
+        {
+            buildIndex();
+        }
+    }
+
+    @Override
+    public void clear()
+    {
+        Arrays.fill( keys, 0, size, null );
+        Arrays.fill( values, 0, size, null );
+        size = 0;
+        index = null;
+        modCount++;
+    }
+
+    /**
+     * Index all positions in a table at most half full, or drop the index if the map is small enough to scan.
+     */
+    private void buildIndex()
+    {
+        if ( size <= SCAN_LIMIT )
+        {
+            index = null;
+            return;
+        }
+        int slots = 16;
+        while ( slots < size * 2 )
+        {
+            slots <<= 1;
+        }
+        index = new int[slots];
+        for ( int p = 0; p < size; p++ )
+        {
+            addToIndex( p );
+        }
+    }
+
+    private void addToIndex( final int p )
+    {
+        int mask = index.length - 1;
+        int i = hash( keys[p], mask );
+        while ( index[i] != 0 )
+        {
+            i = ( i + 1 ) & mask;
+        }
+        index[i] = p + 1;
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet()
+    {
+        if ( entrySet == null )
+        {
+            entrySet = new AbstractSet<Entry<K, V>>()
+            {
+                @Override
+                public Iterator<Entry<K, V>> iterator()
+                {
+                    return new EntryIterator();
+                }
+
+                @Override
+                public int size()
+                {
+                    return size;
+                }
+
+                @Override
+                public void clear()
+                {
+                    CompactLinkedMap.this.clear();
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    private final class EntryIterator
+                    implements Iterator<Entry<K, V>>
+    {
+        private int next;
+
+        private int last = -1;
+
+        private int expectedModCount = modCount;
+
+        @Override
+        public boolean hasNext()
+        {
+            return next < size;
+        }
+
+        @Override
+        public Entry<K, V> next()
+        {
+            if ( modCount != expectedModCount )
+            {
+                throw new ConcurrentModificationException();
+            }
+            if ( !hasNext() )
+            {
+                throw new NoSuchElementException();
+            }
+            last = next++;
+            return new PositionEntry( last );
+        }
+
+        @Override
+        public void remove()
+        {
+            if ( last < 0 )
+            {
+                throw new IllegalStateException();
+            }
+            if ( modCount != expectedModCount )
+            {
+                throw new ConcurrentModificationException();
+            }
+            removeAt( last );
+            next = last;
+            last = -1;
+            expectedModCount = modCount;
+        }
+    }
+
+    /**
+     * Entry backed by a position of the arrays, valid until the map is structurally modified.
+     */
+    private final class PositionEntry
+                    implements Entry<K, V>
+    {
+        private final int position;
+
+        private PositionEntry( final int position )
+        {
+            this.position = position;
+        }
+
+        @Override
+        public K getKey()
+        {
+            return (K) keys[position];
+        }
+
+        @Override
+        public V getValue()
+        {
+            return (V) values[position];
+        }
+
+        @Override
+        public V setValue( final V value )
+        {
+            V old = (V) values[position];
+            values[position] = value;
+            return old;
+        }
+
+        @Override
+        public boolean equals( final Object o )
+        {
+            if ( !( o instanceof Map.Entry ) )
+            {
+                return false;
+            }
+            Entry<?, ?> e = (Entry<?, ?>) o;
+            return Objects.equals( getKey(), e.getKey() ) && Objects.equals( getValue(), e.getValue() );
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hashCode( getKey() ) ^ Objects.hashCode( getValue() );
+        }
+
+        @Override
+        public String toString()
+        {
+            return getKey() + "=" + getValue();
+        }
+    }
+}
@@ -0,0 +1,349 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.core;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Map that keeps keys and values in one open addressing array, without an entry object per mapping as HashMap has.
+ * It is meant for the small maps of parsed structs: lookups probe linearly, removed mappings leave a marker until
+ * the next resize, and iteration order is the order of the table. Null keys and values are permitted. Not thread
+ * safe.
+ */
+public final class CompactMap<K, V>
+                extends AbstractMap<K, V>
+{
+    private static final Object NULL_KEY = new Object();
+
+    private static final Object REMOVED = new Object();
+
+    // key at 2i, value at 2i+1; a null key marks a free slot
+    private Object[] table;
+
+    private int size;
+
+    // slots holding a key or the REMOVED marker
+    private int used;
+
+    private int modCount;
+
+    private Set<Entry<K, V>> entrySet;
+
+    public CompactMap()
+    {
+        this( 8 );
+    }
+
+    /**
+     * @param expectedSize number of mappings the map holds without resizing
+     */
+    public CompactMap( final int expectedSize )
+    {
+        table = new Object[2 * slotsFor( expectedSize )];
+    }
+
+    /**
+     * @return a power of two with a load factor of at most 3/4
+     */
+    private static int slotsFor( final int expectedSize )
+    {
+        int slots = 4;
+        while ( slots * 3 < expectedSize * 4 )
+        {
+            slots <<= 1;
+        }
+        return slots;
+    }
+
+    private static int hash( final Object key, final int mask )
+    {
+        int h = key.hashCode();
+        return ( h ^ ( h >>> 16 ) ) & mask;
+    }
+
+    /**
+     * @return the slot of the key, or -1
+     */
+    private int find( final Object key )
+    {
+        Object k = key == null ? NULL_KEY : key;
+        int mask = table.length / 2 - 1;
+        for ( int i = hash( k, mask ); table[2 * i] != null; i = ( i + 1 ) & mask )
+        {
+            if ( table[2 * i] != REMOVED && k.equals( table[2 * i] ) )
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey( final Object key )
+    {
+        return find( key ) >= 0;
+    }
+
+    @Override
+    public V get( final Object key )
+    {
+        int i = find( key );
+        return i < 0 ? null : (V) table[2 * i + 1];
+    }
+
+    @Override
+    public V put( final K key, final V value )
+    {
+        int i = find( key );
+        if ( i >= 0 )
+        {
+            V old = (V) table[2 * i + 1];
+            table[2 * i + 1] = value;
+            return old;
+        }
+
+        if ( ( used + 1 ) * 4 > table.length / 2 * 3 )
+        {
+            resize( slotsFor( size + 1 ) );
+        }
+        Object k = key == null ? NULL_KEY : key;
+        int mask = table.length / 2 - 1;
+        i = hash( k, mask );
+        while ( table[2 * i] != null && table[2 * i] != REMOVED )
+        {
+            i = ( i + 1 ) & mask;
+        }
+        if ( table[2 * i] == null )
+        {
+            used++;
+        }
+        table[2 * i] = k;
+        table[2 * i + 1] = value;
+        size++;
+        modCount++;
+        return null;
+    }
+
+    @Override
+    public V remove( final Object key )
+    {
+        int i = find( key );
+        if ( i < 0 )
+        {
+            return null;
+        }
+        V old = (V) table[2 * i + 1];
+        removeSlot( i );
+        return old;
+    }
+
+    private void removeSlot( final int i )
+    {
+        table[2 * i] = REMOVED;
+        table[2 * i + 1] = null;
+        size--;
+        modCount++;
+    }
+
+    @Override
+    public void clear()
+    {
+        Arrays.fill( table, null );
+        size = 0;
+        used = 0;
+        modCount++;
+    }
+
+    private void resize( final int slots )
+    {
+        Object[] old = table;
+        table = new Object[2 * slots];
+        int mask = slots - 1;
+        for ( int j = 0; j < old.length; j += 2 )
+        {
+            Object k = old[j];
+            if ( k != null && k != REMOVED )
+            {
+                int i = hash( k, mask );
+                while ( table[2 * i] != null )
+                {
+                    i = ( i + 1 ) & mask;
+                }
+                table[2 * i] = k;
+                table[2 * i + 1] = old[j + 1];
+            }
+        }
+        used = size;
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet()
+    {
+        if ( entrySet == null )
+        {
+            entrySet = new AbstractSet<Entry<K, V>>()
+            {
+                @Override
+                public Iterator<Entry<K, V>> iterator()
+                {
+                    return new EntryIterator();
+                }
+
+                @Override
+                public int size()
+                {
+                    return size;
+                }
+
+                @Override
+                public void clear()
+                {
+                    CompactMap.this.clear();
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    private final class EntryIterator
+                    implements Iterator<Entry<K, V>>
+    {
+        private int next = advance( 0 );
+
+        private int last = -1;
+
+        private int expectedModCount = modCount;
+
+        private int advance( int i )
+        {
+            while ( i < table.length / 2 && ( table[2 * i] == null || table[2 * i] == REMOVED ) )
+            {
+                i++;
+            }
+            return i;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return next < table.length / 2;
+        }
+
+        @Override
+        public Entry<K, V> next()
+        {
+            if ( modCount != expectedModCount )
+            {
+                throw new ConcurrentModificationException();
+            }
+            if ( !hasNext() )
+            {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            next = advance( next + 1 );
+            return new SlotEntry( last );
+        }
+
+        @Override
+        public void remove()
+        {
+            if ( last < 0 )
+            {
+                throw new IllegalStateException();
+            }
+            if ( modCount != expectedModCount )
+            {
+                throw new ConcurrentModificationException();
+            }
+            removeSlot( last );
+            last = -1;
+            expectedModCount = modCount;
+        }
+    }
+
+    /**
+     * Entry backed by a slot of the table, valid until the map is structurally modified.
+     */
+    private final class SlotEntry
+                    implements Entry<K, V>
+    {
+        private final int slot;
+
+        private SlotEntry( final int slot )
+        {
+            this.slot = slot;
+        }
+
+        @Override
+        public K getKey()
+        {
+            Object k = table[2 * slot];
+            return k == NULL_KEY ? null : (K) k;
+        }
+
+        @Override
+        public V getValue()
+        {
+            return (V) table[2 * slot + 1];
+        }
+
+        @Override
+        public V setValue( final V value )
+        {
+            V old = (V) table[2 * slot + 1];
+            table[2 * slot + 1] = value;
+            return old;
+        }
+
+        @Override
+        public boolean equals( final Object o )
+        {
+            if ( !( o instanceof Map.Entry ) )
+            {
+                return false;
+            }
+            Entry<?, ?> e = (Entry<?, ?>) o;
+            return Objects.equals( getKey(), e.getKey() ) && Objects.equals( getValue(), e.getValue() );
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hashCode( getKey() ) ^ Objects.hashCode( getValue() );
+        }
+
+        @Override
+        public String toString()
+        {
+            return getKey() + "=" + getValue();
+        }
+    }
+}
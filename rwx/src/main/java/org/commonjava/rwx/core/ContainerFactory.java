@@ -0,0 +1,81 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Creates the Map and List instances parsers fill for structs and arrays. Set it on {@link XmlRpcParser},
+ * {@link XmlRpcByteParser} or {@link org.commonjava.rwx.api.RWXMapper} to trade lookup speed for footprint, e.g.
+ * {@link CompactContainerFactory} for memory bound ingestion of many small structs.
+ *
+ * Implementations must be thread safe when shared between parsers.
+ */
+public interface ContainerFactory
+{
+    /**
+     * HashMap and ArrayList, used by default.
+     */
+    ContainerFactory DEFAULT = new ContainerFactory()
+    {
+        @Override
+        public Map<String, Object> newStruct()
+        {
+            return new HashMap<>();
+        }
+
+        @Override
+        public List<Object> newArray()
+        {
+            return new ArrayList<>();
+        }
+
+        @Override
+        public Map<String, Object> newStruct( final int expectedSize )
+        {
+            return new HashMap<>( expectedSize * 4 / 3 + 1 );
+        }
+
+        @Override
+        public List<Object> newArray( final int expectedSize )
+        {
+            return new ArrayList<>( expectedSize );
+        }
+    };
+
+    Map<String, Object> newStruct();
+
+    List<Object> newArray();
+
+    /**
+     * @param expectedSize number of members the struct will likely have, see {@link SizeHints}
+     */
+    default Map<String, Object> newStruct( int expectedSize )
+    {
+        return newStruct();
+    }
+
+    /**
+     * @param expectedSize number of elements the array will likely have, see {@link SizeHints}
+     */
+    default List<Object> newArray( int expectedSize )
+    {
+        return newArray();
+    }
+}
@@ -0,0 +1,165 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.core;
+
+import org.commonjava.rwx.error.XmlRpcException;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Array parsed by {@link XmlRpcByteParser} in lazy mode. The positions of the elements are indexed when the document is
+ * parsed, elements are decoded from the document bytes when they are first read, under the lock of the document, so
+ * the array can be read from several threads. Any modification copies the array to an ArrayList first; that is not
+ * thread safe.
+ */
+final class LazyArray
+                extends AbstractList<Object>
+                implements RandomAccess
+{
+    private final LazyDocument document;
+
+    private final Projection projection;
+
+    private int size;
+
+    private Object[] values = new Object[8];
+
+    // byte range of an element not decoded yet, start is -1 once decoded
+    private int[] starts = new int[8];
+
+    private int[] ends = new int[8];
+
+    private List<Object> modified;
+
+    LazyArray( final LazyDocument document, final Projection projection )
+    {
+        this.document = document;
+        this.projection = projection;
+    }
+
+    void addValue( final Object value )
+    {
+        int i = slot();
+        values[i] = value;
+        starts[i] = -1;
+    }
+
+    void addRange( final int start, final int end )
+    {
+        int i = slot();
+        starts[i] = start;
+        ends[i] = end;
+    }
+
+    private int slot()
+    {
+        if ( size == values.length )
+        {
+            values = Arrays.copyOf( values, size * 2 );
+            starts = Arrays.copyOf( starts, size * 2 );
+            ends = Arrays.copyOf( ends, size * 2 );
+        }
+        return size++;
+    }
+
+    @Override
+    public Object get( final int i )
+    {
+        if ( modified != null )
+        {
+            return modified.get( i );
+        }
+        if ( i < 0 || i >= size )
+        {
+            throw new IndexOutOfBoundsException( "Index: " + i + ", Size: " + size );
+        }
+        synchronized ( document )
+        {
+            if ( starts[i] >= 0 )
+            {
+                values[i] = document.decode( starts[i], ends[i], projection == null ? null : projection.element( i ) );
+                starts[i] = -1;
+            }
+            return values[i];
+        }
+    }
+
+    /**
+     * Decode an element with the given parser, without keeping it. Lets several threads decode the elements of one
+     * array, each with its own parser.
+     */
+    Object decode( final int i, final XmlRpcByteParser decoder ) throws XmlRpcException
+    {
+        if ( modified != null )
+        {
+            return modified.get( i );
+        }
+        int start;
+        synchronized ( document )
+        {
+            if ( starts[i] < 0 )
+            {
+                return values[i];
+            }
+            start = starts[i];
+        }
+        return decoder.parseValue( document, start, ends[i], projection == null ? null : projection.element( i ) );
+    }
+
+    @Override
+    public int size()
+    {
+        return modified != null ? modified.size() : size;
+    }
+
+    @Override
+    public Object set( final int i, final Object value )
+    {
+        return modify().set( i, value );
+    }
+
+    @Override
+    public void add( final int i, final Object value )
+    {
+        modCount++;
+        modify().add( i, value );
+    }
+
+    @Override
+    public Object remove( final int i )
+    {
+        modCount++;
+        return modify().remove( i );
+    }
+
+    private List<Object> modify()
+    {
+        if ( modified == null )
+        {
+            List<Object> copy = new ArrayList<>( size + 1 );
+            for ( int i = 0; i < size; i++ )
+            {
+                copy.add( get( i ) );
+            }
+            modified = copy;
+        }
+        return modified;
+    }
+}
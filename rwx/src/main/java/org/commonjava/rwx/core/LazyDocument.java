@@ -0,0 +1,86 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.core;
+
+import org.commonjava.rwx.error.UncheckedXmlRpcException;
+import org.commonjava.rwx.error.XmlRpcException;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Document bytes shared by the lazy struct and array views of one parse. Values are decoded from their byte range on
+ * first access. The views share one decoder and call {@link #decode(int, int, Projection)} holding the lock of the
+ * document.
+ */
+final class LazyDocument
+{
+    private final ByteBuffer buffer;
+
+    private final boolean latin1;
+
+    private final ParseLimits limits;
+
+    private final BinaryHandler binaryHandler;
+
+    private final StringCache stringCache;
+
+    private XmlRpcByteParser decoder;
+
+    LazyDocument( final ByteBuffer buffer, final boolean latin1, final ParseLimits limits,
+                  final BinaryHandler binaryHandler, final StringCache stringCache )
+    {
+        this.buffer = buffer;
+        this.latin1 = latin1;
+        this.limits = limits;
+        this.binaryHandler = binaryHandler;
+        this.stringCache = stringCache;
+    }
+
+    ByteBuffer getBuffer()
+    {
+        return buffer;
+    }
+
+    boolean isLatin1()
+    {
+        return latin1;
+    }
+
+    /**
+     * Decode the content of a &lt;value&gt; element, between its start and end tag.
+     * @param projection bound part of the value, null for all of it
+     */
+    Object decode( final int start, final int end, final Projection projection )
+    {
+        if ( decoder == null )
+        {
+            decoder = new XmlRpcByteParser();
+            decoder.setLazy( true );
+            decoder.setParseLimits( limits );
+            decoder.setBinaryHandler( binaryHandler );
+            decoder.setStringCache( stringCache );
+        }
+
+        try
+        {
+            return decoder.parseValue( this, start, end, projection );
+        }
+        catch ( XmlRpcException e )
+        {
+            throw new UncheckedXmlRpcException( e );
+        }
+    }
+}
@@ -0,0 +1,278 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.core;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Struct parsed by {@link XmlRpcByteParser} in lazy mode. Member names are indexed when the document is parsed, member
+ * values are decoded from the document bytes when they are first read, under the lock of the document, so the
+ * struct can be read from several threads. Any modification copies the struct to a HashMap first; that is not
+ * thread safe.
+ */
+final class LazyStruct
+                extends AbstractMap<String, Object>
+{
+    private final LazyDocument document;
+
+    private final Projection projection;
+
+    private final Map<String, Integer> index = new HashMap<>();
+
+    private int size;
+
+    private String[] keys = new String[8];
+
+    private Object[] values = new Object[8];
+
+    // byte range of a value not decoded yet, start is -1 once decoded
+    private int[] starts = new int[8];
+
+    private int[] ends = new int[8];
+
+    private Map<String, Object> modified;
+
+    private Set<Entry<String, Object>> entrySet;
+
+    LazyStruct( final LazyDocument document, final Projection projection )
+    {
+        this.document = document;
+        this.projection = projection;
+    }
+
+    void addValue( final String key, final Object value )
+    {
+        int i = slot( key );
+        values[i] = value;
+        starts[i] = -1;
+    }
+
+    void addRange( final String key, final int start, final int end )
+    {
+        int i = slot( key );
+        values[i] = null;
+        starts[i] = start;
+        ends[i] = end;
+    }
+
+    private int slot( final String key )
+    {
+        Integer i = index.get( key );
+        if ( i != null )
+        {
+            return i; // same as HashMap.put, the last member wins
+        }
+
+        if ( size == keys.length )
+        {
+            keys = Arrays.copyOf( keys, size * 2 );
+            values = Arrays.copyOf( values, size * 2 );
+            starts = Arrays.copyOf( starts, size * 2 );
+            ends = Arrays.copyOf( ends, size * 2 );
+        }
+        index.put( key, size );
+        keys[size] = key;
+        return size++;
+    }
+
+    private Object value( final int i )
+    {
+        synchronized ( document )
+        {
+            if ( starts[i] >= 0 )
+            {
+                values[i] = document.decode( starts[i], ends[i],
+                                             projection == null ? null : projection.member( keys[i] ) );
+                starts[i] = -1;
+            }
+            return values[i];
+        }
+    }
+
+    @Override
+    public Object get( final Object key )
+    {
+        if ( modified != null )
+        {
+            return modified.get( key );
+        }
+        Integer i = index.get( key );
+        return i == null ? null : value( i );
+    }
+
+    @Override
+    public boolean containsKey( final Object key )
+    {
+        return modified != null ? modified.containsKey( key ) : index.containsKey( key );
+    }
+
+    @Override
+    public int size()
+    {
+        return modified != null ? modified.size() : size;
+    }
+
+    @Override
+    public Object put( final String key, final Object value )
+    {
+        return modify().put( key, value );
+    }
+
+    @Override
+    public Object remove( final Object key )
+    {
+        return modify().remove( key );
+    }
+
+    @Override
+    public void clear()
+    {
+        modify().clear();
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet()
+    {
+        if ( modified != null )
+        {
+            return modified.entrySet();
+        }
+        if ( entrySet == null )
+        {
+            entrySet = new EntrySet();
+        }
+        return entrySet;
+    }
+
+    private Map<String, Object> modify()
+    {
+        if ( modified == null )
+        {
+            Map<String, Object> copy = new HashMap<>( size * 2 );
+            for ( int i = 0; i < size; i++ )
+            {
+                copy.put( keys[i], value( i ) );
+            }
+            modified = copy;
+            entrySet = null;
+        }
+        return modified;
+    }
+
+    private final class EntrySet
+                    extends AbstractSet<Entry<String, Object>>
+    {
+        @Override
+        public Iterator<Entry<String, Object>> iterator()
+        {
+            return new Iterator<Entry<String, Object>>()
+            {
+                private int next;
+
+                @Override
+                public boolean hasNext()
+                {
+                    return next < size;
+                }
+
+                @Override
+                public Entry<String, Object> next()
+                {
+                    if ( next >= size )
+                    {
+                        throw new NoSuchElementException();
+                    }
+                    return new LazyEntry( next++ );
+                }
+
+                @Override
+                public void remove()
+                {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        @Override
+        public int size()
+        {
+            return size;
+        }
+    }
+
+    private final class LazyEntry
+                    implements Entry<String, Object>
+    {
+        private final int i;
+
+        LazyEntry( final int i )
+        {
+            this.i = i;
+        }
+
+        @Override
+        public String getKey()
+        {
+            return keys[i];
+        }
+
+        @Override
+        public Object getValue()
+        {
+            return value( i );
+        }
+
+        @Override
+        public Object setValue( final Object value )
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean equals( final Object o )
+        {
+            if ( !( o instanceof Entry ) )
+            {
+                return false;
+            }
+            Entry<?, ?> e = (Entry<?, ?>) o;
+            Object value = getValue();
+            return ( getKey() == null ? e.getKey() == null : getKey().equals( e.getKey() ) ) && ( value == null ?
+                            e.getValue() == null :
+                            value.equals( e.getValue() ) );
+        }
+
+        @Override
+        public int hashCode()
+        {
+            Object value = getValue();
+            return ( getKey() == null ? 0 : getKey().hashCode() ) ^ ( value == null ? 0 : value.hashCode() );
+        }
+
+        @Override
+        public String toString()
+        {
+            return getKey() + "=" + getValue();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.core;
+
+/**
+ * Parser implementation used to read XML-RPC documents.
+ */
+public enum ParseEngine
+{
+    /**
+     * {@link XmlRpcParser}, on top of the configured StAX provider. Supports single-pass stream parsers.
+     */
+    STAX,
+
+    /**
+     * {@link XmlRpcByteParser}, working directly on the document bytes. The document is read fully into memory.
+     */
+    BYTES,
+
+    /**
+     * {@link XmlRpcByteParser} in lazy mode: structs and arrays are Map/List views over the document bytes, which are
+     * decoded when a member is read. Suits large documents of which only a few members are bound. Views bound to Map or
+     * List fields keep a reference to the document bytes; when parsing a byte array or ByteBuffer of the caller, it
+     * is not copied and must not be changed while the result is in use.
+     */
+    LAZY,
+
+    /**
+     * {@link XmlRpcParallelParser}: the elements of array params, e.g. the result slots of a multicall response, are
+     * decoded and bound in parallel on a ForkJoinPool. Suits large multicall and list responses.
+     */
+    PARALLEL
+}
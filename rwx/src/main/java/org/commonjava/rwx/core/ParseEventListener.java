@@ -0,0 +1,56 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.core;
+
+import org.commonjava.rwx.vocab.ValueType;
+
+/**
+ * Tap on the events of a {@link XmlRpcParser}, for debugging or auditing what a document contained. Register it with
+ * {@link XmlRpcParser#setParseEventListener(ParseEventListener)} or
+ * {@link org.commonjava.rwx.api.RWXMapper#setParseEventListener(ParseEventListener)}. Without a listener, and with
+ * trace logging off, the parser makes no calls and builds no messages for events.
+ *
+ * Elements skipped by the streaming API report their start and end tags but no values. All methods do nothing by
+ * default.
+ */
+public interface ParseEventListener
+{
+    default void startElement( String name )
+    {
+    }
+
+    default void endElement( String name )
+    {
+    }
+
+    default void methodName( String methodName )
+    {
+    }
+
+    default void memberName( String name )
+    {
+    }
+
+    /**
+     * A scalar value was read.
+     *
+     * @param type type of the value, STRING for a value without a type element
+     * @param value the value as it is bound, may be null for an empty number
+     */
+    default void value( ValueType type, Object value )
+    {
+    }
+}
@@ -0,0 +1,135 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.core;
+
+import org.commonjava.rwx.error.ParseLimitException;
+import org.commonjava.rwx.error.XmlRpcException;
+
+/**
+ * Bounds on the documents a parser accepts, so a runaway or hostile response fails fast with a
+ * {@link ParseLimitException} instead of pinning a thread or filling the heap:
+ * <ul>
+ *     <li>maxDepth: nesting depth of elements, counted from the root element</li>
+ *     <li>maxElements: number of elements parsed</li>
+ *     <li>maxStringLength: length of the text of a single element. The byte engines count the encoded bytes, which is
+ *     never less than the number of characters</li>
+ *     <li>maxBytes: size of the document, when it is parsed from bytes</li>
+ * </ul>
+ * Any limits other than {@link #NONE} also reject documents with a DTD, so no entities are declared or expanded.
+ * Elements of values that are skipped (unbound members, lazy values) are not parsed and don't count; lazy values are
+ * checked on their own when they are decoded.
+ */
+public final class ParseLimits
+{
+    /**
+     * No limits, the default of parsers and of the mapper.
+     */
+    public static final ParseLimits NONE =
+                    new ParseLimits( Integer.MAX_VALUE, Long.MAX_VALUE, Integer.MAX_VALUE, Long.MAX_VALUE, true );
+
+    private final int maxDepth;
+
+    private final long maxElements;
+
+    private final int maxStringLength;
+
+    private final long maxBytes;
+
+    private final boolean dtdAllowed;
+
+    /**
+     * Use Integer.MAX_VALUE or Long.MAX_VALUE for no limit.
+     */
+    public ParseLimits( final int maxDepth, final long maxElements, final int maxStringLength, final long maxBytes )
+    {
+        this( maxDepth, maxElements, maxStringLength, maxBytes, false );
+    }
+
+    private ParseLimits( final int maxDepth, final long maxElements, final int maxStringLength, final long maxBytes,
+                         final boolean dtdAllowed )
+    {
+        this.maxDepth = maxDepth;
+        this.maxElements = maxElements;
+        this.maxStringLength = maxStringLength;
+        this.maxBytes = maxBytes;
+        this.dtdAllowed = dtdAllowed;
+    }
+
+    public int getMaxDepth()
+    {
+        return maxDepth;
+    }
+
+    public long getMaxElements()
+    {
+        return maxElements;
+    }
+
+    public int getMaxStringLength()
+    {
+        return maxStringLength;
+    }
+
+    public long getMaxBytes()
+    {
+        return maxBytes;
+    }
+
+    public boolean isDtdAllowed()
+    {
+        return dtdAllowed;
+    }
+
+    void checkDepth( final int depth ) throws ParseLimitException
+    {
+        if ( depth > maxDepth )
+        {
+            throw new ParseLimitException( ParseLimitException.DEPTH, maxDepth );
+        }
+    }
+
+    void checkElements( final long elements ) throws ParseLimitException
+    {
+        if ( elements > maxElements )
+        {
+            throw new ParseLimitException( ParseLimitException.ELEMENTS, maxElements );
+        }
+    }
+
+    void checkStringLength( final long length ) throws ParseLimitException
+    {
+        if ( length > maxStringLength )
+        {
+            throw new ParseLimitException( ParseLimitException.STRING_LENGTH, maxStringLength );
+        }
+    }
+
+    void checkBytes( final long bytes ) throws ParseLimitException
+    {
+        if ( bytes > maxBytes )
+        {
+            throw new ParseLimitException( ParseLimitException.BYTES, maxBytes );
+        }
+    }
+
+    void checkDtd() throws XmlRpcException
+    {
+        if ( !dtdAllowed )
+        {
+            throw new XmlRpcException( "DTD is not allowed in XML-RPC documents" );
+        }
+    }
+}
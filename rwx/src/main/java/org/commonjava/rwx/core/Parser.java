@@ -21,4 +21,13 @@ package org.commonjava.rwx.core;
 public interface Parser<T>
 {
     T parse( Object object );
+
+    /**
+     * @param stringCache cache for the values of {@link org.commonjava.rwx.anno.Intern} fields, passed on to the
+     * parsers of nested values; generated parsers create one for the parse if it is null
+     */
+    default T parse( Object object, StringCache stringCache )
+    {
+        return parse( object );
+    }
 }
\ No newline at end of file
@@ -0,0 +1,316 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.core;
+
+import org.commonjava.rwx.error.CoercionException;
+import org.commonjava.rwx.vocab.ValueType;
+
+import java.util.Arrays;
+
+import static org.commonjava.rwx.vocab.ValueType.BOOLEAN;
+import static org.commonjava.rwx.vocab.ValueType.DOUBLE;
+import static org.commonjava.rwx.vocab.ValueType.INT;
+import static org.commonjava.rwx.vocab.ValueType.LONG;
+
+/**
+ * Decodes int, i8, double and boolean values from the characters of their element, without building a String for
+ * the coercions in {@link ValueType}. Parsers append the text of the element as it arrives and decode it at the end
+ * tag; the result is kept as a primitive, and boxed through the valueOf() caches only when a boxed value is wanted.
+ *
+ * Only the plain forms are decoded here: an optional sign and decimal digits, plus a fraction and exponent for
+ * doubles that convert exactly. Anything else (overflow, long mantissas, NaN, bad input) goes through the coercion,
+ * so results and errors are the same as before.
+ */
+final class PrimitiveDecoder
+{
+    // the powers of ten a double holds exactly
+    private static final double[] POWERS_OF_TEN = new double[23];
+
+    static
+    {
+        POWERS_OF_TEN[0] = 1;
+        for ( int i = 1; i < POWERS_OF_TEN.length; i++ )
+        {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private char[] chars = new char[32];
+
+    private int length;
+
+    private long longValue;
+
+    private double doubleValue;
+
+    private boolean booleanValue;
+
+    /**
+     * @return true for the types this decoder handles
+     */
+    static boolean isDecodable( final ValueType type )
+    {
+        return type == INT || type == LONG || type == DOUBLE || type == BOOLEAN;
+    }
+
+    void clear()
+    {
+        length = 0;
+    }
+
+    void append( final char[] src, final int offset, final int len )
+    {
+        ensureCapacity( len );
+        System.arraycopy( src, offset, chars, length, len );
+        length += len;
+    }
+
+    void append( final char c )
+    {
+        ensureCapacity( 1 );
+        chars[length++] = c;
+    }
+
+    private void ensureCapacity( final int len )
+    {
+        if ( length + len > chars.length )
+        {
+            chars = Arrays.copyOf( chars, Math.max( length + len, chars.length * 2 ) );
+        }
+    }
+
+    /**
+     * Decode the appended text as the given type.
+     *
+     * @return false if the text is blank and the number is null, as the coercion would return
+     */
+    boolean decode( final ValueType type ) throws CoercionException
+    {
+        int start = 0;
+        int end = length;
+        while ( start < end && chars[start] <= ' ' )
+        {
+            start++;
+        }
+        while ( end > start && chars[end - 1] <= ' ' )
+        {
+            end--;
+        }
+
+        if ( type == BOOLEAN )
+        {
+            booleanValue = ( end - start == 1 && chars[start] == '1' ) || isTrue( start, end );
+            return true;
+        }
+        if ( start == end )
+        {
+            return false;
+        }
+
+        if ( type == DOUBLE )
+        {
+            if ( !decodeDouble( start, end ) )
+            {
+                doubleValue = (Double) type.coercion().fromString( toString() );
+            }
+        }
+        else if ( !decodeInteger( start, end, type == INT ? 10 : 18 ) || ( type == INT
+                        && ( longValue < Integer.MIN_VALUE || longValue > Integer.MAX_VALUE ) ) )
+        {
+            longValue = ( (Number) type.coercion().fromString( toString() ) ).longValue();
+        }
+        return true;
+    }
+
+    int intValue()
+    {
+        return (int) longValue;
+    }
+
+    long longValue()
+    {
+        return longValue;
+    }
+
+    double doubleValue()
+    {
+        return doubleValue;
+    }
+
+    boolean booleanValue()
+    {
+        return booleanValue;
+    }
+
+    /**
+     * @return the last decoded value boxed as the coercion of the type would box it
+     */
+    Object getValue( final ValueType type )
+    {
+        if ( type == INT )
+        {
+            return Integer.valueOf( (int) longValue );
+        }
+        else if ( type == LONG )
+        {
+            return Long.valueOf( longValue );
+        }
+        else if ( type == DOUBLE )
+        {
+            return Double.valueOf( doubleValue );
+        }
+        return Boolean.valueOf( booleanValue );
+    }
+
+    private boolean isTrue( final int start, final int end )
+    {
+        return end - start == 4 && ( chars[start] | 0x20 ) == 't' && ( chars[start + 1] | 0x20 ) == 'r'
+                        && ( chars[start + 2] | 0x20 ) == 'u' && ( chars[start + 3] | 0x20 ) == 'e';
+    }
+
+    /**
+     * Decode [+-]digits with at most maxDigits digits into longValue.
+     */
+    private boolean decodeInteger( final int start, final int end, final int maxDigits )
+    {
+        int i = start;
+        boolean negative = chars[i] == '-';
+        if ( negative || chars[i] == '+' )
+        {
+            i++;
+        }
+        if ( i == end || end - i > maxDigits )
+        {
+            return false;
+        }
+
+        long value = 0;
+        for ( ; i < end; i++ )
+        {
+            int digit = chars[i] - '0';
+            if ( digit < 0 || digit > 9 )
+            {
+                return false;
+            }
+            value = value * 10 + digit;
+        }
+        longValue = negative ? -value : value;
+        return true;
+    }
+
+    /**
+     * Decode [+-]digits[.digits][(e|E)[+-]digits] into doubleValue when the mantissa has at most 15 significant
+     * digits and the decimal exponent is within 22, so the single multiply or divide rounds correctly.
+     */
+    private boolean decodeDouble( final int start, final int end )
+    {
+        int i = start;
+        boolean negative = chars[i] == '-';
+        if ( negative || chars[i] == '+' )
+        {
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int significant = 0;
+        int scale = 0;
+        boolean fraction = false;
+        for ( ; i < end; i++ )
+        {
+            char c = chars[i];
+            if ( c >= '0' && c <= '9' )
+            {
+                digits++;
+                if ( mantissa > 0 || c != '0' )
+                {
+                    if ( ++significant > 15 )
+                    {
+                        return false;
+                    }
+                    mantissa = mantissa * 10 + ( c - '0' );
+                }
+                if ( fraction )
+                {
+                    scale--;
+                }
+            }
+            else if ( c == '.' && !fraction )
+            {
+                fraction = true;
+            }
+            else
+            {
+                break;
+            }
+        }
+        if ( digits == 0 )
+        {
+            return false;
+        }
+
+        if ( i < end )
+        {
+            if ( chars[i] != 'e' && chars[i] != 'E' )
+            {
+                return false;
+            }
+            i++;
+            boolean negativeExponent = i < end && chars[i] == '-';
+            if ( i < end && ( negativeExponent || chars[i] == '+' ) )
+            {
+                i++;
+            }
+            if ( i == end || end - i > 3 )
+            {
+                return false;
+            }
+            int exponent = 0;
+            for ( ; i < end; i++ )
+            {
+                int digit = chars[i] - '0';
+                if ( digit < 0 || digit > 9 )
+                {
+                    return false;
+                }
+                exponent = exponent * 10 + digit;
+            }
+            scale += negativeExponent ? -exponent : exponent;
+        }
+
+        double value;
+        if ( mantissa == 0 )
+        {
+            value = 0;
+        }
+        else if ( scale < -22 || scale > 22 )
+        {
+            return false;
+        }
+        else
+        {
+            value = scale < 0 ? mantissa / POWERS_OF_TEN[-scale] : mantissa * POWERS_OF_TEN[scale];
+        }
+        doubleValue = negative ? -value : value;
+        return true;
+    }
+
+    @Override
+    public String toString()
+    {
+        return new String( chars, 0, length );
+    }
+}
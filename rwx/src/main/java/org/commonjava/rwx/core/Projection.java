@@ -0,0 +1,76 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.core;
+
+import java.util.Map;
+
+/**
+ * The part of an XML-RPC value that a bound class reads: the struct members it has @DataKey fields for, and the
+ * projections of the values bound to them. Parsers skip the other members without building them. A null projection
+ * keeps the whole value.
+ *
+ * Projections are built from the binding metadata of the generated registry, see {@link Registry#getProjection(Class)}.
+ */
+public final class Projection
+{
+    // struct members to keep, and the projections of their values; null keeps all members
+    private Map<String, Projection> members;
+
+    // projections of array elements by index; null applies this projection to all elements, e.g. a List field
+    private Projection[] elements;
+
+    Projection()
+    {
+    }
+
+    void setMembers( final Map<String, Projection> members )
+    {
+        this.members = members;
+    }
+
+    void setElements( final Projection[] elements )
+    {
+        this.elements = elements;
+    }
+
+    /**
+     * @return true if the struct member is bound
+     */
+    public boolean includes( final String key )
+    {
+        return members == null || members.containsKey( key );
+    }
+
+    /**
+     * @return projection of a struct member value
+     */
+    public Projection member( final String key )
+    {
+        return members == null ? null : members.get( key );
+    }
+
+    /**
+     * @return projection of an array element, or of a request/response param
+     */
+    public Projection element( final int index )
+    {
+        if ( elements == null )
+        {
+            return this;
+        }
+        return index < elements.length ? elements[index] : null;
+    }
+}
@@ -15,6 +15,9 @@
  */
 package org.commonjava.rwx.core;
 
+import org.commonjava.rwx.error.XmlRpcException;
+
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -25,6 +28,15 @@ public class Registry
 {
     protected Map<Class, Parser> parserMap = new ConcurrentHashMap<>();
     protected Map<Class, Renderer> rendererMap = new ConcurrentHashMap<>();
+    protected Map<Class, StreamParser> streamParserMap = new ConcurrentHashMap<>();
+
+    // binding metadata for projections: bound keys and their value types of structs, value types by index of arrays.
+    // The keys also seed the SymbolTable of member names
+    protected Map<Class, String[]> structKeysMap = new ConcurrentHashMap<>();
+    protected Map<Class, Class[]> structTypesMap = new ConcurrentHashMap<>();
+    protected Map<Class, Class[]> indexTypesMap = new ConcurrentHashMap<>();
+    protected Map<Class, boolean[]> indexListsMap = new ConcurrentHashMap<>();
+    protected Map<Class, Projection> projectionMap = new ConcurrentHashMap<>();
 
     protected void setParser(Class cls, Parser parser)
     {
@@ -36,14 +48,146 @@ public class Registry
         rendererMap.put( cls, renderer );
     }
 
+    protected void setStreamParser( Class cls, StreamParser parser )
+    {
+        streamParserMap.put( cls, parser );
+    }
+
+    /**
+     * @param keys keys of the @DataKey fields of a struct class
+     * @param types bound classes of the keys, null for values bound as they are
+     */
+    protected void setStructKeys( Class cls, String[] keys, Class[] types )
+    {
+        SymbolTable symbols = SymbolTable.getInstance();
+        for ( int i = 0; i < keys.length; i++ )
+        {
+            keys[i] = symbols.add( keys[i] );
+        }
+
+        structKeysMap.put( cls, keys );
+        structTypesMap.put( cls, types );
+        projectionMap.clear();
+    }
+
+    /**
+     * @param types bound classes of the @DataIndex fields of a request, response or array class, null for values bound
+     *              as they are
+     */
+    protected void setIndexTypes( Class cls, Class[] types )
+    {
+        indexTypesMap.put( cls, types );
+        projectionMap.clear();
+    }
+
+    /**
+     * @param lists whether the @DataIndex field at each index is a List of its bound class
+     */
+    protected void setIndexLists( Class cls, boolean[] lists )
+    {
+        indexListsMap.put( cls, lists );
+    }
+
+    /**
+     * @return the class the elements of the List at the index of the type are bound to, null if the index is not a
+     * List of an annotated class
+     */
+    Class getListElementType( Class type, int index )
+    {
+        boolean[] lists = indexListsMap.get( type );
+        Class[] types = indexTypesMap.get( type );
+        if ( lists == null || types == null || index >= lists.length || !lists[index] || types[index] == null )
+        {
+            return null;
+        }
+        return parserMap.containsKey( types[index] ) ? types[index] : null;
+    }
+
+    /**
+     * @return the part of a document that is bound to the type, null if it is not known
+     */
+    public Projection getProjection( Class type )
+    {
+        Projection projection = projectionMap.get( type );
+        if ( projection == null && ( structKeysMap.containsKey( type ) || indexTypesMap.containsKey( type ) ) )
+        {
+            projection = buildProjection( type, new HashMap<Class, Projection>() );
+            projectionMap.put( type, projection );
+        }
+        return projection;
+    }
+
+    private Projection buildProjection( Class type, Map<Class, Projection> building )
+    {
+        if ( type == null )
+        {
+            return null;
+        }
+
+        Projection projection = building.get( type ); // recursive types
+        if ( projection != null )
+        {
+            return projection;
+        }
+
+        String[] keys = structKeysMap.get( type );
+        Class[] indexTypes = indexTypesMap.get( type );
+        if ( keys == null && indexTypes == null )
+        {
+            return null;
+        }
+
+        projection = new Projection();
+        building.put( type, projection );
+        if ( keys != null )
+        {
+            Class[] types = structTypesMap.get( type );
+            Map<String, Projection> members = new HashMap<>();
+            projection.setMembers( members );
+            for ( int i = 0; i < keys.length; i++ )
+            {
+                members.put( keys[i], buildProjection( types[i], building ) );
+            }
+        }
+        else
+        {
+            Projection[] elements = new Projection[indexTypes.length];
+            for ( int i = 0; i < indexTypes.length; i++ )
+            {
+                elements[i] = buildProjection( indexTypes[i], building );
+            }
+            projection.setElements( elements );
+        }
+        return projection;
+    }
+
     public <T> T parseAs( Object o, Class<T> type )
+    {
+        return parseAs( o, type, null );
+    }
+
+    /**
+     * @param stringCache cache for {@link org.commonjava.rwx.anno.Intern} fields, see {@link Parser#parse(Object,
+     * StringCache)}
+     */
+    public <T> T parseAs( Object o, Class<T> type, StringCache stringCache )
     {
         Parser parser = parserMap.get( type );
         if ( parser == null )
         {
             throw new RuntimeException( "Parser not found for " + type.getName() );
         }
-        return type.cast( parser.parse( o ) );
+        return type.cast( parser.parse( o, stringCache ) );
+    }
+
+    public <T> T parseAs( XmlRpcParser parser, Class<T> type ) throws XmlRpcException
+    {
+        StreamParser streamParser = streamParserMap.get( type );
+        if ( streamParser == null )
+        {
+            throw new RuntimeException( "Stream parser not found for " + type.getName() );
+        }
+        return type.cast( streamParser.parse( parser ) );
     }
 
     public Object renderTo( Object obj )
@@ -66,6 +210,11 @@ public class Registry
         return parserMap.get( type ) != null;
     }
 
+    public boolean hasStreamParser( Class type )
+    {
+        return streamParserMap.get( type ) != null;
+    }
+
     // singleton instance
 
     private static Registry instance = new Registry(); // default
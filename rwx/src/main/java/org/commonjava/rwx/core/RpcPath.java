@@ -0,0 +1,274 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.core;
+
+import org.commonjava.rwx.error.XmlRpcException;
+import org.commonjava.rwx.vocab.ValueType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.commonjava.rwx.util.ParseUtils.nullifyNil;
+
+/**
+ * Compiled query selecting values from the params of a request or response, e.g. the ids of a Koji listBuilds
+ * response:
+ * <pre>
+ * RpcPath buildIds = RpcPath.compile( "params[0][*].build_id" );
+ * List&lt;Object&gt; ids = buildIds.select( parser.reset( in ) );
+ * </pre>
+ * A path starts with params, followed by steps: [n] for the nth param or array element, [*] for all of them,
+ * .name or ['name'] for a struct member, and .* for all members. The query runs on the stream of a
+ * {@link XmlRpcParser}: only the matching values are read, into the Map/List/primitive form of
+ * {@link XmlRpcParser#readValue()} with nil as null, and everything else is skipped. Values of the wrong type for a
+ * step, e.g. a string where the path expects a struct, do not match.
+ *
+ * Compiled paths are immutable and can be shared between threads.
+ */
+public final class RpcPath
+{
+    private static final String PARAMS = "params";
+
+    private static final int ANY = -1;
+
+    private static final int MEMBER = -2;
+
+    private final String expression;
+
+    // member name, null for a member step matching all members
+    private final String[] names;
+
+    // element index, ANY for all elements, MEMBER for a member step
+    private final int[] indexes;
+
+    private RpcPath( final String expression, final List<String> names, final List<Integer> indexes )
+    {
+        this.expression = expression;
+        this.names = names.toArray( new String[names.size()] );
+        this.indexes = new int[indexes.size()];
+        for ( int i = 0; i < this.indexes.length; i++ )
+        {
+            this.indexes[i] = indexes.get( i );
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the expression is not a valid path
+     */
+    public static RpcPath compile( final String expression )
+    {
+        if ( expression == null || !expression.startsWith( PARAMS ) )
+        {
+            throw new IllegalArgumentException( "Path must start with " + PARAMS + ": " + expression );
+        }
+
+        List<String> names = new ArrayList<>();
+        List<Integer> indexes = new ArrayList<>();
+        int i = PARAMS.length();
+        int length = expression.length();
+        while ( i < length )
+        {
+            char c = expression.charAt( i );
+            if ( c == '.' )
+            {
+                int end = i + 1;
+                while ( end < length && expression.charAt( end ) != '.' && expression.charAt( end ) != '[' )
+                {
+                    end++;
+                }
+                String name = expression.substring( i + 1, end );
+                if ( name.isEmpty() )
+                {
+                    throw invalid( expression, i, "expected a member name" );
+                }
+                names.add( name.equals( "*" ) ? null : name );
+                indexes.add( MEMBER );
+                i = end;
+            }
+            else if ( c == '[' )
+            {
+                int end = expression.indexOf( ']', i );
+                if ( end < 0 )
+                {
+                    throw invalid( expression, i, "missing ]" );
+                }
+                String step = expression.substring( i + 1, end );
+                if ( step.length() > 1 && ( step.charAt( 0 ) == '\'' || step.charAt( 0 ) == '"' ) )
+                {
+                    if ( step.charAt( step.length() - 1 ) != step.charAt( 0 ) )
+                    {
+                        throw invalid( expression, i, "unterminated member name" );
+                    }
+                    names.add( step.substring( 1, step.length() - 1 ) );
+                    indexes.add( MEMBER );
+                }
+                else
+                {
+                    names.add( null );
+                    indexes.add( step.equals( "*" ) ? ANY : index( expression, i, step ) );
+                }
+                i = end + 1;
+            }
+            else
+            {
+                throw invalid( expression, i, "expected . or [" );
+            }
+        }
+
+        if ( indexes.isEmpty() || indexes.get( 0 ) == MEMBER )
+        {
+            throw invalid( expression, PARAMS.length(), "expected a param index or [*]" );
+        }
+        return new RpcPath( expression, names, indexes );
+    }
+
+    /**
+     * Run the query on a document. The parser must be at the beginning of the document; it stops reading after the
+     * last param the path can match.
+     *
+     * @param consumer receives the matching values in document order
+     * @throws org.commonjava.rwx.error.XmlRpcFaultException if the document is a fault response
+     */
+    public void select( final XmlRpcParser parser, final Consumer<Object> consumer ) throws XmlRpcException
+    {
+        if ( !parser.beginParams() )
+        {
+            return;
+        }
+
+        int index = 0;
+        while ( parser.nextValue() )
+        {
+            if ( matches( 0, index ) )
+            {
+                match( parser, 1, consumer );
+            }
+            else
+            {
+                parser.skipValue();
+            }
+
+            if ( index++ == indexes[0] )
+            {
+                return; // no later param can match
+            }
+        }
+    }
+
+    /**
+     * @return the matching values in document order, see {@link #select(XmlRpcParser, Consumer)}
+     */
+    public List<Object> select( final XmlRpcParser parser ) throws XmlRpcException
+    {
+        List<Object> ret = new ArrayList<>();
+        select( parser, ret::add );
+        return ret;
+    }
+
+    @Override
+    public String toString()
+    {
+        return expression;
+    }
+
+    /**
+     * Match the value the parser is positioned at against the steps from the given one on.
+     */
+    private void match( final XmlRpcParser parser, final int step, final Consumer<Object> consumer )
+                    throws XmlRpcException
+    {
+        if ( step == indexes.length )
+        {
+            consumer.accept( nullifyNil( parser.readValue() ) );
+            return;
+        }
+
+        ValueType type = parser.openValue();
+        if ( type == null || parser.primitiveValue() != null )
+        {
+            return; // empty value or bare string, consumed
+        }
+
+        if ( indexes[step] == MEMBER && type == ValueType.STRUCT )
+        {
+            String key;
+            while ( ( key = parser.nextMember() ) != null )
+            {
+                if ( names[step] == null || names[step].equals( key ) )
+                {
+                    match( parser, step + 1, consumer );
+                }
+                else
+                {
+                    parser.skipValue();
+                }
+            }
+            parser.endStruct();
+        }
+        else if ( indexes[step] != MEMBER && type == ValueType.ARRAY )
+        {
+            if ( parser.enterData() )
+            {
+                int index = 0;
+                while ( parser.nextValue() )
+                {
+                    if ( matches( step, index++ ) )
+                    {
+                        match( parser, step + 1, consumer );
+                    }
+                    else
+                    {
+                        parser.skipValue();
+                    }
+                }
+                parser.endArray();
+            }
+        }
+        else
+        {
+            parser.skipOpenValue();
+        }
+    }
+
+    private boolean matches( final int step, final int index )
+    {
+        return indexes[step] == ANY || indexes[step] == index;
+    }
+
+    private static int index( final String expression, final int position, final String step )
+    {
+        try
+        {
+            int index = Integer.parseInt( step );
+            if ( index >= 0 )
+            {
+                return index;
+            }
+        }
+        catch ( NumberFormatException e )
+        {
+            // reported below
+        }
+        throw invalid( expression, position, "expected an index, * or a quoted name" );
+    }
+
+    private static IllegalArgumentException invalid( final String expression, final int position,
+                                                     final String message )
+    {
+        return new IllegalArgumentException( "Invalid path at " + position + ", " + message + ": " + expression );
+    }
+}
@@ -0,0 +1,505 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.core;
+
+import org.commonjava.rwx.error.CoercionException;
+import org.commonjava.rwx.error.XmlRpcException;
+import org.commonjava.rwx.util.DateTimeCodec;
+import org.commonjava.rwx.vocab.ValueType;
+
+import java.io.Closeable;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pull reader over the tokens of an XML-RPC document, for hand-written decoders that walk a payload without the
+ * intermediate Map/List tree. Reading starts at the params of a request or response; a fault response throws
+ * {@link org.commonjava.rwx.error.XmlRpcFaultException}.
+ * <pre>
+ * while ( reader.nextToken() == RpcToken.BEGIN_STRUCT ) // each param
+ * {
+ *     String name;
+ *     while ( ( name = reader.nextMemberName() ) != null )
+ *     {
+ *         switch ( name )
+ *         {
+ *             case "id":
+ *                 id = reader.readInt();
+ *                 break;
+ *             default:
+ *                 reader.skipValue();
+ *         }
+ *     }
+ * }
+ * </pre>
+ * {@link #nextToken()} walks every token and enters structs and arrays. The read methods consume the current value
+ * if it has not been read yet, or else the next one; a struct or array value is read whole.
+ */
+public final class RpcReader
+                implements Closeable
+{
+    private static final int PARAMS = 0;
+
+    private static final int SINGLE = 1;
+
+    private static final int STRUCT = 2;
+
+    private static final int ARRAY = 3;
+
+    private static final int EMPTY_ARRAY = 4;
+
+    private final XmlRpcParser parser;
+
+    private int[] contexts = new int[16];
+
+    private int depth;
+
+    private boolean started;
+
+    private RpcToken token;
+
+    private ValueType type;
+
+    // the parser is positioned at the type element of the current value
+    private boolean open;
+
+    // the current value token has not been read, entered or skipped
+    private boolean pending;
+
+    private String memberName;
+
+    /**
+     * @param parser reset to a document, at its beginning
+     */
+    public RpcReader( final XmlRpcParser parser )
+    {
+        this.parser = parser;
+    }
+
+    public RpcReader( final InputStream in ) throws XmlRpcException
+    {
+        this( new XmlRpcParser( in ) );
+    }
+
+    /**
+     * Read the single value the parser is positioned at, e.g. from a {@link StreamParser}. Once it is read,
+     * {@link #nextToken()} returns END_DOCUMENT and the parser is left after the value.
+     */
+    public static RpcReader forValue( final XmlRpcParser parser )
+    {
+        RpcReader reader = new RpcReader( parser );
+        reader.started = true;
+        reader.push( SINGLE );
+        return reader;
+    }
+
+    /**
+     * Move to the next token. A value that was not read is skipped, a struct or array that was not read is entered.
+     */
+    public RpcToken nextToken() throws XmlRpcException
+    {
+        if ( !started )
+        {
+            started = true;
+            if ( parser.beginParams() )
+            {
+                push( PARAMS );
+            }
+        }
+        else if ( pending )
+        {
+            if ( token == RpcToken.BEGIN_STRUCT || token == RpcToken.BEGIN_ARRAY )
+            {
+                enter();
+            }
+            else
+            {
+                skip();
+            }
+        }
+
+        if ( depth == 0 )
+        {
+            return token = RpcToken.END_DOCUMENT;
+        }
+
+        switch ( contexts[depth - 1] )
+        {
+            case STRUCT:
+                if ( token == RpcToken.MEMBER_NAME )
+                {
+                    return openValue();
+                }
+                memberName = parser.nextMember();
+                if ( memberName == null )
+                {
+                    parser.endStruct();
+                    depth--;
+                    return token = RpcToken.END_STRUCT;
+                }
+                return token = RpcToken.MEMBER_NAME;
+            case EMPTY_ARRAY:
+                depth--;
+                return token = RpcToken.END_ARRAY;
+            case SINGLE:
+                if ( token == null )
+                {
+                    return openValue();
+                }
+                depth--;
+                return token = RpcToken.END_DOCUMENT;
+            default:
+                if ( parser.nextValue() )
+                {
+                    return openValue();
+                }
+                if ( contexts[--depth] == ARRAY )
+                {
+                    parser.endArray();
+                    return token = RpcToken.END_ARRAY;
+                }
+                return token = RpcToken.END_DOCUMENT;
+        }
+    }
+
+    /**
+     * @return the current token, null before the first call to {@link #nextToken()}
+     */
+    public RpcToken getToken()
+    {
+        return token;
+    }
+
+    /**
+     * @return the name of the current or last struct member
+     */
+    public String getMemberName()
+    {
+        return memberName;
+    }
+
+    /**
+     * Move to the next member of the struct being read, skipping the value of the current member if it was not read.
+     * Called on a struct that {@link #nextToken()} returned, or at the beginning of the document, it enters the struct.
+     *
+     * @return the member name, or null at the end of the struct
+     */
+    public String nextMemberName() throws XmlRpcException
+    {
+        if ( !started )
+        {
+            nextToken();
+        }
+
+        if ( pending && token == RpcToken.BEGIN_STRUCT )
+        {
+            enter();
+        }
+        else if ( pending )
+        {
+            skip();
+        }
+        else if ( token == RpcToken.MEMBER_NAME )
+        {
+            skipValue();
+        }
+
+        if ( depth == 0 || contexts[depth - 1] != STRUCT )
+        {
+            throw new XmlRpcException( "Not in a struct" );
+        }
+        return nextToken() == RpcToken.MEMBER_NAME ? memberName : null;
+    }
+
+    /**
+     * Enter a struct value, whose members are then read with {@link #nextMemberName()}.
+     *
+     * @return false if the value is nil or empty
+     */
+    public boolean beginStruct() throws XmlRpcException
+    {
+        return beginContainer( RpcToken.BEGIN_STRUCT );
+    }
+
+    /**
+     * Enter an array value, whose elements are then read until {@link #nextToken()} returns END_ARRAY.
+     *
+     * @return false if the value is nil or empty
+     */
+    public boolean beginArray() throws XmlRpcException
+    {
+        return beginContainer( RpcToken.BEGIN_ARRAY );
+    }
+
+    /**
+     * @throws CoercionException if the value is not an int, or is nil or empty
+     */
+    public int readInt() throws XmlRpcException
+    {
+        requirePrimitive( "an int" );
+        try
+        {
+            return parser.getIntValue();
+        }
+        catch ( ClassCastException e )
+        {
+            throw new CoercionException( "Expected an int but was " + token, e );
+        }
+    }
+
+    /**
+     * @throws CoercionException if the value is not an int or i8, or is nil or empty
+     */
+    public long readLong() throws XmlRpcException
+    {
+        requirePrimitive( "a long" );
+        try
+        {
+            return parser.getLongValue();
+        }
+        catch ( ClassCastException e )
+        {
+            throw new CoercionException( "Expected a long but was " + token, e );
+        }
+    }
+
+    /**
+     * @throws CoercionException if the value is not a double, or is nil or empty
+     */
+    public double readDouble() throws XmlRpcException
+    {
+        requirePrimitive( "a double" );
+        try
+        {
+            return parser.getDoubleValue();
+        }
+        catch ( ClassCastException e )
+        {
+            throw new CoercionException( "Expected a double but was " + token, e );
+        }
+    }
+
+    /**
+     * @throws CoercionException if the value is not a boolean, or is nil or empty
+     */
+    public boolean readBoolean() throws XmlRpcException
+    {
+        requirePrimitive( "a boolean" );
+        try
+        {
+            return parser.getBooleanValue();
+        }
+        catch ( ClassCastException e )
+        {
+            throw new CoercionException( "Expected a boolean but was " + token, e );
+        }
+    }
+
+    /**
+     * @return the string, or the text of another primitive value; null if the value is nil or empty
+     * @throws CoercionException if the value is a struct or array
+     */
+    public String readString() throws XmlRpcException
+    {
+        if ( !readPrimitive() )
+        {
+            return null;
+        }
+        Object value = parser.primitiveValue();
+        if ( value instanceof String )
+        {
+            return (String) value;
+        }
+        else if ( value instanceof Map || value instanceof List )
+        {
+            throw new CoercionException( "Expected a string but was " + token );
+        }
+        return ValueType.safeTypeFor( value ).coercion().toString( value );
+    }
+
+    /**
+     * @return the dateTime.iso8601 value, or a string value parsed as one; null if the value is nil or empty
+     */
+    public Date readDate() throws XmlRpcException
+    {
+        if ( !readPrimitive() )
+        {
+            return null;
+        }
+        Object value = parser.primitiveValue();
+        if ( value instanceof Date )
+        {
+            return (Date) value;
+        }
+        else if ( value instanceof String )
+        {
+            return DateTimeCodec.parse( (String) value );
+        }
+        throw new CoercionException( "Expected a dateTime.iso8601 but was " + token );
+    }
+
+    /**
+     * Read the value in the form {@link XmlRpcParser#readValue()} produces, structs and arrays as Map/List.
+     *
+     * @return null if the value is nil or empty
+     */
+    public Object readValue() throws XmlRpcException
+    {
+        return readPrimitive() ? parser.primitiveValue() : null;
+    }
+
+    /**
+     * Skip the current value if it was not read, or else the next one; a struct or array is skipped whole.
+     */
+    public void skipValue() throws XmlRpcException
+    {
+        toValue();
+        skip();
+    }
+
+    @Override
+    public void close()
+    {
+        parser.close();
+    }
+
+    private RpcToken openValue() throws XmlRpcException
+    {
+        type = parser.openValue();
+        // a bare string is read by openValue(), a typed value is left at its type element
+        open = type != null && parser.primitiveValue() == null;
+        pending = true;
+        return token = tokenOf( type );
+    }
+
+    private void enter() throws XmlRpcException
+    {
+        pending = false;
+        open = false;
+        if ( token == RpcToken.BEGIN_STRUCT )
+        {
+            push( STRUCT );
+        }
+        else
+        {
+            push( parser.enterData() ? ARRAY : EMPTY_ARRAY );
+        }
+    }
+
+    private void skip() throws XmlRpcException
+    {
+        pending = false;
+        if ( open )
+        {
+            open = false;
+            parser.skipOpenValue();
+        }
+    }
+
+    /**
+     * Make the current token an unread value, moving to the next token if it is not.
+     */
+    private void toValue() throws XmlRpcException
+    {
+        if ( !pending )
+        {
+            nextToken();
+        }
+        if ( !pending )
+        {
+            throw new XmlRpcException( "Expected a value but was " + token );
+        }
+    }
+
+    private boolean readPrimitive() throws XmlRpcException
+    {
+        toValue();
+        pending = false;
+        if ( open )
+        {
+            open = false;
+            return parser.readOpenPrimitive( type );
+        }
+        return type != null; // bare string, or empty
+    }
+
+    private void requirePrimitive( final String expected ) throws XmlRpcException
+    {
+        if ( !readPrimitive() )
+        {
+            throw new CoercionException( "Expected " + expected + " but was nil" );
+        }
+    }
+
+    private boolean beginContainer( final RpcToken expected ) throws XmlRpcException
+    {
+        toValue();
+        if ( token == RpcToken.NIL )
+        {
+            skip();
+            return false;
+        }
+        else if ( token != expected )
+        {
+            throw new XmlRpcException( "Expected " + expected + " but was " + token );
+        }
+        enter();
+        return true;
+    }
+
+    private void push( final int context )
+    {
+        if ( depth == contexts.length )
+        {
+            contexts = Arrays.copyOf( contexts, depth * 2 );
+        }
+        contexts[depth++] = context;
+    }
+
+    private static RpcToken tokenOf( final ValueType type )
+    {
+        if ( type == null )
+        {
+            return RpcToken.NIL;
+        }
+        switch ( type )
+        {
+            case STRUCT:
+                return RpcToken.BEGIN_STRUCT;
+            case ARRAY:
+                return RpcToken.BEGIN_ARRAY;
+            case INT:
+                return RpcToken.INT;
+            case LONG:
+                return RpcToken.LONG;
+            case DOUBLE:
+                return RpcToken.DOUBLE;
+            case BOOLEAN:
+                return RpcToken.BOOLEAN;
+            case DATETIME:
+                return RpcToken.DATETIME;
+            case BASE64:
+                return RpcToken.BASE64;
+            case NIL:
+                return RpcToken.NIL;
+            default:
+                return RpcToken.STRING;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.core;
+
+/**
+ * Tokens of an XML-RPC document, as returned by {@link RpcReader#nextToken()}.
+ */
+public enum RpcToken
+{
+    BEGIN_STRUCT,
+
+    MEMBER_NAME,
+
+    END_STRUCT,
+
+    BEGIN_ARRAY,
+
+    END_ARRAY,
+
+    INT,
+
+    LONG,
+
+    DOUBLE,
+
+    BOOLEAN,
+
+    STRING,
+
+    DATETIME,
+
+    BASE64,
+
+    /**
+     * A nil or empty value.
+     */
+    NIL,
+
+    /**
+     * The end of the params, or of the single value of {@link RpcReader#forValue(XmlRpcParser)}.
+     */
+    END_DOCUMENT;
+
+    /**
+     * @return whether the token starts a value, including structs and arrays
+     */
+    public boolean isValue()
+    {
+        return this != MEMBER_NAME && this != END_STRUCT && this != END_ARRAY && this != END_DOCUMENT;
+    }
+}
@@ -0,0 +1,240 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.core;
+
+import org.commonjava.rwx.model.Fault;
+import org.commonjava.rwx.model.MethodCall;
+import org.commonjava.rwx.model.MethodResponse;
+import org.commonjava.rwx.model.RpcObject;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.commonjava.rwx.vocab.Nil.NIL_VALUE;
+
+/**
+ * Reference {@link RpcVisitor} that rebuilds the MethodCall, MethodResponse or Fault {@link XmlRpcParser#parse()}
+ * returns, with structs and arrays from a {@link ContainerFactory}. It shows the callbacks in use and keeps visitor
+ * walks in step with the tree parser.
+ */
+public class RpcTreeBuilder
+                implements RpcVisitor
+{
+    private final ContainerFactory containerFactory;
+
+    // open structs and arrays, innermost last
+    private final List<Object> containers = new ArrayList<>();
+
+    // member names of the enclosing structs, saved while a struct or array member is open
+    private final List<String> names = new ArrayList<>();
+
+    private String memberName;
+
+    private RpcObject result;
+
+    private List<Object> params;
+
+    private boolean inFault;
+
+    public RpcTreeBuilder()
+    {
+        this( ContainerFactory.DEFAULT );
+    }
+
+    public RpcTreeBuilder( final ContainerFactory containerFactory )
+    {
+        this.containerFactory = containerFactory;
+    }
+
+    /**
+     * @return the document visited, null if it was a response without params or fault
+     */
+    public RpcObject getResult()
+    {
+        return result;
+    }
+
+    @Override
+    public void beginRequest()
+    {
+        result = new MethodCall();
+    }
+
+    @Override
+    public void methodName( final String methodName )
+    {
+        if ( result instanceof MethodCall )
+        {
+            ( (MethodCall) result ).setMethodName( methodName );
+        }
+    }
+
+    @Override
+    public void beginParams()
+    {
+        if ( result == null )
+        {
+            result = new MethodResponse();
+        }
+        params = new ArrayList<>();
+        result.setParams( params );
+    }
+
+    @Override
+    public void endParams()
+    {
+        params = null;
+    }
+
+    @Override
+    public void beginFault()
+    {
+        result = new Fault();
+        inFault = true;
+    }
+
+    @Override
+    public void endFault()
+    {
+        inFault = false;
+    }
+
+    @Override
+    public void beginStruct()
+    {
+        open( containerFactory.newStruct() );
+    }
+
+    @Override
+    public void memberName( final String name )
+    {
+        memberName = name;
+    }
+
+    @Override
+    public void endStruct()
+    {
+        close();
+    }
+
+    @Override
+    public void beginArray()
+    {
+        open( containerFactory.newArray() );
+    }
+
+    @Override
+    public void endArray()
+    {
+        close();
+    }
+
+    @Override
+    public void intValue( final int value )
+    {
+        value( value );
+    }
+
+    @Override
+    public void longValue( final long value )
+    {
+        value( value );
+    }
+
+    @Override
+    public void doubleValue( final double value )
+    {
+        value( value );
+    }
+
+    @Override
+    public void booleanValue( final boolean value )
+    {
+        value( value );
+    }
+
+    @Override
+    public void stringValue( final String value )
+    {
+        value( value );
+    }
+
+    @Override
+    public void dateValue( final Date value )
+    {
+        value( value );
+    }
+
+    @Override
+    public void binaryValue( final Object value )
+    {
+        value( value );
+    }
+
+    @Override
+    public void nilValue()
+    {
+        value( NIL_VALUE );
+    }
+
+    @Override
+    public void nullValue()
+    {
+        value( null );
+    }
+
+    private void open( final Object container )
+    {
+        containers.add( container );
+        names.add( memberName );
+    }
+
+    private void close()
+    {
+        Object container = containers.remove( containers.size() - 1 );
+        memberName = names.remove( names.size() - 1 );
+        value( container );
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private void value( final Object value )
+    {
+        if ( containers.isEmpty() )
+        {
+            if ( inFault )
+            {
+                ( (Fault) result ).setValue( value );
+            }
+            else if ( params != null )
+            {
+                params.add( value );
+            }
+            return;
+        }
+
+        Object container = containers.get( containers.size() - 1 );
+        if ( container instanceof Map )
+        {
+            ( (Map<String, Object>) container ).put( memberName, value );
+        }
+        else
+        {
+            ( (List<Object>) container ).add( value );
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.core;
+
+import java.util.Date;
+
+/**
+ * Callbacks for a walk over an XML-RPC document with {@link XmlRpcParser#visit(RpcVisitor)}, for pipelines that only
+ * observe values, e.g. to count, index or checksum them. The parser builds no Map or List for structs and arrays, and
+ * int, i8, double and boolean values are decoded without boxing.
+ *
+ * A document is reported as beginRequest or beginResponse, then methodName, beginParams / endParams around the
+ * params, or beginFault / endFault around the fault value, and finally endDocument. Each value is either a scalar
+ * callback, or beginStruct, memberName followed by the member value for each member, endStruct, or beginArray, the
+ * element values, endArray. {@link RpcTreeBuilder} rebuilds the tree {@link XmlRpcParser#parse()} returns.
+ *
+ * All methods do nothing by default.
+ */
+public interface RpcVisitor
+{
+    default void beginRequest()
+    {
+    }
+
+    default void methodName( String methodName )
+    {
+    }
+
+    default void beginResponse()
+    {
+    }
+
+    default void beginParams()
+    {
+    }
+
+    default void endParams()
+    {
+    }
+
+    default void beginFault()
+    {
+    }
+
+    default void endFault()
+    {
+    }
+
+    default void endDocument()
+    {
+    }
+
+    default void beginStruct()
+    {
+    }
+
+    default void memberName( String name )
+    {
+    }
+
+    default void endStruct()
+    {
+    }
+
+    default void beginArray()
+    {
+    }
+
+    default void endArray()
+    {
+    }
+
+    default void intValue( int value )
+    {
+    }
+
+    default void longValue( long value )
+    {
+    }
+
+    default void doubleValue( double value )
+    {
+    }
+
+    default void booleanValue( boolean value )
+    {
+    }
+
+    /**
+     * A string value, typed or bare. Bare strings are trimmed.
+     */
+    default void stringValue( String value )
+    {
+    }
+
+    default void dateValue( Date value )
+    {
+    }
+
+    /**
+     * @param value byte[], or the value of the parser's {@link BinaryHandler} if one is set
+     */
+    default void binaryValue( Object value )
+    {
+    }
+
+    default void nilValue()
+    {
+    }
+
+    /**
+     * A value without content, where the tree has null: an empty value, a typed element without text, or an array
+     * without data.
+     */
+    default void nullValue()
+    {
+    }
+}
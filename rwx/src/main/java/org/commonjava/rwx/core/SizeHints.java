@@ -0,0 +1,89 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.core;
+
+import java.util.Arrays;
+
+/**
+ * Sizes of the structs and arrays earlier parses found at each path of a document, used to presize the containers of
+ * the next parse. Responses of one type tend to repeat their shapes, e.g. a Koji build struct always has the same
+ * members, so a hint avoids growing each HashMap and ArrayList from its default capacity. Set it on a parser with
+ * {@link XmlRpcParser#setSizeHints(SizeHints)}; {@link org.commonjava.rwx.api.RWXMapper} keeps one per parsed type.
+ *
+ * Paths are int hashes, see the parser. The table is direct mapped: a path replaces whatever was recorded in its slot,
+ * so memory stays bounded. Each slot holds the path and its size in one long, read and written without locking; a
+ * race only costs a hint. A hint follows the recorded sizes as a running average, capped at 65536.
+ */
+public final class SizeHints
+{
+    private static final int DEFAULT_SIZE = 256;
+
+    private static final int MAX_HINT = 1 << 16;
+
+    private final long[] entries;
+
+    public SizeHints()
+    {
+        this( DEFAULT_SIZE );
+    }
+
+    /**
+     * @param size number of paths kept, rounded up to a power of two
+     */
+    public SizeHints( final int size )
+    {
+        int capacity = 1;
+        while ( capacity < size )
+        {
+            capacity <<= 1;
+        }
+        this.entries = new long[capacity];
+    }
+
+    /**
+     * @return expected number of members or elements of a container at the path, 0 if none was recorded
+     */
+    public int get( final int path )
+    {
+        long entry = entries[index( path )];
+        return (int) ( entry >>> 32 ) == path ? (int) entry : 0;
+    }
+
+    /**
+     * Record the size of a container that was parsed at the path.
+     */
+    public void record( final int path, final int size )
+    {
+        int i = index( path );
+        long entry = entries[i];
+        int hint = Math.min( size, MAX_HINT );
+        if ( (int) ( entry >>> 32 ) == path )
+        {
+            hint = ( (int) entry + hint + 1 ) >>> 1;
+        }
+        entries[i] = ( (long) path << 32 ) | hint;
+    }
+
+    public void clear()
+    {
+        Arrays.fill( entries, 0 );
+    }
+
+    private int index( final int path )
+    {
+        return ( path ^ ( path >>> 16 ) ) & ( entries.length - 1 );
+    }
+}
@@ -0,0 +1,153 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.core;
+
+import org.commonjava.rwx.model.BinaryValue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Decodes base64 values into {@link BinaryValue}s, in memory up to a size threshold and into a temporary file above
+ * it, so large values never need to fit the heap.
+ */
+public final class SpillingBinaryHandler
+                implements BinaryHandler
+{
+    private final int threshold;
+
+    private final Path directory;
+
+    /**
+     * Values up to 1 MB in memory, larger ones in the default temporary directory.
+     */
+    public SpillingBinaryHandler()
+    {
+        this( 1024 * 1024, null );
+    }
+
+    /**
+     * @param threshold largest value kept in memory, in bytes
+     * @param directory of temporary files, null for the default temporary directory
+     */
+    public SpillingBinaryHandler( final int threshold, final Path directory )
+    {
+        this.threshold = threshold;
+        this.directory = directory;
+    }
+
+    @Override
+    public OutputStream begin()
+    {
+        return new SpillOutputStream();
+    }
+
+    @Override
+    public Object end( final OutputStream out ) throws IOException
+    {
+        return ( (SpillOutputStream) out ).toBinaryValue();
+    }
+
+    @Override
+    public void abort( final OutputStream out )
+    {
+        ( (SpillOutputStream) out ).discard();
+    }
+
+    /**
+     * Buffers in memory until the threshold is passed, then moves the bytes to a temporary file.
+     */
+    private final class SpillOutputStream
+                    extends OutputStream
+    {
+        private ByteArrayOutputStream memory = new ByteArrayOutputStream();
+
+        private Path file;
+
+        private OutputStream fileOut;
+
+        private long size;
+
+        @Override
+        public void write( final int b ) throws IOException
+        {
+            write( new byte[] { (byte) b }, 0, 1 );
+        }
+
+        @Override
+        public void write( final byte[] b, final int off, final int len ) throws IOException
+        {
+            if ( fileOut == null && size + len > threshold )
+            {
+                if ( directory == null )
+                {
+                    file = Files.createTempFile( "rwx-", ".bin" );
+                }
+                else
+                {
+                    file = Files.createTempFile( directory, "rwx-", ".bin" );
+                }
+                fileOut = Files.newOutputStream( file );
+                memory.writeTo( fileOut );
+                memory = null;
+            }
+
+            if ( fileOut != null )
+            {
+                fileOut.write( b, off, len );
+            }
+            else
+            {
+                memory.write( b, off, len );
+            }
+            size += len;
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            if ( fileOut != null )
+            {
+                fileOut.close();
+            }
+        }
+
+        BinaryValue toBinaryValue() throws IOException
+        {
+            close();
+            return file == null ? new BinaryValue( memory.toByteArray() ) : new BinaryValue( file, size, true );
+        }
+
+        void discard()
+        {
+            try
+            {
+                close();
+                if ( file != null )
+                {
+                    Files.deleteIfExists( file );
+                }
+            }
+            catch ( IOException e )
+            {
+                // already failing
+            }
+        }
+    }
+}
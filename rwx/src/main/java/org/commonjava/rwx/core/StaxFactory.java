@@ -0,0 +1,200 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.core;
+
+import org.commonjava.rwx.error.XmlRpcException;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Holder of a configured XMLInputFactory, shared by all parsers. XMLInputFactory lookup and setup is expensive, and a
+ * configured factory is safe to create readers from concurrently, so it is done once here instead of per parse.
+ *
+ * By default DTD and external entity support are turned off (XML-RPC does not use them), text is coalesced so each
+ * value arrives as a single CHARACTERS event. Namespace processing stays on: XML-RPC elements are unqualified, but
+ * servers using the Apache extensions send prefixed types such as {@code <ex:nil/>}, and only a namespace aware
+ * reader reports their local name without the prefix (the byte engines drop the prefix the same way).
+ *
+ * Readers for a parse with a string length limit read text in chunks instead, see {@link TextJoiningReader}.
+ */
+public final class StaxFactory
+{
+    private final StaxProvider provider;
+
+    private final Map<String, Object> properties;
+
+    private final XMLInputFactory factory;
+
+    // same properties without coalescing, for readers that join the text themselves
+    private final XMLInputFactory chunkedFactory;
+
+    public StaxFactory()
+    {
+        this( StaxProvider.DEFAULT );
+    }
+
+    public StaxFactory( final StaxProvider provider )
+    {
+        this( provider, defaultProperties() );
+    }
+
+    public StaxFactory( final StaxProvider provider, final boolean coalescing, final boolean namespaceAware )
+    {
+        this( provider, properties( coalescing, namespaceAware ) );
+    }
+
+    /**
+     * @param provider StAX implementation
+     * @param properties XMLInputFactory properties, unsupported ones are ignored
+     */
+    public StaxFactory( final StaxProvider provider, final Map<String, Object> properties )
+    {
+        this.provider = provider;
+        this.properties = Collections.unmodifiableMap( new HashMap<>( properties ) );
+        this.factory = newFactory( provider, properties );
+
+        Map<String, Object> chunked = new HashMap<>( properties );
+        chunked.put( XMLInputFactory.IS_COALESCING, false );
+        this.chunkedFactory = newFactory( provider, chunked );
+    }
+
+    private static XMLInputFactory newFactory( final StaxProvider provider, final Map<String, Object> properties )
+    {
+        XMLInputFactory factory = provider.newFactory();
+        for ( Map.Entry<String, Object> property : properties.entrySet() )
+        {
+            if ( factory.isPropertySupported( property.getKey() ) )
+            {
+                factory.setProperty( property.getKey(), property.getValue() );
+            }
+        }
+        return factory;
+    }
+
+    public static Map<String, Object> defaultProperties()
+    {
+        return properties( true, true );
+    }
+
+    private static Map<String, Object> properties( final boolean coalescing, final boolean namespaceAware )
+    {
+        Map<String, Object> ret = new HashMap<>();
+        ret.put( XMLInputFactory.IS_COALESCING, coalescing );
+        ret.put( XMLInputFactory.IS_NAMESPACE_AWARE, namespaceAware );
+        ret.put( XMLInputFactory.SUPPORT_DTD, false );
+        ret.put( XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false );
+        return ret;
+    }
+
+    public XMLStreamReader createReader( final InputStream in ) throws XmlRpcException
+    {
+        try
+        {
+            return factory.createXMLStreamReader( in );
+        }
+        catch ( final XMLStreamException e )
+        {
+            throw new XmlRpcException( "Failed to initialize stream reader: " + e.getMessage(), e );
+        }
+    }
+
+    public XMLStreamReader createReader( final Reader in ) throws XmlRpcException
+    {
+        try
+        {
+            return factory.createXMLStreamReader( in );
+        }
+        catch ( final XMLStreamException e )
+        {
+            throw new XmlRpcException( "Failed to initialize stream reader: " + e.getMessage(), e );
+        }
+    }
+
+    /**
+     * Create a reader that reports the text of an element as one event, like a coalescing reader, but stops reading it
+     * once it is longer than the string length limit, so the limit fails fast.
+     */
+    public XMLStreamReader createReader( final InputStream in, final ParseLimits limits ) throws XmlRpcException
+    {
+        if ( limits.getMaxStringLength() == Integer.MAX_VALUE )
+        {
+            return createReader( in );
+        }
+        try
+        {
+            return new TextJoiningReader( chunkedFactory.createXMLStreamReader( in ), limits.getMaxStringLength() );
+        }
+        catch ( final XMLStreamException e )
+        {
+            throw new XmlRpcException( "Failed to initialize stream reader: " + e.getMessage(), e );
+        }
+    }
+
+    /**
+     * See {@link #createReader(InputStream, ParseLimits)}.
+     */
+    public XMLStreamReader createReader( final Reader in, final ParseLimits limits ) throws XmlRpcException
+    {
+        if ( limits.getMaxStringLength() == Integer.MAX_VALUE )
+        {
+            return createReader( in );
+        }
+        try
+        {
+            return new TextJoiningReader( chunkedFactory.createXMLStreamReader( in ), limits.getMaxStringLength() );
+        }
+        catch ( final XMLStreamException e )
+        {
+            throw new XmlRpcException( "Failed to initialize stream reader: " + e.getMessage(), e );
+        }
+    }
+
+    public StaxProvider getProvider()
+    {
+        return provider;
+    }
+
+    public Map<String, Object> getProperties()
+    {
+        return properties;
+    }
+
+    public XMLInputFactory getFactory()
+    {
+        return factory;
+    }
+
+    // singleton instance
+
+    private static StaxFactory instance = new StaxFactory(); // default
+
+    public static synchronized StaxFactory getInstance()
+    {
+        return instance;
+    }
+
+    public static synchronized void setInstance( StaxFactory staxFactory )
+    {
+        instance = staxFactory;
+    }
+}
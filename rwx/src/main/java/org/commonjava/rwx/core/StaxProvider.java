@@ -0,0 +1,91 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.core;
+
+import javax.xml.stream.XMLInputFactory;
+
+/**
+ * StAX implementations that {@link StaxFactory} can create a XMLInputFactory from. Woodstox and Aalto are optional,
+ * they must be on the classpath to be used.
+ */
+public enum StaxProvider
+{
+    /**
+     * Whatever XMLInputFactory.newInstance() finds via the javax.xml.stream.XMLInputFactory property or service lookup.
+     */
+    DEFAULT( null ),
+
+    JDK( "com.sun.xml.internal.stream.XMLInputFactoryImpl" ),
+
+    WOODSTOX( "com.ctc.wstx.stax.WstxInputFactory" ),
+
+    AALTO( "com.fasterxml.aalto.stax.InputFactoryImpl" );
+
+    private final String factoryClassName;
+
+    StaxProvider( final String factoryClassName )
+    {
+        this.factoryClassName = factoryClassName;
+    }
+
+    public String getFactoryClassName()
+    {
+        return factoryClassName;
+    }
+
+    public boolean isAvailable()
+    {
+        try
+        {
+            newFactory();
+            return true;
+        }
+        catch ( IllegalStateException e )
+        {
+            return false;
+        }
+    }
+
+    XMLInputFactory newFactory()
+    {
+        if ( this == DEFAULT )
+        {
+            return XMLInputFactory.newInstance();
+        }
+
+        if ( this == JDK )
+        {
+            try
+            {
+                // java 9+, the internal implementation class is not accessible there
+                return (XMLInputFactory) XMLInputFactory.class.getMethod( "newDefaultFactory" ).invoke( null );
+            }
+            catch ( ReflectiveOperationException e )
+            {
+                // java 8, fall through to the implementation class
+            }
+        }
+
+        try
+        {
+            return (XMLInputFactory) Class.forName( factoryClassName ).getDeclaredConstructor().newInstance();
+        }
+        catch ( ReflectiveOperationException | LinkageError e )
+        {
+            throw new IllegalStateException( "StAX provider " + this + " is not available: " + factoryClassName, e );
+        }
+    }
+}
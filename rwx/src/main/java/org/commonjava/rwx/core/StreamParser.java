@@ -0,0 +1,28 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.core;
+
+import org.commonjava.rwx.error.XmlRpcException;
+
+/**
+ * Single-pass parser that binds an object directly from the XML-RPC stream, without building the intermediate
+ * Map/List tree. Request and response parsers are called at the beginning of the document; struct and array parsers
+ * are called with the reader positioned at the start of the &lt;value&gt; they bind.
+ */
+public interface StreamParser<T>
+{
+    T parse( XmlRpcParser parser ) throws XmlRpcException;
+}
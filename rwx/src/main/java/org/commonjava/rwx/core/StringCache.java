@@ -0,0 +1,95 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.core;
+
+import java.util.Arrays;
+
+/**
+ * Bounded cache of String values, so that equal values of a parse share one instance. Set it on
+ * {@link org.commonjava.rwx.api.RWXMapper} or a parser to deduplicate all string values; fields annotated with
+ * {@link org.commonjava.rwx.anno.Intern} use that cache too, or a small one for the single parse if none is set.
+ *
+ * The cache is direct mapped: a value replaces whatever was cached in its slot, so memory stays bounded and a lookup
+ * is one probe. Strings longer than the length limit are returned as they are. Slots are read and written without
+ * locking, which is safe since Strings are immutable; a race only costs a missed deduplication.
+ */
+public final class StringCache
+{
+    private static final int DEFAULT_SIZE = 4096;
+
+    private static final int DEFAULT_MAX_LENGTH = 64;
+
+    private static final int PARSE_SIZE = 256;
+
+    private final String[] entries;
+
+    private final int maxLength;
+
+    public StringCache()
+    {
+        this( DEFAULT_SIZE, DEFAULT_MAX_LENGTH );
+    }
+
+    /**
+     * @param size number of cached values, rounded up to a power of two
+     * @param maxLength longest value that is cached
+     */
+    public StringCache( final int size, final int maxLength )
+    {
+        int capacity = 1;
+        while ( capacity < size )
+        {
+            capacity <<= 1;
+        }
+        this.entries = new String[capacity];
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * @return a small cache for the {@link org.commonjava.rwx.anno.Intern} fields of a single parse, when no cache is
+     * set on the mapper or parser
+     */
+    public static StringCache forParse()
+    {
+        return new StringCache( PARSE_SIZE, DEFAULT_MAX_LENGTH );
+    }
+
+    /**
+     * @return the cached instance equal to the value, or the value, which is cached in its place
+     */
+    public String intern( final String value )
+    {
+        if ( value == null || value.length() > maxLength )
+        {
+            return value;
+        }
+
+        int hash = value.hashCode();
+        int i = ( hash ^ ( hash >>> 16 ) ) & ( entries.length - 1 );
+        String cached = entries[i];
+        if ( cached != null && cached.hashCode() == hash && cached.equals( value ) )
+        {
+            return cached;
+        }
+        entries[i] = value;
+        return value;
+    }
+
+    public void clear()
+    {
+        Arrays.fill( entries, null );
+    }
+}
@@ -0,0 +1,255 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.core;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Table of canonical struct member names. The same few keys repeat in every struct of a large response, so parsers
+ * look names up here straight from their char or byte buffers, and a known name costs no allocation. The table is
+ * seeded with the @DataKey keys of the generated registry and learns unknown names up to a limit; names beyond the
+ * limit are returned as new Strings.
+ *
+ * Lookups don't lock. Names are added under a lock, and a lookup that races with an add at worst misses and retries
+ * under the lock. Once the table is full, a miss returns a new String without taking the lock.
+ */
+public final class SymbolTable
+{
+    private static final int DEFAULT_MAX_SIZE = 4096;
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final int maxSize;
+
+    // open addressing, load factor at most 1/2
+    private volatile String[] table = new String[INITIAL_CAPACITY];
+
+    private int size;
+
+    // set when size reaches maxSize, the table doesn't change after that
+    private volatile boolean full;
+
+    public SymbolTable()
+    {
+        this( DEFAULT_MAX_SIZE );
+    }
+
+    /**
+     * @param maxSize maximum number of names kept
+     */
+    public SymbolTable( final int maxSize )
+    {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return the canonical instance of the name, which is added if there is room
+     */
+    public String add( final String name )
+    {
+        String[] t = table;
+        int hash = name.hashCode();
+        for ( int i = hash & ( t.length - 1 ); t[i] != null; i = ( i + 1 ) & ( t.length - 1 ) )
+        {
+            if ( t[i].hashCode() == hash && t[i].equals( name ) )
+            {
+                return t[i];
+            }
+        }
+        return full ? name : insert( name );
+    }
+
+    /**
+     * Look up the name in a char range, ignoring leading and trailing whitespace.
+     */
+    public String lookup( final char[] chars, final int offset, final int length )
+    {
+        int start = offset;
+        int end = offset + length;
+        while ( start < end && chars[start] <= ' ' )
+        {
+            start++;
+        }
+        while ( end > start && chars[end - 1] <= ' ' )
+        {
+            end--;
+        }
+
+        int hash = 0;
+        for ( int i = start; i < end; i++ )
+        {
+            hash = 31 * hash + chars[i];
+        }
+
+        String[] t = table;
+        for ( int i = hash & ( t.length - 1 ); t[i] != null; i = ( i + 1 ) & ( t.length - 1 ) )
+        {
+            if ( t[i].hashCode() == hash && matches( t[i], chars, start, end ) )
+            {
+                return t[i];
+            }
+        }
+        String name = new String( chars, start, end - start );
+        return full ? name : insert( name );
+    }
+
+    /**
+     * Look up the name in a range of ASCII bytes, ignoring leading and trailing whitespace.
+     *
+     * @return null if the range has non-ASCII bytes
+     */
+    String lookup( final ByteBuffer bytes, final int offset, final int length )
+    {
+        int start = offset;
+        int end = offset + length;
+        while ( start < end && bytes.get( start ) <= ' ' && bytes.get( start ) >= 0 )
+        {
+            start++;
+        }
+        while ( end > start && bytes.get( end - 1 ) <= ' ' && bytes.get( end - 1 ) >= 0 )
+        {
+            end--;
+        }
+
+        int hash = 0;
+        for ( int i = start; i < end; i++ )
+        {
+            byte b = bytes.get( i );
+            if ( b < 0 )
+            {
+                return null;
+            }
+            hash = 31 * hash + b;
+        }
+
+        String[] t = table;
+        for ( int i = hash & ( t.length - 1 ); t[i] != null; i = ( i + 1 ) & ( t.length - 1 ) )
+        {
+            if ( t[i].hashCode() == hash && matches( t[i], bytes, start, end ) )
+            {
+                return t[i];
+            }
+        }
+
+        char[] chars = new char[end - start];
+        for ( int i = 0; i < chars.length; i++ )
+        {
+            chars[i] = (char) bytes.get( start + i );
+        }
+        String name = new String( chars );
+        return full ? name : insert( name );
+    }
+
+    public synchronized int size()
+    {
+        return size;
+    }
+
+    private synchronized String insert( final String name )
+    {
+        String[] t = table;
+        int hash = name.hashCode();
+        int i = hash & ( t.length - 1 );
+        for ( ; t[i] != null; i = ( i + 1 ) & ( t.length - 1 ) )
+        {
+            if ( t[i].hashCode() == hash && t[i].equals( name ) )
+            {
+                return t[i]; // added by another thread
+            }
+        }
+
+        if ( size >= maxSize )
+        {
+            return name;
+        }
+
+        if ( ( size + 1 ) * 2 > t.length )
+        {
+            String[] grown = new String[t.length * 2];
+            for ( String s : t )
+            {
+                if ( s != null )
+                {
+                    grown[slot( grown, s.hashCode() )] = s;
+                }
+            }
+            grown[slot( grown, hash )] = name;
+            table = grown;
+        }
+        else
+        {
+            t[i] = name;
+        }
+        full = ++size >= maxSize;
+        return name;
+    }
+
+    private static int slot( final String[] t, final int hash )
+    {
+        int i = hash & ( t.length - 1 );
+        while ( t[i] != null )
+        {
+            i = ( i + 1 ) & ( t.length - 1 );
+        }
+        return i;
+    }
+
+    private static boolean matches( final String s, final char[] chars, final int start, final int end )
+    {
+        if ( s.length() != end - start )
+        {
+            return false;
+        }
+        for ( int i = start; i < end; i++ )
+        {
+            if ( s.charAt( i - start ) != chars[i] )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matches( final String s, final ByteBuffer bytes, final int start, final int end )
+    {
+        if ( s.length() != end - start )
+        {
+            return false;
+        }
+        for ( int i = start; i < end; i++ )
+        {
+            if ( s.charAt( i - start ) != bytes.get( i ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // singleton instance
+
+    private static volatile SymbolTable instance = new SymbolTable(); // default
+
+    public static SymbolTable getInstance()
+    {
+        return instance;
+    }
+
+    public static void setInstance( SymbolTable symbolTable )
+    {
+        instance = symbolTable;
+    }
+}
@@ -0,0 +1,186 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.core;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.util.StreamReaderDelegate;
+import java.util.Arrays;
+
+/**
+ * Joins the text chunks of a non-coalescing reader into one CHARACTERS event, as a coalescing reader would, but stops
+ * as soon as the text is longer than the string length limit. A coalescing reader buffers a whole text node before
+ * reporting it, so an oversized value would fill the heap before the limit is checked.
+ *
+ * Only the text accessors are valid while the joined text is the current event.
+ */
+final class TextJoiningReader
+                extends StreamReaderDelegate
+{
+    private final int maxLength;
+
+    private char[] text = new char[256];
+
+    private int length;
+
+    private int event;
+
+    // the underlying reader is already at the event after the joined text
+    private boolean pending;
+
+    TextJoiningReader( final XMLStreamReader reader, final int maxLength )
+    {
+        super( reader );
+        this.maxLength = maxLength;
+        this.event = reader.getEventType();
+    }
+
+    @Override
+    public int next() throws XMLStreamException
+    {
+        if ( pending )
+        {
+            pending = false;
+            event = super.getEventType();
+            return event;
+        }
+
+        event = super.next();
+        if ( !isText( event ) )
+        {
+            return event;
+        }
+
+        boolean space = event == XMLStreamConstants.SPACE;
+        length = 0;
+        append();
+        while ( length <= maxLength && super.hasNext() )
+        {
+            int next = super.next();
+            if ( !isText( next ) )
+            {
+                pending = true;
+                break;
+            }
+            space = space && next == XMLStreamConstants.SPACE;
+            append();
+        }
+        event = space ? XMLStreamConstants.SPACE : XMLStreamConstants.CHARACTERS;
+        return event;
+    }
+
+    @Override
+    public boolean hasNext() throws XMLStreamException
+    {
+        return pending || super.hasNext();
+    }
+
+    @Override
+    public int getEventType()
+    {
+        return event;
+    }
+
+    @Override
+    public boolean isCharacters()
+    {
+        return isJoined() ? event == XMLStreamConstants.CHARACTERS : super.isCharacters();
+    }
+
+    @Override
+    public boolean isWhiteSpace()
+    {
+        if ( !isJoined() )
+        {
+            return super.isWhiteSpace();
+        }
+        for ( int i = 0; i < length; i++ )
+        {
+            if ( !Character.isWhitespace( text[i] ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean hasText()
+    {
+        return isJoined() || super.hasText();
+    }
+
+    @Override
+    public String getText()
+    {
+        return isJoined() ? new String( text, 0, length ) : super.getText();
+    }
+
+    @Override
+    public char[] getTextCharacters()
+    {
+        return isJoined() ? text : super.getTextCharacters();
+    }
+
+    @Override
+    public int getTextCharacters( final int sourceStart, final char[] target, final int targetStart,
+                                  final int targetLength ) throws XMLStreamException
+    {
+        if ( !isJoined() )
+        {
+            return super.getTextCharacters( sourceStart, target, targetStart, targetLength );
+        }
+        int n = Math.max( 0, Math.min( targetLength, length - sourceStart ) );
+        System.arraycopy( text, sourceStart, target, targetStart, n );
+        return n;
+    }
+
+    @Override
+    public int getTextStart()
+    {
+        return isJoined() ? 0 : super.getTextStart();
+    }
+
+    @Override
+    public int getTextLength()
+    {
+        return isJoined() ? length : super.getTextLength();
+    }
+
+    private boolean isJoined()
+    {
+        return isText( event );
+    }
+
+    private void append()
+    {
+        XMLStreamReader reader = getParent();
+        int n = reader.getTextLength();
+        if ( length + n > text.length )
+        {
+            text = Arrays.copyOf( text, Math.max( length + n, text.length * 2 ) );
+        }
+        System.arraycopy( reader.getTextCharacters(), reader.getTextStart(), text, length, n );
+        length += n;
+    }
+
+    private static boolean isText( final int event )
+    {
+        return event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+                        || event == XMLStreamConstants.SPACE;
+    }
+}
@@ -0,0 +1,86 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.core;
+
+import org.commonjava.rwx.vocab.ValueType;
+import org.slf4j.Logger;
+
+/**
+ * Logs parse events at trace level, and passes them on to the listener set on the parser, if any.
+ */
+final class TraceParseEventListener
+                implements ParseEventListener
+{
+    private final Logger logger;
+
+    private final ParseEventListener delegate;
+
+    TraceParseEventListener( final Logger logger, final ParseEventListener delegate )
+    {
+        this.logger = logger;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void startElement( final String name )
+    {
+        logger.trace( "Start <{}>", name );
+        if ( delegate != null )
+        {
+            delegate.startElement( name );
+        }
+    }
+
+    @Override
+    public void endElement( final String name )
+    {
+        logger.trace( "End </{}>", name );
+        if ( delegate != null )
+        {
+            delegate.endElement( name );
+        }
+    }
+
+    @Override
+    public void methodName( final String methodName )
+    {
+        logger.trace( "Read methodName: {}", methodName );
+        if ( delegate != null )
+        {
+            delegate.methodName( methodName );
+        }
+    }
+
+    @Override
+    public void memberName( final String name )
+    {
+        logger.trace( "Read key: {}", name );
+        if ( delegate != null )
+        {
+            delegate.memberName( name );
+        }
+    }
+
+    @Override
+    public void value( final ValueType type, final Object value )
+    {
+        logger.trace( "Read value: {}, type={}", value, type );
+        if ( delegate != null )
+        {
+            delegate.value( type, value );
+        }
+    }
+}
@@ -0,0 +1,956 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.core;
+
+import org.commonjava.rwx.error.XmlRpcException;
+import org.commonjava.rwx.model.Fault;
+import org.commonjava.rwx.model.MethodCall;
+import org.commonjava.rwx.model.MethodResponse;
+import org.commonjava.rwx.model.RpcObject;
+import org.commonjava.rwx.vocab.ValueType;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.commonjava.rwx.core.ByteTokenizer.*;
+import static org.commonjava.rwx.vocab.Nil.NIL_VALUE;
+
+/**
+ * XML-RPC request/response parser working directly on bytes instead of StAX. It returns the same RpcObject
+ * (MethodCall, MethodResponse or a Fault) as {@link XmlRpcParser#parse()}, but recognizes the XML-RPC elements by
+ * byte comparison and only decodes the text of names and values.
+ *
+ * UTF-8, US-ASCII and ISO-8859-1 documents are parsed directly, documents in other encodings are handed to
+ * {@link XmlRpcParser}. The parser is not thread safe, but can be reused for many documents.
+ */
+public class XmlRpcByteParser
+{
+    // parse frames, one per open element
+    private static final int F_DOCUMENT = 0;
+
+    private static final int F_REQUEST = 1;
+
+    private static final int F_RESPONSE = 2;
+
+    private static final int F_METHOD_NAME = 3;
+
+    private static final int F_PARAMS = 4;
+
+    private static final int F_PARAM = 5;
+
+    private static final int F_FAULT = 6;
+
+    private static final int F_VALUE = 7;
+
+    private static final int F_STRUCT = 8;
+
+    private static final int F_MEMBER = 9;
+
+    private static final int F_NAME = 10;
+
+    private static final int F_ARRAY = 11;
+
+    private static final int F_DATA = 12;
+
+    private static final int F_PRIMITIVE = 13;
+
+    private static final int F_NIL = 14;
+
+    private static final int F_SKIP = 15;
+
+    // value of a member that is decoded on access, see rangeStart and rangeEnd
+    private static final Object LAZY_RANGE = new Object();
+
+    // value of a member that is not bound, see Projection
+    private static final Object SKIPPED = new Object();
+
+    private final ByteTokenizer tokenizer = new ByteTokenizer();
+
+    private final StaxFactory staxFactory;
+
+    private final SymbolTable symbols = SymbolTable.getInstance();
+
+    private final PrimitiveDecoder decoder = new PrimitiveDecoder();
+
+    private int depth;
+
+    private int[] frames = new int[16];
+
+    // open elements of the unbound member value being skipped, 0 if none
+    private int skipLevel;
+
+    // tag ids of the open elements, to match end tags
+    private int[] tags = new int[16];
+
+    // the frame object: container being built, or value type of a primitive
+    private Object[] objects = new Object[16];
+
+    // the value received from a child frame
+    private Object[] values = new Object[16];
+
+    private boolean[] hasValue = new boolean[16];
+
+    // collected text, or the key of a member
+    private String[] texts = new String[16];
+
+    // bound part of the value in each frame, null for all of it
+    private Projection[] projections = new Projection[16];
+
+    private RpcObject result;
+
+    private boolean lazy;
+
+    private Projection projection;
+
+    private ContainerFactory containerFactory = ContainerFactory.DEFAULT;
+
+    private ParseLimits limits = ParseLimits.NONE;
+
+    private BinaryHandler binaryHandler;
+
+    private StringCache stringCache;
+
+    private final Base64Decoder base64 = new Base64Decoder();
+
+    // stream of the base64 value being decoded
+    private OutputStream binaryOut;
+
+    // elements parsed and text length of the current element, checked against the limits
+    private long elements;
+
+    private long textLength;
+
+    private LazyDocument document;
+
+    private int rangeStart;
+
+    private int rangeEnd;
+
+    public XmlRpcByteParser()
+    {
+        this( StaxFactory.getInstance() );
+    }
+
+    /**
+     * @param staxFactory used for documents that are not in UTF-8, US-ASCII or ISO-8859-1
+     */
+    public XmlRpcByteParser( final StaxFactory staxFactory )
+    {
+        this.staxFactory = staxFactory;
+    }
+
+    public boolean isLazy()
+    {
+        return lazy;
+    }
+
+    /**
+     * In lazy mode, structs and arrays are returned as Map/List views that only index their members when the document
+     * is parsed. Member values are decoded from the document bytes when they are first read, so the input must not be
+     * changed while the views are in use. Malformed member values are reported on access, as
+     * {@link org.commonjava.rwx.error.UncheckedXmlRpcException}. The views keep a reference to the input, a byte array
+     * or buffer of the caller is not copied. They may be read from several threads; decoding is serialized per
+     * document. Modifying a view is not thread safe.
+     */
+    public void setLazy( final boolean lazy )
+    {
+        this.lazy = lazy;
+    }
+
+    public Projection getProjection()
+    {
+        return projection;
+    }
+
+    /**
+     * Skip the struct members that are not in the projection, without building their values.
+     * @param projection e.g., {@link Registry#getProjection(Class)} of the type that is bound, null to keep all
+     */
+    public void setProjection( final Projection projection )
+    {
+        this.projection = projection;
+    }
+
+    public ContainerFactory getContainerFactory()
+    {
+        return containerFactory;
+    }
+
+    /**
+     * Create the Maps and Lists of structs and arrays with the factory. Lazy parsing returns its own views instead.
+     */
+    public void setContainerFactory( final ContainerFactory containerFactory )
+    {
+        this.containerFactory = containerFactory;
+    }
+
+    public BinaryHandler getBinaryHandler()
+    {
+        return binaryHandler;
+    }
+
+    /**
+     * Decode base64 values into the handler instead of into a byte[], straight from the document bytes.
+     */
+    public void setBinaryHandler( final BinaryHandler binaryHandler )
+    {
+        this.binaryHandler = binaryHandler;
+    }
+
+    public StringCache getStringCache()
+    {
+        return stringCache;
+    }
+
+    /**
+     * Take string values from the cache, so that equal values share one instance. null, the default, for no
+     * deduplication.
+     */
+    public void setStringCache( final StringCache stringCache )
+    {
+        this.stringCache = stringCache;
+    }
+
+    public ParseLimits getParseLimits()
+    {
+        return limits;
+    }
+
+    /**
+     * Check documents against the limits, {@link ParseLimits#NONE} by default. In lazy mode, struct and array values
+     * are checked on their own when they are decoded.
+     */
+    public void setParseLimits( final ParseLimits limits )
+    {
+        this.limits = limits;
+    }
+
+    public RpcObject parse( final byte[] in ) throws XmlRpcException
+    {
+        return parse( in, 0, in.length );
+    }
+
+    public RpcObject parse( final byte[] in, final int offset, final int length ) throws XmlRpcException
+    {
+        return parse( ByteBuffer.wrap( in, offset, length ) );
+    }
+
+    /**
+     * Parse the bytes between the buffer's position and limit. The buffer's position is not changed.
+     */
+    public RpcObject parse( final ByteBuffer in ) throws XmlRpcException
+    {
+        int start = in.position();
+        int limit = in.limit();
+        limits.checkBytes( limit - start );
+
+        Boolean latin1 = detectEncoding( in, start, limit );
+        if ( latin1 == null )
+        {
+            return parseWithStax( in );
+        }
+
+        if ( start + 3 <= limit && ( in.get( start ) & 0xff ) == 0xEF )
+        {
+            start += 3; // UTF-8 BOM
+        }
+
+        start( in, start, limit, latin1, false );
+        if ( lazy )
+        {
+            document = new LazyDocument( in, latin1, limits, binaryHandler, stringCache );
+        }
+        try
+        {
+            advance();
+            return finish();
+        }
+        finally
+        {
+            clear();
+        }
+    }
+
+    // incremental parsing, used by XmlRpcFeedParser to keep the parse state between chunks of input
+
+    /**
+     * Start a new document.
+     * @param partial if true, the input may end in the middle of the document, see {@link #advance()}
+     */
+    void start( final ByteBuffer in, final int start, final int limit, final boolean latin1, final boolean partial )
+    {
+        tokenizer.reset( in, start, limit, latin1 );
+        tokenizer.setPartial( partial );
+        depth = 0;
+        skipLevel = 0;
+        elements = 0;
+        frames[0] = F_DOCUMENT;
+        projections[0] = projection;
+        result = null;
+    }
+
+    /**
+     * Continue the document started by {@link #start(ByteBuffer, int, int, boolean, boolean)} with more input.
+     */
+    void resume( final ByteBuffer in, final int start, final int limit )
+    {
+        tokenizer.resume( in, start, limit );
+    }
+
+    /**
+     * Process the available tokens.
+     *
+     * @return true if the root element is closed, false if a partial document needs more input
+     */
+    boolean advance() throws XmlRpcException
+    {
+        int event;
+        while ( ( event = tokenizer.next() ) != END_DOCUMENT )
+        {
+            if ( skipLevel > 0 && event != NEED_INPUT )
+            {
+                // inside a value that is not bound, counted token by token so a fed document can resume in it
+                skipLevel += event == START_TAG ? 1 : event == END_TAG ? -1 : 0;
+                continue;
+            }
+
+            switch ( event )
+            {
+                case START_TAG:
+                    if ( tokenizer.getTag() == T_VALUE && frames[depth] == F_MEMBER && !isBound() )
+                    {
+                        skipLevel = 1;
+                        hasValue[depth] = true;
+                        values[depth] = SKIPPED;
+                    }
+                    else if ( lazy && tokenizer.getTag() == T_VALUE && ( frames[depth] == F_MEMBER
+                                    || frames[depth] == F_DATA ) )
+                    {
+                        skipValue();
+                    }
+                    else
+                    {
+                        startElement( tokenizer.getTag() );
+                    }
+                    break;
+                case EMPTY_TAG:
+                    startElement( tokenizer.getTag() );
+                    endElement();
+                    break;
+                case END_TAG:
+                    endElement();
+                    break;
+                case TEXT:
+                    text();
+                    break;
+                case NEED_INPUT:
+                    return false;
+            }
+
+            if ( depth == 0 && result != null && tokenizer.isPartial() )
+            {
+                return true; // ignore whatever follows the root of a fed document
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return position of the first byte not consumed by {@link #advance()}
+     */
+    int getPosition()
+    {
+        return tokenizer.getPosition();
+    }
+
+    RpcObject finish() throws XmlRpcException
+    {
+        if ( depth > 0 )
+        {
+            throw new XmlRpcException( "Unexpected end of document, unclosed elements: " + depth );
+        }
+        return result;
+    }
+
+    /**
+     * Decode a value of a lazy struct or array.
+     *
+     * @param start position after the &lt;value&gt; tag
+     * @param end position of the &lt;/value&gt; tag
+     */
+    Object parseValue( final LazyDocument document, final int start, final int end, final Projection projection )
+                    throws XmlRpcException
+    {
+        this.document = document;
+        tokenizer.reset( document.getBuffer(), start, end, document.isLatin1() );
+        tokenizer.setPartial( false );
+        depth = 0;
+        skipLevel = 0;
+        elements = 0;
+        frames[0] = F_VALUE;
+        projections[0] = projection;
+        tags[0] = UNKNOWN;
+        hasValue[0] = false;
+        try
+        {
+            advance();
+            finish();
+            return valueOf( hasValue[0], values[0], texts[0] );
+        }
+        finally
+        {
+            clear();
+        }
+    }
+
+    /**
+     * Release the input and the partially built objects.
+     */
+    void clear()
+    {
+        if ( binaryOut != null )
+        {
+            binaryHandler.abort( binaryOut );
+            binaryOut = null;
+        }
+        document = null;
+        tokenizer.clear();
+        Arrays.fill( objects, 0, objects.length, null );
+        Arrays.fill( values, 0, values.length, null );
+        Arrays.fill( texts, 0, texts.length, null );
+        Arrays.fill( projections, 0, projections.length, null );
+    }
+
+    private void startElement( final int tag ) throws XmlRpcException
+    {
+        limits.checkDepth( depth + 1 );
+        limits.checkElements( ++elements );
+        textLength = 0;
+
+        int frame;
+        Object object = null;
+        switch ( frames[depth] )
+        {
+            case F_DOCUMENT:
+                if ( tag == T_REQUEST )
+                {
+                    frame = F_REQUEST;
+                    object = new MethodCall();
+                }
+                else if ( tag == T_RESPONSE )
+                {
+                    frame = F_RESPONSE;
+                }
+                else
+                {
+                    throw new XmlRpcException( "Invalid XML-RPC root element: " + tokenizer.getName() );
+                }
+                break;
+            case F_REQUEST:
+                frame = tag == T_METHOD_NAME ? F_METHOD_NAME : tag == T_PARAMS ? F_PARAMS : F_SKIP;
+                break;
+            case F_RESPONSE:
+                frame = tag == T_PARAMS ? F_PARAMS : tag == T_FAULT ? F_FAULT : F_SKIP;
+                break;
+            case F_PARAMS:
+                frame = tag == T_PARAM ? F_PARAM : F_SKIP;
+                break;
+            case F_PARAM:
+            case F_FAULT:
+            case F_DATA:
+                frame = tag == T_VALUE ? F_VALUE : F_SKIP;
+                break;
+            case F_MEMBER:
+                frame = tag == T_NAME ? F_NAME : tag == T_VALUE ? F_VALUE : F_SKIP;
+                break;
+            case F_STRUCT:
+                frame = tag == T_MEMBER ? F_MEMBER : F_SKIP;
+                break;
+            case F_ARRAY:
+                frame = tag == T_DATA ? F_DATA : F_SKIP;
+                break;
+            case F_VALUE:
+                if ( tag == T_STRUCT )
+                {
+                    frame = F_STRUCT;
+                }
+                else if ( tag == T_ARRAY )
+                {
+                    frame = F_ARRAY;
+                }
+                else if ( tag == T_NIL )
+                {
+                    frame = F_NIL;
+                }
+                else
+                {
+                    frame = F_PRIMITIVE; // xml-rpc primitives, string, int, etc.
+                    ValueType type = ByteTokenizer.valueType( tag );
+                    object = type == null ? ValueType.typeOf( tokenizer.getName() ) : type;
+                    decoder.clear();
+                }
+                break;
+            default:
+                frame = F_SKIP;
+        }
+
+        Projection projection = childProjection( frame );
+        if ( frame == F_PARAMS )
+        {
+            object = new ArrayList<>();
+        }
+        else if ( frame == F_DATA )
+        {
+            object = lazy ? new LazyArray( document, projection ) : containerFactory.newArray();
+        }
+        else if ( frame == F_STRUCT )
+        {
+            object = lazy ? new LazyStruct( document, projection ) : containerFactory.newStruct();
+        }
+        push( frame, tag, object, projection );
+    }
+
+    private void text() throws XmlRpcException
+    {
+        textLength += tokenizer.getTextLength();
+        limits.checkStringLength( textLength );
+
+        if ( binaryHandler != null && frames[depth] == F_PRIMITIVE && objects[depth] == ValueType.BASE64 )
+        {
+            binary();
+            return;
+        }
+
+        if ( frames[depth] == F_PRIMITIVE && texts[depth] == null
+                        && PrimitiveDecoder.isDecodable( (ValueType) objects[depth] ) )
+        {
+            // numbers and booleans are decoded from the bytes at the end tag, hasValue marks that text arrived
+            hasValue[depth] = true;
+            if ( tokenizer.appendText( decoder ) )
+            {
+                return;
+            }
+            texts[depth] = decoder.toString(); // references or non-ASCII, leave it to the coercion
+        }
+        switch ( frames[depth] )
+        {
+            case F_VALUE: // default string value, takes form of <value>str</value>
+                if ( texts[depth] == null && tokenizer.isWhiteSpace() )
+                {
+                    break; // indentation before a typed value
+                }
+                appendText(); // values rarely repeat, keep them out of the symbol table
+                break;
+            case F_NAME:
+                if ( texts[depth] == null )
+                {
+                    // member names repeat in every struct, take the canonical instance instead of decoding
+                    texts[depth] = tokenizer.getSymbol( symbols );
+                    if ( texts[depth] != null )
+                    {
+                        break;
+                    }
+                }
+            case F_METHOD_NAME:
+            case F_PRIMITIVE:
+                appendText();
+                break;
+            default:
+                // whitespace between elements
+        }
+    }
+
+    private void appendText() throws XmlRpcException
+    {
+        String text = tokenizer.getText();
+        texts[depth] = texts[depth] == null ? text : texts[depth] + text;
+    }
+
+    private void endElement() throws XmlRpcException
+    {
+        if ( depth == 0 )
+        {
+            throw new XmlRpcException( "Unexpected end tag: " + tokenizer.getName() );
+        }
+        textLength = 0;
+        if ( tokenizer.getTag() != tags[depth] )
+        {
+            throw new XmlRpcException( "Mismatched end tag: " + tokenizer.getName() + " at byte "
+                                                       + tokenizer.getPosition() );
+        }
+
+        int frame = frames[depth];
+        Object object = objects[depth];
+        Object value = values[depth];
+        boolean received = hasValue[depth];
+        String text = texts[depth];
+        Projection projection = projections[depth];
+        pop();
+
+        switch ( frame )
+        {
+            case F_REQUEST:
+            case F_RESPONSE:
+                result = (RpcObject) object;
+                break;
+            case F_METHOD_NAME:
+                if ( text != null && !isBlank( text ) )
+                {
+                    ( (MethodCall) objects[depth] ).setMethodName( text.trim() );
+                }
+                break;
+            case F_PARAMS:
+                if ( frames[depth] == F_RESPONSE )
+                {
+                    MethodResponse response = new MethodResponse();
+                    response.setParams( (List<Object>) object );
+                    objects[depth] = response;
+                }
+                else
+                {
+                    ( (MethodCall) objects[depth] ).setParams( (List<Object>) object );
+                }
+                break;
+            case F_PARAM:
+                ( (List<Object>) objects[depth] ).add( value );
+                break;
+            case F_FAULT:
+                Fault fault = new Fault();
+                fault.setValue( value );
+                objects[depth] = fault;
+                break;
+            case F_VALUE:
+                deliver( valueOf( received, value, text ) );
+                break;
+            case F_NAME:
+                texts[depth] = text == null ? null : text.trim(); // the member key
+                break;
+            case F_MEMBER:
+                if ( value == SKIPPED || ( projection != null && !projection.includes( text ) ) )
+                {
+                    break; // not bound
+                }
+                if ( value == LAZY_RANGE )
+                {
+                    ( (LazyStruct) objects[depth] ).addRange( text, rangeStart, rangeEnd );
+                }
+                else if ( lazy )
+                {
+                    ( (LazyStruct) objects[depth] ).addValue( text, value );
+                }
+                else
+                {
+                    ( (Map<String, Object>) objects[depth] ).put( text, value );
+                }
+                break;
+            case F_STRUCT:
+            case F_DATA:
+                deliver( object );
+                break;
+            case F_ARRAY:
+                deliver( value );
+                break;
+            case F_PRIMITIVE:
+                ValueType type = (ValueType) object;
+                if ( binaryOut != null )
+                {
+                    deliver( endBinary() );
+                }
+                else if ( text == null && received )
+                {
+                    deliver( decoder.decode( type ) ? decoder.getValue( type ) : null );
+                }
+                else
+                {
+                    Object primitive = text == null ? null : type.coercion().fromString( text );
+                    deliver( type == ValueType.STRING ? intern( (String) primitive ) : primitive );
+                }
+                break;
+            case F_NIL:
+                deliver( NIL_VALUE );
+                break;
+            default:
+                // skipped element
+        }
+    }
+
+    /**
+     * Decode the text of a base64 element into the binary handler.
+     */
+    private void binary() throws XmlRpcException
+    {
+        try
+        {
+            if ( binaryOut == null )
+            {
+                binaryOut = binaryHandler.begin();
+                base64.reset( binaryOut );
+            }
+            if ( !tokenizer.writeText( base64 ) )
+            {
+                char[] chars = tokenizer.getText().toCharArray();
+                base64.decode( chars, 0, chars.length );
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new XmlRpcException( "Failed to write binary value: " + e.getMessage(), e );
+        }
+    }
+
+    private Object endBinary() throws XmlRpcException
+    {
+        try
+        {
+            base64.finish();
+            Object value = binaryHandler.end( binaryOut );
+            binaryOut = null;
+            return value;
+        }
+        catch ( IOException e )
+        {
+            throw new XmlRpcException( "Failed to write binary value: " + e.getMessage(), e );
+        }
+    }
+
+    /**
+     * @return the typed child value, or else the trimmed text of a &lt;value&gt;
+     */
+    private Object valueOf( final boolean received, final Object value, final String text )
+    {
+        if ( received )
+        {
+            return value;
+        }
+        return text != null && !isBlank( text ) ? intern( text.trim() ) : null;
+    }
+
+    private String intern( final String value )
+    {
+        return stringCache == null || value == null ? value : stringCache.intern( value );
+    }
+
+    /**
+     * @return projection of a new frame, from the projection of its parent
+     */
+    private Projection childProjection( final int frame )
+    {
+        Projection parent = projections[depth];
+        if ( parent == null )
+        {
+            return null;
+        }
+
+        switch ( frames[depth] )
+        {
+            case F_RESPONSE:
+                return frame == F_PARAMS ? parent : null; // faults are not bound
+            case F_PARAMS:
+            case F_DATA:
+                return frame == F_PARAM || frame == F_VALUE ? parent.element(
+                                ( (List<Object>) objects[depth] ).size() ) : null;
+            case F_MEMBER:
+                return frame == F_VALUE ? parent.member( texts[depth] ) : null;
+            default:
+                return parent;
+        }
+    }
+
+    /**
+     * @return false if the member, whose name was read, is not in the projection of its struct
+     */
+    private boolean isBound()
+    {
+        Projection parent = projections[depth];
+        return parent == null || texts[depth] == null || parent.includes( texts[depth] );
+    }
+
+    /**
+     * In lazy mode, record the byte range of a member or array value and skip it.
+     */
+    private void skipValue() throws XmlRpcException
+    {
+        int start = tokenizer.getPosition();
+        int end = tokenizer.skipElement();
+        if ( frames[depth] == F_DATA )
+        {
+            ( (LazyArray) objects[depth] ).addRange( start, end );
+        }
+        else
+        {
+            hasValue[depth] = true;
+            values[depth] = LAZY_RANGE;
+            rangeStart = start;
+            rangeEnd = end;
+        }
+    }
+
+    /**
+     * Hand a value to the parent frame.
+     */
+    private void deliver( final Object value )
+    {
+        if ( frames[depth] == F_DATA )
+        {
+            if ( lazy )
+            {
+                ( (LazyArray) objects[depth] ).addValue( value );
+            }
+            else
+            {
+                ( (List<Object>) objects[depth] ).add( value );
+            }
+        }
+        else
+        {
+            hasValue[depth] = true;
+            values[depth] = value;
+        }
+    }
+
+    private void push( final int frame, final int tag, final Object object, final Projection projection )
+    {
+        depth++;
+        if ( depth == frames.length )
+        {
+            int size = frames.length * 2;
+            frames = Arrays.copyOf( frames, size );
+            tags = Arrays.copyOf( tags, size );
+            objects = Arrays.copyOf( objects, size );
+            values = Arrays.copyOf( values, size );
+            hasValue = Arrays.copyOf( hasValue, size );
+            texts = Arrays.copyOf( texts, size );
+            projections = Arrays.copyOf( projections, size );
+        }
+        frames[depth] = frame;
+        tags[depth] = tag;
+        objects[depth] = object;
+        values[depth] = null;
+        hasValue[depth] = false;
+        texts[depth] = null;
+        projections[depth] = projection;
+    }
+
+    private void pop()
+    {
+        objects[depth] = null;
+        values[depth] = null;
+        texts[depth] = null;
+        projections[depth] = null;
+        depth--;
+    }
+
+    private static boolean isBlank( final String text )
+    {
+        for ( int i = 0; i < text.length(); i++ )
+        {
+            if ( !Character.isWhitespace( text.charAt( i ) ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return false for UTF-8 or US-ASCII, true for ISO-8859-1, null for any other encoding
+     */
+    static Boolean detectEncoding( final ByteBuffer in, final int start, final int limit )
+    {
+        if ( start + 2 <= limit )
+        {
+            int b0 = in.get( start ) & 0xff;
+            int b1 = in.get( start + 1 ) & 0xff;
+            if ( b0 == 0xFE || b0 == 0xFF || b0 == 0 || b1 == 0 )
+            {
+                return null; // UTF-16 or UTF-32
+            }
+        }
+
+        // <?xml version="1.0" encoding="..."?>
+        int i = start;
+        if ( i + 3 <= limit && ( in.get( i ) & 0xff ) == 0xEF )
+        {
+            i += 3;
+        }
+        if ( i + 5 > limit || in.get( i ) != '<' || in.get( i + 1 ) != '?' )
+        {
+            return false;
+        }
+
+        StringBuilder declaration = new StringBuilder();
+        for ( ; i < limit && in.get( i ) != '>'; i++ )
+        {
+            declaration.append( (char) in.get( i ) );
+        }
+        String decl = declaration.toString();
+        int enc = decl.indexOf( "encoding" );
+        if ( enc < 0 )
+        {
+            return false;
+        }
+
+        int quote = enc + 8;
+        while ( quote < decl.length() && decl.charAt( quote ) != '"' && decl.charAt( quote ) != '\'' )
+        {
+            quote++;
+        }
+        int end = quote + 1 < decl.length() ? decl.indexOf( decl.charAt( quote ), quote + 1 ) : -1;
+        if ( end < 0 )
+        {
+            return null;
+        }
+
+        String encoding = decl.substring( quote + 1, end ).trim().toUpperCase();
+        switch ( encoding )
+        {
+            case "UTF-8":
+            case "UTF8":
+            case "US-ASCII":
+            case "ASCII":
+                return false;
+            case "ISO-8859-1":
+            case "ISO8859-1":
+            case "LATIN1":
+                return true;
+            default:
+                return null;
+        }
+    }
+
+    RpcObject parseWithStax( final ByteBuffer in ) throws XmlRpcException
+    {
+        try
+        {
+            XmlRpcParser parser = new XmlRpcParser( staxFactory );
+            parser.setContainerFactory( containerFactory );
+            parser.setParseLimits( limits );
+            parser.setBinaryHandler( binaryHandler );
+            parser.setStringCache( stringCache );
+            return parser.reset( in ).parse();
+        }
+        catch ( XMLStreamException e )
+        {
+            throw new XmlRpcException( "Parse to RpcObject failed", e );
+        }
+    }
+}
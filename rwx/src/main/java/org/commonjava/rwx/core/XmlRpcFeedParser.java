@@ -0,0 +1,314 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.core;
+
+import org.commonjava.rwx.error.XmlRpcException;
+import org.commonjava.rwx.error.XmlRpcFaultException;
+import org.commonjava.rwx.model.Fault;
+import org.commonjava.rwx.model.RpcObject;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Push-style XML-RPC parser for non-blocking transports. The document is fed in chunks as they arrive, and the parse
+ * state is kept between chunks, so no thread waits for the rest of the document:
+ *
+ * <pre>
+ * XmlRpcFeedParser parser = new XmlRpcFeedParser();
+ * // on each read from the channel
+ * if ( parser.feed( buffer ) )
+ * {
+ *     GetBuildResponse response = parser.getResult( GetBuildResponse.class );
+ * }
+ * // when the channel is closed
+ * parser.endOfInput();
+ * </pre>
+ *
+ * Only the bytes of an incomplete token are kept between chunks. Documents in encodings other than UTF-8, US-ASCII
+ * or ISO-8859-1 are buffered whole and parsed on {@link #endOfInput()}. The parser is not thread safe, and can be
+ * reused for the next document after {@link #reset()}.
+ */
+public class XmlRpcFeedParser
+{
+    private static final int INITIAL_BUFFER_SIZE = 4096;
+
+    private final XmlRpcByteParser engine;
+
+    private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+
+    // unconsumed input is buffer[start, end)
+    private int start;
+
+    private int end;
+
+    // bytes fed for the current document
+    private long length;
+
+    private boolean started;
+
+    private boolean buffering;
+
+    private boolean done;
+
+    private RpcObject result;
+
+    public XmlRpcFeedParser()
+    {
+        this( StaxFactory.getInstance() );
+    }
+
+    /**
+     * @param staxFactory used for documents that are not in UTF-8, US-ASCII or ISO-8859-1
+     */
+    public XmlRpcFeedParser( final StaxFactory staxFactory )
+    {
+        this.engine = new XmlRpcByteParser( staxFactory );
+    }
+
+    /**
+     * Parse the next chunk of the document, all bytes between the chunk's position and limit. The chunk is consumed.
+     * Input after the end of the document is ignored.
+     *
+     * @return true once the document is complete and {@link #getResult()} is available
+     */
+    public boolean feed( final ByteBuffer chunk ) throws XmlRpcException
+    {
+        if ( done )
+        {
+            chunk.position( chunk.limit() );
+            return true;
+        }
+
+        length += chunk.remaining();
+        engine.getParseLimits().checkBytes( length );
+        append( chunk );
+        if ( !started && !startDocument( false ) )
+        {
+            return false;
+        }
+        if ( buffering )
+        {
+            return false;
+        }
+
+        engine.resume( ByteBuffer.wrap( buffer ), start, end );
+        process();
+        return done;
+    }
+
+    public boolean feed( final byte[] chunk, final int offset, final int length ) throws XmlRpcException
+    {
+        return feed( ByteBuffer.wrap( chunk, offset, length ) );
+    }
+
+    /**
+     * Signal that no more input will arrive.
+     *
+     * @return the parsed document
+     * @throws XmlRpcException if the document is incomplete
+     */
+    public RpcObject endOfInput() throws XmlRpcException
+    {
+        if ( done )
+        {
+            return result;
+        }
+
+        if ( !started )
+        {
+            startDocument( true );
+        }
+        if ( buffering )
+        {
+            result = engine.parse( buffer, 0, end );
+            done = true;
+            return result;
+        }
+
+        engine.clear();
+        throw new XmlRpcException( "Unexpected end of document after " + end + " bytes" );
+    }
+
+    /**
+     * Skip the struct members that are not in the projection, see {@link XmlRpcByteParser#setProjection(Projection)}.
+     * Takes effect with the next document.
+     */
+    public void setProjection( final Projection projection )
+    {
+        engine.setProjection( projection );
+    }
+
+    /**
+     * @see XmlRpcByteParser#setContainerFactory(ContainerFactory)
+     */
+    public void setContainerFactory( final ContainerFactory containerFactory )
+    {
+        engine.setContainerFactory( containerFactory );
+    }
+
+    /**
+     * @see XmlRpcByteParser#setBinaryHandler(BinaryHandler)
+     */
+    public void setBinaryHandler( final BinaryHandler binaryHandler )
+    {
+        engine.setBinaryHandler( binaryHandler );
+    }
+
+    /**
+     * @see XmlRpcByteParser#setStringCache(StringCache)
+     */
+    public void setStringCache( final StringCache stringCache )
+    {
+        engine.setStringCache( stringCache );
+    }
+
+    /**
+     * @see XmlRpcByteParser#setParseLimits(ParseLimits)
+     */
+    public void setParseLimits( final ParseLimits limits )
+    {
+        engine.setParseLimits( limits );
+    }
+
+    public boolean isDone()
+    {
+        return done;
+    }
+
+    /**
+     * @return the parsed MethodCall, MethodResponse or Fault, null if the document is not complete yet
+     */
+    public RpcObject getResult()
+    {
+        return result;
+    }
+
+    /**
+     * Bind the parsed document by the registered parser for the type.
+     *
+     * @throws XmlRpcFaultException if the document is a fault response
+     */
+    public <T> T getResult( final Class<T> type ) throws XmlRpcException
+    {
+        if ( !done )
+        {
+            throw new XmlRpcException( "Document is not complete" );
+        }
+        if ( result instanceof Fault )
+        {
+            throw new XmlRpcFaultException( (Fault) result );
+        }
+        return Registry.getInstance().parseAs( result, type, engine.getStringCache() );
+    }
+
+    /**
+     * Discard any state and get ready for a new document.
+     */
+    public XmlRpcFeedParser reset()
+    {
+        engine.clear();
+        start = 0;
+        end = 0;
+        length = 0;
+        started = false;
+        buffering = false;
+        done = false;
+        result = null;
+        return this;
+    }
+
+    /**
+     * Detect the encoding once the XML declaration or the root tag is in the buffer.
+     *
+     * @return true if parsing can start
+     */
+    private boolean startDocument( final boolean complete )
+    {
+        ByteBuffer in = ByteBuffer.wrap( buffer, 0, end );
+        if ( !complete && !contains( (byte) '>' ) )
+        {
+            return false;
+        }
+
+        started = true;
+        Boolean latin1 = XmlRpcByteParser.detectEncoding( in, 0, end );
+        if ( latin1 == null )
+        {
+            buffering = true;
+            return true;
+        }
+
+        if ( end >= 3 && ( buffer[0] & 0xff ) == 0xEF )
+        {
+            start = 3; // UTF-8 BOM
+        }
+        engine.start( in, start, end, latin1, true );
+        return true;
+    }
+
+    private void process() throws XmlRpcException
+    {
+        try
+        {
+            done = engine.advance();
+            start = engine.getPosition();
+            if ( done )
+            {
+                result = engine.finish();
+                engine.clear();
+            }
+        }
+        catch ( XmlRpcException e )
+        {
+            engine.clear();
+            throw e;
+        }
+    }
+
+    /**
+     * Copy the chunk after the unconsumed input, dropping consumed bytes or growing the buffer as needed.
+     */
+    private void append( final ByteBuffer chunk )
+    {
+        int length = chunk.remaining();
+        if ( !buffering && start > 0 )
+        {
+            System.arraycopy( buffer, start, buffer, 0, end - start );
+            end -= start;
+            start = 0;
+        }
+        if ( end + length > buffer.length )
+        {
+            byte[] grown = new byte[Math.max( end + length, buffer.length * 2 )];
+            System.arraycopy( buffer, 0, grown, 0, end );
+            buffer = grown;
+        }
+        chunk.get( buffer, end, length );
+        end += length;
+    }
+
+    private boolean contains( final byte b )
+    {
+        for ( int i = 0; i < end; i++ )
+        {
+            if ( buffer[i] == b )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,260 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.core;
+
+import org.commonjava.rwx.error.UncheckedXmlRpcException;
+import org.commonjava.rwx.error.XmlRpcException;
+import org.commonjava.rwx.model.RpcObject;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Parses documents with large array params, e.g. a Koji system.multicall response with hundreds of result slots,
+ * on a ForkJoinPool. The document is scanned once by {@link XmlRpcByteParser} in lazy mode, which only records the
+ * byte range of each array element. The elements of array params are then decoded in parallel, and bound in parallel
+ * too when the param is a List of an annotated class of the bound type. The elements keep their order.
+ *
+ * Generated parsers take elements that are bound already as they are, so the result is bound as usual afterwards,
+ * with {@link Registry#parseAs(Object, Class)}. Other params stay lazy views of the document.
+ */
+public final class XmlRpcParallelParser
+{
+    // fewest elements decoded by one task
+    private static final int MIN_ELEMENTS_PER_TASK = 4;
+
+    private final ForkJoinPool pool;
+
+    private final StaxFactory staxFactory;
+
+    private Projection projection;
+
+    private ContainerFactory containerFactory = ContainerFactory.DEFAULT;
+
+    private ParseLimits limits = ParseLimits.NONE;
+
+    private BinaryHandler binaryHandler;
+
+    private StringCache stringCache;
+
+    public XmlRpcParallelParser()
+    {
+        this( ForkJoinPool.commonPool() );
+    }
+
+    public XmlRpcParallelParser( final ForkJoinPool pool )
+    {
+        this( pool, StaxFactory.getInstance() );
+    }
+
+    /**
+     * @param staxFactory used for documents in encodings other than UTF-8, US-ASCII and ISO-8859-1, which are not
+     *                    parsed in parallel
+     */
+    public XmlRpcParallelParser( final ForkJoinPool pool, final StaxFactory staxFactory )
+    {
+        this.pool = pool;
+        this.staxFactory = staxFactory;
+    }
+
+    public ForkJoinPool getPool()
+    {
+        return pool;
+    }
+
+    /**
+     * @see XmlRpcByteParser#setProjection(Projection)
+     */
+    public void setProjection( final Projection projection )
+    {
+        this.projection = projection;
+    }
+
+    /**
+     * @see XmlRpcByteParser#setContainerFactory(ContainerFactory)
+     */
+    public void setContainerFactory( final ContainerFactory containerFactory )
+    {
+        this.containerFactory = containerFactory;
+    }
+
+    /**
+     * @see XmlRpcByteParser#setParseLimits(ParseLimits)
+     */
+    public void setParseLimits( final ParseLimits limits )
+    {
+        this.limits = limits;
+    }
+
+    /**
+     * @see XmlRpcByteParser#setBinaryHandler(BinaryHandler)
+     */
+    public void setBinaryHandler( final BinaryHandler binaryHandler )
+    {
+        this.binaryHandler = binaryHandler;
+    }
+
+    /**
+     * @see XmlRpcByteParser#setStringCache(StringCache)
+     */
+    public void setStringCache( final StringCache stringCache )
+    {
+        this.stringCache = stringCache;
+    }
+
+    public RpcObject parse( final byte[] in ) throws XmlRpcException
+    {
+        return parse( ByteBuffer.wrap( in ), null );
+    }
+
+    /**
+     * Parse the document and decode the elements of its array params in parallel.
+     *
+     * @param type the class the document is bound to, whose List params of annotated classes are bound in parallel;
+     *             null to only decode
+     */
+    public RpcObject parse( final ByteBuffer in, final Class<?> type ) throws XmlRpcException
+    {
+        XmlRpcByteParser scanner = new XmlRpcByteParser( staxFactory );
+        scanner.setLazy( true );
+        scanner.setProjection( projection );
+        scanner.setContainerFactory( containerFactory );
+        scanner.setParseLimits( limits );
+        scanner.setBinaryHandler( binaryHandler );
+        scanner.setStringCache( stringCache );
+        RpcObject rpcObject = scanner.parse( in );
+
+        List<Object> params = rpcObject.getParams();
+        if ( params == null )
+        {
+            return rpcObject; // fault
+        }
+
+        Registry registry = Registry.getInstance();
+        StringCache internCache = stringCache != null ? stringCache : StringCache.forParse();
+        for ( int i = 0; i < params.size(); i++ )
+        {
+            Object param = params.get( i );
+            if ( param instanceof LazyArray )
+            {
+                Class elementType = type == null ? null : registry.getListElementType( type, i );
+                List<Object> elements = containerFactory.newArray();
+                Collections.addAll( elements, decode( (LazyArray) param, elementType, registry, internCache ) );
+                params.set( i, elements );
+            }
+        }
+        return rpcObject;
+    }
+
+    private Object[] decode( final LazyArray array, final Class elementType, final Registry registry,
+                             final StringCache internCache )
+                    throws XmlRpcException
+    {
+        Object[] elements = new Object[array.size()];
+        int perTask = Math.max( MIN_ELEMENTS_PER_TASK, elements.length / ( pool.getParallelism() * 4 ) );
+        DecodeTask task =
+                        new DecodeTask( array, elementType, registry, internCache, elements, 0, elements.length,
+                                        perTask );
+        try
+        {
+            if ( elements.length <= perTask )
+            {
+                task.compute(); // not worth a hand off
+            }
+            else
+            {
+                pool.invoke( task );
+            }
+        }
+        catch ( UncheckedXmlRpcException e )
+        {
+            throw e.getCause();
+        }
+        return elements;
+    }
+
+    /**
+     * Decodes and binds the elements between from and to, splitting the range in halves down to perTask elements.
+     */
+    private final class DecodeTask
+                    extends RecursiveAction
+    {
+        private final LazyArray array;
+
+        private final Class elementType;
+
+        private final Registry registry;
+
+        private final StringCache internCache;
+
+        private final Object[] elements;
+
+        private final int from;
+
+        private final int to;
+
+        private final int perTask;
+
+        private DecodeTask( final LazyArray array, final Class elementType, final Registry registry,
+                            final StringCache internCache, final Object[] elements, final int from, final int to,
+                            final int perTask )
+        {
+            this.array = array;
+            this.elementType = elementType;
+            this.registry = registry;
+            this.internCache = internCache;
+            this.elements = elements;
+            this.from = from;
+            this.to = to;
+            this.perTask = perTask;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if ( to - from > perTask )
+            {
+                int middle = ( from + to ) >>> 1;
+                invokeAll( new DecodeTask( array, elementType, registry, internCache, elements, from, middle,
+                                           perTask ),
+                           new DecodeTask( array, elementType, registry, internCache, elements, middle, to,
+                                           perTask ) );
+                return;
+            }
+
+            XmlRpcByteParser decoder = new XmlRpcByteParser( staxFactory );
+            decoder.setContainerFactory( containerFactory );
+            decoder.setParseLimits( limits );
+            decoder.setBinaryHandler( binaryHandler );
+            decoder.setStringCache( stringCache );
+            try
+            {
+                for ( int i = from; i < to; i++ )
+                {
+                    Object element = array.decode( i, decoder );
+                    elements[i] = elementType == null ? element : registry.parseAs( element, elementType, internCache );
+                }
+            }
+            catch ( XmlRpcException e )
+            {
+                throw new UncheckedXmlRpcException( e );
+            }
+        }
+    }
+}
@@ -15,28 +15,41 @@
  */
 package org.commonjava.rwx.core;
 
-import org.apache.commons.lang.StringUtils;
 import org.commonjava.rwx.error.CoercionException;
+import org.commonjava.rwx.error.ParseLimitException;
 import org.commonjava.rwx.error.XmlRpcException;
+import org.commonjava.rwx.error.XmlRpcFaultException;
 import org.commonjava.rwx.vocab.ValueType;
+import org.commonjava.rwx.model.DoubleList;
 import org.commonjava.rwx.model.Fault;
+import org.commonjava.rwx.model.IntList;
+import org.commonjava.rwx.model.LongList;
 import org.commonjava.rwx.model.MethodCall;
 import org.commonjava.rwx.model.MethodResponse;
 import org.commonjava.rwx.model.RpcObject;
+import org.commonjava.rwx.util.ParseUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.AbstractMap.SimpleEntry;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 
+import static org.commonjava.rwx.util.ParseUtils.nullifyNil;
+import static org.commonjava.rwx.util.ParseUtils.upgradeCast;
 import static org.commonjava.rwx.vocab.Nil.NIL_VALUE;
 import static org.commonjava.rwx.vocab.XmlRpcConstants.*;
 
@@ -44,156 +57,1511 @@ import static org.commonjava.rwx.vocab.XmlRpcConstants.*;
  * XML-RPC request/response parser. This will parse input xml stream and return an RpcObject (MethodCall, MethodResponse or a Fault)
  * which represents a Map/List structure.
  *
+ * A parser can be reused for many documents by calling one of the reset methods before each parse. It is not thread
+ * safe, see {@link XmlRpcParserPool} for sharing parsers between threads.
+ *
  * Created by ruhan on 7/13/17.
  */
 public class XmlRpcParser
 {
+    // path step of array elements, which share their size hints
+    private static final int ELEMENT_PATH = -1;
+
+    // elements from a value to the values of its members or elements: value, struct/array, member/data, value
+    private static final int VALUE_NESTING = 3;
+
+    // depth of param values: methodCall/methodResponse, params, param, value
+    private static final int PARAM_VALUE_DEPTH = 4;
+
     private final Logger logger = LoggerFactory.getLogger( getClass() );
 
-    private final XMLInputFactory factory;
+    private final StaxFactory staxFactory;
+
+    private final ReusableByteArrayInputStream bytes = new ReusableByteArrayInputStream();
+
+    private final ByteBufferInputStream buffer = new ByteBufferInputStream();
+
+    private final ReusableCharReader chars = new ReusableCharReader();
+
+    private final LimitedInputStream input = new LimitedInputStream();
+
+    private final SymbolTable symbols = SymbolTable.getInstance();
+
+    // member name being read, see readName()
+    private char[] nameChars = new char[64];
+
+    private final PrimitiveDecoder decoder = new PrimitiveDecoder();
+
+    // value read by readPrimitive(): a type decoded into the decoder, or else the value as readValue() reads it
+    private ValueType primitiveType;
+
+    private Object primitiveObject;
+
+    private ContainerFactory containerFactory = ContainerFactory.DEFAULT;
+
+    private BinaryHandler binaryHandler;
+
+    private final Base64Decoder base64 = new Base64Decoder();
+
+    private StringCache stringCache;
+
+    // Intern fields of the current document, when no string cache is set
+    private StringCache parseCache;
+
+    private SizeHints sizeHints;
+
+    // hash of the path to the value being parsed, for the size hints
+    private int path;
+
+    // paths of the values the streaming API stopped at, by element depth
+    private int[] paths = new int[16];
+
+    // params read by the streaming API
+    private int paramIndex;
+
+    private ParseEventListener listener;
+
+    // listener, wrapped for trace logging when it is on at reset; null, the default, means no event calls at all
+    private ParseEventListener events;
+
+    private ParseLimits limits = ParseLimits.NONE;
+
+    // open elements, elements read and text length of the current element, checked against the limits
+    private int depth;
+
+    private long elements;
+
+    private long textLength;
+
+    private XMLStreamReader reader;
+
+    public XmlRpcParser()
+    {
+        this( StaxFactory.getInstance() );
+    }
+
+    public XmlRpcParser( final StaxFactory staxFactory )
+    {
+        this.staxFactory = staxFactory;
+    }
+
+    public XmlRpcParser( final InputStream in ) throws XmlRpcException
+    {
+        this( in, StaxFactory.getInstance() );
+    }
+
+    public XmlRpcParser( final InputStream in, final StaxFactory staxFactory ) throws XmlRpcException
+    {
+        this( staxFactory );
+        reset( in );
+    }
+
+    /**
+     * Prepare this parser to read a new document from the stream.
+     */
+    public XmlRpcParser reset( final InputStream in ) throws XmlRpcException
+    {
+        close();
+        if ( limits.getMaxBytes() < Long.MAX_VALUE )
+        {
+            input.reset( in, limits.getMaxBytes() );
+            reader = staxFactory.createReader( input, limits );
+        }
+        else
+        {
+            reader = staxFactory.createReader( in, limits );
+        }
+        updateEvents();
+        return this;
+    }
+
+    public XmlRpcParser reset( final byte[] in ) throws XmlRpcException
+    {
+        return reset( in, 0, in.length );
+    }
+
+    /**
+     * Prepare this parser to read a new document from a byte array slice, without copying it.
+     */
+    public XmlRpcParser reset( final byte[] in, final int offset, final int length ) throws XmlRpcException
+    {
+        close();
+        limits.checkBytes( length );
+        bytes.reset( in, offset, length );
+        reader = staxFactory.createReader( bytes, limits );
+        updateEvents();
+        return this;
+    }
+
+    /**
+     * Prepare this parser to read a new document from the bytes between the buffer's position and limit, without
+     * copying them, e.g. a {@link java.nio.MappedByteBuffer} of a file. The buffer's position is not changed.
+     */
+    public XmlRpcParser reset( final ByteBuffer in ) throws XmlRpcException
+    {
+        close();
+        limits.checkBytes( in.remaining() );
+        buffer.reset( in );
+        reader = staxFactory.createReader( buffer, limits );
+        updateEvents();
+        return this;
+    }
+
+    /**
+     * Prepare this parser to read a new document from the whole file, which is mapped into memory.
+     */
+    public XmlRpcParser reset( final FileChannel in ) throws XmlRpcException
+    {
+        return reset( ParseUtils.map( in ) );
+    }
+
+    /**
+     * Prepare this parser to read a new document from characters already in memory, e.g. a String, without encoding
+     * them to bytes. The byte limit of the parse limits is checked against the number of characters.
+     */
+    public XmlRpcParser reset( final CharSequence in ) throws XmlRpcException
+    {
+        close();
+        limits.checkBytes( in.length() );
+        chars.reset( in );
+        reader = staxFactory.createReader( chars, limits );
+        updateEvents();
+        return this;
+    }
+
+    /**
+     * Prepare this parser to read a new document from a char array slice, without copying it, see
+     * {@link #reset(CharSequence)}.
+     */
+    public XmlRpcParser reset( final char[] in, final int offset, final int length ) throws XmlRpcException
+    {
+        close();
+        limits.checkBytes( length );
+        chars.reset( in, offset, length );
+        reader = staxFactory.createReader( chars, limits );
+        updateEvents();
+        return this;
+    }
+
+    public XmlRpcParser reset( final Reader in ) throws XmlRpcException
+    {
+        close();
+        reader = staxFactory.createReader( in, limits );
+        updateEvents();
+        return this;
+    }
+
+    /**
+     * Release the current document. The underlying stream or reader is not closed.
+     */
+    public void close()
+    {
+        if ( reader != null )
+        {
+            try
+            {
+                reader.close();
+            }
+            catch ( XMLStreamException e )
+            {
+                logger.debug( "Failed to close stream reader", e );
+            }
+            reader = null;
+        }
+        bytes.reset( null, 0, 0 );
+        buffer.reset( null );
+        chars.reset( null );
+        input.reset( null, 0 );
+        depth = 0;
+        elements = 0;
+        textLength = 0;
+        path = 0;
+        paramIndex = 0;
+        parseCache = null;
+    }
+
+    public StaxFactory getStaxFactory()
+    {
+        return staxFactory;
+    }
+
+    public ContainerFactory getContainerFactory()
+    {
+        return containerFactory;
+    }
+
+    /**
+     * Create the Maps and Lists of structs and arrays with the factory, {@link ContainerFactory#DEFAULT} by default.
+     */
+    public void setContainerFactory( final ContainerFactory containerFactory )
+    {
+        this.containerFactory = containerFactory;
+    }
+
+    public BinaryHandler getBinaryHandler()
+    {
+        return binaryHandler;
+    }
+
+    /**
+     * Decode base64 values into the handler as their text arrives, instead of into a byte[]. null, the default, for
+     * byte[] values. Note that a coalescing {@link StaxFactory}, the default, still reads each text whole; turn
+     * coalescing off to stream large values in chunks.
+     */
+    public void setBinaryHandler( final BinaryHandler binaryHandler )
+    {
+        this.binaryHandler = binaryHandler;
+    }
+
+    public StringCache getStringCache()
+    {
+        return stringCache;
+    }
+
+    /**
+     * @return the cache for {@link org.commonjava.rwx.anno.Intern} fields of the current document: the string cache if
+     * one is set, else one for this document only
+     */
+    public StringCache getInternCache()
+    {
+        if ( stringCache != null )
+        {
+            return stringCache;
+        }
+        if ( parseCache == null )
+        {
+            parseCache = StringCache.forParse();
+        }
+        return parseCache;
+    }
+
+    /**
+     * Take string values from the cache, so that equal values share one instance. null, the default, for no
+     * deduplication.
+     */
+    public void setStringCache( final StringCache stringCache )
+    {
+        this.stringCache = stringCache;
+    }
+
+    public SizeHints getSizeHints()
+    {
+        return sizeHints;
+    }
+
+    /**
+     * @param sizeHints sizes of earlier parses, used to presize the containers of structs and arrays and updated with
+     * the sizes found; null, the default, allocates the default sizes of the container factory
+     */
+    public void setSizeHints( final SizeHints sizeHints )
+    {
+        this.sizeHints = sizeHints;
+    }
+
+    /**
+     * @return an empty list for the elements of the array entered with {@link #beginArray()}, presized from the sizes
+     * recorded for its path, e.g. by a generated stream parser for a list field
+     */
+    public <T> List<T> newList()
+    {
+        int hint = sizeHints == null ? 0 : sizeHints.get( path );
+        return hint > 0 ? new ArrayList<>( hint ) : new ArrayList<>();
+    }
+
+    /**
+     * Record the size of a list created with {@link #newList()}, after {@link #endArray()}.
+     */
+    public void recordSize( final int size )
+    {
+        if ( sizeHints != null )
+        {
+            // the reader is at the end of the array's <value>, its path is kept one level down
+            sizeHints.record( paths[depth + 1], size );
+        }
+    }
+
+    public ParseLimits getParseLimits()
+    {
+        return limits;
+    }
+
+    /**
+     * Check documents against the limits, {@link ParseLimits#NONE} by default. Takes effect with the next reset.
+     */
+    public void setParseLimits( final ParseLimits limits )
+    {
+        this.limits = limits;
+    }
+
+    public ParseEventListener getParseEventListener()
+    {
+        return listener;
+    }
+
+    /**
+     * Report the elements and values this parser reads to the listener, null to stop. Whether events are also logged
+     * at trace level is decided when the parser is reset.
+     */
+    public void setParseEventListener( final ParseEventListener listener )
+    {
+        this.listener = listener;
+        updateEvents();
+    }
+
+    private void updateEvents()
+    {
+        events = logger.isTraceEnabled() ? new TraceParseEventListener( logger, listener ) : listener;
+    }
+
+    /**
+     * Parse method request or response. XML-RPC response has either fault or params element.
+     * @return
+     * @throws XmlRpcException
+     */
+    public RpcObject parse() throws XmlRpcException, XMLStreamException
+    {
+        RpcObject ret = null;
+
+        int level = 0;
+        do
+        {
+            int event = next();
+            if ( event == XMLStreamConstants.START_ELEMENT )
+            {
+                level++;
+                String localName = reader.getLocalName();
+
+                if ( localName.equals( REQUEST ) )
+                {
+                    ret = parseRequest( reader );
+                    level--;
+                }
+                else if ( localName.equals( RESPONSE ) )
+                {
+                    ret = parseResponse( reader );
+                    level--;
+                }
+                else
+                {
+                    throw new XmlRpcException( "Invalid XML-RPC root element: " + localName );
+                }
+            }
+            else if ( event == XMLStreamConstants.END_ELEMENT )
+            {
+                level--;
+            }
+        }
+        while ( level > 0 );
+
+        return ret;
+    }
+
+    /**
+     * Walk the document, reporting it to the visitor instead of building the Map/List tree {@link #parse()} returns.
+     * Must be called at the beginning of the document. Limits, the string cache, the binary handler and the parse
+     * event listener apply as they do to parse().
+     */
+    public void visit( final RpcVisitor visitor ) throws XmlRpcException
+    {
+        try
+        {
+            int event = nextTag();
+            if ( event != XMLStreamConstants.START_ELEMENT )
+            {
+                return;
+            }
+
+            String localName = reader.getLocalName();
+            if ( localName.equals( REQUEST ) )
+            {
+                visitor.beginRequest();
+            }
+            else if ( localName.equals( RESPONSE ) )
+            {
+                visitor.beginResponse();
+            }
+            else
+            {
+                throw new XmlRpcException( "Invalid XML-RPC root element: " + localName );
+            }
+
+            while ( nextTag() == XMLStreamConstants.START_ELEMENT )
+            {
+                localName = reader.getLocalName();
+                if ( localName.equals( METHOD_NAME ) )
+                {
+                    visitMethodName( visitor );
+                }
+                else if ( localName.equals( PARAMS ) )
+                {
+                    visitor.beginParams();
+                    visitValues( visitor );
+                    visitor.endParams();
+                }
+                else if ( localName.equals( FAULT ) )
+                {
+                    visitor.beginFault();
+                    visitValues( visitor );
+                    visitor.endFault();
+                }
+                else
+                {
+                    skipElement();
+                }
+            }
+            visitor.endDocument();
+        }
+        catch ( XMLStreamException e )
+        {
+            throw new XmlRpcException( "Failed to visit document: " + e.getMessage(), e );
+        }
+    }
+
+    // streaming API, used by generated *_StreamParser classes to bind values without building the Map/List tree
+
+    /**
+     * Move to the params of a request or response. Must be called at the beginning of the document.
+     * @return true if the reader is positioned inside &lt;params&gt;, false if the document has no params
+     * @throws XmlRpcFaultException if the document is a fault response
+     */
+    public boolean beginParams() throws XmlRpcException
+    {
+        try
+        {
+            int event = nextTag();
+            if ( event != XMLStreamConstants.START_ELEMENT )
+            {
+                return false;
+            }
+
+            String localName = reader.getLocalName();
+            if ( !localName.equals( REQUEST ) && !localName.equals( RESPONSE ) )
+            {
+                throw new XmlRpcException( "Invalid XML-RPC root element: " + localName );
+            }
+
+            while ( ( event = nextTag() ) != XMLStreamConstants.END_DOCUMENT )
+            {
+                if ( event == XMLStreamConstants.END_ELEMENT )
+                {
+                    return false; // end of root element
+                }
+
+                localName = reader.getLocalName();
+                if ( localName.equals( PARAMS ) )
+                {
+                    paramIndex = 0;
+                    return true;
+                }
+                else if ( localName.equals( FAULT ) )
+                {
+                    Fault fault = new Fault();
+                    fault.setValue( parseFault( reader ) );
+                    throw new XmlRpcFaultException( fault );
+                }
+                else
+                {
+                    skipElement();
+                }
+            }
+            return false;
+        }
+        catch ( XMLStreamException e )
+        {
+            throw new XmlRpcException( "Failed to read params: " + e.getMessage(), e );
+        }
+    }
+
+    /**
+     * Move to the next &lt;value&gt; in &lt;params&gt; or &lt;data&gt;.
+     * @return true if the reader is positioned at the start of a value, false at the end of the enclosing element
+     */
+    public boolean nextValue() throws XmlRpcException
+    {
+        try
+        {
+            int event;
+            while ( ( event = nextTag() ) != XMLStreamConstants.END_DOCUMENT )
+            {
+                String localName = reader.getLocalName();
+                if ( event == XMLStreamConstants.START_ELEMENT )
+                {
+                    if ( localName.equals( VALUE ) )
+                    {
+                        enterValue( depth == PARAM_VALUE_DEPTH ? ++paramIndex : ELEMENT_PATH );
+                        return true;
+                    }
+                    else if ( !localName.equals( PARAM ) )
+                    {
+                        skipElement();
+                    }
+                }
+                else if ( !localName.equals( PARAM ) )
+                {
+                    return false;
+                }
+            }
+            return false;
+        }
+        catch ( XMLStreamException e )
+        {
+            throw new XmlRpcException( "Failed to read value: " + e.getMessage(), e );
+        }
+    }
+
+    /**
+     * Move to the value of the next struct member.
+     * @return member name, with the reader positioned at the start of its value, or null at the end of the struct
+     */
+    public String nextMember() throws XmlRpcException
+    {
+        try
+        {
+            String key = null;
+            int event;
+            while ( ( event = nextTag() ) != XMLStreamConstants.END_DOCUMENT )
+            {
+                String localName = reader.getLocalName();
+                if ( event == XMLStreamConstants.START_ELEMENT )
+                {
+                    if ( localName.equals( NAME ) )
+                    {
+                        key = readName();
+                        if ( events != null )
+                        {
+                            events.memberName( key );
+                        }
+                    }
+                    else if ( localName.equals( VALUE ) )
+                    {
+                        if ( key == null )
+                        {
+                            skipElement(); // no name to bind it to, null would end the struct
+                            continue;
+                        }
+                        enterValue( key.hashCode() );
+                        return key;
+                    }
+                    else if ( !localName.equals( MEMBER ) )
+                    {
+                        skipElement();
+                    }
+                }
+                else if ( localName.equals( STRUCT ) )
+                {
+                    return null;
+                }
+            }
+            return null;
+        }
+        catch ( XMLStreamException e )
+        {
+            throw new XmlRpcException( "Failed to read member: " + e.getMessage(), e );
+        }
+    }
+
+    /**
+     * Set the path of the &lt;value&gt; the reader stopped at, derived from the path of the enclosing value the same way
+     * {@link #parse()} derives it. A param value is numbered from 1 instead.
+     *
+     * @param step index of a param, hash of a member name, or ELEMENT_PATH
+     */
+    private void enterValue( final int step )
+    {
+        if ( depth == PARAM_VALUE_DEPTH )
+        {
+            path = step;
+        }
+        else
+        {
+            path = 31 * ( depth > VALUE_NESTING ? paths[depth - VALUE_NESTING] : 0 ) + step;
+        }
+
+        if ( depth >= paths.length )
+        {
+            paths = Arrays.copyOf( paths, Math.max( depth + 1, paths.length * 2 ) );
+        }
+        paths[depth] = path;
+    }
+
+    /**
+     * Enter a struct value. The reader must be positioned at the start of a &lt;value&gt;.
+     * @return true if the value is a struct, false if it is nil or empty (the value is consumed in that case)
+     */
+    public boolean beginStruct() throws XmlRpcException
+    {
+        return beginContainer( STRUCT );
+    }
+
+    /**
+     * Consume the rest of a struct value, after {@link #nextMember()} returned null.
+     */
+    public void endStruct() throws XmlRpcException
+    {
+        endContainer();
+    }
+
+    /**
+     * Enter an array value. The reader must be positioned at the start of a &lt;value&gt;.
+     * @return true if the reader is positioned inside &lt;data&gt;, false if the value is nil or empty
+     */
+    public boolean beginArray() throws XmlRpcException
+    {
+        return beginContainer( ARRAY ) && enterData();
+    }
+
+    /**
+     * Move from the start of an &lt;array&gt; into its &lt;data&gt;.
+     * @return false if the array has no &lt;data&gt;, the value is consumed in that case
+     */
+    boolean enterData() throws XmlRpcException
+    {
+        try
+        {
+            int event;
+            while ( ( event = nextTag() ) == XMLStreamConstants.START_ELEMENT )
+            {
+                if ( reader.getLocalName().equals( DATA ) )
+                {
+                    return true;
+                }
+                skipElement();
+            }
+            endContainer(); // <array> without <data>
+            return false;
+        }
+        catch ( XMLStreamException e )
+        {
+            throw new XmlRpcException( "Failed to read array: " + e.getMessage(), e );
+        }
+    }
+
+    /**
+     * Consume the rest of an array value, after {@link #nextValue()} returned false.
+     */
+    public void endArray() throws XmlRpcException
+    {
+        endContainer();
+    }
+
+    /**
+     * Read the current value into the same Map/List/primitive form that {@link #parse()} produces.
+     * The reader must be positioned at the start of a &lt;value&gt;.
+     */
+    public Object readValue() throws XmlRpcException
+    {
+        try
+        {
+            return parseValue( reader );
+        }
+        catch ( XMLStreamException e )
+        {
+            throw new XmlRpcException( "Failed to read value: " + e.getMessage(), e );
+        }
+    }
+
+    /**
+     * Read the current value for a primitive setter. An int, i4, i8, double or boolean is decoded without boxing and
+     * is then available from {@link #getIntValue()}, {@link #getLongValue()}, {@link #getDoubleValue()} or
+     * {@link #getBooleanValue()}. The reader must be positioned at the start of a &lt;value&gt;.
+     *
+     * @return false if the value is empty or nil, where readValue() would return null or {@link org.commonjava.rwx.vocab.Nil}
+     */
+    public boolean readPrimitive() throws XmlRpcException
+    {
+        primitiveType = null;
+        primitiveObject = null;
+        try
+        {
+            int level = 1;
+            do
+            {
+                int event = next();
+                if ( event == XMLStreamConstants.START_ELEMENT )
+                {
+                    String localName = reader.getLocalName();
+                    ValueType vt = ValueType.typeOf( localName );
+                    if ( PrimitiveDecoder.isDecodable( vt ) )
+                    {
+                        primitiveType = readDecodable( vt ) ? vt : null;
+                    }
+                    else
+                    {
+                        primitiveObject = nullifyNil( parseTypedValue( localName, reader ) );
+                    }
+                }
+                else if ( event == XMLStreamConstants.CHARACTERS )
+                {
+                    String text = trimmedText();
+                    if ( text != null )
+                    {
+                        primitiveType = null;
+                        primitiveObject = intern( text );
+                        if ( events != null )
+                        {
+                            events.value( ValueType.STRING, primitiveObject );
+                        }
+                    }
+                }
+                else if ( event == XMLStreamConstants.END_ELEMENT )
+                {
+                    level--;
+                }
+            }
+            while ( level > 0 );
+        }
+        catch ( XMLStreamException e )
+        {
+            throw new XmlRpcException( "Failed to read value: " + e.getMessage(), e );
+        }
+        return primitiveType != null || primitiveObject != null;
+    }
+
+    /**
+     * @throws ClassCastException if the value read by {@link #readPrimitive()} is not an int
+     */
+    public int getIntValue()
+    {
+        return primitiveType == ValueType.INT ? decoder.intValue() : (Integer) primitiveValue();
+    }
+
+    /**
+     * @throws ClassCastException if the value read by {@link #readPrimitive()} is not an int or i8
+     */
+    public long getLongValue()
+    {
+        if ( primitiveType == ValueType.INT || primitiveType == ValueType.LONG )
+        {
+            return decoder.longValue();
+        }
+        return (Long) upgradeCast( long.class, primitiveValue() );
+    }
+
+    /**
+     * @throws ClassCastException if the value read by {@link #readPrimitive()} is not a double
+     */
+    public double getDoubleValue()
+    {
+        return primitiveType == ValueType.DOUBLE ? decoder.doubleValue() : (Double) primitiveValue();
+    }
+
+    /**
+     * @throws ClassCastException if the value read by {@link #readPrimitive()} is not a boolean
+     */
+    public boolean getBooleanValue()
+    {
+        return primitiveType == ValueType.BOOLEAN ? decoder.booleanValue() : (Boolean) primitiveValue();
+    }
+
+    Object primitiveValue()
+    {
+        return primitiveType == null ? primitiveObject : decoder.getValue( primitiveType );
+    }
+
+    /**
+     * Read an array of ints without boxing the elements. The reader must be positioned at the start of a &lt;value&gt;.
+     *
+     * @return null if the value is nil or empty
+     * @throws CoercionException if an element is nil or empty
+     */
+    public IntList readIntList() throws XmlRpcException
+    {
+        if ( !beginArray() )
+        {
+            return null;
+        }
+        IntList list = new IntList();
+        while ( nextValue() )
+        {
+            readArrayPrimitive( "int" );
+            list.add( getIntValue() );
+        }
+        endArray();
+        return list;
+    }
+
+    /**
+     * Read an array of ints or i8s without boxing the elements, like {@link #readIntList()}.
+     */
+    public LongList readLongList() throws XmlRpcException
+    {
+        if ( !beginArray() )
+        {
+            return null;
+        }
+        LongList list = new LongList();
+        while ( nextValue() )
+        {
+            readArrayPrimitive( "long" );
+            list.add( getLongValue() );
+        }
+        endArray();
+        return list;
+    }
+
+    /**
+     * Read an array of doubles without boxing the elements, like {@link #readIntList()}.
+     */
+    public DoubleList readDoubleList() throws XmlRpcException
+    {
+        if ( !beginArray() )
+        {
+            return null;
+        }
+        DoubleList list = new DoubleList();
+        while ( nextValue() )
+        {
+            readArrayPrimitive( "double" );
+            list.add( getDoubleValue() );
+        }
+        endArray();
+        return list;
+    }
+
+    private void readArrayPrimitive( final String type ) throws XmlRpcException
+    {
+        if ( !readPrimitive() )
+        {
+            throw new CoercionException( "Missing element in " + type + " array" );
+        }
+    }
+
+    /**
+     * Skip the current value. The reader must be positioned at the start of a &lt;value&gt;.
+     */
+    public void skipValue() throws XmlRpcException
+    {
+        try
+        {
+            skipElement();
+        }
+        catch ( XMLStreamException e )
+        {
+            throw new XmlRpcException( "Failed to skip value: " + e.getMessage(), e );
+        }
+    }
+
+    /**
+     * Move into the current value, for {@link RpcReader}. The reader must be positioned at the start of a
+     * &lt;value&gt;. A typed value is left positioned at the start of its type element, to be read with
+     * {@link #readOpenPrimitive(ValueType)} or skipped with {@link #skipOpenValue()}. A bare string value is read
+     * whole and is available from {@link #primitiveValue()}.
+     *
+     * @return the type of the value, STRING for a bare string, or null for an empty value, which is consumed
+     */
+    ValueType openValue() throws XmlRpcException
+    {
+        primitiveType = null;
+        primitiveObject = null;
+        try
+        {
+            int event;
+            while ( ( event = next() ) != XMLStreamConstants.END_DOCUMENT )
+            {
+                if ( event == XMLStreamConstants.START_ELEMENT )
+                {
+                    if ( primitiveObject != null )
+                    {
+                        skipElement(); // a bare string wins, as in readValue()
+                        continue;
+                    }
+                    return ValueType.typeOf( reader.getLocalName() );
+                }
+                else if ( event == XMLStreamConstants.CHARACTERS )
+                {
+                    String text = trimmedText();
+                    if ( text != null )
+                    {
+                        primitiveObject = intern( text );
+                        if ( events != null )
+                        {
+                            events.value( ValueType.STRING, primitiveObject );
+                        }
+                    }
+                }
+                else if ( event == XMLStreamConstants.END_ELEMENT )
+                {
+                    return primitiveObject == null ? null : ValueType.STRING;
+                }
+            }
+            return null;
+        }
+        catch ( XMLStreamException e )
+        {
+            throw new XmlRpcException( "Failed to read value: " + e.getMessage(), e );
+        }
+    }
+
+    /**
+     * Read the type element {@link #openValue()} stopped at, and the rest of its value, like {@link #readPrimitive()}.
+     * Structs and arrays are read into the Map/List form of {@link #readValue()}.
+     */
+    boolean readOpenPrimitive( final ValueType vt ) throws XmlRpcException
+    {
+        try
+        {
+            if ( PrimitiveDecoder.isDecodable( vt ) )
+            {
+                primitiveType = readDecodable( vt ) ? vt : null;
+            }
+            else
+            {
+                primitiveObject = nullifyNil( parseTypedValue( reader.getLocalName(), reader ) );
+            }
+        }
+        catch ( XMLStreamException e )
+        {
+            throw new XmlRpcException( "Failed to read value: " + e.getMessage(), e );
+        }
+        endContainer();
+        return primitiveType != null || primitiveObject != null;
+    }
+
+    /**
+     * Skip the type element {@link #openValue()} stopped at, and the rest of its value.
+     */
+    void skipOpenValue() throws XmlRpcException
+    {
+        try
+        {
+            skipElement();
+        }
+        catch ( XMLStreamException e )
+        {
+            throw new XmlRpcException( "Failed to skip value: " + e.getMessage(), e );
+        }
+        endContainer();
+    }
+
+    private boolean beginContainer( String container ) throws XmlRpcException
+    {
+        try
+        {
+            int event;
+            while ( ( event = next() ) != XMLStreamConstants.END_DOCUMENT )
+            {
+                if ( event == XMLStreamConstants.START_ELEMENT )
+                {
+                    String localName = reader.getLocalName();
+                    if ( localName.equals( container ) )
+                    {
+                        return true;
+                    }
+                    else if ( localName.equals( NIL ) )
+                    {
+                        endContainer();
+                        return false;
+                    }
+                    throw new XmlRpcException( "Expected <" + container + "> but was <" + localName + ">" );
+                }
+                else if ( event == XMLStreamConstants.CHARACTERS && !reader.isWhiteSpace() )
+                {
+                    throw new XmlRpcException( "Expected <" + container + "> but was a string value" );
+                }
+                else if ( event == XMLStreamConstants.END_ELEMENT )
+                {
+                    return false; // empty <value/>
+                }
+            }
+            return false;
+        }
+        catch ( XMLStreamException e )
+        {
+            throw new XmlRpcException( "Failed to read " + container + ": " + e.getMessage(), e );
+        }
+    }
+
+    /**
+     * Consume up to and including the end of the enclosing &lt;value&gt;.
+     */
+    private void endContainer() throws XmlRpcException
+    {
+        try
+        {
+            int event;
+            while ( ( event = nextTag() ) != XMLStreamConstants.END_DOCUMENT )
+            {
+                if ( event == XMLStreamConstants.START_ELEMENT )
+                {
+                    skipElement();
+                }
+                else if ( reader.getLocalName().equals( VALUE ) )
+                {
+                    return;
+                }
+            }
+        }
+        catch ( XMLStreamException e )
+        {
+            throw new XmlRpcException( "Failed to read value end: " + e.getMessage(), e );
+        }
+    }
+
+    /**
+     * Read the text of a &lt;name&gt; element, trimmed, as the canonical String from the symbol table. The reader must
+     * be positioned at the start of the element and is left at its end.
+     */
+    private String readName() throws XMLStreamException, XmlRpcException
+    {
+        int length = 0;
+        int event;
+        while ( ( event = next() ) != XMLStreamConstants.END_ELEMENT )
+        {
+            if ( event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+                            || event == XMLStreamConstants.SPACE )
+            {
+                int n = reader.getTextLength();
+                if ( length + n > nameChars.length )
+                {
+                    nameChars = Arrays.copyOf( nameChars, Math.max( length + n, nameChars.length * 2 ) );
+                }
+                System.arraycopy( reader.getTextCharacters(), reader.getTextStart(), nameChars, length, n );
+                length += n;
+            }
+            else if ( event == XMLStreamConstants.START_ELEMENT )
+            {
+                skipElement();
+            }
+        }
+        return symbols.lookup( nameChars, 0, length );
+    }
+
+    /**
+     * Move to the next event, checking the limits and reporting element events to the listener.
+     */
+    private int next() throws XMLStreamException, XmlRpcException
+    {
+        int event;
+        try
+        {
+            event = reader.next();
+        }
+        catch ( XMLStreamException e )
+        {
+            if ( input.isExceeded() )
+            {
+                throw new ParseLimitException( ParseLimitException.BYTES, limits.getMaxBytes() );
+            }
+            throw e;
+        }
+
+        switch ( event )
+        {
+            case XMLStreamConstants.START_ELEMENT:
+                limits.checkDepth( ++depth );
+                limits.checkElements( ++elements );
+                textLength = 0;
+                if ( events != null )
+                {
+                    events.startElement( reader.getLocalName() );
+                }
+                break;
+            case XMLStreamConstants.END_ELEMENT:
+                depth--;
+                textLength = 0;
+                if ( events != null )
+                {
+                    events.endElement( reader.getLocalName() );
+                }
+                break;
+            case XMLStreamConstants.CHARACTERS:
+            case XMLStreamConstants.CDATA:
+            case XMLStreamConstants.SPACE:
+                textLength += reader.getTextLength();
+                limits.checkStringLength( textLength );
+                break;
+            case XMLStreamConstants.DTD:
+                limits.checkDtd();
+                break;
+            default:
+        }
+        return event;
+    }
+
+    /**
+     * @return the text of the current CHARACTERS event trimmed, or null if it is blank. Blank text is checked in the
+     * reader's buffer, so indentation between the tags of pretty-printed documents costs no String.
+     */
+    private String trimmedText()
+    {
+        char[] chars = reader.getTextCharacters();
+        int start = reader.getTextStart();
+        int end = start + reader.getTextLength();
+
+        int i = start;
+        while ( i < end && Character.isWhitespace( chars[i] ) )
+        {
+            i++;
+        }
+        if ( i == end )
+        {
+            return null;
+        }
+
+        while ( start < end && chars[start] <= ' ' )
+        {
+            start++;
+        }
+        while ( end > start && chars[end - 1] <= ' ' )
+        {
+            end--;
+        }
+        return new String( chars, start, end - start );
+    }
+
+    /**
+     * Move to the next START_ELEMENT, END_ELEMENT or END_DOCUMENT, ignoring text, comments, etc.
+     */
+    private int nextTag() throws XMLStreamException, XmlRpcException
+    {
+        int event;
+        do
+        {
+            event = next();
+        }
+        while ( event != XMLStreamConstants.START_ELEMENT && event != XMLStreamConstants.END_ELEMENT
+                        && event != XMLStreamConstants.END_DOCUMENT );
+        return event;
+    }
+
+    /**
+     * Skip the element the reader is positioned at, including its children.
+     */
+    private void skipElement() throws XMLStreamException, XmlRpcException
+    {
+        int level = 1;
+        do
+        {
+            int event = next();
+            if ( event == XMLStreamConstants.START_ELEMENT )
+            {
+                level++;
+            }
+            else if ( event == XMLStreamConstants.END_ELEMENT )
+            {
+                level--;
+            }
+            else if ( event == XMLStreamConstants.END_DOCUMENT )
+            {
+                break;
+            }
+        }
+        while ( level > 0 );
+    }
+
+    private MethodCall parseRequest( XMLStreamReader reader ) throws XMLStreamException, XmlRpcException
+    {
+        MethodCall ret = new MethodCall();
+
+        int level = 1;
+        do
+        {
+            int event = next();
+            if ( event == XMLStreamConstants.START_ELEMENT )
+            {
+                level++;
+                String localName = reader.getLocalName();
+
+                if ( localName.equals( PARAMS ) )
+                {
+                    List<Object> params = parseParams( reader );
+                    ret.setParams( params );
+                    level--;
+                }
+                else if ( localName.equals( METHOD_NAME ) )
+                {
+                    event = next();
+                    if ( event == XMLStreamConstants.CHARACTERS )
+                    {
+                        String text = trimmedText();
+                        if ( text != null )
+                        {
+                            ret.setMethodName( text );
+                            if ( events != null )
+                            {
+                                events.methodName( ret.getMethodName() );
+                            }
+                        }
+                    }
+                }
+            }
+            else if ( event == XMLStreamConstants.END_ELEMENT )
+            {
+                level--;
+            }
+        }
+        while ( level > 0 );
+
+        return ret;
+    }
+
+    private RpcObject parseResponse( XMLStreamReader reader ) throws XMLStreamException, XmlRpcException
+    {
+        RpcObject ret = null;
+
+        int level = 1;
+        do
+        {
+            int event = next();
+            if ( event == XMLStreamConstants.START_ELEMENT )
+            {
+                level++;
+                String localName = reader.getLocalName();
+
+                if ( localName.equals( PARAMS ) )
+                {
+                    MethodResponse response = new MethodResponse();
+                    List<Object> params = parseParams( reader );
+                    response.setParams( params );
+                    ret = response;
+                    level--;
+                }
+                else if ( localName.equals( FAULT ) )
+                {
+                    Fault fault = new Fault();
+                    Object value = parseFault( reader );
+                    fault.setValue( value );
+                    ret = fault;
+                    level--;
+                }
+            }
+            else if ( event == XMLStreamConstants.END_ELEMENT )
+            {
+                level--;
+            }
+        }
+        while ( level > 0 );
+
+        return ret;
+    }
+
+    private List<Object> parseParams( XMLStreamReader reader ) throws XMLStreamException, XmlRpcException
+    {
+        List<Object> ret = new ArrayList<>();
+
+        int level = 1;
+        do
+        {
+            int event = next();
+            if ( event == XMLStreamConstants.START_ELEMENT )
+            {
+                level++;
+                String localName = reader.getLocalName();
+
+                if ( localName.equals( PARAM ) )
+                {
+                    path = ret.size() + 1;
+                    Object param = parseParam( reader );
+                    ret.add( param );
+                    level--;
+                }
+            }
+            else if ( event == XMLStreamConstants.END_ELEMENT )
+            {
+                level--;
+            }
+        }
+        while ( level > 0 );
+
+        path = 0;
+        return ret;
+    }
 
-    private XMLStreamReader reader;
+    private Object parseFault( XMLStreamReader reader ) throws XMLStreamException, XmlRpcException
+    {
+        return parseParam( reader ); // fault and param have same structure
+    }
 
-    public XmlRpcParser( final InputStream in ) throws XmlRpcException
+    private Object parseParam( XMLStreamReader reader ) throws XMLStreamException, XmlRpcException
     {
-        factory = XMLInputFactory.newInstance();
-        try
+        Object ret = null;
+
+        int level = 1;
+        do
         {
-            reader = factory.createXMLStreamReader( in );
+            int event = next();
+            if ( event == XMLStreamConstants.START_ELEMENT )
+            {
+                level++;
+                String localName = reader.getLocalName();
+
+                if ( localName.equals( VALUE ) )
+                {
+                    ret = parseValue( reader );
+                    level--;
+                }
+            }
+            else if ( event == XMLStreamConstants.END_ELEMENT )
+            {
+                level--;
+            }
         }
-        catch ( final XMLStreamException e )
+        while ( level > 0 );
+
+        return ret;
+    }
+
+    private Object parseValue( XMLStreamReader reader ) throws XMLStreamException, XmlRpcException
+    {
+        Object ret = null;
+
+        int level = 1;
+        do
         {
-            throw new XmlRpcException( "Failed to initialize stream reader: " + e.getMessage(), e );
+            int event = next();
+            if ( event == XMLStreamConstants.START_ELEMENT )
+            {
+                level++;
+                String localName = reader.getLocalName();
+
+                ret = parseTypedValue( localName, reader );
+                level--;
+            }
+            else if ( event == XMLStreamConstants.CHARACTERS ) // default string value, takes form of <value>str</value>
+            {
+                String text = trimmedText();
+                if ( text != null )
+                {
+                    ret = intern( text );
+                    if ( events != null )
+                    {
+                        events.value( ValueType.STRING, ret );
+                    }
+                }
+            }
+            else if ( event == XMLStreamConstants.END_ELEMENT )
+            {
+                level--;
+            }
         }
+        while ( level > 0 );
+
+        return ret;
     }
 
     /**
-     * Parse method request or response. XML-RPC response has either fault or params element.
-     * @return
-     * @throws XmlRpcException
+     * Parse the type element of a value, the reader is positioned at its start.
      */
-    public RpcObject parse() throws XmlRpcException, XMLStreamException
+    private Object parseTypedValue( String localName, XMLStreamReader reader )
+                    throws XMLStreamException, XmlRpcException
     {
-        RpcObject ret = null;
+        if ( localName.equals( ARRAY ) )
+        {
+            return parseArray( reader );
+        }
+        else if ( localName.equals( STRUCT ) )
+        {
+            return parseStruct( reader );
+        }
+        else if ( localName.equals( NIL ) )
+        {
+            return parseNil( reader );
+        }
+        return parsePrimitive( localName, reader ); // xml-rpc primitives, string, int, etc.
+    }
 
-        int level = 0;
+    private Map<String, Object> parseStruct( XMLStreamReader reader ) throws XMLStreamException, XmlRpcException
+    {
+        int hint = sizeHints == null ? 0 : sizeHints.get( path );
+        Map<String, Object> ret = hint > 0 ? containerFactory.newStruct( hint ) : containerFactory.newStruct();
+
+        int level = 1;
         do
         {
-            int event = reader.next();
+            int event = next();
             if ( event == XMLStreamConstants.START_ELEMENT )
             {
                 level++;
                 String localName = reader.getLocalName();
 
-                logger.trace( "Start <" + localName + ">" );
-
-                if ( localName.equals( REQUEST ) )
-                {
-                    ret = parseRequest( reader );
-                    level--;
-                }
-                else if ( localName.equals( RESPONSE ) )
+                if ( localName.equals( MEMBER ) )
                 {
-                    ret = parseResponse( reader );
+                    Map.Entry<String, Object> kv = parseMember( reader );
+                    ret.put( kv.getKey(), kv.getValue() );
                     level--;
                 }
-                else
-                {
-                    throw new XmlRpcException( "Invalid XML-RPC root element: " + localName );
-                }
             }
             else if ( event == XMLStreamConstants.END_ELEMENT )
             {
-                logger.trace( "End </" + reader.getLocalName() + ">" );
                 level--;
             }
         }
         while ( level > 0 );
 
+        if ( sizeHints != null )
+        {
+            sizeHints.record( path, ret.size() );
+        }
         return ret;
     }
 
-    private MethodCall parseRequest( XMLStreamReader reader ) throws XMLStreamException, CoercionException
+    private Map.Entry<String, Object> parseMember( XMLStreamReader reader ) throws XMLStreamException, XmlRpcException
     {
-        MethodCall ret = new MethodCall();
+        String key = null;
+        Object value = null;
 
         int level = 1;
         do
         {
-            int event = reader.next();
+            int event = next();
             if ( event == XMLStreamConstants.START_ELEMENT )
             {
                 level++;
                 String localName = reader.getLocalName();
 
-                logger.trace( "Start <" + localName + ">" );
-
-                if ( localName.equals( PARAMS ) )
-                {
-                    List<Object> params = parseParams( reader );
-                    ret.setParams( params );
-                    level--;
-                }
-                else if ( localName.equals( METHOD_NAME ) )
+                if ( localName.equals( NAME ) )
                 {
-                    event = reader.next();
+                    event = next();
                     if ( event == XMLStreamConstants.CHARACTERS )
                     {
-                        String text = reader.getText();
-                        if ( StringUtils.isNotBlank( text ) )
+                        key = symbols.lookup( reader.getTextCharacters(), reader.getTextStart(),
+                                              reader.getTextLength() );
+                        if ( events != null )
                         {
-                            ret.setMethodName( text.trim() );
-                            logger.trace( "Read methodName: " + text );
+                            events.memberName( key );
                         }
                     }
                 }
+                else if ( localName.equals( VALUE ) )
+                {
+                    int parent = path;
+                    path = 31 * parent + ( key == null ? 0 : key.hashCode() );
+                    value = parseValue( reader );
+                    path = parent;
+                    level--;
+                }
             }
             else if ( event == XMLStreamConstants.END_ELEMENT )
             {
-                logger.trace( "End </" + reader.getLocalName() + ">" );
                 level--;
             }
         }
         while ( level > 0 );
 
-        return ret;
+        return new SimpleEntry<>( key, value );
     }
 
-    private RpcObject parseResponse( XMLStreamReader reader ) throws XMLStreamException, CoercionException
+    private List<Object> parseArray( XMLStreamReader reader ) throws XMLStreamException, XmlRpcException
     {
-        RpcObject ret = null;
+        List<Object> ret = null;
 
         int level = 1;
         do
         {
-            int event = reader.next();
+            int event = next();
             if ( event == XMLStreamConstants.START_ELEMENT )
             {
                 level++;
                 String localName = reader.getLocalName();
 
-                logger.trace( "Start <" + localName + ">" );
-
-                if ( localName.equals( PARAMS ) )
-                {
-                    MethodResponse response = new MethodResponse();
-                    List<Object> params = parseParams( reader );
-                    response.setParams( params );
-                    ret = response;
-                    level--;
-                }
-                else if ( localName.equals( FAULT ) )
+                if ( localName.equals( DATA ) )
                 {
-                    Fault fault = new Fault();
-                    Object value = parseFault( reader );
-                    fault.setValue( value );
-                    ret = fault;
+                    ret = parseData( reader );
                     level--;
                 }
             }
             else if ( event == XMLStreamConstants.END_ELEMENT )
             {
-                logger.trace( "End </" + reader.getLocalName() + ">" );
                 level--;
             }
         }
@@ -202,321 +1570,644 @@ public class XmlRpcParser
         return ret;
     }
 
-    private List<Object> parseParams( XMLStreamReader reader ) throws XMLStreamException, CoercionException
+    private List<Object> parseData( XMLStreamReader reader ) throws XMLStreamException, XmlRpcException
     {
-        List<Object> ret = new ArrayList<>();
+        int hint = sizeHints == null ? 0 : sizeHints.get( path );
+        List<Object> ret = hint > 0 ? containerFactory.newArray( hint ) : containerFactory.newArray();
+        int parent = path;
+        path = 31 * parent + ELEMENT_PATH;
 
         int level = 1;
         do
         {
-            int event = reader.next();
+            int event = next();
             if ( event == XMLStreamConstants.START_ELEMENT )
             {
                 level++;
                 String localName = reader.getLocalName();
 
-                logger.trace( "Start <" + localName + ">" );
-
-                if ( localName.equals( PARAM ) )
+                if ( localName.equals( VALUE ) )
                 {
-                    Object param = parseParam( reader );
-                    ret.add( param );
+                    ret.add( parseValue( reader ) );
                     level--;
                 }
             }
             else if ( event == XMLStreamConstants.END_ELEMENT )
             {
-                logger.trace( "End </" + reader.getLocalName() + ">" );
                 level--;
             }
         }
         while ( level > 0 );
 
-        return ret;
+        path = parent;
+        if ( sizeHints != null )
+        {
+            sizeHints.record( path, ret.size() );
+        }
+        return ret;
+    }
+
+    private Object parsePrimitive( String type, XMLStreamReader reader ) throws XMLStreamException, XmlRpcException
+    {
+        Object ret = null;
+
+        ValueType vt = ValueType.typeOf( type );
+        if ( PrimitiveDecoder.isDecodable( vt ) )
+        {
+            return readDecodable( vt ) ? decoder.getValue( vt ) : null;
+        }
+        else if ( vt == ValueType.BASE64 && binaryHandler != null )
+        {
+            return readBinary();
+        }
+
+        StringBuilder sb = null;
+
+        int level = 1;
+        do
+        {
+            int event = next();
+            if ( event == XMLStreamConstants.CHARACTERS )
+            {
+                String text = reader.getText();
+                if ( sb == null )
+                {
+                    sb = new StringBuilder();
+                }
+                sb.append( text );
+            }
+            else if ( event == XMLStreamConstants.END_ELEMENT )
+            {
+                level--;
+            }
+        }
+        while ( level > 0 );
+
+        if ( sb != null )
+        {
+            ret = vt.coercion().fromString( sb.toString() );
+            if ( vt == ValueType.STRING )
+            {
+                ret = intern( (String) ret );
+            }
+        }
+        if ( events != null )
+        {
+            events.value( vt, ret );
+        }
+        return ret;
+    }
+
+    private String intern( final String value )
+    {
+        return stringCache == null ? value : stringCache.intern( value );
+    }
+
+    /**
+     * Decode an int, i8, double or boolean element straight from the reader's text buffers, the reader is positioned
+     * at its start.
+     *
+     * @return false if the value is null: the element has no text, or a number has only whitespace
+     */
+    private boolean readDecodable( ValueType vt ) throws XMLStreamException, XmlRpcException
+    {
+        decoder.clear();
+        boolean text = false;
+        int level = 1;
+        do
+        {
+            int event = next();
+            if ( event == XMLStreamConstants.CHARACTERS )
+            {
+                decoder.append( reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength() );
+                text = true;
+            }
+            else if ( event == XMLStreamConstants.END_ELEMENT )
+            {
+                level--;
+            }
+        }
+        while ( level > 0 );
+
+        boolean decoded = text && decoder.decode( vt );
+        if ( events != null )
+        {
+            events.value( vt, decoded ? decoder.getValue( vt ) : null );
+        }
+        return decoded;
+    }
+
+    /**
+     * Decode a base64 element into the binary handler, chunk by chunk, the reader is positioned at its start.
+     *
+     * @return the handler's value, null if the element has no text
+     */
+    private Object readBinary() throws XMLStreamException, XmlRpcException
+    {
+        OutputStream out = null;
+        try
+        {
+            int level = 1;
+            do
+            {
+                int event = next();
+                if ( event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA )
+                {
+                    if ( out == null )
+                    {
+                        out = binaryHandler.begin();
+                        base64.reset( out );
+                    }
+                    base64.decode( reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength() );
+                }
+                else if ( event == XMLStreamConstants.END_ELEMENT )
+                {
+                    level--;
+                }
+            }
+            while ( level > 0 );
+
+            Object ret = null;
+            if ( out != null )
+            {
+                base64.finish();
+                ret = binaryHandler.end( out );
+                out = null;
+            }
+            if ( events != null )
+            {
+                events.value( ValueType.BASE64, ret );
+            }
+            return ret;
+        }
+        catch ( IOException e )
+        {
+            throw new XmlRpcException( "Failed to write binary value: " + e.getMessage(), e );
+        }
+        finally
+        {
+            if ( out != null )
+            {
+                binaryHandler.abort( out );
+            }
+        }
+    }
+
+    private Object parseNil( XMLStreamReader reader ) throws XMLStreamException, XmlRpcException
+    {
+        int level = 1;
+        do
+        {
+            int event = next();
+            if ( event == XMLStreamConstants.END_ELEMENT )
+            {
+                level--;
+            }
+        }
+        while ( level > 0 );
+
+        if ( events != null )
+        {
+            events.value( ValueType.NIL, NIL_VALUE );
+        }
+        return NIL_VALUE;
     }
 
-    private Object parseFault( XMLStreamReader reader ) throws XMLStreamException, CoercionException
+    private void visitMethodName( RpcVisitor visitor ) throws XMLStreamException, XmlRpcException
     {
-        return parseParam( reader ); // fault and param have same structure
+        String text = null;
+        int event;
+        while ( ( event = next() ) != XMLStreamConstants.END_ELEMENT )
+        {
+            if ( event == XMLStreamConstants.CHARACTERS && text == null )
+            {
+                text = trimmedText();
+            }
+            else if ( event == XMLStreamConstants.START_ELEMENT )
+            {
+                skipElement();
+            }
+        }
+        if ( text != null )
+        {
+            if ( events != null )
+            {
+                events.methodName( text );
+            }
+            visitor.methodName( text );
+        }
     }
 
-    private Object parseParam( XMLStreamReader reader ) throws XMLStreamException, CoercionException
+    /**
+     * Visit the values in &lt;params&gt;, &lt;fault&gt; or &lt;data&gt;, the reader is positioned at its start.
+     */
+    private void visitValues( RpcVisitor visitor ) throws XMLStreamException, XmlRpcException
     {
-        Object ret = null;
-
         int level = 1;
         do
         {
-            int event = reader.next();
+            int event = nextTag();
             if ( event == XMLStreamConstants.START_ELEMENT )
             {
-                level++;
                 String localName = reader.getLocalName();
-
-                logger.trace( "Start <" + localName + ">" );
-
                 if ( localName.equals( VALUE ) )
                 {
-                    ret = parseValue( reader );
-                    level--;
+                    visitValue( visitor );
+                }
+                else if ( localName.equals( PARAM ) )
+                {
+                    level++;
+                }
+                else
+                {
+                    skipElement();
                 }
             }
             else if ( event == XMLStreamConstants.END_ELEMENT )
             {
-                logger.trace( "End </" + reader.getLocalName() + ">" );
                 level--;
             }
+            else
+            {
+                break;
+            }
         }
         while ( level > 0 );
-
-        return ret;
     }
 
-    private Object parseValue( XMLStreamReader reader ) throws XMLStreamException, CoercionException
+    private void visitValue( RpcVisitor visitor ) throws XMLStreamException, XmlRpcException
     {
-        Object ret = null;
-
-        int level = 1;
-        do
+        String text = null;
+        boolean typed = false;
+        int event;
+        while ( ( event = next() ) != XMLStreamConstants.END_ELEMENT )
         {
-            int event = reader.next();
             if ( event == XMLStreamConstants.START_ELEMENT )
             {
-                level++;
-                String localName = reader.getLocalName();
-
-                logger.trace( "Start <" + localName + ">" );
-
-                if ( localName.equals( ARRAY ) )
+                if ( typed )
                 {
-                    ret = parseArray( reader );
-                    level--;
-                }
-                else if ( localName.equals( STRUCT ) )
-                {
-                    ret = parseStruct( reader );
-                    level--;
-                }
-                else if ( localName.equals( NIL ) )
-                {
-                    ret = parseNil( reader );
-                    level--;
+                    skipElement();
                 }
                 else
                 {
-                    ret = parsePrimitive( localName, reader ); // xml-rpc primitives, string, int, etc.
-                    level--;
+                    typed = true;
+                    visitTypedValue( reader.getLocalName(), visitor );
                 }
             }
-            else if ( event == XMLStreamConstants.CHARACTERS ) // default string value, takes form of <value>str</value>
+            else if ( event == XMLStreamConstants.CHARACTERS && !typed && text == null )
             {
-                String text = reader.getText();
-                if ( StringUtils.isNotBlank( text ) )
-                {
-                    ret = text.trim();
-                    logger.trace( "Read value: " + text );
-                }
+                text = trimmedText(); // default string value, takes form of <value>str</value>
             }
-            else if ( event == XMLStreamConstants.END_ELEMENT )
+            else if ( event == XMLStreamConstants.END_DOCUMENT )
             {
-                logger.trace( "End </" + reader.getLocalName() + ">" );
-                level--;
+                return;
             }
         }
-        while ( level > 0 );
 
-        return ret;
+        if ( typed )
+        {
+            return;
+        }
+        else if ( text == null )
+        {
+            visitor.nullValue();
+            return;
+        }
+
+        text = intern( text );
+        if ( events != null )
+        {
+            events.value( ValueType.STRING, text );
+        }
+        visitor.stringValue( text );
     }
 
-    private Map<String, Object> parseStruct( XMLStreamReader reader ) throws XMLStreamException, CoercionException
+    private void visitTypedValue( String localName, RpcVisitor visitor ) throws XMLStreamException, XmlRpcException
     {
-        Map<String, Object> ret = new HashMap<>();
+        if ( localName.equals( STRUCT ) )
+        {
+            visitStruct( visitor );
+            return;
+        }
+        else if ( localName.equals( ARRAY ) )
+        {
+            visitArray( visitor );
+            return;
+        }
+        else if ( localName.equals( NIL ) )
+        {
+            parseNil( reader );
+            visitor.nilValue();
+            return;
+        }
 
-        int level = 1;
-        do
+        ValueType vt = ValueType.typeOf( localName );
+        if ( PrimitiveDecoder.isDecodable( vt ) )
         {
-            int event = reader.next();
-            if ( event == XMLStreamConstants.START_ELEMENT )
+            if ( !readDecodable( vt ) )
             {
-                level++;
-                String localName = reader.getLocalName();
-
-                logger.trace( "Start <" + localName + ">" );
-
-                if ( localName.equals( MEMBER ) )
-                {
-                    Map.Entry<String, Object> kv = parseMember( reader );
-                    ret.put( kv.getKey(), kv.getValue() );
-                    level--;
-                }
+                visitor.nullValue();
             }
-            else if ( event == XMLStreamConstants.END_ELEMENT )
+            else if ( vt == ValueType.INT )
             {
-                logger.trace( "End </" + reader.getLocalName() + ">" );
-                level--;
+                visitor.intValue( decoder.intValue() );
+            }
+            else if ( vt == ValueType.LONG )
+            {
+                visitor.longValue( decoder.longValue() );
+            }
+            else if ( vt == ValueType.DOUBLE )
+            {
+                visitor.doubleValue( decoder.doubleValue() );
+            }
+            else
+            {
+                visitor.booleanValue( decoder.booleanValue() );
             }
+            return;
+        }
+
+        Object value = parsePrimitive( localName, reader );
+        if ( value == null )
+        {
+            visitor.nullValue();
+        }
+        else if ( vt == ValueType.DATETIME )
+        {
+            visitor.dateValue( (Date) value );
+        }
+        else if ( vt == ValueType.BASE64 )
+        {
+            visitor.binaryValue( value );
+        }
+        else
+        {
+            visitor.stringValue( (String) value );
         }
-        while ( level > 0 );
-        return ret;
     }
 
-    private Map.Entry<String, Object> parseMember( XMLStreamReader reader ) throws XMLStreamException, CoercionException
+    private void visitStruct( RpcVisitor visitor ) throws XMLStreamException, XmlRpcException
     {
-        String key = null;
-        Object value = null;
-
-        int level = 1;
-        do
+        visitor.beginStruct();
+        while ( nextTag() == XMLStreamConstants.START_ELEMENT )
         {
-            int event = reader.next();
-            if ( event == XMLStreamConstants.START_ELEMENT )
+            if ( !reader.getLocalName().equals( MEMBER ) )
             {
-                level++;
-                String localName = reader.getLocalName();
-
-                logger.trace( "Start <" + localName + ">" );
+                skipElement();
+                continue;
+            }
 
+            while ( nextTag() == XMLStreamConstants.START_ELEMENT )
+            {
+                String localName = reader.getLocalName();
                 if ( localName.equals( NAME ) )
                 {
-                    event = reader.next();
-                    if ( event == XMLStreamConstants.CHARACTERS )
+                    String key = readName();
+                    if ( events != null )
                     {
-                        key = reader.getText().trim();
-                        logger.trace( "Read key: " + key );
+                        events.memberName( key );
                     }
+                    visitor.memberName( key );
                 }
                 else if ( localName.equals( VALUE ) )
                 {
-                    value = parseValue( reader );
-                    level--;
+                    visitValue( visitor );
+                }
+                else
+                {
+                    skipElement();
                 }
             }
-            else if ( event == XMLStreamConstants.END_ELEMENT )
+        }
+        visitor.endStruct();
+    }
+
+    private void visitArray( RpcVisitor visitor ) throws XMLStreamException, XmlRpcException
+    {
+        boolean data = false;
+        while ( nextTag() == XMLStreamConstants.START_ELEMENT )
+        {
+            if ( !data && reader.getLocalName().equals( DATA ) )
             {
-                logger.trace( "End </" + reader.getLocalName() + ">" );
-                level--;
+                data = true;
+                visitor.beginArray();
+                visitValues( visitor );
+                visitor.endArray();
+            }
+            else
+            {
+                skipElement();
             }
         }
-        while ( level > 0 );
-
-        return new SimpleEntry<>( key, value );
+        if ( !data )
+        {
+            visitor.nullValue(); // <array> without <data>, as parse() reads it
+        }
     }
 
-    private List<Object> parseArray( XMLStreamReader reader ) throws XMLStreamException, CoercionException
+    /**
+     * InputStream reading the remaining bytes of a buffer, which can be pointed at another buffer.
+     */
+    private static final class ByteBufferInputStream
+                    extends InputStream
     {
-        List<Object> ret = null;
+        private ByteBuffer buf;
 
-        int level = 1;
-        do
+        void reset( final ByteBuffer in )
         {
-            int event = reader.next();
-            if ( event == XMLStreamConstants.START_ELEMENT )
-            {
-                level++;
-                String localName = reader.getLocalName();
+            buf = in == null ? null : in.duplicate();
+        }
 
-                logger.trace( "Start <" + localName + ">" );
+        @Override
+        public int read()
+        {
+            return buf.hasRemaining() ? buf.get() & 0xff : -1;
+        }
 
-                if ( localName.equals( DATA ) )
-                {
-                    ret = parseData( reader );
-                    level--;
-                }
+        @Override
+        public int read( final byte[] b, final int off, final int len )
+        {
+            if ( len == 0 )
+            {
+                return 0;
             }
-            else if ( event == XMLStreamConstants.END_ELEMENT )
+            if ( !buf.hasRemaining() )
             {
-                logger.trace( "End </" + reader.getLocalName() + ">" );
-                level--;
+                return -1;
             }
+            int n = Math.min( len, buf.remaining() );
+            buf.get( b, off, n );
+            return n;
         }
-        while ( level > 0 );
 
-        return ret;
+        @Override
+        public long skip( final long n )
+        {
+            int skipped = (int) Math.max( 0, Math.min( n, buf.remaining() ) );
+            buf.position( buf.position() + skipped );
+            return skipped;
+        }
+
+        @Override
+        public int available()
+        {
+            return buf.remaining();
+        }
     }
 
-    private List<Object> parseData( XMLStreamReader reader ) throws XMLStreamException, CoercionException
+    /**
+     * InputStream passing through at most a given number of bytes. If the stream has more, it ends early and is marked
+     * as exceeded, so the reader fails right there instead of reading on.
+     */
+    private static final class LimitedInputStream
+                    extends InputStream
     {
-        List<Object> ret = new ArrayList<>();
+        private InputStream in;
 
-        int level = 1;
-        do
+        private long remaining;
+
+        private boolean exceeded;
+
+        void reset( final InputStream in, final long max )
         {
-            int event = reader.next();
-            if ( event == XMLStreamConstants.START_ELEMENT )
-            {
-                level++;
-                String localName = reader.getLocalName();
+            this.in = in;
+            this.remaining = max;
+            this.exceeded = false;
+        }
 
-                logger.trace( "Start <" + localName + ">" );
+        boolean isExceeded()
+        {
+            return exceeded;
+        }
 
-                if ( localName.equals( VALUE ) )
-                {
-                    ret.add( parseValue( reader ) );
-                    level--;
-                }
+        @Override
+        public int read() throws IOException
+        {
+            if ( remaining == 0 )
+            {
+                exceeded = exceeded || in.read() >= 0;
+                return -1;
             }
-            else if ( event == XMLStreamConstants.END_ELEMENT )
+            int b = in.read();
+            if ( b >= 0 )
             {
-                logger.trace( "End </" + reader.getLocalName() + ">" );
-                level--;
+                remaining--;
             }
+            return b;
         }
-        while ( level > 0 );
 
-        return ret;
+        @Override
+        public int read( final byte[] b, final int off, final int len ) throws IOException
+        {
+            if ( len == 0 )
+            {
+                return 0;
+            }
+            if ( remaining == 0 )
+            {
+                exceeded = exceeded || in.read() >= 0;
+                return -1;
+            }
+            int n = in.read( b, off, (int) Math.min( len, remaining ) );
+            if ( n > 0 )
+            {
+                remaining -= n;
+            }
+            return n;
+        }
+
+        @Override
+        public int available() throws IOException
+        {
+            return (int) Math.min( in.available(), remaining );
+        }
     }
 
-    private Object parsePrimitive( String type, XMLStreamReader reader ) throws XMLStreamException, CoercionException
+    /**
+     * Reader over a char array slice or a CharSequence, which can be pointed at another one.
+     */
+    private static final class ReusableCharReader
+                    extends Reader
     {
-        Object ret = null;
+        private char[] array;
 
-        ValueType vt = ValueType.typeOf( type );
-        StringBuilder sb = null;
+        private CharSequence sequence;
 
-        int level = 1;
-        do
+        private int pos;
+
+        private int end;
+
+        void reset( final char[] in, final int offset, final int length )
         {
-            int event = reader.next();
-            if ( event == XMLStreamConstants.CHARACTERS )
+            array = in;
+            sequence = null;
+            pos = offset;
+            end = offset + length;
+        }
+
+        void reset( final CharSequence in )
+        {
+            array = null;
+            sequence = in;
+            pos = 0;
+            end = in == null ? 0 : in.length();
+        }
+
+        @Override
+        public int read( final char[] cbuf, final int off, final int len )
+        {
+            if ( pos >= end )
             {
-                String text = reader.getText();
-                logger.trace( "Read value: " + text + ", type=" + type );
-                if ( sb == null )
-                {
-                    sb = new StringBuilder();
-                }
-                sb.append( text );
+                return -1;
             }
-            else if ( event == XMLStreamConstants.END_ELEMENT )
+
+            int n = Math.min( len, end - pos );
+            if ( array != null )
             {
-                logger.trace( "End </" + reader.getLocalName() + ">" );
-                level--;
+                System.arraycopy( array, pos, cbuf, off, n );
+            }
+            else if ( sequence instanceof String )
+            {
+                ( (String) sequence ).getChars( pos, pos + n, cbuf, off );
+            }
+            else if ( sequence instanceof StringBuilder )
+            {
+                ( (StringBuilder) sequence ).getChars( pos, pos + n, cbuf, off );
+            }
+            else
+            {
+                for ( int i = 0; i < n; i++ )
+                {
+                    cbuf[off + i] = sequence.charAt( pos + i );
+                }
             }
+            pos += n;
+            return n;
         }
-        while ( level > 0 );
 
-        if ( sb != null )
+        @Override
+        public void close()
         {
-            ret = vt.coercion().fromString( sb.toString() );
         }
-        return ret;
     }
 
-    private Object parseNil( XMLStreamReader reader ) throws XMLStreamException, CoercionException
+    /**
+     * ByteArrayInputStream that can be pointed at another array, so byte input does not allocate a stream per parse.
+     */
+    private static final class ReusableByteArrayInputStream
+                    extends ByteArrayInputStream
     {
-        int level = 1;
-        do
+        ReusableByteArrayInputStream()
         {
-            int event = reader.next();
-            if ( event == XMLStreamConstants.END_ELEMENT )
-            {
-                logger.trace( "End </" + reader.getLocalName() + ">" );
-                level--;
-            }
+            super( new byte[0] );
         }
-        while ( level > 0 );
 
-        return NIL_VALUE;
+        void reset( final byte[] in, final int offset, final int length )
+        {
+            buf = in;
+            pos = offset;
+            count = offset + length;
+            mark = offset;
+        }
     }
-
 }
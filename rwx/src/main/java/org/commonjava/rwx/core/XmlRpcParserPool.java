@@ -0,0 +1,106 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.core;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded, striped pool of {@link XmlRpcParser}s. Each thread starts probing at its own slot, so in the common case
+ * a thread gets back the parser it released last without contention. When all slots are taken a new parser is created,
+ * and parsers released to a full pool are dropped, so the pool never holds more than its size.
+ */
+public final class XmlRpcParserPool
+{
+    private final StaxFactory staxFactory;
+
+    private final AtomicReferenceArray<XmlRpcParser> slots;
+
+    public XmlRpcParserPool()
+    {
+        this( Runtime.getRuntime().availableProcessors() * 2, StaxFactory.getInstance() );
+    }
+
+    public XmlRpcParserPool( final int size, final StaxFactory staxFactory )
+    {
+        if ( size < 1 )
+        {
+            throw new IllegalArgumentException( "Pool size must be positive: " + size );
+        }
+        this.staxFactory = staxFactory;
+        this.slots = new AtomicReferenceArray<>( size );
+    }
+
+    /**
+     * Get a parser from the pool, or a new one if the pool is empty. Call one of its reset methods before parsing.
+     */
+    public XmlRpcParser acquire()
+    {
+        int size = slots.length();
+        int start = probe( size );
+        for ( int i = 0; i < size; i++ )
+        {
+            XmlRpcParser parser = slots.getAndSet( ( start + i ) % size, null );
+            if ( parser != null )
+            {
+                return parser;
+            }
+        }
+        return new XmlRpcParser( staxFactory );
+    }
+
+    /**
+     * Give a parser back to the pool. Its current document is released.
+     */
+    public void release( final XmlRpcParser parser )
+    {
+        parser.close();
+        if ( parser.getStaxFactory() != staxFactory )
+        {
+            return;
+        }
+
+        int size = slots.length();
+        int start = probe( size );
+        for ( int i = 0; i < size; i++ )
+        {
+            if ( slots.compareAndSet( ( start + i ) % size, null, parser ) )
+            {
+                return;
+            }
+        }
+    }
+
+    public StaxFactory getStaxFactory()
+    {
+        return staxFactory;
+    }
+
+    public int size()
+    {
+        return slots.length();
+    }
+
+    /**
+     * Thread ids are handed out sequentially, and pools of threads created together often have ids with a common
+     * stride, so the id is mixed (fibonacci hashing) before picking a slot rather than taken modulo the size.
+     */
+    private static int probe( final int size )
+    {
+        long id = Thread.currentThread().getId();
+        int hash = (int) ( id ^ ( id >>> 32 ) ) * 0x9E3779B9;
+        return ( hash >>> 1 ) % size;
+    }
+}
@@ -0,0 +1,59 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.error;
+
+/**
+ * Thrown when a document exceeds one of the configured {@link org.commonjava.rwx.core.ParseLimits}. Parsing stops as
+ * soon as the limit is passed, the rest of the input is not read.
+ */
+public class ParseLimitException
+                extends XmlRpcException
+{
+    private static final long serialVersionUID = 1L;
+
+    public static final String DEPTH = "depth";
+
+    public static final String ELEMENTS = "elements";
+
+    public static final String STRING_LENGTH = "string length";
+
+    public static final String BYTES = "bytes";
+
+    private final String limit;
+
+    private final long max;
+
+    public ParseLimitException( final String limit, final long max )
+    {
+        super( "Document exceeds the {} limit of {}", limit, max );
+        this.limit = limit;
+        this.max = max;
+    }
+
+    /**
+     * @return the limit that was exceeded, one of {@link #DEPTH}, {@link #ELEMENTS}, {@link #STRING_LENGTH} or
+     * {@link #BYTES}
+     */
+    public String getLimit()
+    {
+        return limit;
+    }
+
+    public long getMax()
+    {
+        return max;
+    }
+}
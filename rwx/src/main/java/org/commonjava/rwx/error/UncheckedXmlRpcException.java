@@ -0,0 +1,37 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.error;
+
+/**
+ * Wraps an XmlRpcException thrown where checked exceptions can't be, e.g. when a lazy Map/List view decodes a value
+ * on access.
+ */
+public class UncheckedXmlRpcException
+                extends RuntimeException
+{
+    private static final long serialVersionUID = 1L;
+
+    public UncheckedXmlRpcException( final XmlRpcException cause )
+    {
+        super( cause.getMessage(), cause );
+    }
+
+    @Override
+    public XmlRpcException getCause()
+    {
+        return (XmlRpcException) super.getCause();
+    }
+}
@@ -0,0 +1,126 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Decoded base64 value, held in memory or, when it is large, in a temporary file. Parsers produce it instead of a
+ * byte[] when a {@link org.commonjava.rwx.core.SpillingBinaryHandler} is set.
+ *
+ * A temporary file is deleted by {@link #close()}, or when the stream of {@link #openStream()} is closed. Once
+ * {@link #getPath()} handed out the file, deleting it is up to the caller.
+ */
+public final class BinaryValue
+                implements Closeable
+{
+    private final long size;
+
+    private byte[] bytes;
+
+    private Path file;
+
+    private boolean temporary;
+
+    public BinaryValue( final byte[] bytes )
+    {
+        this.bytes = bytes;
+        this.size = bytes.length;
+    }
+
+    /**
+     * @param temporary delete the file when the value is closed
+     */
+    public BinaryValue( final Path file, final long size, final boolean temporary )
+    {
+        this.file = file;
+        this.size = size;
+        this.temporary = temporary;
+    }
+
+    public long size()
+    {
+        return size;
+    }
+
+    public boolean isInMemory()
+    {
+        return bytes != null;
+    }
+
+    /**
+     * @return the decoded bytes, read from the file if the value is not in memory
+     */
+    public byte[] getBytes() throws IOException
+    {
+        return bytes != null ? bytes : Files.readAllBytes( file );
+    }
+
+    /**
+     * Read the decoded bytes. Closing the stream deletes the temporary file, so it can be opened only once then.
+     */
+    public InputStream openStream() throws IOException
+    {
+        if ( bytes != null )
+        {
+            return new ByteArrayInputStream( bytes );
+        }
+
+        return new FilterInputStream( Files.newInputStream( file ) )
+        {
+            @Override
+            public void close() throws IOException
+            {
+                super.close();
+                BinaryValue.this.close();
+            }
+        };
+    }
+
+    /**
+     * @return the file holding the decoded bytes, a new temporary file if the value is in memory. The caller takes
+     * over the file and should move or delete it.
+     */
+    public Path getPath() throws IOException
+    {
+        if ( file == null )
+        {
+            file = Files.createTempFile( "rwx-", ".bin" );
+            Files.write( file, bytes );
+        }
+        temporary = false;
+        return file;
+    }
+
+    /**
+     * Delete the temporary file, if the value has one.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if ( temporary )
+        {
+            temporary = false;
+            Files.deleteIfExists( file );
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.model;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * Growable list of int values, stored unboxed. Annotated fields of this type, or of type int[], are filled from
+ * XML-RPC arrays of ints without an Integer per element when parsing with stream parsers.
+ */
+public final class IntList
+                extends AbstractList<Integer>
+                implements RandomAccess
+{
+    private int[] values;
+
+    private int size;
+
+    public IntList()
+    {
+        this( 10 );
+    }
+
+    public IntList( final int capacity )
+    {
+        values = new int[capacity];
+    }
+
+    public void add( final int value )
+    {
+        if ( size == values.length )
+        {
+            values = Arrays.copyOf( values, Math.max( 10, size + ( size >> 1 ) ) );
+        }
+        values[size++] = value;
+        modCount++;
+    }
+
+    @Override
+    public boolean add( final Integer value )
+    {
+        add( value.intValue() );
+        return true;
+    }
+
+    public int getInt( final int index )
+    {
+        if ( index >= size )
+        {
+            throw new IndexOutOfBoundsException( "Index: " + index + ", Size: " + size );
+        }
+        return values[index];
+    }
+
+    @Override
+    public Integer get( final int index )
+    {
+        return getInt( index );
+    }
+
+    @Override
+    public Integer set( final int index, final Integer value )
+    {
+        Integer old = getInt( index );
+        values[index] = value;
+        return old;
+    }
+
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    @Override
+    public void clear()
+    {
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * @return a copy of the values, sized to the list
+     */
+    public int[] toIntArray()
+    {
+        return Arrays.copyOf( values, size );
+    }
+}
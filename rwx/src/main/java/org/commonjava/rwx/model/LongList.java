@@ -0,0 +1,104 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.model;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * Growable list of long values, stored unboxed. Annotated fields of this type, or of type long[], are filled from
+ * XML-RPC arrays of ints or i8s without a Long per element when parsing with stream parsers.
+ */
+public final class LongList
+                extends AbstractList<Long>
+                implements RandomAccess
+{
+    private long[] values;
+
+    private int size;
+
+    public LongList()
+    {
+        this( 10 );
+    }
+
+    public LongList( final int capacity )
+    {
+        values = new long[capacity];
+    }
+
+    public void add( final long value )
+    {
+        if ( size == values.length )
+        {
+            values = Arrays.copyOf( values, Math.max( 10, size + ( size >> 1 ) ) );
+        }
+        values[size++] = value;
+        modCount++;
+    }
+
+    @Override
+    public boolean add( final Long value )
+    {
+        add( value.longValue() );
+        return true;
+    }
+
+    public long getLong( final int index )
+    {
+        if ( index >= size )
+        {
+            throw new IndexOutOfBoundsException( "Index: " + index + ", Size: " + size );
+        }
+        return values[index];
+    }
+
+    @Override
+    public Long get( final int index )
+    {
+        return getLong( index );
+    }
+
+    @Override
+    public Long set( final int index, final Long value )
+    {
+        Long old = getLong( index );
+        values[index] = value;
+        return old;
+    }
+
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    @Override
+    public void clear()
+    {
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * @return a copy of the values, sized to the list
+     */
+    public long[] toLongArray()
+    {
+        return Arrays.copyOf( values, size );
+    }
+}
@@ -0,0 +1,398 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.util;
+
+import org.commonjava.rwx.error.CoercionException;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.TimeZone;
+
+import static org.commonjava.rwx.vocab.XmlRpcConstants.DATETIME_FORMAT;
+
+/**
+ * Codec of dateTime.iso8601 values. The formats XML-RPC servers send are decoded by hand, dispatching on the
+ * length of the value, without formatters or exceptions:
+ * <ul>
+ *     <li>yyyyMMddTHHmmss (15 characters)</li>
+ *     <li>yyyyMMddTHH:mm:ss (17)</li>
+ *     <li>yyyy-MM-ddTHH:mm:ss (19)</li>
+ * </ul>
+ * each optionally followed by Z, ±hh, ±hhmm or ±hh:mm. Without a zone, values are in the default time zone. Anything
+ * else, e.g. out of range fields, is parsed leniently with {@link org.commonjava.rwx.vocab.XmlRpcConstants#DATETIME_FORMAT}
+ * as before. Values are formatted as yyyyMMddTHHmmss in the default time zone. All methods are thread safe.
+ */
+public final class DateTimeCodec
+{
+    // epoch millis of a value that is not in a hand decoded format
+    private static final long NOT_DECODED = Long.MIN_VALUE;
+
+    private static final long MILLIS_PER_DAY = 86400000L;
+
+    // the last decoded value, timestamps tend to repeat within a response
+    private static volatile Decoded last;
+
+    private DateTimeCodec()
+    {
+    }
+
+    public static Date parse( final String value ) throws CoercionException
+    {
+        return new Date( parseEpochMillis( value ) );
+    }
+
+    /**
+     * @param value dateTime.iso8601 text, surrounding whitespace is ignored
+     */
+    public static long parseEpochMillis( final String value ) throws CoercionException
+    {
+        TimeZone zone = TimeZone.getDefault();
+        Decoded decoded = last;
+        if ( decoded != null && decoded.text.equals( value ) && decoded.zone.equals( zone.getID() ) )
+        {
+            return decoded.epochMillis;
+        }
+
+        String text = value.trim();
+        long millis = decode( text, zone );
+        if ( millis == NOT_DECODED )
+        {
+            millis = parseLenient( text, zone );
+        }
+        last = new Decoded( value, zone.getID(), millis );
+        return millis;
+    }
+
+    public static String format( final Date value )
+    {
+        return format( value.getTime() );
+    }
+
+    /**
+     * Format the instant as yyyyMMddTHHmmss in the default time zone.
+     */
+    public static String format( final long epochMillis )
+    {
+        TimeZone zone = TimeZone.getDefault();
+        long local = epochMillis + zone.getOffset( epochMillis );
+        long day = Math.floorDiv( local, MILLIS_PER_DAY );
+        int secondOfDay = (int) ( Math.floorMod( local, MILLIS_PER_DAY ) / 1000 );
+
+        // civil date of an epoch day, see daysFromCivil
+        long z = day + 719468;
+        long era = Math.floorDiv( z, 146097 );
+        int doe = (int) ( z - era * 146097 );
+        int yoe = ( doe - doe / 1460 + doe / 36524 - doe / 146096 ) / 365;
+        int doy = doe - ( 365 * yoe + yoe / 4 - yoe / 100 );
+        int mp = ( 5 * doy + 2 ) / 153;
+        int dayOfMonth = doy - ( 153 * mp + 2 ) / 5 + 1;
+        int month = mp < 10 ? mp + 3 : mp - 9;
+        long year = yoe + era * 400 + ( month <= 2 ? 1 : 0 );
+
+        if ( year <= 1582 || year > 9999 )
+        {
+            SimpleDateFormat format = new SimpleDateFormat( DATETIME_FORMAT[0] );
+            format.setTimeZone( zone );
+            return format.format( new Date( epochMillis ) );
+        }
+        return format( (int) year, month, dayOfMonth, secondOfDay / 3600, secondOfDay / 60 % 60, secondOfDay % 60 );
+    }
+
+    public static String format( final Instant value )
+    {
+        return format( value.toEpochMilli() );
+    }
+
+    /**
+     * Format the local date and time as it is, yyyyMMddTHHmmss.
+     */
+    public static String format( final LocalDateTime value )
+    {
+        if ( value.getYear() < 0 || value.getYear() > 9999 )
+        {
+            return format( value.atZone( ZoneId.systemDefault() ).toInstant() );
+        }
+        return format( value.getYear(), value.getMonthValue(), value.getDayOfMonth(), value.getHour(),
+                       value.getMinute(), value.getSecond() );
+    }
+
+    /**
+     * Convert a parsed dateTime.iso8601 value for an Instant field.
+     *
+     * @throws ClassCastException if the value is not a date
+     */
+    public static Instant toInstant( final Object value )
+    {
+        if ( value instanceof Instant )
+        {
+            return (Instant) value;
+        }
+        else if ( value instanceof Date )
+        {
+            return Instant.ofEpochMilli( ( (Date) value ).getTime() );
+        }
+        throw new ClassCastException( "Can not cast " + value.getClass() + " to Instant" );
+    }
+
+    /**
+     * Convert a parsed dateTime.iso8601 value for a LocalDateTime field, in the default time zone.
+     *
+     * @throws ClassCastException if the value is not a date
+     */
+    public static LocalDateTime toLocalDateTime( final Object value )
+    {
+        if ( value instanceof LocalDateTime )
+        {
+            return (LocalDateTime) value;
+        }
+        else if ( value instanceof Date )
+        {
+            return LocalDateTime.ofInstant( toInstant( value ), ZoneId.systemDefault() );
+        }
+        throw new ClassCastException( "Can not cast " + value.getClass() + " to LocalDateTime" );
+    }
+
+    /**
+     * @return epoch millis, or NOT_DECODED if the text is not in one of the hand decoded formats
+     */
+    private static long decode( final String text, final TimeZone zone )
+    {
+        int n = text.length();
+        int length; // of date and time, without the zone
+        boolean extended = n > 4 && text.charAt( 4 ) == '-';
+        if ( extended )
+        {
+            length = 19;
+        }
+        else
+        {
+            length = n > 11 && text.charAt( 11 ) == ':' ? 17 : 15;
+        }
+        if ( n < length )
+        {
+            return NOT_DECODED;
+        }
+
+        int year;
+        int month;
+        int day;
+        int hour;
+        int minute;
+        int second;
+        switch ( length )
+        {
+            case 15:
+                year = digits( text, 0, 4 );
+                month = digits( text, 4, 2 );
+                day = digits( text, 6, 2 );
+                hour = text.charAt( 8 ) == 'T' ? digits( text, 9, 2 ) : -1;
+                minute = digits( text, 11, 2 );
+                second = digits( text, 13, 2 );
+                break;
+            case 17:
+                year = digits( text, 0, 4 );
+                month = digits( text, 4, 2 );
+                day = digits( text, 6, 2 );
+                hour = text.charAt( 8 ) == 'T' ? digits( text, 9, 2 ) : -1;
+                minute = text.charAt( 14 ) == ':' ? digits( text, 12, 2 ) : -1;
+                second = digits( text, 15, 2 );
+                break;
+            default:
+                year = digits( text, 0, 4 );
+                month = text.charAt( 7 ) == '-' ? digits( text, 5, 2 ) : -1;
+                day = digits( text, 8, 2 );
+                hour = text.charAt( 10 ) == 'T' ? digits( text, 11, 2 ) : -1;
+                minute = text.charAt( 13 ) == ':' ? digits( text, 14, 2 ) : -1;
+                second = text.charAt( 16 ) == ':' ? digits( text, 17, 2 ) : -1;
+        }
+
+        // GregorianCalendar switches to the Julian calendar before 1583, leave those to it
+        if ( year <= 1582 || month < 1 || month > 12 || day < 1 || day > daysInMonth( year, month ) || hour < 0
+                        || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59 )
+        {
+            return NOT_DECODED;
+        }
+
+        long local = daysFromCivil( year, month, day ) * MILLIS_PER_DAY + ( hour * 3600 + minute * 60 + second ) * 1000L;
+        int offset = offset( text, length );
+        if ( offset == Integer.MIN_VALUE )
+        {
+            return NOT_DECODED;
+        }
+        else if ( offset == Integer.MAX_VALUE )
+        {
+            // no zone: find the offset in effect at the local time, as GregorianCalendar does
+            int standard = zone.getOffset( local - zone.getRawOffset() );
+            return local - zone.getOffset( local - standard );
+        }
+        return local - offset;
+    }
+
+    /**
+     * @return offset of the zone designator after the date and time in millis, Integer.MAX_VALUE if there is none or
+     * Integer.MIN_VALUE if it is invalid
+     */
+    private static int offset( final String text, final int start )
+    {
+        int n = text.length() - start;
+        if ( n == 0 )
+        {
+            return Integer.MAX_VALUE;
+        }
+
+        char sign = text.charAt( start );
+        if ( n == 1 && sign == 'Z' )
+        {
+            return 0;
+        }
+        else if ( sign != '+' && sign != '-' )
+        {
+            return Integer.MIN_VALUE;
+        }
+
+        int hours = digits( text, start + 1, 2 );
+        int minutes;
+        switch ( n )
+        {
+            case 3:
+                minutes = 0;
+                break;
+            case 5:
+                minutes = digits( text, start + 3, 2 );
+                break;
+            case 6:
+                minutes = text.charAt( start + 3 ) == ':' ? digits( text, start + 4, 2 ) : -1;
+                break;
+            default:
+                return Integer.MIN_VALUE;
+        }
+        if ( hours < 0 || hours > 18 || minutes < 0 || minutes > 59 )
+        {
+            return Integer.MIN_VALUE;
+        }
+        int offset = ( hours * 60 + minutes ) * 60000;
+        return sign == '-' ? -offset : offset;
+    }
+
+    private static long parseLenient( final String text, final TimeZone zone ) throws CoercionException
+    {
+        ParseException exception = null;
+        for ( String format : DATETIME_FORMAT )
+        {
+            try
+            {
+                SimpleDateFormat dateFormat = new SimpleDateFormat( format );
+                dateFormat.setTimeZone( zone );
+                return dateFormat.parse( text ).getTime();
+            }
+            catch ( final ParseException e )
+            {
+                exception = e;
+            }
+        }
+        throw new CoercionException( "Cannot parse date: '" + text + "'.", exception );
+    }
+
+    private static String format( final int year, final int month, final int day, final int hour, final int minute,
+                                  final int second )
+    {
+        char[] chars = new char[15];
+        put( chars, 0, year, 4 );
+        put( chars, 4, month, 2 );
+        put( chars, 6, day, 2 );
+        chars[8] = 'T';
+        put( chars, 9, hour, 2 );
+        put( chars, 11, minute, 2 );
+        put( chars, 13, second, 2 );
+        return new String( chars );
+    }
+
+    private static void put( final char[] chars, final int start, int value, final int count )
+    {
+        for ( int i = start + count - 1; i >= start; i-- )
+        {
+            chars[i] = (char) ( '0' + value % 10 );
+            value /= 10;
+        }
+    }
+
+    /**
+     * @return value of count ASCII digits at start, -1 if any is not a digit
+     */
+    private static int digits( final String text, final int start, final int count )
+    {
+        int value = 0;
+        for ( int i = start; i < start + count; i++ )
+        {
+            int d = text.charAt( i ) - '0';
+            if ( d < 0 || d > 9 )
+            {
+                return -1;
+            }
+            value = value * 10 + d;
+        }
+        return value;
+    }
+
+    private static int daysInMonth( final int year, final int month )
+    {
+        switch ( month )
+        {
+            case 2:
+                return year % 4 == 0 && ( year % 100 != 0 || year % 400 == 0 ) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * @return days since 1970-01-01 of a proleptic Gregorian date (H. Hinnant's algorithm)
+     */
+    private static long daysFromCivil( int year, final int month, final int day )
+    {
+        year -= month <= 2 ? 1 : 0;
+        int era = ( year >= 0 ? year : year - 399 ) / 400;
+        int yoe = year - era * 400;
+        int doy = ( 153 * ( month > 2 ? month - 3 : month + 9 ) + 2 ) / 5 + day - 1;
+        int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097L + doe - 719468;
+    }
+
+    private static final class Decoded
+    {
+        private final String text;
+
+        private final String zone;
+
+        private final long epochMillis;
+
+        private Decoded( final String text, final String zone, final long epochMillis )
+        {
+            this.text = text;
+            this.zone = zone;
+            this.epochMillis = epochMillis;
+        }
+    }
+}
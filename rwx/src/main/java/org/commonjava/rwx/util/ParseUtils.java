@@ -15,10 +15,26 @@
  */
 package org.commonjava.rwx.util;
 
+import org.commonjava.rwx.core.StringCache;
+import org.commonjava.rwx.error.XmlRpcException;
+import org.commonjava.rwx.model.BinaryValue;
+import org.commonjava.rwx.model.DoubleList;
+import org.commonjava.rwx.model.IntList;
+import org.commonjava.rwx.model.LongList;
 import org.commonjava.rwx.vocab.Nil;
 import org.commonjava.rwx.vocab.ValueType;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -41,7 +57,32 @@ public class ParseUtils
     }
 
     /**
-     * Upgrade cast, e.g., Int to Long.
+     * Take a String value, or the Strings of a List value, from the cache; generated parsers call it for fields
+     * annotated with {@link org.commonjava.rwx.anno.Intern}.
+     */
+    public static Object intern( Object value, StringCache cache )
+    {
+        if ( value instanceof String )
+        {
+            return cache.intern( (String) value );
+        }
+        else if ( value instanceof List )
+        {
+            List<?> list = (List<?>) value;
+            List<Object> ret = new ArrayList<>( list.size() );
+            for ( Object element : list )
+            {
+                ret.add( element instanceof String ? cache.intern( (String) element ) : element );
+            }
+            return ret;
+        }
+        return value;
+    }
+
+    /**
+     * Upgrade cast, e.g., Int to Long, a dateTime.iso8601 Date to Instant, LocalDateTime or epoch millis, a base64
+     * value to byte[], InputStream or Path, or an array of numbers to int[], long[], double[], IntList, LongList or
+     * DoubleList.
      *
      * @param clazz target type
      * @param value object to be casted
@@ -50,10 +91,139 @@ public class ParseUtils
      */
     public static Object upgradeCast( Class clazz, Object value )
     {
+        if ( clazz == Instant.class )
+        {
+            return DateTimeCodec.toInstant( value );
+        }
+        else if ( clazz == LocalDateTime.class )
+        {
+            return DateTimeCodec.toLocalDateTime( value );
+        }
+        else if ( clazz == InputStream.class || clazz == Path.class )
+        {
+            BinaryValue binary = toBinaryValue( value );
+            try
+            {
+                return clazz == InputStream.class ? binary.openStream() : binary.getPath();
+            }
+            catch ( IOException e )
+            {
+                throw new UncheckedIOException( e );
+            }
+        }
+        else if ( clazz == int[].class || clazz == long[].class || clazz == double[].class || clazz == IntList.class
+                        || clazz == LongList.class || clazz == DoubleList.class )
+        {
+            return toPrimitiveArray( clazz, value );
+        }
         ValueType type = ValueType.typeFor( wrap( clazz ) );
         return type.coercion().upgradeCast( value );
     }
 
+    /**
+     * Copy a parsed array of numbers into int[], long[], double[] or the matching primitive list.
+     */
+    private static Object toPrimitiveArray( Class clazz, Object value )
+    {
+        if ( clazz.isInstance( value ) )
+        {
+            return value;
+        }
+
+        List<?> list = (List<?>) value;
+        int size = list.size();
+        if ( clazz == int[].class )
+        {
+            int[] array = new int[size];
+            for ( int i = 0; i < size; i++ )
+            {
+                array[i] = ( (Number) list.get( i ) ).intValue();
+            }
+            return array;
+        }
+        else if ( clazz == long[].class )
+        {
+            long[] array = new long[size];
+            for ( int i = 0; i < size; i++ )
+            {
+                array[i] = ( (Number) list.get( i ) ).longValue();
+            }
+            return array;
+        }
+        else if ( clazz == double[].class )
+        {
+            double[] array = new double[size];
+            for ( int i = 0; i < size; i++ )
+            {
+                array[i] = ( (Number) list.get( i ) ).doubleValue();
+            }
+            return array;
+        }
+        else if ( clazz == IntList.class )
+        {
+            IntList ret = new IntList( size );
+            for ( Object element : list )
+            {
+                ret.add( ( (Number) element ).intValue() );
+            }
+            return ret;
+        }
+        else if ( clazz == LongList.class )
+        {
+            LongList ret = new LongList( size );
+            for ( Object element : list )
+            {
+                ret.add( ( (Number) element ).longValue() );
+            }
+            return ret;
+        }
+        else if ( clazz == DoubleList.class )
+        {
+            DoubleList ret = new DoubleList( size );
+            for ( Object element : list )
+            {
+                ret.add( ( (Number) element ).doubleValue() );
+            }
+            return ret;
+        }
+        throw new ClassCastException( "Can not cast " + value.getClass() + " to " + clazz );
+    }
+
+    private static BinaryValue toBinaryValue( Object value )
+    {
+        if ( value instanceof BinaryValue )
+        {
+            return (BinaryValue) value;
+        }
+        else if ( value instanceof byte[] )
+        {
+            return new BinaryValue( (byte[]) value );
+        }
+        throw new ClassCastException( "Can not cast " + value.getClass() + " to a binary value" );
+    }
+
+    /**
+     * Map the whole file read-only. The mapping stays valid after the channel is closed.
+     *
+     * @throws XmlRpcException if the file is larger than a buffer can map (2 GB)
+     */
+    public static MappedByteBuffer map( FileChannel channel ) throws XmlRpcException
+    {
+        try
+        {
+            long size = channel.size();
+            if ( size > Integer.MAX_VALUE )
+            {
+                throw new XmlRpcException( "File too large to map: " + size + " bytes" );
+            }
+            return channel.map( FileChannel.MapMode.READ_ONLY, 0, size );
+        }
+        catch ( IOException e )
+        {
+            throw new XmlRpcException( "Failed to map file: " + e.getMessage(), e );
+        }
+    }
+
     private static <T> Class<T> wrap( Class<T> c )
     {
         return c.isPrimitive() ? (Class<T>) PRIMITIVES_TO_WRAPPERS.get( c ) : c;
@@ -181,6 +181,14 @@ public class ProcessorUtils
         return packageName + "." + GENERATED + "." + simpleClassName + "_Parser";
     }
 
+    public static String getStreamParserClassName( String type )
+    {
+        String[] split = getPackageAndClassName( type );
+        String packageName = split[0];
+        String simpleClassName = split[1];
+        return packageName + "." + GENERATED + "." + simpleClassName + "_StreamParser";
+    }
+
     public static String getRendererClassName( String type )
     {
         String[] split = getPackageAndClassName( type );
@@ -25,7 +25,10 @@ import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
 import java.io.StringWriter;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 import static org.apache.commons.lang.StringUtils.isNotBlank;
@@ -175,6 +178,10 @@ public class RenderUtils
         {
             writeStruct( w, (Map) object );
         }
+        else if ( object instanceof int[] || object instanceof long[] || object instanceof double[] )
+        {
+            writePrimitiveArray( w, object );
+        }
         else
         {
             writePrimitive( w, object );
@@ -183,6 +190,47 @@ public class RenderUtils
         w.writeEndElement();
     }
 
+    private static void writePrimitiveArray( XMLStreamWriter w, Object array ) throws XMLStreamException
+    {
+        w.writeStartElement( ARRAY );
+        w.writeStartElement( DATA );
+        if ( array instanceof int[] )
+        {
+            for ( int value : (int[]) array )
+            {
+                writeNumber( w, ValueType.INT, String.valueOf( value ) );
+            }
+        }
+        else if ( array instanceof long[] )
+        {
+            for ( long value : (long[]) array )
+            {
+                writeNumber( w, ValueType.LONG, String.valueOf( value ) );
+            }
+        }
+        else
+        {
+            // plain notation, as ValueType.DOUBLE renders a single double
+            DecimalFormat df = new DecimalFormat( "0", DecimalFormatSymbols.getInstance( Locale.ENGLISH ) );
+            df.setMaximumFractionDigits( 340 );
+            for ( double value : (double[]) array )
+            {
+                writeNumber( w, ValueType.DOUBLE, df.format( value ) );
+            }
+        }
+        w.writeEndElement();
+        w.writeEndElement();
+    }
+
+    private static void writeNumber( XMLStreamWriter w, ValueType type, String text ) throws XMLStreamException
+    {
+        w.writeStartElement( VALUE );
+        w.writeStartElement( type.getPrimaryTag() );
+        w.writeCharacters( text );
+        w.writeEndElement();
+        w.writeEndElement();
+    }
+
     private static void writeArray( XMLStreamWriter w, List<Object> objects )
                     throws XMLStreamException, CoercionException
     {
@@ -16,13 +16,21 @@
 package org.commonjava.rwx.vocab;
 
 import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.io.IOUtils;
 import org.commonjava.rwx.error.CoercionException;
+import org.commonjava.rwx.model.BinaryValue;
+import org.commonjava.rwx.util.DateTimeCodec;
 import org.commonjava.rwx.util.ValueCoercion;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.LocalDateTime;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
@@ -119,6 +127,10 @@ public enum ValueType
             {
                 return new Long( (Integer) value );
             }
+            else if ( value instanceof Date )
+            {
+                return ( (Date) value ).getTime(); // epoch millis of a dateTime.iso8601
+            }
             throw new ClassCastException( "Can not cast " + value.getClass() + " to Long" );
         }
     }, Long.class, "i8" ),
@@ -203,48 +215,31 @@ public enum ValueType
     DATETIME( new ValueCoercion( "DATETIME-to-String (" + DATETIME_FORMAT + ")" )
     {
         @Override
-        public Object fromString( String value ) throws CoercionException
+        public Object fromString( final String value ) throws CoercionException
+        {
+            return value == null ? null : DateTimeCodec.parse( value );
+        }
+
+        @Override
+        public String toString( final Object value ) throws CoercionException
         {
             if ( value == null )
             {
                 return null;
             }
-            value = value.trim();
-            Date obj = null;
-            ParseException exception = null;
-            for ( String format : DATETIME_FORMAT )
+            else if ( value instanceof Date )
             {
-                try
-                {
-                    obj = new SimpleDateFormat( format ).parse( value );
-                    break;
-                }
-                catch ( final ParseException e )
-                {
-                    exception = e;
-                }
+                return DateTimeCodec.format( (Date) value );
             }
-            if ( obj != null )
+            else if ( value instanceof Instant )
             {
-                return obj;
+                return DateTimeCodec.format( (Instant) value );
             }
-            else
+            else if ( value instanceof LocalDateTime )
             {
-                throw new CoercionException( "Cannot parse date: '" + value + "'.", exception );
-            }
-        }
-
-        @Override
-        public String toString( final Object value ) throws CoercionException
-        {
-            try
-            {
-                return value == null ? null : new SimpleDateFormat( DATETIME_FORMAT[0] ).format( (Date) value );
-            }
-            catch ( final ClassCastException e )
-            {
-                throw new CoercionException( "Not a java.util.Date.", e );
+                return DateTimeCodec.format( (LocalDateTime) value );
             }
+            throw new CoercionException( "Not a java.util.Date, Instant or LocalDateTime." );
         }
 
     }, Date.class, "dateTime.iso8601" ),
@@ -273,16 +268,57 @@ public enum ValueType
         {
             try
             {
-                return value == null ?
-                                null :
-                                new String( Base64.encodeBase64( value instanceof String ?
-                                                                                 ( (String) value ).getBytes() :
-                                                                                 (byte[]) value ) );
+                return value == null ? null : new String( Base64.encodeBase64( toBytes( value ) ) );
             }
             catch ( final ClassCastException e )
             {
                 throw new CoercionException( "Not a byte array.", e );
             }
+            catch ( final IOException e )
+            {
+                throw new CoercionException( "Failed to read binary value: " + e.getMessage(), e );
+            }
+        }
+
+        /**
+         * If the value is a BinaryValue, read it for a byte[] field and close it, deleting its temporary file
+         */
+        @Override
+        public Object upgradeCast( final Object value )
+        {
+            if ( !( value instanceof BinaryValue ) )
+            {
+                return value;
+            }
+            try (BinaryValue binary = (BinaryValue) value)
+            {
+                return binary.getBytes();
+            }
+            catch ( final IOException e )
+            {
+                throw new UncheckedIOException( e );
+            }
+        }
+
+        private byte[] toBytes( final Object value ) throws IOException
+        {
+            if ( value instanceof String )
+            {
+                return ( (String) value ).getBytes();
+            }
+            else if ( value instanceof BinaryValue )
+            {
+                return ( (BinaryValue) value ).getBytes();
+            }
+            else if ( value instanceof InputStream )
+            {
+                return IOUtils.toByteArray( (InputStream) value );
+            }
+            else if ( value instanceof Path )
+            {
+                return Files.readAllBytes( (Path) value );
+            }
+            return (byte[]) value;
         }
 
     }, byte[].class, "base64" ),;
@@ -310,6 +346,11 @@ public enum ValueType
         return tags[0];
     }
 
+    public String[] getTags()
+    {
+        return tags.clone();
+    }
+
     public static ValueType safeTypeFor( final Object value )
     {
         final ValueType type = typeFor( value );
@@ -349,6 +390,15 @@ public enum ValueType
                     break;
                 }
             }
+            if ( result == null && ( cls == Instant.class || cls == LocalDateTime.class ) )
+            {
+                result = DATETIME;
+            }
+            else if ( result == null && ( BinaryValue.class.isAssignableFrom( cls )
+                            || InputStream.class.isAssignableFrom( cls ) || Path.class.isAssignableFrom( cls ) ) )
+            {
+                result = BASE64;
+            }
         }
 
         return result;
@@ -1,10 +1,12 @@
 package ${parserPackageName};
 
 import org.commonjava.rwx.core.Parser;
+import org.commonjava.rwx.core.StringCache;
 import org.commonjava.rwx.model.RpcObject;
 import static org.commonjava.rwx.util.ParseUtils.nullifyNil;
 import static org.commonjava.rwx.util.ParseUtils.isNil;
 import static org.commonjava.rwx.util.ParseUtils.upgradeCast;
+import static org.commonjava.rwx.util.ParseUtils.intern;
 
 import ${qName};
 
@@ -20,6 +22,22 @@ public class ${simpleClassName}_Parser implements Parser<${simpleClassName}>
     @Override
     public ${simpleClassName} parse( Object object )
     {
+        return parse( object, null );
+    }
+
+    @Override
+    public ${simpleClassName} parse( Object object, StringCache stringCache )
+    {
+        if ( object instanceof ${simpleClassName} )
+        {
+            return (${simpleClassName}) object; // bound already, e.g. by a parallel parse
+        }
+
+        if ( stringCache == null )
+        {
+            stringCache = StringCache.forParse();
+        }
+
         ${simpleClassName} ret = new ${simpleClassName}();
         Object val;
 
@@ -33,17 +51,17 @@ public class ${simpleClassName}_Parser implements Parser<${simpleClassName}>
             <% if (it.converter != null) { %>
             ret.${it.methodName}( new ${it.converter}().parse( val ) );
             <% } else if (it.actionClass == null) { %>
-            <% if (it.isPrimitive) { %>if ( val != null ) <% } %>ret.${it.methodName}( (${it.type}) <% if (it.isUpgradeCast) { %>upgradeCast( ${it.type}.class, val )<% } else { %>val<% } %> );
+            <% if (it.isPrimitive) { %>if ( val != null ) <% } %>ret.${it.methodName}( (${it.type}) <% if (it.intern) { %>intern( val, stringCache )<% } else if (it.isUpgradeCast) { %>upgradeCast( ${it.type}.class, val )<% } else { %>val<% } %> );
             <% } else { %>
                 <% if (it.contains) { %>
-            List<${it.elementClass}> ${it.localListVariableName} = new ArrayList<>();
+            List<${it.elementClass}> ${it.localListVariableName} = new ArrayList<>( ( (List<Object>) val ).size() );
             for ( Object obj : ( List<Object> ) val )
             {
-                ${it.localListVariableName}.add( new ${it.actionClass}().parse( obj ) );
+                ${it.localListVariableName}.add( new ${it.actionClass}().parse( obj, stringCache ) );
             }
             ret.${it.methodName}( ${it.localListVariableName} );
                 <% } else { %>
-            ret.${it.methodName}( new ${it.actionClass}().parse( val ) );
+            ret.${it.methodName}( new ${it.actionClass}().parse( val, stringCache ) );
                 <% } %>
             <% } %>
         }
@@ -61,17 +79,17 @@ public class ${simpleClassName}_Parser implements Parser<${simpleClassName}>
             <% if (it.converter != null) { %>
             ret.${it.methodName}( new ${it.converter}().parse( val ) );
             <% } else if (it.actionClass == null) { %>
-            ret.${it.methodName}( (${it.type}) <% if (it.isUpgradeCast) { %>upgradeCast( ${it.type}.class, val )<% } else { %>val<% } %> );
+            ret.${it.methodName}( (${it.type}) <% if (it.intern) { %>intern( val, stringCache )<% } else if (it.isUpgradeCast) { %>upgradeCast( ${it.type}.class, val )<% } else { %>val<% } %> );
             <% } else { %>
                 <% if (it.contains) { %>
-            List<${it.elementClass}> ${it.localListVariableName} = new ArrayList<>();
+            List<${it.elementClass}> ${it.localListVariableName} = new ArrayList<>( ( (List<Object>) val ).size() );
             for ( Object obj : ( List<Object> ) val )
             {
-                ${it.localListVariableName}.add( new ${it.actionClass}().parse( obj ) );
+                ${it.localListVariableName}.add( new ${it.actionClass}().parse( obj, stringCache ) );
             }
             ret.${it.methodName}( ${it.localListVariableName} );
                 <% } else { %>
-            ret.${it.methodName}( new ${it.actionClass}().parse( val ) );
+            ret.${it.methodName}( new ${it.actionClass}().parse( val, stringCache ) );
                 <% } %>
             <% } %>
         }
@@ -18,6 +18,13 @@ public class ${registrySimpleClassName}
         setRenderer( ${it}.class, new ${it}_Renderer() );
         setParser( ${it}.class, new ${it}_Parser() );
         <% } %>
+        <% streamableClasses.each { %>
+        setStreamParser( ${it}.class, new ${it}_StreamParser() );
+        <% } %>
+        <% bindings.each { %><% if (it.structPart) { %>
+        setStructKeys( ${it.className}.class, new String[] { ${it.keys} }, new Class[] { ${it.types} } );<% } else { %>
+        setIndexTypes( ${it.className}.class, new Class[] { ${it.types} } );<% if (it.lists != null) { %>
+        setIndexLists( ${it.className}.class, new boolean[] { ${it.lists} } );<% } %><% } %><% } %>
     }
 
 }
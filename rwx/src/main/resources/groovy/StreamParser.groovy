@@ -0,0 +1,146 @@
+package ${parserPackageName};
+
+import org.commonjava.rwx.core.StreamParser;
+import org.commonjava.rwx.core.XmlRpcParser;
+import org.commonjava.rwx.error.XmlRpcException;
+import static org.commonjava.rwx.util.ParseUtils.nullifyNil;
+import static org.commonjava.rwx.util.ParseUtils.isNil;
+import static org.commonjava.rwx.util.ParseUtils.upgradeCast;
+import static org.commonjava.rwx.util.ParseUtils.intern;
+
+import ${qName};
+
+import java.util.List;
+import java.util.ArrayList;
+
+/**
+ * Created by RWX AnnoProcessor.
+ */
+public class ${simpleClassName}_StreamParser implements StreamParser<${simpleClassName}>
+{
+    @Override
+    public ${simpleClassName} parse( XmlRpcParser parser ) throws XmlRpcException
+    {
+        <% def bindValue = { it -> %>
+            <% if (it.actionClass != null && !it.actionConverter) { %>
+                <% if (it.contains) { %>
+                    if ( parser.beginArray() )
+                    {
+                        List<${it.elementClass}> ${it.localListVariableName} = parser.newList();
+                        while ( parser.nextValue() )
+                        {
+                            ${it.localListVariableName}.add( new ${it.actionClass}().parse( parser ) );
+                        }
+                        parser.endArray();
+                        parser.recordSize( ${it.localListVariableName}.size() );
+                        ret.${it.methodName}( ${it.localListVariableName} );
+                    }
+                <% } else { %>
+                    ${it.type} value = new ${it.actionClass}().parse( parser );
+                    if ( value != null )
+                    {
+                        ret.${it.methodName}( value );
+                    }
+                <% } %>
+            <% } else if (it.converter == null && it.actionClass == null && it.primitiveElement != null) { %>
+                    org.commonjava.rwx.model.${it.primitiveElement}List values = parser.read${it.primitiveElement}List();
+                    if ( values != null )
+                    {
+                        ret.${it.methodName}( values<% if (it.primitiveArray) { %>.to${it.primitiveElement}Array()<% } %> );
+                    }
+            <% } else if (it.converter == null && it.actionClass == null && it.primitiveGetter != null) { %>
+                    if ( parser.readPrimitive() )
+                    {
+                        ret.${it.methodName}( parser.${it.primitiveGetter}() );
+                    }
+            <% } else { %>
+                    val = parser.readValue();
+                <% if (structPart == true) { %>
+                    if ( val != null )
+                    {
+                        val = nullifyNil( val );
+                <% } else { %>
+                    if ( val != null && !isNil( val ) )
+                    {
+                <% } %>
+                <% if (it.converter != null) { %>
+                        ret.${it.methodName}( new ${it.converter}().parse( val ) );
+                <% } else if (it.actionClass == null) { %>
+                        <% if (it.isPrimitive) { %>if ( val != null ) <% } %>ret.${it.methodName}( (${it.type}) <% if (it.intern) { %>intern( val, parser.getInternCache() )<% } else if (it.isUpgradeCast) { %>upgradeCast( ${it.type}.class, val )<% } else { %>val<% } %> );
+                <% } else if (!it.contains) { %>
+                        ret.${it.methodName}( new ${it.actionClass}().parse( val, parser.getInternCache() ) );
+                <% } else { %>
+                        List<${it.elementClass}> ${it.localListVariableName} = new ArrayList<>( ( (List<Object>) val ).size() );
+                        for ( Object obj : ( List<Object> ) val )
+                        {
+                            ${it.localListVariableName}.add( new ${it.actionClass}().parse( obj, parser.getInternCache() ) );
+                        }
+                        ret.${it.methodName}( ${it.localListVariableName} );
+                <% } %>
+                    }
+            <% } %>
+        <% } %>
+        <% if (structPart == true) { %>
+        if ( !parser.beginStruct() )
+        {
+            return null;
+        }
+
+        ${simpleClassName} ret = new ${simpleClassName}();
+        Object val;
+        String key;
+        while ( ( key = parser.nextMember() ) != null )
+        {
+            switch ( key )
+            {
+            <% params.each { %>
+                case "${it.key}":
+                {
+                    <% bindValue( it ) %>
+                    break;
+                }
+            <% } %>
+                default:
+                    parser.skipValue();
+            }
+        }
+        parser.endStruct();
+        <% } else { %>
+        <% if (arrayPart == true) { %>
+        if ( !parser.beginArray() )
+        {
+            return null;
+        }
+
+        ${simpleClassName} ret = new ${simpleClassName}();
+        <% } else { %>
+        ${simpleClassName} ret = new ${simpleClassName}();
+        if ( !parser.beginParams() )
+        {
+            return ret;
+        }
+        <% } %>
+        Object val;
+        int index = 0;
+        while ( parser.nextValue() )
+        {
+            switch ( index++ )
+            {
+            <% params.eachWithIndex { it, idx -> %>
+                case ${idx}:
+                {
+                    <% bindValue( it ) %>
+                    break;
+                }
+            <% } %>
+                default:
+                    parser.skipValue();
+            }
+        }
+        <% if (arrayPart == true) { %>
+        parser.endArray();
+        <% } %>
+        <% } %>
+        return ret;
+    }
+}
@@ -0,0 +1,158 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.core;
+
+import org.apache.commons.codec.binary.Base64;
+import org.commonjava.rwx.error.CoercionException;
+import org.commonjava.rwx.error.XmlRpcException;
+import org.commonjava.rwx.model.BinaryValue;
+import org.commonjava.rwx.model.RpcObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertNull;
+import static junit.framework.TestCase.assertTrue;
+import static junit.framework.TestCase.fail;
+
+public class BinaryHandlerTest
+{
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void decodeInChunks() throws Exception
+    {
+        Random random = new Random( 17 );
+        Base64Decoder decoder = new Base64Decoder();
+        for ( int length = 0; length < 300; length++ )
+        {
+            byte[] bytes = new byte[length];
+            random.nextBytes( bytes );
+            char[] text = new String( Base64.encodeBase64Chunked( bytes ), StandardCharsets.US_ASCII ).toCharArray();
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            decoder.reset( out );
+            for ( int i = 0; i < text.length; )
+            {
+                int n = Math.min( text.length - i, 1 + random.nextInt( 10 ) );
+                decoder.decode( text, i, n );
+                i += n;
+            }
+            assertEquals( length, decoder.finish() );
+            assertTrue( "length " + length, Arrays.equals( bytes, out.toByteArray() ) );
+        }
+    }
+
+    @Test
+    public void urlSafeAndUnpadded() throws Exception
+    {
+        byte[] bytes = { (byte) 0xfb, (byte) 0xff, (byte) 0xbf, 0x01 };
+        assertDecoded( bytes, "-_-_AQ" );
+        assertDecoded( bytes, "+/+/AQ==" );
+    }
+
+    @Test( expected = CoercionException.class )
+    public void invalidInput() throws Exception
+    {
+        assertDecoded( new byte[0], "@@@@" );
+    }
+
+    @Test
+    public void spillLargeValues() throws Exception
+    {
+        byte[] small = new byte[100];
+        byte[] large = new byte[100000];
+        new Random( 3 ).nextBytes( large );
+        String xml = "<methodResponse><params>" + param( small ) + param( large )
+                        + "<param><value><base64></base64></value></param></params></methodResponse>";
+        byte[] doc = xml.getBytes( StandardCharsets.UTF_8 );
+        BinaryHandler handler = new SpillingBinaryHandler( 1000, temp.getRoot().toPath() );
+
+        XmlRpcParser staxParser = new XmlRpcParser();
+        staxParser.setBinaryHandler( handler );
+        assertSpilled( small, large, staxParser.reset( doc ).parse() );
+
+        XmlRpcByteParser byteParser = new XmlRpcByteParser();
+        byteParser.setBinaryHandler( handler );
+        assertSpilled( small, large, byteParser.parse( doc ) );
+
+        byteParser.setLazy( true );
+        assertSpilled( small, large, byteParser.parse( doc ) );
+
+        assertEquals( 0, temp.getRoot().list().length );
+    }
+
+    @Test
+    public void failedParseDeletesFile() throws Exception
+    {
+        byte[] large = new byte[10000];
+
+        XmlRpcByteParser parser = new XmlRpcByteParser();
+        parser.setBinaryHandler( new SpillingBinaryHandler( 1000, temp.getRoot().toPath() ) );
+        try
+        {
+            parser.parse( ( "<methodResponse><params><param><value><base64>"
+                            + Base64.encodeBase64String( large ) ).getBytes( StandardCharsets.UTF_8 ) );
+            fail( "Expected an incomplete document to fail" );
+        }
+        catch ( XmlRpcException e )
+        {
+            // expected
+        }
+        assertEquals( 0, temp.getRoot().list().length );
+    }
+
+    private void assertSpilled( byte[] small, byte[] large, RpcObject parsed ) throws IOException
+    {
+        BinaryValue smallValue = (BinaryValue) parsed.getParams().get( 0 );
+        BinaryValue largeValue = (BinaryValue) parsed.getParams().get( 1 );
+        assertNull( parsed.getParams().get( 2 ) );
+
+        assertTrue( smallValue.isInMemory() );
+        assertTrue( Arrays.equals( small, smallValue.getBytes() ) );
+
+        assertFalse( largeValue.isInMemory() );
+        assertEquals( large.length, largeValue.size() );
+        assertTrue( Arrays.equals( large, largeValue.getBytes() ) );
+        assertEquals( 1, temp.getRoot().list().length );
+        largeValue.close();
+    }
+
+    private static String param( byte[] bytes )
+    {
+        return "<param><value><base64>" + new String( Base64.encodeBase64Chunked( bytes ), StandardCharsets.US_ASCII )
+                        + "</base64></value></param>";
+    }
+
+    private static void assertDecoded( byte[] expected, String text ) throws Exception
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Base64Decoder decoder = new Base64Decoder();
+        decoder.reset( out );
+        decoder.decode( text.toCharArray(), 0, text.length() );
+        decoder.finish();
+        assertTrue( text, Arrays.equals( expected, out.toByteArray() ) );
+    }
+}
@@ -0,0 +1,125 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.core;
+
+import org.apache.commons.io.IOUtils;
+import org.commonjava.rwx.model.MethodResponse;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertTrue;
+
+public class CompactMapTest
+                extends AbstractTest
+{
+    @Test
+    public void compactMapBehavesAsHashMap()
+    {
+        checkAgainst( new CompactMap<>( 2 ), new HashMap<>(), false );
+    }
+
+    @Test
+    public void compactLinkedMapKeepsInsertionOrder()
+    {
+        checkAgainst( new CompactLinkedMap<>( 2 ), new LinkedHashMap<>(), true );
+    }
+
+    @Test
+    public void parseWithCompactContainers() throws Exception
+    {
+        byte[] xml = IOUtils.toByteArray( getXMLStream( "kojiGetBuildResponse" ) );
+        Map<?, ?> expected = firstParam( new XmlRpcByteParser().parse( xml ) );
+
+        XmlRpcParser stax = new XmlRpcParser();
+        stax.setContainerFactory( new CompactContainerFactory( true, 4, 4 ) );
+        Map<?, ?> ordered = firstParam( stax.reset( xml ).parse() );
+        assertTrue( ordered instanceof CompactLinkedMap );
+        assertEquals( expected, ordered );
+        assertEquals( "package_name", ordered.keySet().iterator().next() );
+
+        XmlRpcByteParser bytes = new XmlRpcByteParser();
+        bytes.setContainerFactory( new CompactContainerFactory() );
+        Map<?, ?> compact = firstParam( bytes.parse( xml ) );
+        assertTrue( compact instanceof CompactMap );
+        assertEquals( expected, compact );
+        assertEquals( expected.hashCode(), compact.hashCode() );
+    }
+
+    private static Map<?, ?> firstParam( Object response )
+    {
+        return (Map<?, ?>) ( (MethodResponse) response ).getParams().get( 0 );
+    }
+
+    private static void checkAgainst( Map<String, Integer> map, Map<String, Integer> reference, boolean ordered )
+    {
+        Random random = new Random( 7 );
+        for ( int i = 0; i < 20000; i++ )
+        {
+            int n = random.nextInt( 40 );
+            String key = n == 0 ? null : "key" + n;
+            switch ( random.nextInt( 10 ) )
+            {
+                case 0:
+                case 1:
+                    assertEquals( reference.remove( key ), map.remove( key ) );
+                    break;
+                case 2:
+                    if ( ordered )
+                    {
+                        assertEquals( new ArrayList<>( reference.keySet() ), new ArrayList<>( map.keySet() ) );
+                    }
+                    Iterator<Map.Entry<String, Integer>> it = map.entrySet().iterator();
+                    while ( it.hasNext() )
+                    {
+                        Map.Entry<String, Integer> entry = it.next();
+                        assertEquals( reference.get( entry.getKey() ), entry.getValue() );
+                        if ( entry.getValue() % 3 == 0 )
+                        {
+                            reference.remove( entry.getKey() );
+                            it.remove();
+                        }
+                    }
+                    break;
+                case 3:
+                    if ( random.nextInt( 50 ) == 0 )
+                    {
+                        map.clear();
+                        reference.clear();
+                    }
+                    break;
+                default:
+                    assertEquals( reference.put( key, i ), map.put( key, i ) );
+            }
+            assertEquals( reference.size(), map.size() );
+            assertEquals( reference.get( key ), map.get( key ) );
+            assertEquals( reference.containsKey( key ), map.containsKey( key ) );
+        }
+        assertEquals( reference, map );
+        assertEquals( map, reference );
+        assertEquals( reference.hashCode(), map.hashCode() );
+        if ( ordered )
+        {
+            assertEquals( new ArrayList<>( reference.keySet() ), new ArrayList<>( map.keySet() ) );
+        }
+    }
+}
@@ -0,0 +1,208 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.core;
+
+import org.apache.commons.lang.StringUtils;
+import org.commonjava.rwx.error.ParseLimitException;
+import org.commonjava.rwx.error.XmlRpcException;
+import org.commonjava.rwx.model.RpcObject;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.fail;
+
+public class ParseLimitsTest
+                extends AbstractTest
+{
+    private static final int NO_LIMIT = Integer.MAX_VALUE;
+
+    @Test
+    public void depth() throws Exception
+    {
+        String xml = response( StringUtils.repeat( "<array><data><value>", 10 ) + "<int>1</int>"
+                                               + StringUtils.repeat( "</value></data></array>", 10 ) );
+
+        // methodResponse, params, param, value and 3 per nesting level, plus the int
+        assertParsed( xml, new ParseLimits( 35, NO_LIMIT, NO_LIMIT, NO_LIMIT ) );
+        assertExceeded( xml, new ParseLimits( 34, NO_LIMIT, NO_LIMIT, NO_LIMIT ), ParseLimitException.DEPTH );
+    }
+
+    @Test
+    public void elements() throws Exception
+    {
+        String xml = response( "<array><data>" + StringUtils.repeat( "<value><int>1</int></value>", 100 )
+                                               + "</data></array>" );
+
+        assertParsed( xml, new ParseLimits( NO_LIMIT, 206, NO_LIMIT, NO_LIMIT ) );
+        assertExceeded( xml, new ParseLimits( NO_LIMIT, 205, NO_LIMIT, NO_LIMIT ), ParseLimitException.ELEMENTS );
+    }
+
+    @Test
+    public void stringLength() throws Exception
+    {
+        String xml = response( "<string>" + StringUtils.repeat( "x", 1000 ) + "</string>" );
+
+        assertParsed( xml, new ParseLimits( NO_LIMIT, NO_LIMIT, 1000, NO_LIMIT ) );
+        assertExceeded( xml, new ParseLimits( NO_LIMIT, NO_LIMIT, 999, NO_LIMIT ), ParseLimitException.STRING_LENGTH );
+    }
+
+    @Test
+    public void stringLengthFailsFast() throws Exception
+    {
+        byte[] head = "<methodResponse><params><param><value><string>".getBytes( StandardCharsets.UTF_8 );
+        for ( StaxProvider provider : StaxProvider.values() )
+        {
+            if ( !provider.isAvailable() )
+            {
+                continue;
+            }
+
+            // an endless text node, reading more than 1MB of it means the text is buffered before the limit is checked
+            InputStream endless = new InputStream()
+            {
+                private long read;
+
+                @Override
+                public int read() throws IOException
+                {
+                    if ( ++read > 1 << 20 )
+                    {
+                        throw new IOException( "Read past the string length limit" );
+                    }
+                    return read <= head.length ? head[(int) read - 1] : 'x';
+                }
+            };
+
+            XmlRpcParser parser = new XmlRpcParser( new StaxFactory( provider ) );
+            parser.setParseLimits( new ParseLimits( NO_LIMIT, NO_LIMIT, 1000, NO_LIMIT ) );
+            assertExceeded( provider.name(), () -> parser.reset( endless ).parse(), ParseLimitException.STRING_LENGTH );
+        }
+    }
+
+    @Test
+    public void bytes() throws Exception
+    {
+        String xml = response( "<string>" + StringUtils.repeat( "x", 10000 ) + "</string>" );
+        int length = xml.getBytes( StandardCharsets.UTF_8 ).length;
+
+        assertParsed( xml, new ParseLimits( NO_LIMIT, NO_LIMIT, NO_LIMIT, length ) );
+        assertExceeded( xml, new ParseLimits( NO_LIMIT, NO_LIMIT, NO_LIMIT, length - 1 ), ParseLimitException.BYTES );
+    }
+
+    @Test
+    public void bytesFed() throws Exception
+    {
+        byte[] bytes = response( "<string>" + StringUtils.repeat( "x", 1000 ) + "</string>" ).getBytes(
+                        StandardCharsets.UTF_8 );
+
+        XmlRpcFeedParser parser = new XmlRpcFeedParser();
+        parser.setParseLimits( new ParseLimits( NO_LIMIT, NO_LIMIT, NO_LIMIT, 500 ) );
+        try
+        {
+            for ( int i = 0; i < bytes.length; i += 100 )
+            {
+                assertFalse( parser.feed( bytes, i, Math.min( 100, bytes.length - i ) ) );
+            }
+            fail( "Expected the bytes limit to be exceeded" );
+        }
+        catch ( ParseLimitException e )
+        {
+            assertEquals( ParseLimitException.BYTES, e.getLimit() );
+            assertEquals( 500, e.getMax() );
+        }
+    }
+
+    @Test
+    public void dtdRejected() throws Exception
+    {
+        String xml = "<!DOCTYPE methodResponse [<!ENTITY x \"xxxxxxxxxx\">]>" + response( "<string>&x;</string>" );
+        ParseLimits limits = new ParseLimits( NO_LIMIT, NO_LIMIT, NO_LIMIT, NO_LIMIT );
+
+        try
+        {
+            staxParser( limits ).reset( new ByteArrayInputStream( xml.getBytes( StandardCharsets.UTF_8 ) ) ).parse();
+            fail( "Expected the DTD to be rejected" );
+        }
+        catch ( XmlRpcException e )
+        {
+            // expected
+        }
+    }
+
+    private static String response( String value )
+    {
+        return "<methodResponse><params><param><value>" + value + "</value></param></params></methodResponse>";
+    }
+
+    private void assertParsed( String xml, ParseLimits limits ) throws Exception
+    {
+        byte[] bytes = xml.getBytes( StandardCharsets.UTF_8 );
+        List<Object> expected = new XmlRpcParser().reset( bytes ).parse().getParams();
+
+        assertEquals( expected, staxParser( limits ).reset( new ByteArrayInputStream( bytes ) ).parse().getParams() );
+        assertEquals( expected, staxParser( limits ).reset( bytes ).parse().getParams() );
+        assertEquals( expected, byteParser( limits ).parse( bytes ).getParams() );
+    }
+
+    private void assertExceeded( String xml, ParseLimits limits, String limit ) throws Exception
+    {
+        byte[] bytes = xml.getBytes( StandardCharsets.UTF_8 );
+
+        assertExceeded( "stax stream", () -> staxParser( limits ).reset( new ByteArrayInputStream( bytes ) ).parse(),
+                        limit );
+        assertExceeded( "stax bytes", () -> staxParser( limits ).reset( bytes ).parse(), limit );
+        assertExceeded( "bytes", () -> byteParser( limits ).parse( bytes ), limit );
+    }
+
+    private void assertExceeded( String engine, Parse parse, String limit ) throws Exception
+    {
+        try
+        {
+            parse.parse();
+            fail( engine + ": expected the " + limit + " limit to be exceeded" );
+        }
+        catch ( ParseLimitException e )
+        {
+            assertEquals( engine, limit, e.getLimit() );
+        }
+    }
+
+    private static XmlRpcParser staxParser( ParseLimits limits )
+    {
+        XmlRpcParser parser = new XmlRpcParser();
+        parser.setParseLimits( limits );
+        return parser;
+    }
+
+    private static XmlRpcByteParser byteParser( ParseLimits limits )
+    {
+        XmlRpcByteParser parser = new XmlRpcByteParser();
+        parser.setParseLimits( limits );
+        return parser;
+    }
+
+    private interface Parse
+    {
+        RpcObject parse() throws Exception;
+    }
+}
@@ -0,0 +1,195 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.core;
+
+import org.commonjava.rwx.error.CoercionException;
+import org.commonjava.rwx.model.MethodResponse;
+import org.commonjava.rwx.vocab.Nil;
+import org.commonjava.rwx.vocab.ValueType;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertSame;
+import static junit.framework.TestCase.assertTrue;
+import static junit.framework.TestCase.fail;
+
+public class PrimitiveDecoderTest
+                extends AbstractTest
+{
+    private static final String[] INPUTS =
+                    { "0", "-0", "+7", " 42\n", "\t-2147483648 ", "2147483647", "2147483648", "-2147483649",
+                                    "00000000000123", "9223372036854775807", "-9223372036854775808",
+                                    "9223372036854775808", "12a", "-", "+", "", "   ", "1.5", "-.25", "5.", ".",
+                                    "1e3", "1.25E-3", "2.5e+10", "1e400", "0e999", "3.141592653589793",
+                                    "0.1000000000000000055511151231257827", "123456789012345678", "NaN",
+                                    "-Infinity", "1.5d", "0x10", "1", "true", "TRUE", "yes", "false", "tRuE" };
+
+    private static final String XML = "<methodResponse><params><param><value><array><data>"
+                    + "<value><int>5</int></value>"
+                    + "<value><i8>-9000000000</i8></value>"
+                    + "<value><i4> 123456 </i4></value>"
+                    + "<value><double>-2.75</double></value>"
+                    + "<value><boolean>1</boolean></value>"
+                    + "<value><int>&#49;2</int></value>"
+                    + "<value><int><![CDATA[77]]></int></value>"
+                    + "<value><int>  </int></value>"
+                    + "<value><boolean></boolean></value>"
+                    + "<value><nil/></value>"
+                    + "<value><string>8</string></value>"
+                    + "</data></array></value></param></params></methodResponse>";
+
+    @Test
+    public void decodeMatchesCoercion() throws Exception
+    {
+        PrimitiveDecoder decoder = new PrimitiveDecoder();
+        for ( ValueType type : new ValueType[] { ValueType.INT, ValueType.LONG, ValueType.DOUBLE, ValueType.BOOLEAN } )
+        {
+            for ( String input : INPUTS )
+            {
+                Object expected;
+                try
+                {
+                    expected = type.coercion().fromString( input );
+                }
+                catch ( CoercionException e )
+                {
+                    expected = e.getClass();
+                }
+
+                decoder.clear();
+                decoder.append( input.toCharArray(), 0, input.length() );
+                Object actual;
+                try
+                {
+                    actual = decoder.decode( type ) ? decoder.getValue( type ) : null;
+                }
+                catch ( CoercionException e )
+                {
+                    actual = e.getClass();
+                }
+                assertEquals( type + " '" + input + "'", expected, actual );
+            }
+        }
+    }
+
+    @Test
+    public void decodeDoublesExactly() throws Exception
+    {
+        PrimitiveDecoder decoder = new PrimitiveDecoder();
+        Random random = new Random( 17 );
+        for ( int i = 0; i < 100000; i++ )
+        {
+            String input;
+            switch ( i % 3 )
+            {
+                case 0:
+                    input = Double.toString( random.nextDouble() * Math.pow( 10, random.nextInt( 30 ) - 15 ) );
+                    break;
+                case 1:
+                    input = ( random.nextLong() % 1000000000000000L ) + "." + random.nextInt( 1000 );
+                    break;
+                default:
+                    input = random.nextInt( 100000 ) + "e" + ( random.nextInt( 40 ) - 20 );
+            }
+
+            decoder.clear();
+            decoder.append( input.toCharArray(), 0, input.length() );
+            assertTrue( decoder.decode( ValueType.DOUBLE ) );
+            assertEquals( input, Double.doubleToLongBits( Double.parseDouble( input ) ),
+                          Double.doubleToLongBits( decoder.doubleValue() ) );
+        }
+    }
+
+    @Test
+    public void parsersDecodePrimitives() throws Exception
+    {
+        List<Object> expected = Arrays.asList( 5, -9000000000L, 123456, -2.75, true, 12, 77, null, null, null, "8" );
+
+        MethodResponse stax = (MethodResponse) new XmlRpcParser(
+                        new ByteArrayInputStream( XML.getBytes( StandardCharsets.UTF_8 ) ) ).parse();
+        assertEquals( expected, withoutNil( stax ) );
+
+        MethodResponse bytes = (MethodResponse) new XmlRpcByteParser().parse( XML.getBytes( StandardCharsets.UTF_8 ) );
+        assertEquals( expected, withoutNil( bytes ) );
+        assertSame( Integer.valueOf( 5 ), ( (List<?>) bytes.getParams().get( 0 ) ).get( 0 ) );
+    }
+
+    @Test
+    public void readPrimitiveFeedsPrimitiveGetters() throws Exception
+    {
+        XmlRpcParser parser = new XmlRpcParser();
+        parser.reset( XML.getBytes( StandardCharsets.UTF_8 ) );
+        assertTrue( parser.beginParams() );
+        assertTrue( parser.nextValue() );
+        assertTrue( parser.beginArray() );
+
+        assertTrue( parser.nextValue() );
+        assertTrue( parser.readPrimitive() );
+        assertEquals( 5, parser.getIntValue() );
+        assertTrue( parser.nextValue() );
+        assertTrue( parser.readPrimitive() );
+        assertEquals( -9000000000L, parser.getLongValue() );
+        assertTrue( parser.nextValue() );
+        assertTrue( parser.readPrimitive() );
+        assertEquals( 123456L, parser.getLongValue() ); // int upgraded for a long setter
+        assertTrue( parser.nextValue() );
+        assertTrue( parser.readPrimitive() );
+        assertEquals( -2.75, parser.getDoubleValue() );
+        assertTrue( parser.nextValue() );
+        assertTrue( parser.readPrimitive() );
+        assertTrue( parser.getBooleanValue() );
+        assertTrue( parser.nextValue() );
+        assertTrue( parser.readPrimitive() );
+        assertEquals( 12, parser.getIntValue() );
+        assertTrue( parser.nextValue() );
+        parser.skipValue();
+
+        for ( int i = 0; i < 3; i++ ) // blank int, empty boolean, nil
+        {
+            assertTrue( parser.nextValue() );
+            assertFalse( parser.readPrimitive() );
+        }
+
+        assertTrue( parser.nextValue() );
+        assertTrue( parser.readPrimitive() );
+        try
+        {
+            parser.getIntValue();
+            fail( "string bound to an int" );
+        }
+        catch ( ClassCastException e )
+        {
+            // same as casting the value from readValue()
+        }
+        assertFalse( parser.nextValue() );
+        parser.endArray();
+    }
+
+    private static List<Object> withoutNil( MethodResponse response )
+    {
+        List<Object> values = new ArrayList<>( (List<Object>) response.getParams().get( 0 ) );
+        values.replaceAll( v -> v instanceof Nil ? null : v );
+        return values;
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.core;
+
+import org.commonjava.rwx.api.RWXMapper;
+import org.commonjava.rwx.model.MethodResponse;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.fail;
+
+public class RpcPathTest
+                extends AbstractTest
+{
+    private static final String BUILDS = "<methodResponse><params><param><value><array><data>"
+                    + "<value><struct><member><name>build_id</name><value><int>1</int></value></member>"
+                    + "<member><name>tags</name><value><array><data><value>a</value><value>b</value></data></array>"
+                    + "</value></member><member><name>owner.name</name><value>jdoe</value></member></struct></value>"
+                    + "<value><struct><member><name>build_id</name><value><int>2</int></value></member>"
+                    + "<member><name>owner.name</name><value><nil/></value></member></struct></value>"
+                    + "<value>not a build</value>"
+                    + "<value><struct><member><name>build_id</name><value><int>3</int></value></member></struct>"
+                    + "</value></data></array></value></param>"
+                    + "<param><value><int>42</int></value></param>"
+                    + "<param><value><struct><member><name>build_id</name><value><int>4</int></value></member>"
+                    + "</struct></value></param></params></methodResponse>";
+
+    @Test
+    public void selectValues() throws Exception
+    {
+        assertEquals( Arrays.asList( 1, 2, 3 ), select( "params[0][*].build_id" ) );
+        assertEquals( Collections.singletonList( 2 ), select( "params[0][1].build_id" ) );
+        assertEquals( Arrays.asList( Arrays.asList( "a", "b" ) ), select( "params[0][0].tags" ) );
+        assertEquals( Arrays.asList( "b" ), select( "params[0][*].tags[1]" ) );
+        assertEquals( Arrays.asList( "jdoe", null ), select( "params[0][*]['owner.name']" ) );
+        assertEquals( Arrays.asList( 42 ), select( "params[1]" ) );
+        assertEquals( Arrays.asList( 4 ), select( "params[*].build_id" ) );
+        assertEquals( Arrays.asList( 3 ), select( "params[0][3].*" ) );
+        assertEquals( Collections.emptyList(), select( "params[0][5].build_id" ) );
+        assertEquals( Collections.emptyList(), select( "params[1].build_id" ) );
+    }
+
+    @Test
+    public void sameAsTree() throws Exception
+    {
+        MethodResponse response = (MethodResponse) new XmlRpcParser( getXMLStream( "kojiMulticallResponse" ) ).parse();
+        List<?> calls = (List<?>) response.getParams().get( 0 );
+
+        // [[build], [[tag, tag, tag, tag]]]: paths into the second result, and into whatever is a struct
+        List<Object> expected = new ArrayList<>();
+        for ( Object tag : (List<?>) ( (List<?>) calls.get( 1 ) ).get( 0 ) )
+        {
+            expected.add( ( (Map<?, ?>) tag ).get( "name" ) );
+        }
+        RpcPath path = RpcPath.compile( "params[0][1][0][*].name" );
+        assertEquals( 4, expected.size() );
+        assertEquals( expected, path.select( new XmlRpcParser( getXMLStream( "kojiMulticallResponse" ) ) ) );
+        assertEquals( expected, new RWXMapper().select( getXMLStream( "kojiMulticallResponse" ), path ) );
+
+        Object first = ( (Map<?, ?>) ( (List<?>) calls.get( 0 ) ).get( 0 ) ).get( "package_name" );
+        path = RpcPath.compile( "params[0][*][*].package_name" );
+        assertEquals( Collections.singletonList( first ),
+                      path.select( new XmlRpcParser( getXMLStream( "kojiMulticallResponse" ) ) ) );
+    }
+
+    @Test
+    public void invalidPaths()
+    {
+        for ( String path : Arrays.asList( "", "[0]", "params", "params.id", "params[0", "params[x]", "params[-1]",
+                                           "params[0].", "params[0]['id]", "params[0]id" ) )
+        {
+            try
+            {
+                RpcPath.compile( path );
+                fail( "Expected an invalid path: " + path );
+            }
+            catch ( IllegalArgumentException e )
+            {
+                // expected
+            }
+        }
+    }
+
+    private List<Object> select( final String path ) throws Exception
+    {
+        XmlRpcParser parser =
+                        new XmlRpcParser( new ByteArrayInputStream( BUILDS.getBytes( StandardCharsets.UTF_8 ) ) );
+        return RpcPath.compile( path ).select( parser );
+    }
+}
@@ -0,0 +1,212 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.core;
+
+import org.commonjava.rwx.error.CoercionException;
+import org.commonjava.rwx.error.XmlRpcFaultException;
+import org.commonjava.rwx.model.MethodResponse;
+import org.commonjava.rwx.util.DateTimeCodec;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertNull;
+import static junit.framework.TestCase.assertTrue;
+import static junit.framework.TestCase.fail;
+import static org.commonjava.rwx.core.RpcToken.*;
+import static org.commonjava.rwx.util.ParseUtils.nullifyNil;
+
+public class RpcReaderTest
+                extends AbstractTest
+{
+    private static final String DOC = "<methodResponse><params>"
+                    + "<param><value><struct><member><name>id</name><value><i4>7</i4></value></member>"
+                    + "<member><name>arches</name><value><array><data><value>x86_64</value><value><string>noarch"
+                    + "</string></value></data></array></value></member>"
+                    + "<member><name>owner</name><value><nil/></value></member>"
+                    + "<member><name>created</name><value><dateTime.iso8601>20170713T10:15:30</dateTime.iso8601>"
+                    + "</value></member></struct></value></param>"
+                    + "<param><value><array><data><value><int>1</int></value><value><i8>5000000000</i8></value>"
+                    + "</data></array></value></param>"
+                    + "<param><value><array></array></value></param>"
+                    + "<param><value></value></param>"
+                    + "</params></methodResponse>";
+
+    @Test
+    public void tokens() throws Exception
+    {
+        List<RpcToken> tokens = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        RpcReader reader = reader( DOC );
+        RpcToken token;
+        while ( ( token = reader.nextToken() ) != END_DOCUMENT )
+        {
+            tokens.add( token );
+            if ( token == MEMBER_NAME )
+            {
+                names.add( reader.getMemberName() );
+            }
+        }
+
+        assertEquals( Arrays.asList( BEGIN_STRUCT, MEMBER_NAME, INT, MEMBER_NAME, BEGIN_ARRAY, STRING, STRING,
+                                     END_ARRAY, MEMBER_NAME, NIL, MEMBER_NAME, DATETIME, END_STRUCT, BEGIN_ARRAY, INT,
+                                     LONG, END_ARRAY, BEGIN_ARRAY, END_ARRAY, NIL ), tokens );
+        assertEquals( Arrays.asList( "id", "arches", "owner", "created" ), names );
+        assertEquals( END_DOCUMENT, reader.nextToken() );
+    }
+
+    @Test
+    public void readValues() throws Exception
+    {
+        RpcReader reader = reader( DOC );
+
+        assertTrue( reader.beginStruct() );
+        assertEquals( "id", reader.nextMemberName() );
+        assertEquals( 7, reader.readInt() );
+        assertEquals( "arches", reader.nextMemberName() );
+        assertTrue( reader.beginArray() );
+        assertEquals( "x86_64", reader.readString() );
+        assertEquals( "noarch", reader.readString() );
+        assertEquals( END_ARRAY, reader.nextToken() );
+        assertEquals( "owner", reader.nextMemberName() );
+        assertNull( reader.readString() );
+        assertEquals( "created", reader.nextMemberName() );
+        Date created = reader.readDate();
+        assertEquals( DateTimeCodec.parse( "20170713T10:15:30" ), created );
+        assertNull( reader.nextMemberName() );
+
+        assertTrue( reader.beginArray() );
+        assertEquals( 1L, reader.readLong() );
+        assertEquals( 5000000000L, reader.readLong() );
+        assertEquals( END_ARRAY, reader.nextToken() );
+
+        assertTrue( reader.beginArray() );
+        assertEquals( END_ARRAY, reader.nextToken() );
+
+        assertFalse( reader.beginStruct() ); // empty value
+        assertEquals( END_DOCUMENT, reader.nextToken() );
+    }
+
+    @Test
+    public void skipUnreadValues() throws Exception
+    {
+        RpcReader reader = reader( DOC );
+
+        Map<String, Object> read = new HashMap<>();
+        String name;
+        while ( ( name = reader.nextMemberName() ) != null )
+        {
+            if ( name.equals( "owner" ) )
+            {
+                read.put( name, reader.readValue() );
+            }
+            else if ( name.equals( "arches" ) )
+            {
+                reader.skipValue();
+            }
+        }
+        assertEquals( 1, read.size() );
+        assertTrue( read.containsKey( "owner" ) );
+
+        reader.skipValue();
+        assertEquals( BEGIN_ARRAY, reader.nextToken() );
+        assertNull( reader.readValue() ); // <array> without <data>, as the tree parser reads it
+        assertEquals( NIL, reader.nextToken() );
+        assertEquals( END_DOCUMENT, reader.nextToken() );
+    }
+
+    @Test
+    public void sameAsTree() throws Exception
+    {
+        Map<String, Object> tree = (Map<String, Object>) ( (MethodResponse) new XmlRpcParser(
+                        getXMLStream( "kojiGetBuildResponse" ) ).parse() ).getParams().get( 0 );
+
+        RpcReader reader = new RpcReader( getXMLStream( "kojiGetBuildResponse" ) );
+        assertEquals( BEGIN_STRUCT, reader.nextToken() );
+        Map<String, Object> read = new HashMap<>();
+        String name;
+        while ( ( name = reader.nextMemberName() ) != null )
+        {
+            read.put( name, reader.readValue() );
+        }
+        for ( Map.Entry<String, Object> entry : tree.entrySet() )
+        {
+            assertEquals( entry.getKey(), nullifyNil( entry.getValue() ), read.get( entry.getKey() ) );
+        }
+        assertEquals( tree.keySet(), read.keySet() );
+        assertEquals( END_DOCUMENT, reader.nextToken() );
+        reader.close();
+    }
+
+    @Test
+    public void forValue() throws Exception
+    {
+        XmlRpcParser parser = new XmlRpcParser( new ByteArrayInputStream( DOC.getBytes() ) );
+        assertTrue( parser.beginParams() );
+        assertTrue( parser.nextValue() );
+        parser.skipValue();
+        assertTrue( parser.nextValue() );
+
+        RpcReader reader = RpcReader.forValue( parser );
+        assertTrue( reader.beginArray() );
+        assertEquals( 1, reader.readInt() );
+        assertEquals( 5000000000L, reader.readLong() );
+        assertEquals( END_ARRAY, reader.nextToken() );
+        assertEquals( END_DOCUMENT, reader.nextToken() );
+
+        assertTrue( parser.nextValue() ); // the parser continues after the value
+        assertFalse( parser.beginArray() ); // <array> without <data>
+    }
+
+    @Test
+    public void typeMismatch() throws Exception
+    {
+        RpcReader reader = reader( DOC );
+        assertTrue( reader.beginStruct() );
+        assertEquals( "id", reader.nextMemberName() );
+        assertEquals( "7", reader.readString() );
+        assertEquals( "arches", reader.nextMemberName() );
+        try
+        {
+            reader.readInt();
+            fail( "Expected an array not to read as an int" );
+        }
+        catch ( CoercionException e )
+        {
+            // expected
+        }
+        assertEquals( "owner", reader.nextMemberName() );
+    }
+
+    @Test( expected = XmlRpcFaultException.class )
+    public void fault() throws Exception
+    {
+        new RpcReader( getXMLStream( "simpleFault" ) ).nextToken();
+    }
+
+    private static RpcReader reader( final String doc ) throws Exception
+    {
+        return new RpcReader( new ByteArrayInputStream( doc.getBytes() ) );
+    }
+}
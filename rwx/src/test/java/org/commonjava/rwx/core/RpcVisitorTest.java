@@ -0,0 +1,218 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.core;
+
+import org.commonjava.rwx.api.RWXMapper;
+import org.commonjava.rwx.model.Fault;
+import org.commonjava.rwx.model.MethodCall;
+import org.commonjava.rwx.model.RpcObject;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertNull;
+import static junit.framework.TestCase.assertTrue;
+
+public class RpcVisitorTest
+                extends AbstractTest
+{
+    private static final String[] DOCS = { "jiraServerInfoResponse", "kojiGetBuildRequest", "kojiGetBuildResponse",
+                    "kojiGetBuildTypeNilResponse", "kojiMulticallRequest", "kojiMulticallResponse",
+                    "prettyPrintedResponse", "requestWithArrayInStruct", "requestWithOneArrayParam",
+                    "requestWithOneParam", "requestWithOneStructParam", "simpleFault", "simpleRequest",
+                    "simpleResponse" };
+
+    private static final String DOC = "<methodResponse><params>"
+                    + "<param><value><struct><member><name>id</name><value><i4>7</i4></value></member>"
+                    + "<member><name>size</name><value><i8>5000000000</i8></value></member>"
+                    + "<member><name>tags</name><value><array><data><value>a</value><value><string>b</string>"
+                    + "</value></data></array></value></member>"
+                    + "<member><name>owner</name><value><nil/></value></member>"
+                    + "<member><name>created</name><value><dateTime.iso8601>20170713T10:15:30</dateTime.iso8601>"
+                    + "</value></member></struct></value></param>"
+                    + "<param><value><base64>aGVsbG8=</base64></value></param>"
+                    + "<param><value><array></array></value></param>"
+                    + "<param><value><int></int></value></param>"
+                    + "<param><value></value></param>"
+                    + "</params></methodResponse>";
+
+    @Test
+    public void sameAsTree() throws Exception
+    {
+        for ( String name : DOCS )
+        {
+            RpcObject tree = new XmlRpcParser( getXMLStream( name ) ).parse();
+
+            RpcTreeBuilder builder = new RpcTreeBuilder();
+            new XmlRpcParser( getXMLStream( name ) ).visit( builder );
+            RpcObject visited = builder.getResult();
+
+            assertEquals( name, tree.getClass(), visited.getClass() );
+            assertEquals( name, tree.getParams(), visited.getParams() );
+            if ( tree instanceof MethodCall )
+            {
+                assertEquals( name, ( (MethodCall) tree ).getMethodName(), ( (MethodCall) visited ).getMethodName() );
+            }
+            else if ( tree instanceof Fault )
+            {
+                assertEquals( name, ( (Fault) tree ).getValue(), ( (Fault) visited ).getValue() );
+            }
+        }
+    }
+
+    @Test
+    public void scalars() throws Exception
+    {
+        List<String> calls = new ArrayList<>();
+        RpcVisitor visitor = new RpcVisitor()
+        {
+            @Override
+            public void beginParams()
+            {
+                calls.add( "params" );
+            }
+
+            @Override
+            public void beginStruct()
+            {
+                calls.add( "{" );
+            }
+
+            @Override
+            public void memberName( final String name )
+            {
+                calls.add( name + ":" );
+            }
+
+            @Override
+            public void endStruct()
+            {
+                calls.add( "}" );
+            }
+
+            @Override
+            public void beginArray()
+            {
+                calls.add( "[" );
+            }
+
+            @Override
+            public void endArray()
+            {
+                calls.add( "]" );
+            }
+
+            @Override
+            public void intValue( final int value )
+            {
+                calls.add( "int " + value );
+            }
+
+            @Override
+            public void longValue( final long value )
+            {
+                calls.add( "long " + value );
+            }
+
+            @Override
+            public void stringValue( final String value )
+            {
+                calls.add( "string " + value );
+            }
+
+            @Override
+            public void dateValue( final Date value )
+            {
+                calls.add( "date" );
+            }
+
+            @Override
+            public void binaryValue( final Object value )
+            {
+                calls.add( "base64 " + new String( (byte[]) value, StandardCharsets.UTF_8 ) );
+            }
+
+            @Override
+            public void nilValue()
+            {
+                calls.add( "nil" );
+            }
+
+            @Override
+            public void nullValue()
+            {
+                calls.add( "null" );
+            }
+
+            @Override
+            public void endDocument()
+            {
+                calls.add( "end" );
+            }
+        };
+
+        new XmlRpcParser( new ByteArrayInputStream( DOC.getBytes( StandardCharsets.UTF_8 ) ) ).visit( visitor );
+
+        assertEquals( Arrays.asList( "params", "{", "id:", "int 7", "size:", "long 5000000000", "tags:", "[",
+                                     "string a", "string b", "]", "owner:", "nil", "created:", "date", "}",
+                                     "base64 hello", "null", "null", "null", "end" ), calls );
+    }
+
+    @Test
+    public void countWithMapper() throws Exception
+    {
+        int[] counts = new int[2];
+        RpcVisitor visitor = new RpcVisitor()
+        {
+            @Override
+            public void memberName( final String name )
+            {
+                counts[0]++;
+            }
+
+            @Override
+            public void stringValue( final String value )
+            {
+                counts[1]++;
+            }
+        };
+
+        new RWXMapper().visit( getXMLStream( "kojiGetBuildResponse" ), visitor );
+
+        RpcTreeBuilder builder = new RpcTreeBuilder();
+        new RWXMapper().visit( getXMLStream( "kojiGetBuildResponse" ), builder );
+        Map<?, ?> build = (Map<?, ?>) builder.getResult().getParams().get( 0 );
+        assertEquals( build.size(), counts[0] );
+        assertTrue( counts[1] > 0 );
+    }
+
+    @Test
+    public void fault() throws Exception
+    {
+        RpcTreeBuilder builder = new RpcTreeBuilder();
+        new XmlRpcParser( getXMLStream( "simpleFault" ) ).visit( builder );
+        Fault fault = (Fault) builder.getResult();
+        assertNull( fault.getParams() );
+        assertTrue( fault.getValue() instanceof Map );
+    }
+}
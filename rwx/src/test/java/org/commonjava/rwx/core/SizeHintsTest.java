@@ -0,0 +1,198 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertNull;
+import static junit.framework.TestCase.assertTrue;
+
+public class SizeHintsTest
+{
+    private static final String RESPONSE = "<methodResponse><params><param><value><array><data>"
+                    + "<value><struct><member><name>id</name><value><int>1</int></value></member>"
+                    + "<member><name>arches</name><value><array><data><value>x86_64</value><value>noarch</value>"
+                    + "<value>ppc64le</value></data></array></value></member>"
+                    + "<member><name>owner</name><value>jdoe</value></member></struct></value>"
+                    + "<value><struct><member><name>id</name><value><int>2</int></value></member>"
+                    + "<member><name>arches</name><value><array><data><value>x86_64</value><value>noarch</value>"
+                    + "<value>ppc64le</value></data></array></value></member>"
+                    + "<member><name>owner</name><value>jdoe</value></member></struct></value>"
+                    + "</data></array></value></param></params></methodResponse>";
+
+    private static final String NESTED = "<methodResponse><params><param><value><struct>"
+                    + "<member><name>build</name><value><struct><member><name>tags</name><value><array><data>"
+                    + "<value>a</value><value>b</value><value>c</value></data></array></value></member>"
+                    + "</struct></value></member>"
+                    + "<member><name>task</name><value><struct><member><name>tags</name><value><array><data>"
+                    + "<value>d</value></data></array></value></member></struct></value></member>"
+                    + "</struct></value></param></params></methodResponse>";
+
+    @Test
+    public void averageRecordedSizes()
+    {
+        SizeHints hints = new SizeHints( 16 );
+        assertEquals( 0, hints.get( 42 ) );
+
+        hints.record( 42, 10 );
+        assertEquals( 10, hints.get( 42 ) );
+        hints.record( 42, 10 );
+        assertEquals( 10, hints.get( 42 ) );
+        hints.record( 42, 20 );
+        assertEquals( 15, hints.get( 42 ) );
+
+        hints.record( 42 + 16, 3 ); // same slot
+        assertEquals( 0, hints.get( 42 ) );
+        assertEquals( 3, hints.get( 42 + 16 ) );
+
+        hints.record( -7, Integer.MAX_VALUE );
+        assertEquals( 1 << 16, hints.get( -7 ) );
+
+        hints.clear();
+        assertEquals( 0, hints.get( -7 ) );
+    }
+
+    @Test
+    public void presizeFromEarlierParse() throws Exception
+    {
+        List<Integer> structSizes = new ArrayList<>();
+        List<Integer> arraySizes = new ArrayList<>();
+        ContainerFactory factory = new ContainerFactory()
+        {
+            @Override
+            public Map<String, Object> newStruct()
+            {
+                structSizes.add( 0 );
+                return new HashMap<>();
+            }
+
+            @Override
+            public List<Object> newArray()
+            {
+                arraySizes.add( 0 );
+                return new ArrayList<>();
+            }
+
+            @Override
+            public Map<String, Object> newStruct( final int expectedSize )
+            {
+                structSizes.add( expectedSize );
+                return new HashMap<>();
+            }
+
+            @Override
+            public List<Object> newArray( final int expectedSize )
+            {
+                arraySizes.add( expectedSize );
+                return new ArrayList<>();
+            }
+        };
+
+        XmlRpcParser parser = new XmlRpcParser();
+        parser.setContainerFactory( factory );
+        parser.setSizeHints( new SizeHints() );
+
+        // array elements share a path, so the second build is sized from the first
+        Object first = parser.reset( RESPONSE.getBytes() ).parse().getParams();
+        assertEquals( Arrays.asList( 0, 3 ), structSizes );
+        assertEquals( Arrays.asList( 0, 0, 3 ), arraySizes );
+
+        structSizes.clear();
+        arraySizes.clear();
+        Object second = parser.reset( RESPONSE.getBytes() ).parse().getParams();
+        assertEquals( Arrays.asList( 3, 3 ), structSizes );
+        assertEquals( Arrays.asList( 2, 3, 3 ), arraySizes );
+        assertEquals( first, second );
+
+        structSizes.clear();
+        arraySizes.clear();
+        parser.setSizeHints( null );
+        parser.reset( RESPONSE.getBytes() ).parse();
+        assertEquals( Arrays.asList( 0, 0 ), structSizes );
+    }
+
+    @Test
+    public void streamedMembersSizedByParentPath() throws Exception
+    {
+        SizeHints tree = new SizeHints();
+        XmlRpcParser parser = new XmlRpcParser();
+        parser.setSizeHints( tree );
+        parser.reset( NESTED.getBytes() ).parse();
+
+        SizeHints streamed = new SizeHints();
+        parser.setSizeHints( streamed );
+        parser.reset( NESTED.getBytes() );
+        assertTrue( parser.beginParams() );
+        assertTrue( parser.nextValue() );
+        assertTrue( parser.beginStruct() );
+        for ( String key; ( key = parser.nextMember() ) != null; )
+        {
+            assertTrue( parser.beginStruct() );
+            assertEquals( "tags", parser.nextMember() );
+            assertEquals( key, key.equals( "build" ) ? 3 : 1, ( (List) parser.readValue() ).size() );
+            assertNull( parser.nextMember() );
+            parser.endStruct();
+        }
+        parser.endStruct();
+
+        // tags repeats under build and task, each is sized on its own, the same as when parsing the tree
+        int build = 31 * ( 31 + "build".hashCode() ) + "tags".hashCode();
+        int task = 31 * ( 31 + "task".hashCode() ) + "tags".hashCode();
+        assertEquals( 3, tree.get( build ) );
+        assertEquals( 1, tree.get( task ) );
+        assertEquals( 3, streamed.get( build ) );
+        assertEquals( 1, streamed.get( task ) );
+    }
+
+    @Test
+    public void streamedListsRecordedByPath() throws Exception
+    {
+        SizeHints hints = new SizeHints();
+        XmlRpcParser parser = new XmlRpcParser();
+        parser.setSizeHints( hints );
+        parser.reset( NESTED.getBytes() );
+        assertTrue( parser.beginParams() );
+        assertTrue( parser.nextValue() );
+        assertTrue( parser.beginStruct() );
+        for ( String key; ( key = parser.nextMember() ) != null; )
+        {
+            assertTrue( parser.beginStruct() );
+            assertEquals( "tags", parser.nextMember() );
+            assertTrue( parser.beginArray() );
+            List<Object> tags = parser.newList();
+            while ( parser.nextValue() )
+            {
+                tags.add( parser.readValue() );
+            }
+            parser.endArray();
+            parser.recordSize( tags.size() );
+            assertNull( parser.nextMember() );
+            parser.endStruct();
+        }
+        parser.endStruct();
+
+        // the same keys as the tree parse and streamed members
+        assertEquals( 3, hints.get( 31 * ( 31 + "build".hashCode() ) + "tags".hashCode() ) );
+        assertEquals( 1, hints.get( 31 * ( 31 + "task".hashCode() ) + "tags".hashCode() ) );
+    }
+}
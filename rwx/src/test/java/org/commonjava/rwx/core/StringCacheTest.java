@@ -0,0 +1,78 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.core;
+
+import org.commonjava.rwx.model.RpcObject;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertNotSame;
+import static junit.framework.TestCase.assertSame;
+
+public class StringCacheTest
+{
+    private static final String RESPONSE = "<methodResponse><params><param><value><array><data>"
+                    + "<value><struct><member><name>arch</name><value><string>x86_64</string></value></member>"
+                    + "<member><name>owner</name><value>jdoe</value></member></struct></value>"
+                    + "<value><struct><member><name>arch</name><value><string>x86_64</string></value></member>"
+                    + "<member><name>owner</name><value>jdoe</value></member></struct></value>"
+                    + "</data></array></value></param></params></methodResponse>";
+
+    @Test
+    public void internEqualValues()
+    {
+        StringCache cache = new StringCache( 16, 8 );
+        String first = cache.intern( new String( "noarch" ) );
+        assertSame( first, cache.intern( new String( "noarch" ) ) );
+
+        String longValue = "longer than eight";
+        assertSame( longValue, cache.intern( longValue ) );
+        assertNotSame( longValue, cache.intern( new String( longValue ) ) );
+
+        cache.clear();
+        assertNotSame( first, cache.intern( new String( "noarch" ) ) );
+    }
+
+    @Test
+    public void parsersShareValues() throws Exception
+    {
+        byte[] doc = RESPONSE.getBytes( StandardCharsets.UTF_8 );
+
+        XmlRpcParser staxParser = new XmlRpcParser();
+        staxParser.setStringCache( new StringCache() );
+        assertShared( staxParser.reset( doc ).parse() );
+
+        XmlRpcByteParser byteParser = new XmlRpcByteParser();
+        byteParser.setStringCache( new StringCache() );
+        assertShared( byteParser.parse( doc ) );
+
+        byteParser.setLazy( true );
+        assertShared( byteParser.parse( doc ) );
+    }
+
+    private static void assertShared( RpcObject parsed )
+    {
+        List<Map<String, Object>> structs = (List<Map<String, Object>>) parsed.getParams().get( 0 );
+        assertEquals( "x86_64", structs.get( 0 ).get( "arch" ) );
+        assertSame( structs.get( 0 ).get( "arch" ), structs.get( 1 ).get( "arch" ) );
+        assertEquals( "jdoe", structs.get( 0 ).get( "owner" ) );
+        assertSame( structs.get( 0 ).get( "owner" ), structs.get( 1 ).get( "owner" ) );
+    }
+}
@@ -0,0 +1,135 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.core;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertNotSame;
+import static junit.framework.TestCase.assertNull;
+import static junit.framework.TestCase.assertSame;
+
+public class SymbolTableTest
+                extends AbstractTest
+{
+    private static final String XML = "<methodResponse><params><param><value><struct>"
+                    + "<member><name> build_id </name><value><int>1</int></value></member>"
+                    + "<member><name>unknown_key</name><value><int>2</int></value></member>"
+                    + "</struct></value></param></params></methodResponse>";
+
+    @Test
+    public void lookupReturnsCanonicalName()
+    {
+        SymbolTable symbols = new SymbolTable();
+        String key = symbols.add( new String( "build_id" ) );
+
+        char[] chars = "  build_id\n".toCharArray();
+        assertSame( key, symbols.lookup( chars, 0, chars.length ) );
+
+        byte[] bytes = "<name>build_id</name>".getBytes( StandardCharsets.US_ASCII );
+        assertSame( key, symbols.lookup( ByteBuffer.wrap( bytes ), 6, 8 ) );
+
+        String learned = symbols.lookup( "nvr".toCharArray(), 0, 3 );
+        assertSame( learned, symbols.lookup( ByteBuffer.wrap( "nvr".getBytes() ), 0, 3 ) );
+        assertEquals( 2, symbols.size() );
+    }
+
+    @Test
+    public void growsUpToMaxSize()
+    {
+        SymbolTable symbols = new SymbolTable( 1000 );
+        for ( int i = 0; i < 2000; i++ )
+        {
+            char[] name = ( "key" + i ).toCharArray();
+            assertEquals( "key" + i, symbols.lookup( name, 0, name.length ) );
+        }
+        assertEquals( 1000, symbols.size() );
+
+        char[] known = "key999".toCharArray();
+        assertSame( symbols.lookup( known, 0, known.length ), symbols.lookup( known, 0, known.length ) );
+        char[] unknown = "key1999".toCharArray();
+        assertNotSame( symbols.lookup( unknown, 0, unknown.length ), symbols.lookup( unknown, 0, unknown.length ) );
+    }
+
+    @Test
+    public void fullTableMissesWithoutLock() throws Exception
+    {
+        SymbolTable symbols = new SymbolTable( 1 );
+        symbols.add( "build_id" );
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try
+        {
+            synchronized ( symbols ) // an add would block on this
+            {
+                Future<String> miss = executor.submit( () -> symbols.lookup( "nvr".toCharArray(), 0, 3 ) );
+                assertEquals( "nvr", miss.get( 10, TimeUnit.SECONDS ) );
+                Future<String> add = executor.submit( () -> symbols.add( "owner" ) );
+                assertEquals( "owner", add.get( 10, TimeUnit.SECONDS ) );
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+        assertEquals( 1, symbols.size() );
+    }
+
+    @Test
+    public void nonAsciiBytesNotLookedUp()
+    {
+        byte[] bytes = "clé".getBytes( StandardCharsets.UTF_8 );
+        assertNull( new SymbolTable().lookup( ByteBuffer.wrap( bytes ), 0, bytes.length ) );
+    }
+
+    @Test
+    public void parsersShareMemberNames() throws Exception
+    {
+        byte[] bytes = XML.getBytes( StandardCharsets.UTF_8 );
+
+        Map<String, Object> stax = (Map<String, Object>) new XmlRpcParser().reset( bytes ).parse().getParams().get( 0 );
+        Map<String, Object> byteEngine =
+                        (Map<String, Object>) new XmlRpcByteParser().parse( bytes ).getParams().get( 0 );
+        Map<String, Object> again = (Map<String, Object>) new XmlRpcByteParser().parse( bytes ).getParams().get( 0 );
+
+        for ( String key : stax.keySet() )
+        {
+            assertSame( key, findKey( byteEngine, key ) );
+            assertSame( key, findKey( again, key ) );
+        }
+        assertEquals( 1, byteEngine.get( "build_id" ) );
+    }
+
+    private String findKey( Map<String, Object> map, String key )
+    {
+        for ( String k : map.keySet() )
+        {
+            if ( k.equals( key ) )
+            {
+                return k;
+            }
+        }
+        return null;
+    }
+}
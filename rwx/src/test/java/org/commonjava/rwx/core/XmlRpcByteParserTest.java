@@ -0,0 +1,319 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.core;
+
+import org.apache.commons.io.IOUtils;
+import org.commonjava.rwx.error.UncheckedXmlRpcException;
+import org.commonjava.rwx.error.XmlRpcException;
+import org.commonjava.rwx.model.Fault;
+import org.commonjava.rwx.model.MethodCall;
+import org.commonjava.rwx.model.RpcObject;
+import org.junit.Test;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertNull;
+import static junit.framework.TestCase.assertTrue;
+import static junit.framework.TestCase.fail;
+
+public class XmlRpcByteParserTest
+                extends AbstractTest
+{
+    private static final String[] DOCS =
+                    { "commentsAndCdataResponse", "jiraServerInfoResponse", "kojiGetBuildRequest", "kojiGetBuildResponse",
+                                    "kojiGetBuildTypeNilResponse", "kojiMulticallRequest", "kojiMulticallResponse",
+                                    "requestWithArrayInStruct", "requestWithOneArrayParam", "requestWithOneParam",
+                                    "requestWithOneStructParam", "simpleFault", "simpleRequest", "simpleResponse" };
+
+    @Test
+    public void sameResultAsStaxParser() throws Exception
+    {
+        for ( String doc : DOCS )
+        {
+            byte[] bytes = IOUtils.toByteArray( getXMLStream( doc ) );
+            RpcObject expected = new XmlRpcParser().reset( bytes ).parse();
+            RpcObject actual = new XmlRpcByteParser().parse( bytes );
+            assertSame( doc, expected, actual );
+        }
+    }
+
+    @Test
+    public void lazyModeSameResult() throws Exception
+    {
+        XmlRpcByteParser lazyParser = new XmlRpcByteParser();
+        lazyParser.setLazy( true );
+        for ( String doc : DOCS )
+        {
+            byte[] bytes = IOUtils.toByteArray( getXMLStream( doc ) );
+            RpcObject expected = new XmlRpcParser().reset( bytes ).parse();
+            RpcObject actual = lazyParser.parse( bytes );
+            assertSame( doc, expected, actual );
+        }
+    }
+
+    @Test
+    public void parallelParserSameResult() throws Exception
+    {
+        XmlRpcParallelParser parallelParser = new XmlRpcParallelParser();
+        for ( String doc : DOCS )
+        {
+            byte[] bytes = IOUtils.toByteArray( getXMLStream( doc ) );
+            RpcObject expected = new XmlRpcParser().reset( bytes ).parse();
+            RpcObject actual = parallelParser.parse( bytes );
+            assertSame( doc, expected, actual );
+        }
+    }
+
+    @Test
+    public void lazyModeDecodesOnAccess() throws XmlRpcException
+    {
+        String xml = "<methodResponse><params><param><value><struct>"
+                        + "<member><name>id</name><value><int>1</int></value></member>"
+                        + "<member><name>bad</name><value><int>x</int></value></member>"
+                        + "<member><name>list</name><value><array><data><value>a</value><value><i4>2</i4></value>"
+                        + "</data></array></value></member>"
+                        + "</struct></value></param></params></methodResponse>";
+
+        XmlRpcByteParser parser = new XmlRpcByteParser();
+        parser.setLazy( true );
+        Map<String, Object> struct =
+                        (Map<String, Object>) parser.parse( xml.getBytes( StandardCharsets.UTF_8 ) ).getParams().get( 0 );
+
+        assertTrue( struct instanceof LazyStruct );
+        assertEquals( 3, struct.size() );
+        assertEquals( 1, struct.get( "id" ) );
+
+        List<Object> list = (List<Object>) struct.get( "list" );
+        assertTrue( list instanceof LazyArray );
+        assertEquals( 2, list.get( 1 ) );
+        assertEquals( "a", list.get( 0 ) );
+
+        try
+        {
+            struct.get( "bad" );
+            fail( "Malformed int decoded" );
+        }
+        catch ( UncheckedXmlRpcException e )
+        {
+            // expected, decoded on access
+        }
+    }
+
+    @Test
+    public void lazyModeConcurrentReads() throws Exception
+    {
+        StringBuilder xml = new StringBuilder( "<methodResponse><params><param><value><array><data>" );
+        for ( int i = 0; i < 2000; i++ )
+        {
+            xml.append( "<value><struct><member><name>id</name><value><int>" )
+               .append( i )
+               .append( "</int></value></member><member><name>nvr</name><value><string>build-" )
+               .append( i )
+               .append( "-1.0-1</string></value></member></struct></value>" );
+        }
+        xml.append( "</data></array></value></param></params></methodResponse>" );
+        byte[] bytes = xml.toString().getBytes( StandardCharsets.UTF_8 );
+
+        XmlRpcByteParser parser = new XmlRpcByteParser();
+        parser.setLazy( true );
+        List<Object> builds = (List<Object>) parser.parse( bytes ).getParams().get( 0 );
+        List<Object> expected = (List<Object>) new XmlRpcByteParser().parse( bytes ).getParams().get( 0 );
+
+        ExecutorService executor = Executors.newFixedThreadPool( 4 );
+        try
+        {
+            List<Future<?>> readers = new ArrayList<>();
+            for ( int t = 0; t < 4; t++ )
+            {
+                readers.add( executor.submit( () -> {
+                    for ( int i = 0; i < expected.size(); i++ )
+                    {
+                        assertEquals( expected.get( i ), builds.get( i ) );
+                    }
+                } ) );
+            }
+            for ( Future<?> reader : readers )
+            {
+                reader.get(); // rethrows a failed assertion
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void lazyModeCopiesOnModification() throws XmlRpcException
+    {
+        String xml = "<methodResponse><params><param><value><struct>"
+                        + "<member><name>a</name><value><int>1</int></value></member>"
+                        + "<member><name>a</name><value><int>2</int></value></member>"
+                        + "</struct></value></param></params></methodResponse>";
+
+        XmlRpcByteParser parser = new XmlRpcByteParser();
+        parser.setLazy( true );
+        Map<String, Object> struct =
+                        (Map<String, Object>) parser.parse( xml.getBytes( StandardCharsets.UTF_8 ) ).getParams().get( 0 );
+
+        assertEquals( 1, struct.size() );
+        assertEquals( 2, struct.get( "a" ) );
+
+        struct.put( "b", "x" );
+        assertEquals( 2, struct.size() );
+        assertEquals( "x", struct.get( "b" ) );
+        assertEquals( 2, struct.get( "a" ) );
+    }
+
+    @Test
+    public void entitiesCdataAndComments() throws XmlRpcException
+    {
+        String xml = "<?xml version=\"1.0\"?>\n<methodCall><methodName> foo </methodName><!-- params -->"
+                        + "<params><param><value><struct>"
+                        + "<member><name>a&amp;b</name><value><string>x &lt;&#x41;&#66;&gt; &quot;&apos;</string></value></member>"
+                        + "<member><name>c</name><value><string><![CDATA[<raw> & ]]>tail</string></value></member>"
+                        + "<member><name>d</name><value><i4>42</i4></value></member>"
+                        + "<member><name>e</name><value><nil/></value></member>"
+                        + "<member><name>f</name><value>  café </value></member>"
+                        + "</struct></value></param></params></methodCall>";
+
+        MethodCall call = (MethodCall) new XmlRpcByteParser().parse( xml.getBytes( StandardCharsets.UTF_8 ) );
+        assertEquals( "foo", call.getMethodName() );
+
+        Map<String, Object> struct = (Map<String, Object>) call.getParams().get( 0 );
+        assertEquals( "x <AB> \"'", struct.get( "a&b" ) );
+        assertEquals( "<raw> & tail", struct.get( "c" ) );
+        assertEquals( 42, struct.get( "d" ) );
+        assertTrue( struct.containsKey( "e" ) );
+        assertEquals( "café", struct.get( "f" ) );
+    }
+
+    @Test
+    public void latin1AndByteBufferSlice() throws XmlRpcException
+    {
+        String xml = "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>"
+                        + "<methodResponse><params><param><value>café</value></param></params></methodResponse>";
+        byte[] doc = xml.getBytes( StandardCharsets.ISO_8859_1 );
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect( doc.length + 4 );
+        buffer.put( new byte[] { 'x', 'x' } ).put( doc ).put( new byte[] { 'y', 'y' } );
+        buffer.position( 2 ).limit( 2 + doc.length );
+
+        RpcObject response = new XmlRpcByteParser().parse( buffer );
+        assertEquals( "café", response.getParams().get( 0 ) );
+        assertEquals( 2, buffer.position() );
+    }
+
+    @Test
+    public void utf16FallsBackToStax() throws XmlRpcException
+    {
+        String xml = "<?xml version=\"1.0\" encoding=\"UTF-16\"?>"
+                        + "<methodResponse><params><param><value><int>7</int></value></param></params></methodResponse>";
+
+        RpcObject response = new XmlRpcByteParser().parse( xml.getBytes( StandardCharsets.UTF_16 ) );
+        assertEquals( 7, response.getParams().get( 0 ) );
+    }
+
+    @Test
+    public void invalidDocuments()
+    {
+        assertInvalid( "<foo/>" );
+        assertInvalid( "<methodResponse><params><param><value>" );
+        assertInvalid( "<methodResponse><params></param></methodResponse>" );
+        assertInvalid( "<!DOCTYPE methodResponse><methodResponse/>" );
+    }
+
+    @Test
+    public void bareValueWithCdataSameAsStax() throws Exception
+    {
+        String[] values = { "x <![CDATA[y]]>", "<![CDATA[x ]]>y", "x<![CDATA[ ]]>y", " <![CDATA[x]]> y ",
+                        "a&amp; <![CDATA[b]]>" };
+        for ( String value : values )
+        {
+            byte[] doc = ( "<methodResponse><params><param><value>" + value + "</value></param></params>"
+                            + "</methodResponse>" ).getBytes( StandardCharsets.UTF_8 );
+            RpcObject expected = new XmlRpcParser().reset( doc ).parse();
+            assertSame( value, expected, new XmlRpcByteParser().parse( doc ) );
+        }
+    }
+
+    @Test
+    public void invalidCharacterReferences() throws XmlRpcException
+    {
+        String prefix = "<methodResponse><params><param><value>";
+        String suffix = "</value></param></params></methodResponse>";
+
+        assertInvalid( prefix + "&#xFFFFFFFF;" + suffix ); // would overflow an int
+        assertInvalid( prefix + "&#x110000;" + suffix );
+        assertInvalid( prefix + "&#xD800;" + suffix );
+        assertInvalid( prefix + "&#0;" + suffix );
+        assertInvalid( prefix + "&#x;" + suffix );
+
+        RpcObject response = new XmlRpcByteParser().parse( ( prefix + "<string>&#x10FFFF;&#9;</string>" + suffix ).getBytes(
+                        StandardCharsets.UTF_8 ) );
+        assertEquals( new String( Character.toChars( 0x10FFFF ) ) + "\t", response.getParams().get( 0 ) );
+    }
+
+    @Test
+    public void emptyArrayAndStruct() throws XmlRpcException
+    {
+        String xml = "<methodResponse><params><param><value><array/></value></param>"
+                        + "<param><value><array><data/></array></value></param>"
+                        + "<param><value><struct/></value></param></params></methodResponse>";
+
+        List<Object> params = new XmlRpcByteParser().parse( xml.getBytes( StandardCharsets.UTF_8 ) ).getParams();
+        assertNull( params.get( 0 ) );
+        assertTrue( ( (List) params.get( 1 ) ).isEmpty() );
+        assertTrue( ( (Map) params.get( 2 ) ).isEmpty() );
+    }
+
+    private void assertInvalid( String xml )
+    {
+        try
+        {
+            new XmlRpcByteParser().parse( xml.getBytes( StandardCharsets.UTF_8 ) );
+            fail( "Expected failure: " + xml );
+        }
+        catch ( XmlRpcException e )
+        {
+            // expected
+        }
+    }
+
+    private void assertSame( String doc, RpcObject expected, RpcObject actual )
+    {
+        assertEquals( doc, expected.getClass(), actual.getClass() );
+        if ( expected instanceof MethodCall )
+        {
+            assertEquals( doc, ( (MethodCall) expected ).getMethodName(), ( (MethodCall) actual ).getMethodName() );
+        }
+        if ( expected instanceof Fault )
+        {
+            assertEquals( doc, ( (Fault) expected ).getValue(), ( (Fault) actual ).getValue() );
+        }
+        assertEquals( doc, expected.getParams(), actual.getParams() );
+    }
+}
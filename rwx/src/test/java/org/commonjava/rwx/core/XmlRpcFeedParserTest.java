@@ -0,0 +1,102 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.core;
+
+import org.apache.commons.io.IOUtils;
+import org.commonjava.rwx.error.XmlRpcException;
+import org.commonjava.rwx.model.RpcObject;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertNull;
+import static junit.framework.TestCase.assertTrue;
+import static junit.framework.TestCase.fail;
+
+public class XmlRpcFeedParserTest
+                extends AbstractTest
+{
+    @Test
+    public void anyChunkSize() throws Exception
+    {
+        for ( String doc : new String[] { "kojiMulticallResponse", "commentsAndCdataResponse" } )
+        {
+            byte[] bytes = IOUtils.toByteArray( getXMLStream( doc ) );
+            RpcObject expected = new XmlRpcByteParser().parse( bytes );
+
+            XmlRpcFeedParser parser = new XmlRpcFeedParser();
+            for ( int size = 1; size < 64; size++ )
+            {
+                parser.reset();
+                boolean done = false;
+                for ( int i = 0; i < bytes.length; i += size )
+                {
+                    assertFalse( done );
+                    done = parser.feed( bytes, i, Math.min( size, bytes.length - i ) );
+                }
+                assertTrue( doc + " chunk size " + size, done );
+                assertEquals( expected.getParams(), parser.getResult().getParams() );
+                assertEquals( expected.getParams(), parser.endOfInput().getParams() );
+            }
+        }
+    }
+
+    @Test
+    public void multiByteCharactersAcrossChunks() throws XmlRpcException
+    {
+        String xml = "<methodResponse><params><param><value><string>déjà € 😀</string>"
+                        + "</value></param></params></methodResponse>";
+        byte[] bytes = xml.getBytes( StandardCharsets.UTF_8 );
+
+        XmlRpcFeedParser parser = new XmlRpcFeedParser();
+        for ( byte b : bytes )
+        {
+            parser.feed( ByteBuffer.wrap( new byte[] { b } ) );
+        }
+        assertEquals( "déjà € 😀", parser.endOfInput().getParams().get( 0 ) );
+    }
+
+    @Test
+    public void otherEncodingIsParsedAtEndOfInput() throws XmlRpcException
+    {
+        String xml = "<?xml version=\"1.0\" encoding=\"UTF-16\"?>"
+                        + "<methodResponse><params><param><value><int>7</int></value></param></params></methodResponse>";
+
+        XmlRpcFeedParser parser = new XmlRpcFeedParser();
+        assertFalse( parser.feed( ByteBuffer.wrap( xml.getBytes( StandardCharsets.UTF_16 ) ) ) );
+        assertNull( parser.getResult() );
+        assertEquals( 7, parser.endOfInput().getParams().get( 0 ) );
+    }
+
+    @Test
+    public void incompleteDocument() throws XmlRpcException
+    {
+        XmlRpcFeedParser parser = new XmlRpcFeedParser();
+        assertFalse( parser.feed( ByteBuffer.wrap( "<methodResponse><params>".getBytes( StandardCharsets.UTF_8 ) ) ) );
+        try
+        {
+            parser.endOfInput();
+            fail( "Incomplete document accepted" );
+        }
+        catch ( XmlRpcException e )
+        {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.core;
+
+import org.apache.commons.io.IOUtils;
+import org.commonjava.rwx.model.MethodCall;
+import org.commonjava.rwx.model.MethodResponse;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertNotSame;
+import static junit.framework.TestCase.assertSame;
+import static junit.framework.TestCase.assertTrue;
+
+public class XmlRpcParserPoolTest
+                extends AbstractTest
+{
+    @Test
+    public void resetParserTest() throws Exception
+    {
+        byte[] request = IOUtils.toByteArray( getXMLStream( "requestWithOneParam" ) );
+        String response = IOUtils.toString( getXMLStream( "kojiGetBuildResponse" ), StandardCharsets.UTF_8 );
+
+        XmlRpcParser parser = new XmlRpcParser();
+        for ( int i = 0; i < 3; i++ )
+        {
+            MethodCall call = (MethodCall) parser.reset( request ).parse();
+            assertEquals( "foo", call.getMethodName() );
+            assertEquals( "test", call.getParams().get( 0 ) );
+
+            MethodResponse resp = (MethodResponse) parser.reset( new StringReader( response ) ).parse();
+            assertEquals( 513598, ( (Map) resp.getParams().get( 0 ) ).get( "build_id" ) );
+
+            resp = (MethodResponse) parser.reset( getXMLStream( "kojiGetBuildResponse" ) ).parse();
+            assertEquals( 513598, ( (Map) resp.getParams().get( 0 ) ).get( "build_id" ) );
+        }
+    }
+
+    @Test
+    public void resetByteSliceTest() throws Exception
+    {
+        byte[] request = IOUtils.toByteArray( getXMLStream( "simpleRequest" ) );
+        byte[] padded = new byte[request.length + 20];
+        System.arraycopy( request, 0, padded, 10, request.length );
+
+        MethodCall call = (MethodCall) new XmlRpcParser().reset( padded, 10, request.length ).parse();
+        assertEquals( "foo", call.getMethodName() );
+    }
+
+    @Test
+    public void poolReuseTest()
+    {
+        XmlRpcParserPool pool = new XmlRpcParserPool( 2, StaxFactory.getInstance() );
+
+        XmlRpcParser parser = pool.acquire();
+        pool.release( parser );
+        assertSame( parser, pool.acquire() );
+
+        XmlRpcParser other = pool.acquire();
+        assertNotSame( parser, other );
+        pool.release( parser );
+        pool.release( other );
+
+        // pool is bounded, the third parser is dropped
+        XmlRpcParser extra = new XmlRpcParser();
+        pool.release( extra );
+        XmlRpcParser first = pool.acquire();
+        XmlRpcParser second = pool.acquire();
+        assertTrue( first != extra && second != extra );
+    }
+}
@@ -15,20 +15,28 @@
  */
 package org.commonjava.rwx.core;
 
+import org.apache.commons.io.IOUtils;
 import org.commonjava.rwx.error.XmlRpcException;
 import org.commonjava.rwx.model.Fault;
 import org.commonjava.rwx.model.MethodCall;
 import org.commonjava.rwx.model.MethodResponse;
+import org.commonjava.rwx.model.RpcObject;
 import org.commonjava.rwx.vocab.Nil;
+import org.commonjava.rwx.vocab.ValueType;
 import org.junit.Test;
 
 import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
 import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertNull;
 import static junit.framework.TestCase.assertTrue;
 
 /**
@@ -296,4 +304,98 @@ public class XmlRpcParserTest
 
         assertTrue( struct.get( "rpm" ) == Nil.NIL_VALUE );
     }
+
+    @Test
+    public void parseEventListenerTest() throws Exception
+    {
+        final List<String> events = new ArrayList<>();
+        final XmlRpcParser parser = new XmlRpcParser( getXMLStream( "kojiGetBuildResponse" ) );
+        parser.setParseEventListener( new ParseEventListener()
+        {
+            @Override
+            public void startElement( String name )
+            {
+                events.add( "<" + name + ">" );
+            }
+
+            @Override
+            public void endElement( String name )
+            {
+                events.add( "</" + name + ">" );
+            }
+
+            @Override
+            public void memberName( String name )
+            {
+                events.add( "key " + name );
+            }
+
+            @Override
+            public void value( ValueType type, Object value )
+            {
+                events.add( type + " " + value );
+            }
+        } );
+        Map<String, Object> struct = (Map<String, Object>) ( (MethodResponse) parser.parse() ).getParams().get( 0 );
+
+        assertEquals( "<methodResponse>", events.get( 0 ) );
+        assertEquals( "</methodResponse>", events.get( events.size() - 1 ) );
+        assertEquals( Collections.frequency( events, "<member>" ), Collections.frequency( events, "</member>" ) );
+        assertEquals( struct.size(), Collections.frequency( events, "<member>" ) );
+        assertTrue( events.contains( "key extra" ) );
+        assertTrue( events.contains( "NIL " + Nil.NIL_VALUE ) );
+        assertTrue( events.contains( "key build_id" ) );
+        assertTrue( events.contains( "INT " + struct.get( "build_id" ) ) );
+    }
+
+    @Test
+    public void prettyPrintedResponseTest() throws Exception
+    {
+        final XmlRpcParser parser = new XmlRpcParser( getXMLStream( "prettyPrintedResponse" ) );
+        final MethodResponse response = (MethodResponse) parser.parse();
+        assertPrettyPrinted( response );
+        final byte[] bytes = IOUtils.toByteArray( getXMLStream( "prettyPrintedResponse" ) );
+        assertPrettyPrinted( new XmlRpcByteParser().parse( bytes ) );
+    }
+
+    @Test
+    public void prettyPrintedMethodNameTest() throws Exception
+    {
+        final String request =
+                        "<methodCall>\n  <methodName>\n    getBuild\n  </methodName>\n  <params>\n  </params>\n"
+                                        + "</methodCall>";
+        final MethodCall call = (MethodCall) new XmlRpcParser( new ByteArrayInputStream( request.getBytes() ) ).parse();
+        assertEquals( "getBuild", call.getMethodName() );
+    }
+
+    @Test
+    public void streamedMemberWithoutName() throws Exception
+    {
+        final String response = "<methodResponse><params><param><value><struct>"
+                        + "<member><value><struct><member><name>id</name><value><int>1</int></value></member>"
+                        + "</struct></value></member>"
+                        + "<member><name>owner</name><value>jdoe</value></member>"
+                        + "</struct></value></param><param><value><int>2</int></value></param></params>"
+                        + "</methodResponse>";
+        final XmlRpcParser parser = new XmlRpcParser( new ByteArrayInputStream( response.getBytes() ) );
+        assertTrue( parser.beginParams() );
+        assertTrue( parser.nextValue() );
+        assertTrue( parser.beginStruct() );
+        assertEquals( "owner", parser.nextMember() ); // the nameless member is skipped
+        assertEquals( "jdoe", parser.readValue() );
+        assertNull( parser.nextMember() );
+        parser.endStruct();
+        assertTrue( parser.nextValue() );
+        assertEquals( 2, parser.readValue() );
+    }
+
+    private void assertPrettyPrinted( final RpcObject response )
+    {
+        final Map<String, Object> struct = (Map<String, Object>) response.getParams().get( 0 );
+        assertEquals( "koji builder", struct.get( "bare" ) ); // a bare value is a string, trimmed
+        assertEquals( "  kept  ", struct.get( "typed" ) );
+        assertNull( struct.get( "blank" ) );
+        assertEquals( 42, struct.get( "id" ) );
+        assertEquals( Arrays.asList( "x86_64", "noarch" ), struct.get( "tags" ) );
+    }
 }
@@ -0,0 +1,136 @@
+/**
+ * Copyright (C) 2010 Red Hat, Inc. (jdcasey@commonjava.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.rwx.core.util;
+
+import org.commonjava.rwx.error.CoercionException;
+import org.commonjava.rwx.util.DateTimeCodec;
+import org.junit.After;
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.fail;
+import static org.commonjava.rwx.vocab.XmlRpcConstants.DATETIME_FORMAT;
+
+public class DateTimeCodecTest
+{
+    private static final String[] ZONES = { "UTC", "America/New_York", "Europe/Prague", "Asia/Kolkata" };
+
+    private final TimeZone defaultZone = TimeZone.getDefault();
+
+    @After
+    public void restoreZone()
+    {
+        TimeZone.setDefault( defaultZone );
+    }
+
+    @Test
+    public void sameAsSimpleDateFormat() throws Exception
+    {
+        Random random = new Random( 42 );
+        for ( String zone : ZONES )
+        {
+            TimeZone.setDefault( TimeZone.getTimeZone( zone ) );
+            for ( int i = 0; i < 2000; i++ )
+            {
+                // 1900 to 2100, in whole seconds
+                long millis = ( random.nextLong() % 3155760000L ) * 1000L + 946684800000L;
+                Date date = new Date( millis );
+                for ( String format : DATETIME_FORMAT )
+                {
+                    String text = new SimpleDateFormat( format ).format( date );
+                    assertEquals( zone + " " + text, new SimpleDateFormat( format ).parse( text ),
+                                  DateTimeCodec.parse( text ) );
+                }
+                assertEquals( zone, new SimpleDateFormat( DATETIME_FORMAT[0] ).format( date ),
+                              DateTimeCodec.format( date ) );
+            }
+        }
+    }
+
+    @Test
+    public void daylightSavingTransitions() throws Exception
+    {
+        TimeZone.setDefault( TimeZone.getTimeZone( "America/New_York" ) );
+        for ( String text : new String[] { "20170312T01:59:59", "20170312T02:30:00", "20170312T03:00:00",
+                        "20171105T00:59:59", "20171105T01:30:00", "20171105T02:00:00" } )
+        {
+            assertEquals( text, new SimpleDateFormat( DATETIME_FORMAT[1] ).parse( text ), DateTimeCodec.parse( text ) );
+        }
+    }
+
+    @Test
+    public void extendedFormatAndZones() throws Exception
+    {
+        TimeZone.setDefault( TimeZone.getTimeZone( "Europe/Prague" ) );
+        long utc = Instant.parse( "2017-07-13T10:15:30Z" ).toEpochMilli();
+
+        assertEquals( utc, DateTimeCodec.parseEpochMillis( "20170713T10:15:30Z" ) );
+        assertEquals( utc, DateTimeCodec.parseEpochMillis( "20170713T101530Z" ) );
+        assertEquals( utc, DateTimeCodec.parseEpochMillis( "2017-07-13T10:15:30Z" ) );
+        assertEquals( utc, DateTimeCodec.parseEpochMillis( "2017-07-13T12:15:30+02:00" ) );
+        assertEquals( utc, DateTimeCodec.parseEpochMillis( "2017-07-13T12:15:30+0200" ) );
+        assertEquals( utc, DateTimeCodec.parseEpochMillis( "20170713T05:15:30-05" ) );
+        assertEquals( utc, DateTimeCodec.parseEpochMillis( " 2017-07-13T12:15:30 " ) ); // CEST
+    }
+
+    @Test
+    public void lenientFallback() throws Exception
+    {
+        TimeZone.setDefault( TimeZone.getTimeZone( "UTC" ) );
+        String text = "20171301T25:00:00";
+        assertEquals( new SimpleDateFormat( DATETIME_FORMAT[1] ).parse( text ), DateTimeCodec.parse( text ) );
+
+        try
+        {
+            DateTimeCodec.parse( "yesterday" );
+            fail( "Expected a CoercionException" );
+        }
+        catch ( CoercionException e )
+        {
+            // expected
+        }
+    }
+
+    @Test
+    public void cachedValueFollowsDefaultZone() throws Exception
+    {
+        TimeZone.setDefault( TimeZone.getTimeZone( "UTC" ) );
+        long utc = DateTimeCodec.parseEpochMillis( "20170713T10:15:30" );
+        assertEquals( utc, DateTimeCodec.parseEpochMillis( "20170713T10:15:30" ) );
+
+        TimeZone.setDefault( TimeZone.getTimeZone( "Asia/Kolkata" ) );
+        assertEquals( utc - 19800000L, DateTimeCodec.parseEpochMillis( "20170713T10:15:30" ) );
+    }
+
+    @Test
+    public void javaTime() throws Exception
+    {
+        TimeZone.setDefault( TimeZone.getTimeZone( "America/New_York" ) );
+        Date date = DateTimeCodec.parse( "20170713T10:15:30" );
+
+        assertEquals( Instant.parse( "2017-07-13T14:15:30Z" ), DateTimeCodec.toInstant( date ) );
+        assertEquals( LocalDateTime.of( 2017, 7, 13, 10, 15, 30 ), DateTimeCodec.toLocalDateTime( date ) );
+        assertEquals( "20170713T101530", DateTimeCodec.format( Instant.parse( "2017-07-13T14:15:30Z" ) ) );
+        assertEquals( "20170713T101530", DateTimeCodec.format( LocalDateTime.of( 2017, 7, 13, 10, 15, 30 ) ) );
+    }
+}